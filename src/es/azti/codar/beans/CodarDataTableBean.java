@@ -6,6 +6,8 @@ package es.azti.codar.beans;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 import es.azti.utils.TableColumnNames;
@@ -16,14 +18,39 @@ import es.azti.utils.TableColumnNames;
  *         Bean used to store the data of codar file tables and their
  *         transformations. Includes an utility to read just a selection and not
  *         all the table.
+ * 
+ *         Data is stored by columns, one float[] per column, missing or corrupt
+ *         cells are stored as NaN.
  */
 public class CodarDataTableBean {
 
+	// column name to TableColumnNames, to build the slot map without
+	// exceptions.
+	private static final HashMap<String, TableColumnNames> COLUMN_NAMES = new HashMap<String, TableColumnNames>();
+	static {
+		for (TableColumnNames name : TableColumnNames.values()) {
+			COLUMN_NAMES.put(name.toString(), name);
+		}
+	}
+
+	// fraction of the grid spacing accepted as rounding error when placing
+	// total rows in the grid.
+	private static final float GRID_TOLERANCE = 1e-3f;
+
 	private String type;
 	private int columns;
 	private int rows;
 	private String[] columnTypes;
-	private Float[][] data;
+	// data[column][row]
+	private float[][] data;
+	// number of rows really loaded in data
+	private int dataRows;
+	// cells that could not be parsed, loaded as NaN
+	private int malformedCells;
+	// position of each TableColumnNames in the table, -1 if not present.
+	private int[] columnSlots = emptySlots();
+	// codar to netcdf mappings already built for this table, by grid.
+	private HashMap<GridKey, CachedIndex> indexCache = new HashMap<GridKey, CachedIndex>();
 
 	/**
 	 * Checi if the table is empty or not checking the number of rows.
@@ -112,21 +139,195 @@ public class CodarDataTableBean {
 	 */
 	public void setColumnTypes(String[] columnTypes) {
 		this.columnTypes = columnTypes;
+		this.columnSlots = emptySlots();
+		clearIndexCache();
+		if (columnTypes != null) {
+			for (int i = 0; i < columnTypes.length; i++) {
+				TableColumnNames name = COLUMN_NAMES.get(columnTypes[i]);
+				// keep the first one, as indexOf did
+				if (name != null && columnSlots[name.ordinal()] < 0)
+					columnSlots[name.ordinal()] = i;
+			}
+		}
+	}
+
+	private static int[] emptySlots() {
+		int[] slots = new int[TableColumnNames.values().length];
+		Arrays.fill(slots, -1);
+		return slots;
 	}
 
 	/**
+	 * Builds a row ordered copy of the data, used by the table viewers.
+	 * 
 	 * @return the data
 	 */
 	public Float[][] getData() {
-		return data;
+		if (data == null)
+			return null;
+		Float[][] rowData = new Float[dataRows][data.length];
+		for (int j = 0; j < data.length; j++) {
+			for (int i = 0; i < dataRows; i++) {
+				rowData[i][j] = data[j][i];
+			}
+		}
+		return rowData;
 	}
 
 	/**
 	 * @param data
-	 *            the data to set
+	 *            the data to set, row ordered. Null cells are stored as NaN
 	 */
 	public void setData(Float[][] data) {
-		this.data = data;
+		if (data == null) {
+			this.data = null;
+			this.dataRows = 0;
+			return;
+		}
+		int width = this.columns;
+		for (Float[] row : data) {
+			if (row != null)
+				width = Math.max(width, row.length);
+		}
+		float[][] columnData = new float[width][data.length];
+		for (int i = 0; i < data.length; i++) {
+			for (int j = 0; j < width; j++) {
+				Float value = (data[i] != null && j < data[i].length) ? data[i][j] : null;
+				columnData[j][i] = value == null ? Float.NaN : value.floatValue();
+			}
+		}
+		setColumnData(columnData, data.length);
+	}
+
+	/**
+	 * @param columnData
+	 *            the data to set, one array per column. The arrays are stored
+	 *            as they are, not copied.
+	 * @param dataRows
+	 *            number of rows loaded in each column
+	 */
+	public void setColumnData(float[][] columnData, int dataRows) {
+		this.data = columnData;
+		this.dataRows = dataRows;
+		clearIndexCache();
+	}
+
+	/**
+	 * Forgets the codar to netcdf mappings computed for this table. Must be
+	 * called when the grid geometry of the bean that owns the table changes,
+	 * for example after completing it with the profile values.
+	 */
+	public synchronized void clearIndexCache() {
+		indexCache.clear();
+	}
+
+	/**
+	 * @return the number of rows loaded, may be different from the TableRows
+	 *         header if the file is corrupt.
+	 */
+	public int getDataRows() {
+		return dataRows;
+	}
+
+	/**
+	 * @return the number of cells of the file that could not be parsed, they
+	 *         are stored as NaN.
+	 */
+	public int getMalformedCells() {
+		return malformedCells;
+	}
+
+	/**
+	 * @param malformedCells
+	 *            the malformedCells to set
+	 */
+	public void setMalformedCells(int malformedCells) {
+		this.malformedCells = malformedCells;
+	}
+
+	/**
+	 * @param col
+	 *            column name
+	 * @return position of the column in the table or -1 if not present
+	 */
+	public int getColumnIndex(Enum<TableColumnNames> col) {
+		int slot = columnSlots[col.ordinal()];
+		return (data != null && slot < data.length) ? slot : -1;
+	}
+
+	/**
+	 * @param col
+	 *            column name
+	 * @return true if the table contains the column
+	 */
+	public boolean hasColumn(Enum<TableColumnNames> col) {
+		return getColumnIndex(col) >= 0;
+	}
+
+	/**
+	 * Primitive access to a column. The array returned is the one stored in
+	 * the bean, it must not be modified.
+	 * 
+	 * @param col
+	 *            column name
+	 * @return the column values, null if the column is not present.
+	 */
+	public float[] getColumn(Enum<TableColumnNames> col) {
+		int index = getColumnIndex(col);
+		return index >= 0 ? data[index] : null;
+	}
+
+	/**
+	 * Primitive access to a column by its name, for the tables whose columns
+	 * are not in TableColumnNames (rads, rcvr diagnostics).
+	 * 
+	 * @param columnName
+	 *            column name as it is in TableColumnTypes
+	 * @return the column values, null if the column is not present.
+	 */
+	public float[] getColumn(String columnName) {
+		if (columnTypes == null || data == null)
+			return null;
+		for (int i = 0; i < columnTypes.length && i < data.length; i++) {
+			if (columnTypes[i].equals(columnName))
+				return data[i];
+		}
+		return null;
+	}
+
+	/**
+	 * @param col
+	 *            column name
+	 * @param row
+	 *            row in the codar table
+	 * @return the value of the cell, NaN if the column is not present.
+	 */
+	public float getValue(Enum<TableColumnNames> col, int row) {
+		int index = getColumnIndex(col);
+		return index >= 0 ? data[index][row] : Float.NaN;
+	}
+
+	/**
+	 * Primitive version of getColumnElementsInOrder.
+	 * 
+	 * @param col
+	 *            column you want to request the info from
+	 * @param codarToNetcdfIndex
+	 *            codar table row of each netcdf cell, -1 if empty
+	 * @return the column values in netcdf order, NaN for the empty cells. An
+	 *         empty array if the column is not present.
+	 */
+	public float[] getColumnInOrder(Enum<TableColumnNames> col, int[] codarToNetcdfIndex) {
+		int index = getColumnIndex(col);
+		if (index < 0)
+			return new float[0];
+		float[] column = data[index];
+		float[] datosColumna = new float[codarToNetcdfIndex.length];
+		for (int i = 0; i < codarToNetcdfIndex.length; i++) {
+			int row = codarToNetcdfIndex[i];
+			datosColumna[i] = row != -1 ? column[row] : Float.NaN;
+		}
+		return datosColumna;
 	}
 
 	/**
@@ -141,40 +342,99 @@ public class CodarDataTableBean {
 	 *         table from witch we need to read the data to fill the elemente of
 	 *         the netcdf. for example: in a 2x2 netcdf array: [1,3,2,5] means,
 	 *         that the netcdf, must be filled with the elementes of the rows
-	 *         1,3,2,5 from codar text file.
+	 *         1,3,2,5 from codar text file. The mapping is built once per grid
+	 *         and shared, so the list is read only.
 	 */
 	public List<Integer> getRadialTableIndexInNetCdf(List<Integer> bearingData, List<Float> rangeData) {
+		int[] bearings = new int[bearingData.size()];
+		for (int i = 0; i < bearings.length; i++) {
+			bearings[i] = bearingData.get(i);
+		}
+		float[] ranges = new float[rangeData.size()];
+		for (int i = 0; i < ranges.length; i++) {
+			ranges[i] = rangeData.get(i);
+		}
+		GridKey key = new GridKey(true, toFloat(bearings), ranges);
+		return cachedIndex(key).asList();
+	}
 
-		List<Integer> returnTable = new ArrayList<Integer>(bearingData.size() * rangeData.size());
-		List<Float> bearingCodarData = getColumnElements(TableColumnNames.BEAR);
-		List<Float> rangeCodarData = getColumnElements(TableColumnNames.RNGE);
-		for (int indexb = 0; indexb < bearingData.size(); indexb++) {
-			for (int indexr = 0; indexr < rangeData.size(); indexr++) {
-				// read values
-				double range = rangeData.get(indexr);
-				int bearing = bearingData.get(indexb);
-				// search for the correct index
-				int position = -1;
-				for (int innerIndex = 0; innerIndex < bearingCodarData.size(); innerIndex++) {
-					if (range == rangeCodarData.get(innerIndex)
-							&& bearing == ((int) bearingCodarData.get(innerIndex).doubleValue())) {
-						position = innerIndex;
+	/**
+	 * Primitive version of getRadialTableIndexInNetCdf. The codar rows are
+	 * hashed once by (bearing, range), a row matches a netcdf cell when its
+	 * range is the same and its bearing truncated to int is the same. If
+	 * several rows match the same cell the first one is used.
+	 * 
+	 * @param bearingData
+	 *            the bearing data array used as netcdf index
+	 * @param rangeData
+	 *            the range data array used as netcdf index
+	 * @return the codar row of each netcdf cell, bearing major, -1 if empty.
+	 *         The array is shared by every caller using the same grid, it
+	 *         must not be modified.
+	 */
+	public int[] getRadialTableIndex(int[] bearingData, float[] rangeData) {
+		return cachedIndex(new GridKey(true, toFloat(bearingData), rangeData.clone())).index;
+	}
+
+	private int[] buildRadialTableIndex(int[] bearingData, float[] rangeData) {
+		int[] returnTable = new int[bearingData.length * rangeData.length];
+		Arrays.fill(returnTable, -1);
+		float[] bearingCodarData = getColumn(TableColumnNames.BEAR);
+		float[] rangeCodarData = getColumn(TableColumnNames.RNGE);
+		if (bearingCodarData == null || rangeCodarData == null)
+			return returnTable;
+
+		// open addressing hash table: cell key -> first codar row
+		int capacity = Integer.highestOneBit(Math.max(dataRows, 1) * 2) * 2;
+		long[] keys = new long[capacity];
+		int[] positions = new int[capacity];
+		Arrays.fill(positions, -1);
+		for (int row = 0; row < dataRows; row++) {
+			float range = rangeCodarData[row];
+			if (Float.isNaN(range))
+				continue;
+			long key = cellKey((int) bearingCodarData[row], range);
+			int slot = hashSlot(key, capacity);
+			while (positions[slot] != -1 && keys[slot] != key) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			if (positions[slot] == -1) {
+				keys[slot] = key;
+				positions[slot] = row;
+			}
+		}
+
+		for (int indexb = 0; indexb < bearingData.length; indexb++) {
+			for (int indexr = 0; indexr < rangeData.length; indexr++) {
+				float range = rangeData[indexr];
+				if (Float.isNaN(range))
+					continue;
+				long key = cellKey(bearingData[indexb], range);
+				int slot = hashSlot(key, capacity);
+				while (positions[slot] != -1) {
+					if (keys[slot] == key) {
+						returnTable[indexb * rangeData.length + indexr] = positions[slot];
 						break;
 					}
+					slot = (slot + 1) & (capacity - 1);
 				}
-				if (position != -1) {
-					// For debugging purpouses
-					// System.out.println("found range: "+ range + " not found
-					// bearing: " + bearing + "pos b: " + indexb + " pos r: "+
-					// indexr + "mascara: " + ((indexb*rangeData.size() +
-					// indexr) + " : pos: " + position));
-				}
-				returnTable.add(indexb * rangeData.size() + indexr, Integer.valueOf(position));
 			}
 		}
 		return returnTable;
 	}
 
+	/**
+	 * key of a radial cell, 0.0 and -0.0 are the same range.
+	 */
+	private static long cellKey(int bearing, float range) {
+		return ((long) bearing << 32) | (Float.floatToIntBits(range == 0f ? 0f : range) & 0xffffffffL);
+	}
+
+	private static int hashSlot(long key, int capacity) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & (capacity - 1);
+	}
+
 	/**
 	 * Mapping between codar total data table and netcdf data table
 	 * 
@@ -187,43 +447,180 @@ public class CodarDataTableBean {
 	 *         codar table from witch we need to read the data to fill the
 	 *         elemente of the netcdf. for example: in a 2x2 netcdf array:
 	 *         [1,3,2,5] means, that the netcdf, must be filled with the
-	 *         elementes of the rows 1,3,2,5 from codar text file.
+	 *         elementes of the rows 1,3,2,5 from codar text file. The mapping
+	 *         is built once per grid and shared, so the list is read only.
 	 */
 	public List<Integer> getTotalTableIndexInNetCdf(List<Float> xData, List<Float> yData) {
-		List<Integer> returnTable = new ArrayList<Integer>(xData.size() * yData.size()) ;
-			for(int i=0;i<xData.size()*yData.size();i++){
-				returnTable.add(Integer.valueOf(-1));
-			}
-		
-		List<Float> xCodarData = getColumnElements(TableColumnNames.XDST);
-		List<Float> yCodarData = getColumnElements(TableColumnNames.YDST);
-		for (int indexb = 0; indexb < xData.size(); indexb++) {
-			for (int indexr = 0; indexr < yData.size(); indexr++) {
-				// read values
-				float y = yData.get(indexr);
-				float x = xData.get(indexb);
-				// search for codar index
-				int position = -1;
-				for (int innerIndex = 0; innerIndex < xCodarData.size(); innerIndex++) {
-					if (y == yCodarData.get(innerIndex) && x == (xCodarData.get(innerIndex))) {
-						position = innerIndex;
-						break;
-					}
+		float[] xAxis = new float[xData.size()];
+		for (int i = 0; i < xAxis.length; i++) {
+			xAxis[i] = xData.get(i);
+		}
+		float[] yAxis = new float[yData.size()];
+		for (int i = 0; i < yAxis.length; i++) {
+			yAxis[i] = yData.get(i);
+		}
+		GridKey key = new GridKey(false, xAxis, yAxis);
+		return cachedIndex(key).asList();
+	}
+
+	/**
+	 * Primitive version of getTotalTableIndexInNetCdf. Each codar row is
+	 * placed directly in its grid cell computing the nearest axis position
+	 * from XDST/YDST. A row is accepted if its distance to the axis value is
+	 * under GRID_TOLERANCE times the grid spacing, so float rounding of the
+	 * axis or of the file values does not lose cells. If several rows fall in
+	 * the same cell the first one is used.
+	 * 
+	 * @param xData
+	 *            the x axis data array used as netcdf index, equally spaced
+	 * @param yData
+	 *            the y axis data array used as netcdf index, equally spaced
+	 * @return the codar row of each netcdf cell, y major, -1 if empty. The
+	 *         array is shared by every caller using the same grid, it must not
+	 *         be modified.
+	 */
+	public int[] getTotalTableIndex(float[] xData, float[] yData) {
+		return cachedIndex(new GridKey(false, xData.clone(), yData.clone())).index;
+	}
+
+	private int[] buildTotalTableIndex(float[] xData, float[] yData) {
+		int[] returnTable = new int[xData.length * yData.length];
+		Arrays.fill(returnTable, -1);
+		float[] xCodarData = getColumn(TableColumnNames.XDST);
+		float[] yCodarData = getColumn(TableColumnNames.YDST);
+		if (xCodarData == null || yCodarData == null || returnTable.length == 0)
+			return returnTable;
+
+		for (int row = 0; row < dataRows; row++) {
+			int indexx = nearestAxisPosition(xData, xCodarData[row]);
+			if (indexx < 0)
+				continue;
+			int indexy = nearestAxisPosition(yData, yCodarData[row]);
+			if (indexy < 0)
+				continue;
+			int cell = indexy * xData.length + indexx;
+			if (returnTable[cell] == -1)
+				returnTable[cell] = row;
+		}
+		return returnTable;
+	}
+
+	/**
+	 * Returns the mapping of a grid, building it only the first time the grid
+	 * is requested.
+	 */
+	private synchronized CachedIndex cachedIndex(GridKey key) {
+		CachedIndex cached = indexCache.get(key);
+		if (cached == null) {
+			int[] index;
+			if (key.radial) {
+				int[] bearings = new int[key.axis1.length];
+				for (int i = 0; i < bearings.length; i++) {
+					bearings[i] = (int) key.axis1[i];
 				}
-				if (position != -1) {
-					// For debugging purpouses
-//					 System.out.println("found y: "+ y + " not found x: " + x
-//					 + "pos x: " + indexb + " pos y: "+ indexr + "mascara: " +
-//					 ((indexb*yData.size() + indexr) + " : pos: " +
-//					 position));
+				index = buildRadialTableIndex(bearings, key.axis2);
+			} else {
+				index = buildTotalTableIndex(key.axis1, key.axis2);
+			}
+			cached = new CachedIndex(index);
+			indexCache.put(key, cached);
+		}
+		return cached;
+	}
+
+	private static float[] toFloat(int[] values) {
+		float[] floats = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			floats[i] = values[i];
+		}
+		return floats;
+	}
+
+	/**
+	 * Grid used to map the table: bearing and range axes for radials, x and y
+	 * axes for totals. The axes are fully defined by the origin, resolution
+	 * and extent of the grid, so they are used as cache key.
+	 */
+	private static final class GridKey {
+		private final boolean radial;
+		private final float[] axis1;
+		private final float[] axis2;
+		private final int hash;
+
+		private GridKey(boolean radial, float[] axis1, float[] axis2) {
+			this.radial = radial;
+			this.axis1 = axis1;
+			this.axis2 = axis2;
+			this.hash = 31 * (31 * Arrays.hashCode(axis1) + Arrays.hashCode(axis2)) + (radial ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof GridKey))
+				return false;
+			GridKey other = (GridKey) obj;
+			return radial == other.radial && Arrays.equals(axis1, other.axis1) && Arrays.equals(axis2, other.axis2);
+		}
+	}
+
+	/**
+	 * A mapping and its read only List view.
+	 */
+	private static final class CachedIndex {
+		private final int[] index;
+		private List<Integer> list;
+
+		private CachedIndex(int[] index) {
+			this.index = index;
+		}
+
+		private List<Integer> asList() {
+			if (list == null) {
+				List<Integer> returnTable = new ArrayList<Integer>(index.length);
+				for (int i = 0; i < index.length; i++) {
+					returnTable.add(Integer.valueOf(index[i]));
 				}
-				//returnTable.add(indexb * yData.size() + indexr, new Integer(position));
-				returnTable.remove(indexr * xData.size() + indexb);
-				returnTable.add(indexr * xData.size() + indexb, Integer.valueOf(position));
+				list = Collections.unmodifiableList(returnTable);
 			}
+			return list;
 		}
+	}
 
-		return returnTable;
+	/**
+	 * @param axis
+	 *            equally spaced axis
+	 * @param value
+	 *            value to place in the axis
+	 * @return the position of the axis value nearest to value, -1 if it is not
+	 *         close enough.
+	 */
+	private static int nearestAxisPosition(float[] axis, float value) {
+		if (Float.isNaN(value))
+			return -1;
+		int last = axis.length - 1;
+		if (last == 0) {
+			float tolerance = GRID_TOLERANCE * Math.max(1f, Math.abs(axis[0]));
+			return Math.abs(axis[0] - value) <= tolerance ? 0 : -1;
+		}
+		float step = (axis[last] - axis[0]) / last;
+		float tolerance = GRID_TOLERANCE * Math.abs(step);
+		int guess = Math.round((value - axis[0]) / step);
+		int position = -1;
+		float distance = Float.MAX_VALUE;
+		// the axis is built adding the spacing, check the neighbours too.
+		for (int i = Math.max(0, guess - 1); i <= Math.min(last, guess + 1); i++) {
+			float d = Math.abs(axis[i] - value);
+			if (d <= tolerance && d < distance) {
+				position = i;
+				distance = d;
+			}
+		}
+		return position;
 	}
 
 	/**
@@ -238,12 +635,14 @@ public class CodarDataTableBean {
 	 * @return ArrayList of the data in float format.
 	 */
 	public List<Float> getColumnElementsInOrder(Enum<TableColumnNames> col, List<Integer> codarToNetcdfIndex) {
-		int index = this.getColumnTypesAsList().indexOf(col.toString());
-		List<Float> datosColumna = new ArrayList<Float>();
+		int index = getColumnIndex(col);
+		List<Float> datosColumna = new ArrayList<Float>(codarToNetcdfIndex.size());
 		if (index >= 0) {
+			float[] column = this.data[index];
 			for (int i = 0; i < codarToNetcdfIndex.size(); i++) {
-				if (codarToNetcdfIndex.get(i) != -1) {
-					datosColumna.add(this.data[codarToNetcdfIndex.get(i)][index]);
+				int row = codarToNetcdfIndex.get(i).intValue();
+				if (row != -1) {
+					datosColumna.add(column[row]);
 				} else {
 					// if the info requested is out of bounds, we put a NaN
 					// value for Float data format.
@@ -261,10 +660,12 @@ public class CodarDataTableBean {
 	 * @return data from a column in a Float ArrayList.
 	 */
 	public List<Float> getColumnElements(Enum<TableColumnNames> col) {
-		List<Float> datosColumna = new ArrayList<Float>();
-		int index = this.getColumnTypesAsList().indexOf(col.toString());
-		for (int i = 0; i < this.data.length; i++) {
-			datosColumna.add(this.data[i][index]);
+		float[] column = getColumn(col);
+		List<Float> datosColumna = new ArrayList<Float>(dataRows);
+		if (column != null) {
+			for (int i = 0; i < dataRows; i++) {
+				datosColumna.add(column[i]);
+			}
 		}
 		return datosColumna;
 	}
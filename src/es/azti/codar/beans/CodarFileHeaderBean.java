@@ -0,0 +1,254 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.beans;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Bean with the header information of a codar file needed to locate
+ *         it in an archive: site, time, origin, pattern and size of the data
+ *         table. It is filled by a header only scan, the data tables are not
+ *         read.
+ */
+public class CodarFileHeaderBean implements Comparable<CodarFileHeaderBean> {
+
+	private String pathToFile;
+	private long lastModified;
+	private long length;
+	private String site;
+	private String timeStamp;
+	// timeStamp in millis, Long.MIN_VALUE if not valid
+	private long timeInMillis = Long.MIN_VALUE;
+	private String origin;
+	private String patternType;
+	private String UUID;
+	private String tableType;
+	private int tableRows = -1;
+
+	/**
+	 * @return the pathToFile
+	 */
+	public String getPathToFile() {
+		return pathToFile;
+	}
+
+	/**
+	 * @param pathToFile
+	 *            the pathToFile to set
+	 */
+	public void setPathToFile(String pathToFile) {
+		this.pathToFile = pathToFile;
+	}
+
+	/**
+	 * @return the lastModified time of the file when it was scanned
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @param lastModified
+	 *            the lastModified to set
+	 */
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @return the length of the file when it was scanned
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @param length
+	 *            the length to set
+	 */
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * @return the site, as it is in the header
+	 */
+	public String getSite() {
+		return site;
+	}
+
+	/**
+	 * @return the site code, the first word of the site header.
+	 */
+	public String getSiteCode() {
+		if (site == null || site.trim().isEmpty())
+			return null;
+		return site.trim().split("\\s+")[0];
+	}
+
+	/**
+	 * @param site
+	 *            the site to set
+	 */
+	public void setSite(String site) {
+		this.site = site;
+	}
+
+	/**
+	 * @return the timeStamp
+	 */
+	public String getTimeStamp() {
+		return timeStamp;
+	}
+
+	/**
+	 * @return the timeStamp as Calendar java Class
+	 * @throws ParseException
+	 */
+	public Calendar getTimeStampAsCalendar() throws ParseException {
+		SimpleDateFormat codarFormat = new SimpleDateFormat("yyyy MM dd HH mm ss");
+		codarFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Calendar date = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		date.setTime(codarFormat.parse(this.getTimeStamp()));
+		return date;
+	}
+
+	/**
+	 * @param timeStamp
+	 *            the timeStamp to set
+	 */
+	public void setTimeStamp(String timeStamp) {
+		this.timeStamp = timeStamp;
+		try {
+			this.timeInMillis = timeStamp == null ? Long.MIN_VALUE : getTimeStampAsCalendar().getTimeInMillis();
+		} catch (ParseException e) {
+			this.timeInMillis = Long.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * @return the timeStamp in milliseconds UTC, Long.MIN_VALUE if it is
+	 *         missing or not valid.
+	 */
+	public long getTimeInMillis() {
+		return timeInMillis;
+	}
+
+	/**
+	 * @return the origin
+	 */
+	public String getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * @param origin
+	 *            the origin to set
+	 */
+	public void setOrigin(String origin) {
+		this.origin = origin;
+	}
+
+	/**
+	 * @return the patternType
+	 */
+	public String getPatternType() {
+		return patternType;
+	}
+
+	/**
+	 * @param patternType
+	 *            the patternType to set
+	 */
+	public void setPatternType(String patternType) {
+		this.patternType = patternType;
+	}
+
+	/**
+	 * @return the UUID
+	 */
+	public String getUUID() {
+		return UUID;
+	}
+
+	/**
+	 * @param uUID
+	 *            the UUID to set
+	 */
+	public void setUUID(String uUID) {
+		UUID = uUID;
+	}
+
+	/**
+	 * @return the type of the first table of the file
+	 */
+	public String getTableType() {
+		return tableType;
+	}
+
+	/**
+	 * @param tableType
+	 *            the tableType to set
+	 */
+	public void setTableType(String tableType) {
+		this.tableType = tableType;
+	}
+
+	/**
+	 * @return the rows of the first table of the file, -1 if unknown
+	 */
+	public int getTableRows() {
+		return tableRows;
+	}
+
+	/**
+	 * @param tableRows
+	 *            the tableRows to set
+	 */
+	public void setTableRows(int tableRows) {
+		this.tableRows = tableRows;
+	}
+
+	/**
+	 * @return true if the file is a radial file, gzipped or not.
+	 */
+	public boolean isRadial() {
+		return pathToFile != null && (pathToFile.endsWith(".ruv") || pathToFile.endsWith(".ruv.gz"));
+	}
+
+	/**
+	 * @return true if the file is a total file, gzipped or not.
+	 */
+	public boolean isTotal() {
+		return pathToFile != null && (pathToFile.endsWith(".tuv") || pathToFile.endsWith(".tuv.gz"));
+	}
+
+	/**
+	 * Orders by site code, time and path.
+	 */
+	@Override
+	public int compareTo(CodarFileHeaderBean other) {
+		int c = compare(getSiteCode(), other.getSiteCode());
+		if (c == 0) {
+			long t1 = timeInMillis;
+			long t2 = other.timeInMillis;
+			c = t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+		}
+		if (c == 0)
+			c = compare(pathToFile, other.pathToFile);
+		return c;
+	}
+
+	private static int compare(String a, String b) {
+		if (a == null)
+			return b == null ? 0 : -1;
+		return b == null ? 1 : a.compareTo(b);
+	}
+}
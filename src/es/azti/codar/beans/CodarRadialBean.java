@@ -10,6 +10,7 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TimeZone;
 
 import es.azti.db.NETWORK_TB;
@@ -112,6 +113,9 @@ public class CodarRadialBean implements Serializable {
 	// private String metadata_date_stamp;
 	private String netcdf_version = "netCDF-4 classic model";
 	private String netcdf_format = NetcdfFileWriter.Version.netcdf4_classic.name();
+	// NetCDF-4 compression of the grids, the default one if null
+	private Integer netcdf_deflate_level;
+	private Boolean netcdf_shuffle;
 	private String name_vocabulary = "NetCDF Climate and Forecast (CF) Metadata Convention Standard Name Table Version 1.6";
 
 	// date formater
@@ -162,6 +166,8 @@ public class CodarRadialBean implements Serializable {
 	private HashMap<String, String> aditionalAttributes;
 	// Radial radar information, the data
 	private transient CodarDataTableBean table;
+	// position of all the tables of the file, diagnostic ones included
+	private transient List<CodarTableBlockBean> tableBlocks;
 	// Radial QAQC test data
 	private RadialQCQATestBean radialTest;
 
@@ -1144,6 +1150,37 @@ public class CodarRadialBean implements Serializable {
 		this.table = table;
 	}
 
+	/**
+	 * @return the tables found in the file, in file order. Null if the file
+	 *         has not been parsed.
+	 */
+	public List<CodarTableBlockBean> getTableBlocks() {
+		return tableBlocks;
+	}
+
+	/**
+	 * @param tableBlocks
+	 *            the tableBlocks to set
+	 */
+	public void setTableBlocks(List<CodarTableBlockBean> tableBlocks) {
+		this.tableBlocks = tableBlocks;
+	}
+
+	/**
+	 * @param tableType
+	 *            "rads", "rcvr"...
+	 * @return the first table block of the type, null if not present.
+	 */
+	public CodarTableBlockBean getTableBlock(String tableType) {
+		if (tableBlocks != null) {
+			for (CodarTableBlockBean block : tableBlocks) {
+				if (block.isType(tableType))
+					return block;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * @return the radialTest
 	 */
@@ -1488,6 +1525,36 @@ public class CodarRadialBean implements Serializable {
 		this.netcdf_format = netcdf_format;
 	}
 
+	/**
+	 * @return the netcdf_deflate_level
+	 */
+	public Integer getNetcdf_deflate_level() {
+		return netcdf_deflate_level;
+	}
+
+	/**
+	 * @param netcdf_deflate_level
+	 *            the netcdf_deflate_level to set
+	 */
+	public void setNetcdf_deflate_level(Integer netcdf_deflate_level) {
+		this.netcdf_deflate_level = netcdf_deflate_level;
+	}
+
+	/**
+	 * @return the netcdf_shuffle
+	 */
+	public Boolean getNetcdf_shuffle() {
+		return netcdf_shuffle;
+	}
+
+	/**
+	 * @param netcdf_shuffle
+	 *            the netcdf_shuffle to set
+	 */
+	public void setNetcdf_shuffle(Boolean netcdf_shuffle) {
+		this.netcdf_shuffle = netcdf_shuffle;
+	}
+
 	/**
 	 * @return the name_vocabulary
 	 */
@@ -2397,12 +2464,18 @@ public class CodarRadialBean implements Serializable {
 				radialTest.setRcLim(profile.getRadialTest().getRcLim());
 			if (Float.isNaN(radialTest.getAngLim()))
 				radialTest.setAngLim(profile.getRadialTest().getAngLim());
+			if (radialTest.getTrueMedianFilter() == null)
+				radialTest.setTrueMedianFilter(profile.getRadialTest().getTrueMedianFilter());
 
 			if (networkBean == null)
 				setNetworkBean(profile.getNetworkBean());
 			if (stationBean == null)
 				setStationBean(profile.getStationBean());
 
+			// the grid geometry may have changed, mappings must be rebuilt
+			if (table != null)
+				table.clearIndexCache();
+
 			todoOK = true;
 		}
 		return todoOK;
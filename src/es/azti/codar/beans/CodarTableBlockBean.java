@@ -0,0 +1,177 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.beans;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Position of a data table inside a codar LLUV file. The parser records
+ *         one block per table (LLUV RDL9, rads rad1, rcvr rcv2...) with its
+ *         description headers and the byte offsets of the %TableStart /
+ *         %TableEnd lines, so the tables that are not loaded can be read later
+ *         without scanning the file again.
+ */
+public class CodarTableBlockBean {
+
+	private String type;
+	private int columns;
+	private int rows;
+	private String[] columnTypes;
+	// offset of the first line of the table description
+	private long blockStart;
+	// offset of the first line after %TableStart
+	private long dataStart = -1;
+	// offset of the %TableEnd line, or end of file if missing
+	private long dataEnd = -1;
+	// offset of the line following %TableEnd
+	private long blockEnd = -1;
+
+	/**
+	 * @return the table type, "LLUV RDL9", "rads rad1", "rcvr rcv2"...
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @param type
+	 *            the type to set
+	 */
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return the columns
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @param columns
+	 *            the columns to set
+	 */
+	public void setColumns(int columns) {
+		this.columns = columns;
+	}
+
+	/**
+	 * @return the rows declared in TableRows
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @param rows
+	 *            the rows to set
+	 */
+	public void setRows(int rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * @return the columnTypes
+	 */
+	public String[] getColumnTypes() {
+		return columnTypes;
+	}
+
+	/**
+	 * @return the column names as a Java List<String>, empty if unknown.
+	 */
+	public List<String> getColumnTypesAsList() {
+		return columnTypes == null ? Arrays.<String>asList() : Arrays.asList(columnTypes);
+	}
+
+	/**
+	 * @param columnTypes
+	 *            the columnTypes to set
+	 */
+	public void setColumnTypes(String[] columnTypes) {
+		this.columnTypes = columnTypes;
+	}
+
+	/**
+	 * @return the blockStart
+	 */
+	public long getBlockStart() {
+		return blockStart;
+	}
+
+	/**
+	 * @param blockStart
+	 *            the blockStart to set
+	 */
+	public void setBlockStart(long blockStart) {
+		this.blockStart = blockStart;
+	}
+
+	/**
+	 * @return the dataStart, -1 if the table has no %TableStart line
+	 */
+	public long getDataStart() {
+		return dataStart;
+	}
+
+	/**
+	 * @param dataStart
+	 *            the dataStart to set
+	 */
+	public void setDataStart(long dataStart) {
+		this.dataStart = dataStart;
+	}
+
+	/**
+	 * @return the dataEnd
+	 */
+	public long getDataEnd() {
+		return dataEnd;
+	}
+
+	/**
+	 * @param dataEnd
+	 *            the dataEnd to set
+	 */
+	public void setDataEnd(long dataEnd) {
+		this.dataEnd = dataEnd;
+	}
+
+	/**
+	 * @return the blockEnd
+	 */
+	public long getBlockEnd() {
+		return blockEnd;
+	}
+
+	/**
+	 * @param blockEnd
+	 *            the blockEnd to set
+	 */
+	public void setBlockEnd(long blockEnd) {
+		this.blockEnd = blockEnd;
+	}
+
+	/**
+	 * @return true if the data lines of the table have been located.
+	 */
+	public boolean hasData() {
+		return dataStart >= 0 && dataEnd >= dataStart;
+	}
+
+	/**
+	 * @param tableType
+	 *            "LLUV RDL", "rads", "rcvr"...
+	 * @return true if the table type contains the given one, as the loaders
+	 *         check it.
+	 */
+	public boolean isType(String tableType) {
+		return type != null && type.contains(tableType);
+	}
+}
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TimeZone;
 
 import es.azti.db.NETWORK_TB;
@@ -129,6 +130,9 @@ public class CodarTotalBean implements Serializable {
 
 	private String netcdf_version = "netCDF-4 classic model";
 	private String netcdf_format = NetcdfFileWriter.Version.netcdf4_classic.name();
+	// NetCDF-4 compression of the grids, the default one if null
+	private Integer netcdf_deflate_level;
+	private Boolean netcdf_shuffle;
 	private String name_vocabulary = "NetCDF Climate and Forecast (CF) Metadata Convention Standard Name Table Version 1.6";
 
 	// SiteSource # Name Lat Lon Coverage(s) RngStep(km) Pattern AntBearing(NCW)
@@ -141,6 +145,8 @@ public class CodarTotalBean implements Serializable {
 	private HashMap<String, String> aditionalAttributes;
 	// Radial radar information, the data
 	private transient CodarDataTableBean table;
+	// position of all the tables of the file, diagnostic ones included
+	private transient List<CodarTableBlockBean> tableBlocks;
 	// Radial QAQC test data
 	private TotalQCQATestBean totalTest;
 
@@ -515,6 +521,37 @@ public class CodarTotalBean implements Serializable {
 		this.table = table;
 	}
 
+	/**
+	 * @return the tables found in the file, in file order. Null if the file
+	 *         has not been parsed.
+	 */
+	public List<CodarTableBlockBean> getTableBlocks() {
+		return tableBlocks;
+	}
+
+	/**
+	 * @param tableBlocks
+	 *            the tableBlocks to set
+	 */
+	public void setTableBlocks(List<CodarTableBlockBean> tableBlocks) {
+		this.tableBlocks = tableBlocks;
+	}
+
+	/**
+	 * @param tableType
+	 *            "rads", "rcvr"...
+	 * @return the first table block of the type, null if not present.
+	 */
+	public CodarTableBlockBean getTableBlock(String tableType) {
+		if (tableBlocks != null) {
+			for (CodarTableBlockBean block : tableBlocks) {
+				if (block.isType(tableType))
+					return block;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * @return the totalTest
 	 */
@@ -1497,6 +1534,34 @@ public class CodarTotalBean implements Serializable {
 		this.netcdf_format = netcdf_format;
 	}
 
+	/**
+	 * @return the netcdf_deflate_level
+	 */
+	public Integer getNetcdf_deflate_level() {
+		return netcdf_deflate_level;
+	}
+
+	/**
+	 * @param netcdf_deflate_level the netcdf_deflate_level to set
+	 */
+	public void setNetcdf_deflate_level(Integer netcdf_deflate_level) {
+		this.netcdf_deflate_level = netcdf_deflate_level;
+	}
+
+	/**
+	 * @return the netcdf_shuffle
+	 */
+	public Boolean getNetcdf_shuffle() {
+		return netcdf_shuffle;
+	}
+
+	/**
+	 * @param netcdf_shuffle the netcdf_shuffle to set
+	 */
+	public void setNetcdf_shuffle(Boolean netcdf_shuffle) {
+		this.netcdf_shuffle = netcdf_shuffle;
+	}
+
 	/**
 	 * @param name_vocabulary the name_vocabulary to set
 	 */
@@ -1805,6 +1870,10 @@ public class CodarTotalBean implements Serializable {
 			if (networkBean == null)
 				setNetworkBean(profile.getNetworkBean());
 
+			// the grid geometry may have changed, mappings must be rebuilt
+			if (table != null)
+				table.clearIndexCache();
+
 			todoOK = true;
 		}
 		return todoOK;
@@ -36,6 +36,10 @@ public class RadialQCQATestBean implements Serializable {
 	private float medianFilter = Float.NaN;
 	private float rcLim = Float.NaN;
 	private float angLim = Float.NaN;
+	// true to compare with the median of the neighbourhood, as the European
+	// HFR QC manual asks, false to keep the mean used by the first versions.
+	// null if not defined.
+	private Boolean trueMedianFilter = null;
 
 	// Average radial bearing
 	// Test determining that the average radial bearing lies within a specified
@@ -188,6 +192,23 @@ public class RadialQCQATestBean implements Serializable {
 		this.angLim = angLim;
 	}
 
+	/**
+	 * @return true if the median filter uses the median of the neighbourhood,
+	 *         false if it uses the mean, null if not defined.
+	 */
+	public Boolean getTrueMedianFilter() {
+		return trueMedianFilter;
+	}
+
+	/**
+	 * @param trueMedianFilter
+	 *            true to use the median of the neighbourhood in the median
+	 *            filter, false to use the mean.
+	 */
+	public void setTrueMedianFilter(Boolean trueMedianFilter) {
+		this.trueMedianFilter = trueMedianFilter;
+	}
+
 	/**
 	 * @return the avRadialBearingMin
 	 */
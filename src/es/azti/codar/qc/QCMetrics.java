@@ -0,0 +1,201 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ucar.nc2.iosp.netcdf3.N3iosp;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Time spent by each QC test, by network: number of runs, wall time,
+ *         cells evaluated and flags of each value (0 to 9, and missing). The
+ *         report lists the tests of each network from the slowest one.
+ *
+ *         The tests running at the same time record their own wall time, so
+ *         the times of a file may add up to more than the file took.
+ */
+public class QCMetrics {
+
+	// shared by all the writers
+	private static final QCMetrics DEFAULT = new QCMetrics();
+
+	// flag values counted, the last position is for the missing values
+	private static final int MISSING = 10;
+
+	private final Map<String, Metric> metrics = new LinkedHashMap<String, Metric>();
+
+	/**
+	 * Counters of a test in a network.
+	 */
+	public static class Metric {
+		private final String network;
+		private final String variable;
+		private long runs;
+		private long nanos;
+		private long cells;
+		private final long[] flags = new long[MISSING + 1];
+
+		private Metric(String network, String variable) {
+			this.network = network;
+			this.variable = variable;
+		}
+
+		public String getNetwork() {
+			return network;
+		}
+
+		public String getVariable() {
+			return variable;
+		}
+
+		public long getRuns() {
+			return runs;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public long getCells() {
+			return cells;
+		}
+
+		/**
+		 * @param flag
+		 *            flag value, 0 to 9
+		 * @return number of cells with that flag
+		 */
+		public long getFlags(int flag) {
+			return flag >= 0 && flag < MISSING ? flags[flag] : 0;
+		}
+
+		/**
+		 * @return number of cells without flag
+		 */
+		public long getMissing() {
+			return flags[MISSING];
+		}
+
+		private Metric copy() {
+			Metric copy = new Metric(network, variable);
+			copy.runs = runs;
+			copy.nanos = nanos;
+			copy.cells = cells;
+			System.arraycopy(flags, 0, copy.flags, 0, flags.length);
+			return copy;
+		}
+	}
+
+	/**
+	 * @return the metrics of the application
+	 */
+	public static QCMetrics getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param network
+	 *            network id, null if the file has no network
+	 * @param variable
+	 *            QC variable of the test
+	 * @param nanos
+	 *            wall time of the run
+	 * @param flags
+	 *            flags calculated, NaN if missing
+	 */
+	public synchronized void record(String network, String variable, long nanos, float[] flags) {
+		Metric metric = metric(network, variable, nanos, flags.length);
+		for (float flag : flags)
+			metric.flags[index(Float.isNaN(flag) ? MISSING : (int) flag)]++;
+	}
+
+	/**
+	 * @param network
+	 *            network id, null if the file has no network
+	 * @param variable
+	 *            QC variable of the test
+	 * @param nanos
+	 *            wall time of the run
+	 * @param flags
+	 *            flags calculated, netcdf fill value if missing
+	 */
+	public synchronized void record(String network, String variable, long nanos, byte[] flags) {
+		Metric metric = metric(network, variable, nanos, flags.length);
+		for (byte flag : flags)
+			metric.flags[index(flag == N3iosp.NC_FILL_BYTE ? MISSING : flag)]++;
+	}
+
+	private Metric metric(String network, String variable, long nanos, int cells) {
+		// files without network are counted together
+		if (network == null)
+			network = "";
+		String key = network + "\t" + variable;
+		Metric metric = metrics.get(key);
+		if (metric == null) {
+			metric = new Metric(network, variable);
+			metrics.put(key, metric);
+		}
+		metric.runs++;
+		metric.nanos = metric.nanos + nanos;
+		metric.cells = metric.cells + cells;
+		return metric;
+	}
+
+	private static int index(int flag) {
+		return flag >= 0 && flag < MISSING ? flag : MISSING;
+	}
+
+	/**
+	 * @return a copy of the counters, by network and from the slowest test
+	 */
+	public synchronized List<Metric> getMetrics() {
+		List<Metric> copy = new ArrayList<Metric>(metrics.size());
+		for (Metric metric : metrics.values())
+			copy.add(metric.copy());
+		Collections.sort(copy, new Comparator<Metric>() {
+			@Override
+			public int compare(Metric m1, Metric m2) {
+				int network = m1.network.compareTo(m2.network);
+				if (network != 0)
+					return network;
+				return m1.nanos < m2.nanos ? 1 : (m1.nanos > m2.nanos ? -1 : 0);
+			}
+		});
+		return copy;
+	}
+
+	/**
+	 * @return a line per test and network
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		for (Metric metric : getMetrics()) {
+			report.append(String.format(Locale.ROOT, "%s %s: %d runs, %.1f ms (%.2f ms/run), %d cells, flags",
+					metric.network, metric.variable, metric.runs, metric.nanos / 1e6,
+					metric.nanos / 1e6 / Math.max(1, metric.runs), metric.cells));
+			for (int flag = 0; flag < MISSING; flag++) {
+				if (metric.flags[flag] > 0)
+					report.append(' ').append(flag).append('=').append(metric.flags[flag]);
+			}
+			report.append(" missing=").append(metric.flags[MISSING]).append('\n');
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Discards all the counters.
+	 */
+	public synchronized void reset() {
+		metrics.clear();
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Runs the independent QC tests of a file at the same time. The tests
+ *         are submitted (fork) and their results collected (join) before the
+ *         overall flag is calculated, always in the same order, so the flags
+ *         do not depend on the number of threads. With one thread the tests
+ *         run in the calling thread, one after the other.
+ *
+ *         The number of threads is defined by the jradar.qc.threads property
+ *         of codar.properties, by default the number of processors.
+ */
+public class QCScheduler {
+
+	// sequential execution, in the calling thread
+	public static final QCScheduler SEQUENTIAL = new QCScheduler(1);
+
+	private final int threads;
+	private final ExecutorService pool;
+
+	/**
+	 * @param threads
+	 *            number of threads, 1 or less to run the tests in the calling
+	 *            thread.
+	 */
+	public QCScheduler(int threads) {
+		this.threads = Math.max(1, threads);
+		if (this.threads > 1) {
+			pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public synchronized Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "jradar-qc-" + (++count));
+					// never keeps the application running
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		} else {
+			pool = null;
+		}
+	}
+
+	/**
+	 * @param props
+	 *            codar.properties file loaded
+	 * @return a scheduler with the threads defined in jradar.qc.threads
+	 */
+	public static QCScheduler fromProperties(Properties props) {
+		return new QCScheduler(Integer.parseInt(props.getProperty("jradar.qc.threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors()))));
+	}
+
+	/**
+	 * @return number of tests that can run at the same time
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Starts a test.
+	 *
+	 * @param test
+	 *            the test
+	 * @return the result, to be collected with join
+	 */
+	public <T> Future<T> fork(Callable<T> test) {
+		if (pool != null)
+			return pool.submit(test);
+		FutureTask<T> task = new FutureTask<T>(test);
+		task.run();
+		return task;
+	}
+
+	/**
+	 * Waits for a test started with fork.
+	 *
+	 * @param test
+	 *            the test started
+	 * @return the result of the test
+	 */
+	public <T> T join(Future<T> test) {
+		try {
+			return test.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("QC test interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("QC test failed", cause);
+		}
+	}
+
+	/**
+	 * Stops the threads, the tests started are finished.
+	 */
+	public void shutdown() {
+		if (pool != null)
+			pool.shutdown();
+	}
+}
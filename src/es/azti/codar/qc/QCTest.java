@@ -0,0 +1,89 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         A QC test written in the netcdf files. Each test declares the codar
+ *         columns it reads, the QC variable it writes (e.g. MDFL_QC) and the
+ *         data variables that list that QC variable in their
+ *         ancillary_variables attribute. The flags are combined in the overall
+ *         QCflag with the rest of the tests.
+ *
+ *         New tests are added as service providers of RadialQCTest or
+ *         TotalQCTest (META-INF/services), the writers define, write and
+ *         combine their flags without any change.
+ *
+ * @param <E>
+ *            QC tests of the file, RadialQualityTests or TotalQualityTests
+ */
+public interface QCTest<E> {
+
+	/**
+	 * How expensive a test is, the slower ones are started first.
+	 */
+	enum Cost {
+		// only the values of the cell
+		CELL,
+		// the cells around each cell
+		NEIGHBOURHOOD,
+		// the previous and next time steps, loaded from disk
+		TEMPORAL,
+		// a single value for the whole file
+		FILE
+	}
+
+	/**
+	 * @return name of the QC variable, e.g. MDFL_QC
+	 */
+	String getVariable();
+
+	/**
+	 * @return long_name attribute of the QC variable
+	 */
+	String getLongName();
+
+	/**
+	 * @param tests
+	 *            QC tests of the file, to read the thresholds
+	 * @return comment attribute of the QC variable
+	 */
+	String getComment(E tests);
+
+	/**
+	 * @return codar table columns read by the test
+	 */
+	TableColumnNames[] getInputs();
+
+	/**
+	 * @return cost class of the test
+	 */
+	Cost getCost();
+
+	/**
+	 * @return true if the test has a flag per grid cell, false if it has a
+	 *         single flag for the file.
+	 */
+	boolean isGridded();
+
+	/**
+	 * @return data variables whose ancillary_variables include this test
+	 */
+	String[] getQualifiedVariables();
+
+	/**
+	 * Runs the test. It may be called from any thread, at the same time than
+	 * other tests of the same file.
+	 *
+	 * @param tests
+	 *            QC tests of the file
+	 * @return the flags in netcdf grid order, one element if the test is not
+	 *         gridded. NaN for missing values.
+	 */
+	float[] run(E tests);
+}
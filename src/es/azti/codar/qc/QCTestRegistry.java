@@ -0,0 +1,264 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         QC tests of the radial and total files: the tests of JRadar, in the
+ *         order their variables are listed in ancillary_variables, and the
+ *         ones added as service providers, loaded once. The writers build the
+ *         ancillary_variables attributes from here.
+ */
+public final class QCTestRegistry {
+
+	// logger
+	private static Logger log = Logger.getLogger(QCTestRegistry.class);
+
+	private static final TableColumnNames[] DENSITY_COLUMNS = { TableColumnNames.S1CN, TableColumnNames.S2CN,
+			TableColumnNames.S3CN, TableColumnNames.S4CN, TableColumnNames.S5CN, TableColumnNames.S6CN };
+
+	private static final List<RadialQCTest> RADIAL = Collections.unmodifiableList(Arrays.<RadialQCTest> asList(
+			new RadialQCTest("OWTR_QC", "Over-water quality flag", QCTest.Cost.CELL,
+					new TableColumnNames[] { TableColumnNames.VFLG },
+					new String[] { "RDVA", "DRVA", "EWCT", "NSCT", "XDST", "YDST", "SPRC" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Over-water QC test.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return RadialQualityTests.overWater(tests.getColumn(TableColumnNames.VFLG));
+				}
+			}, new RadialQCTest("MDFL_QC", "Median filter quality flag", QCTest.Cost.NEIGHBOURHOOD,
+					new TableColumnNames[] { TableColumnNames.VELO, TableColumnNames.BEAR, TableColumnNames.LATD,
+							TableColumnNames.LOND },
+					new String[] { "RDVA", "DRVA", "EWCT", "NSCT", "MAXV", "MINV", "XDST", "YDST", "SPRC" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Median Filter QC test. Threshold set to "
+							+ tests.getBean().getRadialTest().getMedianFilter() + " m/s.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return tests.runMedianFilterTest();
+				}
+			}, new RadialQCTest("CSPD_QC", "Velocity threshold quality flag", QCTest.Cost.CELL,
+					new TableColumnNames[] { TableColumnNames.VELO },
+					new String[] { "RDVA", "EWCT", "NSCT", "MAXV", "MINV", "XDST", "YDST", "SPRC" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Velocity Threshold QC test. Threshold set to "
+							+ tests.getBean().getRadialTest().getVeloThreshold() + " m/s.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return tests.runVelocityThresholdTest();
+				}
+			}, new RadialQCTest("VART_QC", "Variance threshold quality flag", QCTest.Cost.TEMPORAL,
+					new TableColumnNames[] { TableColumnNames.VELO },
+					new String[] { "RDVA", "EWCT", "NSCT", "ESPC", "ETMP", "MAXV", "MINV", "XDST", "YDST", "SPRC" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Variance Threshold QC test. Test not applicable "
+							+ "to Direction Finding Systems. The Temporal Derivative test is applied. Threshold set to "
+							+ tests.getBean().getRadialTest().getVarianceThreshold() + " m2/s2.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return tests.runTempDerivativeTest();
+				}
+			}, new RadialQCTest("AVRB_QC", "Average radial bearing quality flag", QCTest.Cost.FILE,
+					new TableColumnNames[] { TableColumnNames.HEAD },
+					new String[] { "DRVA", "EWCT", "NSCT" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Average Radial Bearing QC test. Threshold set between "
+							+ tests.getBean().getRadialTest().getAvRadialBearingMin() + " and "
+							+ tests.getBean().getRadialTest().getAvRadialBearingMax() + " deg.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return new float[] { RadialQualityTests.averageBearing(tests.getColumn(TableColumnNames.HEAD),
+							tests.getBean().getRadialTest().getAvRadialBearingMin(),
+							tests.getBean().getRadialTest().getAvRadialBearingMax()) };
+				}
+			}, new RadialQCTest("RDCT_QC", "Radial count quality flag", QCTest.Cost.FILE,
+					new TableColumnNames[] { TableColumnNames.VELO },
+					new String[] { "RDVA", "DRVA", "EWCT", "NSCT" }) {
+				@Override
+				public String getComment(RadialQualityTests tests) {
+					return "OceanSITES quality flagging for Radial Count QC test. Thresholds set to"
+							+ tests.getBean().getRadialTest().getRadialCount() + " vectors.";
+				}
+
+				@Override
+				public float[] run(RadialQualityTests tests) {
+					return new float[] { tests.runRadialCountTest() };
+				}
+			}));
+
+	private static final List<TotalQCTest> TOTAL = Collections.unmodifiableList(Arrays.<TotalQCTest> asList(
+			new TotalQCTest("VART_QC", "Variance threshold quality flag", QCTest.Cost.TEMPORAL,
+					new TableColumnNames[] { TableColumnNames.VELU, TableColumnNames.VELV },
+					new String[] { "EWCT", "NSCT", "EWCS", "NSCS" }) {
+				@Override
+				public String getComment(TotalQualityTests tests) {
+					return "OceanSITES quality flagging for Variance Threshold QC test. Test not applicable "
+							+ "to Direction Finding Systems. The Temporal Derivative test is applied. Threshold set to "
+							+ tests.getBean().getTotalTest().getVarianceThreshold() + " m2/s2.";
+				}
+
+				@Override
+				public float[] run(TotalQualityTests tests) {
+					return tests.runTempDerivativeTest();
+				}
+			}, new TotalQCTest("CSPD_QC", "Velocity threshold quality flag", QCTest.Cost.CELL,
+					new TableColumnNames[] { TableColumnNames.VELU, TableColumnNames.VELV },
+					new String[] { "EWCT", "NSCT" }) {
+				@Override
+				public String getComment(TotalQualityTests tests) {
+					return "OceanSITES quality flagging for Velocity Threshold QC test. Threshold set to "
+							+ tests.getBean().getTotalTest().getVeloThreshold() + " m/s.";
+				}
+
+				@Override
+				public float[] run(TotalQualityTests tests) {
+					// over the speed of the table, as the netcdf files have
+					// always been written
+					return QualityTests.threshold(tests.getSpeed(), tests.getBean().getTotalTest().getVeloThreshold());
+				}
+			}, new TotalQCTest("DDNS_QC", "Data density threshold quality flag", QCTest.Cost.CELL, DENSITY_COLUMNS,
+					new String[] { "EWCT", "NSCT" }) {
+				@Override
+				public String getComment(TotalQualityTests tests) {
+					return "OceanSITES quality flagging for Data Density threshold QC test. Threshold set to contributing radials. Minimun number of contribution is set to: "
+							+ tests.getBean().getTotalTest().getDataDensityThreshold();
+				}
+
+				@Override
+				public float[] run(TotalQualityTests tests) {
+					return tests.runDataDensityTest(tests.getBean().getTotalTest().getDataDensityThreshold());
+				}
+			}, new TotalQCTest("GDOP_QC", "GDOP threshold quality flag", QCTest.Cost.CELL,
+					new TableColumnNames[] { TableColumnNames.CQAL }, new String[] { "EWCT", "NSCT", "GDOP" }) {
+				@Override
+				public String getComment(TotalQualityTests tests) {
+					return "OceanSITES quality flagging for GDOP threshold QC test. Threshold set to "
+							+ tests.getBean().getTotalTest().getGDOPThreshold();
+				}
+
+				@Override
+				public float[] run(TotalQualityTests tests) {
+					return tests.runGDOPThresholdTest();
+				}
+			}));
+
+	private static List<RadialQCTest> radialExtensions;
+	private static List<TotalQCTest> totalExtensions;
+
+	private QCTestRegistry() {
+	}
+
+	/**
+	 * @return the radial tests of JRadar and the ones added as providers
+	 */
+	public static List<RadialQCTest> getRadialTests() {
+		List<RadialQCTest> tests = new ArrayList<RadialQCTest>(RADIAL);
+		tests.addAll(getRadialExtensions());
+		return Collections.unmodifiableList(tests);
+	}
+
+	/**
+	 * @return the radial tests added as providers, not calculated by
+	 *         RadialQCKernel.
+	 */
+	public static synchronized List<RadialQCTest> getRadialExtensions() {
+		if (radialExtensions == null)
+			radialExtensions = load(RadialQCTest.class, RADIAL);
+		return radialExtensions;
+	}
+
+	/**
+	 * @return the total tests of JRadar and the ones added as providers
+	 */
+	public static List<TotalQCTest> getTotalTests() {
+		List<TotalQCTest> tests = new ArrayList<TotalQCTest>(TOTAL);
+		tests.addAll(getTotalExtensions());
+		return Collections.unmodifiableList(tests);
+	}
+
+	/**
+	 * @return the total tests added as providers
+	 */
+	public static synchronized List<TotalQCTest> getTotalExtensions() {
+		if (totalExtensions == null)
+			totalExtensions = load(TotalQCTest.class, TOTAL);
+		return totalExtensions;
+	}
+
+	/**
+	 * @param dataVariable
+	 *            netcdf data variable, e.g. RDVA
+	 * @param tests
+	 *            QC tests written in the file
+	 * @return ancillary_variables attribute of the data variable: QCflag and
+	 *         the tests that qualify it.
+	 */
+	public static String ancillaryVariables(String dataVariable, List<? extends QCTest<?>> tests) {
+		StringBuilder ancillary = new StringBuilder("QCflag");
+		for (QCTest<?> test : tests) {
+			if (Arrays.asList(test.getQualifiedVariables()).contains(dataVariable))
+				ancillary.append(", ").append(test.getVariable());
+		}
+		return ancillary.toString();
+	}
+
+	private static <T extends QCTest<?>> List<T> load(Class<T> service, List<T> builtIn) {
+		Set<String> variables = new HashSet<String>();
+		for (T test : builtIn)
+			variables.add(test.getVariable());
+		List<T> tests = new ArrayList<T>();
+		Iterator<T> providers = ServiceLoader.load(service).iterator();
+		while (true) {
+			T test;
+			try {
+				if (!providers.hasNext())
+					break;
+				test = providers.next();
+			} catch (ServiceConfigurationError e) {
+				log.error("QC test provider not loaded", e);
+				continue;
+			}
+			if (!variables.add(test.getVariable())) {
+				log.error("QC test " + test.getVariable() + " already defined, provider "
+						+ test.getClass().getName() + " ignored");
+				continue;
+			}
+			log.info("QC test " + test + " loaded from " + test.getClass().getName());
+			tests.add(test);
+		}
+		return Collections.unmodifiableList(tests);
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Runs a list of QC tests of a file. The tests that are not evaluated
+ *         cell by cell are started first in the scheduler, the rest run
+ *         meanwhile in the calling thread. The wall time, cells and flags of
+ *         each test are recorded in the metrics.
+ *
+ * @param <E>
+ *            QC tests of the file, RadialQualityTests or TotalQualityTests
+ */
+public class QCTestRunner<E> {
+
+	private final QCScheduler scheduler;
+	private final QCMetrics metrics;
+	private final String network;
+
+	/**
+	 * @param scheduler
+	 *            threads used to run the tests
+	 * @param metrics
+	 *            where the times and flags are recorded
+	 * @param network
+	 *            network id of the file, to group the metrics
+	 */
+	public QCTestRunner(QCScheduler scheduler, QCMetrics metrics, String network) {
+		this.scheduler = scheduler;
+		this.metrics = metrics;
+		this.network = network;
+	}
+
+	/**
+	 * @param tests
+	 *            tests to run
+	 * @param engine
+	 *            QC tests of the file
+	 * @return the flags of each test by QC variable, in the order of the list
+	 */
+	public Map<String, float[]> run(List<? extends QCTest<E>> tests, E engine) {
+		Map<String, Future<float[]>> started = new LinkedHashMap<String, Future<float[]>>();
+		for (QCTest<E> test : tests) {
+			if (test.getCost() != QCTest.Cost.CELL)
+				started.put(test.getVariable(), scheduler.fork(task(test, engine)));
+		}
+		Map<String, float[]> flags = new LinkedHashMap<String, float[]>();
+		for (QCTest<E> test : tests) {
+			if (test.getCost() == QCTest.Cost.CELL) {
+				flags.put(test.getVariable(), timed(test, engine));
+			} else {
+				flags.put(test.getVariable(), null);
+			}
+		}
+		for (Map.Entry<String, Future<float[]>> test : started.entrySet())
+			flags.put(test.getKey(), scheduler.join(test.getValue()));
+		return flags;
+	}
+
+	private Callable<float[]> task(final QCTest<E> test, final E engine) {
+		return new Callable<float[]>() {
+			@Override
+			public float[] call() {
+				return timed(test, engine);
+			}
+		};
+	}
+
+	private float[] timed(QCTest<E> test, E engine) {
+		long start = System.nanoTime();
+		float[] flags = test.run(engine);
+		metrics.record(network, test.getVariable(), System.nanoTime() - start, flags);
+		return flags;
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Generic QC tests shared by radials and totals. They work on primitive
+ *         arrays in netcdf grid order and return the flags as floats, NaN for
+ *         the missing values, following the ARGO QC flag scale: 0 no QC
+ *         performed, 1 good data, 4 bad data, 9 missing value.
+ *
+ *         The methods are static and do not keep any state, so they can be run
+ *         from any thread and without user interface.
+ */
+public final class QualityTests {
+
+	private QualityTests() {
+	}
+
+	/**
+	 * generic run threshold method Takes an array of float values, and a
+	 * maximun value to compare de data returns the quality flags
+	 *
+	 * @param data
+	 *            the data to test
+	 * @param limit,
+	 *            over this value, the data is considered wrong data
+	 * @return the qc test flags.
+	 */
+	public static float[] threshold(float[] data, float limit) {
+		float[] thresholdTest = new float[data.length];
+		for (int i = 0; i < data.length; i++) {
+			thresholdTest[i] = threshold(data[i], limit);
+		}
+		return thresholdTest;
+	}
+
+	/**
+	 * Threshold test of a single value.
+	 *
+	 * @param value
+	 *            the value to test
+	 * @param limit,
+	 *            over this value, the data is considered wrong data
+	 * @return the qc test flag.
+	 */
+	public static float threshold(float value, float limit) {
+		if (Math.abs(value) <= limit) {
+			// good data
+			return 1;
+		} else if (Float.isNaN(value)) {
+			// missing value
+			return Float.NaN;
+		} else if (Float.isNaN(limit)) {
+			// if the limit is NaN, test not performed
+			return 0;
+		}
+		// the rest of values, are suspicious of being bad data
+		return 4;
+	}
+
+	/**
+	 * Inverse threshold method Takes an array of float values, and a minimun
+	 * value to compare the data (values must be higher that the limit to mark
+	 * as good values) returns the quality flags
+	 *
+	 * @param data
+	 *            the data to test
+	 * @param limit,
+	 *            under this value, the data is considered wrong data
+	 * @return the qc test flags.
+	 */
+	public static float[] inverseThreshold(float[] data, float limit) {
+		float[] thresholdTest = new float[data.length];
+		for (int i = 0; i < data.length; i++) {
+			float value = data[i];
+			if (Math.abs(value) >= limit) {
+				// good data
+				thresholdTest[i] = 1;
+			} else if (Float.isNaN(value)) {
+				// missing value
+				thresholdTest[i] = Float.NaN;
+			} else if (Float.isNaN(limit)) {
+				// If the limit is NaN, we cannot perform the test.
+				thresholdTest[i] = 0;
+			} else {
+				// the rest of values, are suspicious of being bad data
+				thresholdTest[i] = 4;
+			}
+		}
+		return thresholdTest;
+	}
+
+	/**
+	 * double threshold method Takes two array of float values, and a maximun
+	 * value to compare both data Both data arrays must be same size. returns
+	 * the quality flags First version to check the temporal derivative
+	 *
+	 * @param data1
+	 *            the data to test
+	 * @param data2
+	 *            the data to test
+	 * @param limit,
+	 *            over this value, the data is considered wrong data
+	 * @return the qc test flags, 0 (not performed) for all the values if the
+	 *         sizes are different.
+	 */
+	public static float[] doubleThreshold(float[] data1, float[] data2, float limit) {
+		float[] thresholdTest = new float[data1.length];
+		if (data1.length != data2.length) {
+			// test not performed, all 0
+			return thresholdTest;
+		}
+		for (int i = 0; i < data1.length; i++) {
+			float value1 = data1[i];
+			float value2 = data2[i];
+			if (Float.isNaN(value1) || Float.isNaN(value2)) {
+				// missing value
+				thresholdTest[i] = Float.NaN;
+			} else if (value1 < 0 || value2 < 0) {
+				// Test not performed, a +1h -1h is not present.
+				thresholdTest[i] = 0;
+			} else if (value1 <= limit && value2 <= limit) {
+				// good data
+				thresholdTest[i] = 1;
+			} else if (Float.isNaN(limit)) {
+				// If the limit is NaN, we cannot perform the test.
+				thresholdTest[i] = 0;
+			} else {
+				// the rest of values, are suspicious of being bad data
+				thresholdTest[i] = 4;
+			}
+		}
+		return thresholdTest;
+	}
+
+	/**
+	 * Differences with the previous and next time steps used by the temporal
+	 * derivative tests, in m/s from cm/s velocities. If the previous or next
+	 * value is missing the difference is 0, it can not be evaluated and the
+	 * value is taken as good one, and NaN if the current value is missing.
+	 *
+	 * @param velo
+	 *            current velocities
+	 * @param other
+	 *            previous or next velocities, same grid
+	 * @param missingOther
+	 *            true where the other time step (previous or next) is missing
+	 * @return the absolute differences
+	 */
+	public static float[] temporalDifference(float[] velo, float[] other, boolean[] missingOther) {
+		float[] diff = new float[velo.length];
+		for (int i = 0; i < velo.length; i++) {
+			if (missingOther[i] && !Float.isNaN(velo[i])) {
+				// If the previous or next values are not present, we write a
+				// 0, it cannot be evaluated
+				// TODO check this with the community.
+				diff[i] = 0f;
+			} else if (Float.isNaN(velo[i])) {
+				// missing value
+				diff[i] = Float.NaN;
+			} else {
+				diff[i] = (Math.abs(other[i] - velo[i])) / 100;
+			}
+		}
+		return diff;
+	}
+
+	/**
+	 * Temporal derivative test from the velocities of three consecutive time
+	 * steps in the same grid.
+	 *
+	 * @param prevVelo
+	 *            previous time step velocities
+	 * @param velo
+	 *            current velocities
+	 * @param nextVelo
+	 *            next time step velocities
+	 * @param limit
+	 *            threshold, m/s
+	 * @return the qc test flags, 0 (not performed) if the sizes are different.
+	 */
+	public static float[] temporalDerivative(float[] prevVelo, float[] velo, float[] nextVelo, float limit) {
+		if (prevVelo.length != velo.length || nextVelo.length != velo.length) {
+			// tests can not be performed due to a missing files.
+			return threshold(velo, Float.NaN);
+		}
+		boolean[] missing = new boolean[velo.length];
+		for (int i = 0; i < velo.length; i++)
+			missing[i] = Float.isNaN(prevVelo[i]) || Float.isNaN(nextVelo[i]);
+		return doubleThreshold(temporalDifference(velo, prevVelo, missing), temporalDifference(velo, nextVelo, missing),
+				limit);
+	}
+
+	/**
+	 * Temporal derivative test of a single cell, same result than the array
+	 * version.
+	 *
+	 * @param prevVelo
+	 *            previous time step velocity
+	 * @param velo
+	 *            current velocity
+	 * @param nextVelo
+	 *            next time step velocity
+	 * @param limit
+	 *            threshold, m/s
+	 * @return the qc test flag
+	 */
+	public static float temporalDerivative(float prevVelo, float velo, float nextVelo, float limit) {
+		if (Float.isNaN(velo)) {
+			// missing value
+			return Float.NaN;
+		}
+		// If the previous or next values are not present the differences are
+		// 0, they cannot be evaluated
+		float diff1 = 0f;
+		float diff2 = 0f;
+		if (!Float.isNaN(prevVelo) && !Float.isNaN(nextVelo)) {
+			diff1 = (Math.abs(prevVelo - velo)) / 100;
+			diff2 = (Math.abs(nextVelo - velo)) / 100;
+		}
+		if (diff1 <= limit && diff2 <= limit)
+			return 1;
+		if (Float.isNaN(limit))
+			return 0;
+		return 4;
+	}
+
+	/**
+	 * Overall QC flag of each cell from the flags of the tests: 1 if all the
+	 * tests are good, 9 if all missing, 0 if none performed, NaN if the gridded
+	 * tests have no value and 4 otherwise. Scalar tests are given as arrays of
+	 * one element.
+	 *
+	 * @param gridded
+	 *            flags of the gridded tests, all the same size
+	 * @param scalar
+	 *            flags of the tests with a single value for the whole file
+	 * @return the overall flags
+	 */
+	public static float[] overall(float[][] gridded, float[] scalar) {
+		int cells = gridded.length > 0 ? gridded[0].length : 0;
+		float[] overall = new float[cells];
+		for (int i = 0; i < cells; i++) {
+			if (allEqual(gridded, scalar, i, 1)) {
+				overall[i] = 1;
+			} else if (allEqual(gridded, scalar, i, 9)) {
+				overall[i] = 9;
+			} else if (allEqual(gridded, scalar, i, 0)) {
+				overall[i] = 0;
+			} else if (allNaN(gridded, i)) {
+				overall[i] = Float.NaN;
+			} else {
+				overall[i] = 4;
+			}
+		}
+		return overall;
+	}
+
+	private static boolean allEqual(float[][] gridded, float[] scalar, int cell, float flag) {
+		for (float[] test : gridded) {
+			if (test[cell] != flag)
+				return false;
+		}
+		for (float test : scalar) {
+			if (test != flag)
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean allNaN(float[][] gridded, int cell) {
+		for (float[] test : gridded) {
+			if (!Float.isNaN(test[cell]))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,375 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarDataTableBean;
+import es.azti.codar.beans.CodarRadialBean;
+import es.azti.codar.utils.CodarFrameCache;
+import es.azti.codar.utils.CodarUtils;
+import es.azti.utils.RadialNeighbourhood;
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         QC of a month of radial files of a site, for archive reprocessing.
+ *         The columns used by the tests are gathered in dense time x bearing x
+ *         range cubes, with the grid of getRadialIndexArray, sized for the
+ *         files of the month when the first one is added. The cube keeps
+ *         only their columns, the batch run keeps the files in its frame
+ *         cache, widened to the month, to convert them without parsing them
+ *         again. The tests run over the whole cube once all the files are
+ *         added: the temporal
+ *         derivative reads the previous and next time steps directly from the
+ *         cube and the time steps are evaluated at the same time by the
+ *         scheduler. The flags of each file are the same than the ones of
+ *         RadialQCKernel and are given to the netcdf writer, so the tests are
+ *         not run again file by file.
+ *
+ *         The previous and next time steps of the first and last files, which
+ *         belong to other months, are looked up and loaded through the frame
+ *         cache when they exist. Files with a different grid are not added,
+ *         they have to be tested alone.
+ */
+public class RadialMonthCube {
+
+	// logger
+	private static Logger log = Logger.getLogger(RadialMonthCube.class);
+
+	// time stamp in the codar file names, the month is the first group
+	private static final Pattern TIME_STAMP = Pattern.compile("(\\d{4}_\\d{2})_\\d{2}_\\d{4}");
+
+	// files of the month and the two neighbours of other months
+	private static final int NEIGHBOURS = 2;
+
+	private final CodarRadialBean profile;
+	// time steps the cubes are sized for
+	private final int expectedSteps;
+	private CodarFrameCache frames;
+	private QCScheduler scheduler = QCScheduler.SEQUENTIAL;
+
+	// grid cells of each time step, bearing x range
+	private int cells = -1;
+	// cubes, the time step t starts at t * cells
+	private float[] vflg = new float[0];
+	private float[] velo = new float[0];
+	private float[] head = new float[0];
+	private float[] bear = new float[0];
+	private float[] lat = new float[0];
+	private float[] lon = new float[0];
+	// time steps, in the order they are added
+	private final List<Step> steps = new ArrayList<Step>();
+	// time step of each time stamp, ms
+	private final Map<Long, Integer> times = new HashMap<Long, Integer>();
+	// flags of each file, by path
+	private final Map<String, RadialQCKernel> flags = new HashMap<String, RadialQCKernel>();
+
+	/**
+	 * A file in the cube, with the limits of its tests.
+	 */
+	private static class Step {
+		private String path;
+		private long time;
+		// neighbour of a file of the month, not tested
+		private boolean context;
+		private int[] gridIndex;
+		private float[] limits;
+		// minutes
+		private int resolution;
+		private String prevPath;
+		private String nextPath;
+		private float veloLimit;
+		private float medianFilterLimit;
+		private float rcLim;
+		private float angLim;
+		private boolean trueMedian;
+		private float tempDerivativeLimit;
+		private float radialCountLimit;
+		private float bearingMin;
+		private float bearingMax;
+	}
+
+	/**
+	 * @param props
+	 *            codar.properties file loaded, used to load the neighbour
+	 *            time steps.
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            files, may be null.
+	 * @param files
+	 *            number of files of the month that will be added
+	 */
+	public RadialMonthCube(Properties props, CodarRadialBean profile, int files) {
+		this.profile = profile;
+		this.expectedSteps = files + NEIGHBOURS;
+		this.frames = new CodarFrameCache(props);
+	}
+
+	/**
+	 * @param path
+	 *            path of a codar file
+	 * @return site and month of the file, the path until the month of the
+	 *         time stamp (.../RDLi_HIGE_2018_09), null if the name has no time
+	 *         stamp.
+	 */
+	public static String monthOf(String path) {
+		Matcher matcher = TIME_STAMP.matcher(path);
+		String month = null;
+		// the last time stamp, folders may have dates too
+		while (matcher.find())
+			month = path.substring(0, matcher.end(1));
+		return month;
+	}
+
+	/**
+	 * @param frames
+	 *            files of the batch run already loaded, used for the
+	 *            neighbour time steps that are not in the cube.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * @param scheduler
+	 *            threads used to evaluate the time steps
+	 */
+	public void setScheduler(QCScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Adds a file to the cube, only the columns used by the tests are kept.
+	 *
+	 * @param bean
+	 *            radial file loaded
+	 * @return false if the file can not be tested in the cube, its grid or
+	 *         time stamp do not fit.
+	 * @throws ParseException
+	 */
+	public boolean add(CodarRadialBean bean) throws ParseException {
+		return add(bean, false);
+	}
+
+	private boolean add(CodarRadialBean bean, boolean context) throws ParseException {
+		int[] index = CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile);
+		long time = bean.getTimeStampAsCalendar().getTimeInMillis();
+		if (cells != -1 && index.length != cells) {
+			log.debug(bean.getPathToFile() + ": grid different from the month, " + index.length + " cells");
+			return false;
+		}
+		if (times.containsKey(Long.valueOf(time))) {
+			log.debug(bean.getPathToFile() + ": time step already in the month");
+			return false;
+		}
+		cells = index.length;
+		int t = steps.size();
+		grow((t + 1) * cells);
+
+		// columns in grid order
+		CodarDataTableBean table = bean.getTable();
+		gather(table.getColumn(TableColumnNames.VFLG), index, vflg, t * cells);
+		gather(table.getColumn(TableColumnNames.VELO), index, velo, t * cells);
+		gather(table.getColumn(TableColumnNames.HEAD), index, head, t * cells);
+		gather(table.getColumn(TableColumnNames.BEAR), index, bear, t * cells);
+		gather(table.getColumn(TableColumnNames.LATD), index, lat, t * cells);
+		gather(table.getColumn(TableColumnNames.LOND), index, lon, t * cells);
+
+		Step step = new Step();
+		step.path = bean.getPathToFile();
+		step.time = time;
+		step.context = context;
+		if (!context) {
+			RadialQualityTests tests = new RadialQualityTests(bean, profile, index);
+			step.gridIndex = index;
+			step.limits = tests.getLimits();
+			step.resolution = bean.getNetworkBean().getTemporal_resolution_Int();
+			step.prevPath = frames.getRadialStepPath(bean, Math.negateExact(step.resolution));
+			step.nextPath = frames.getRadialStepPath(bean, step.resolution);
+			step.veloLimit = bean.getRadialTest().getVeloThreshold();
+			step.medianFilterLimit = tests.getMedianFilterLimit();
+			step.rcLim = tests.getRcLim();
+			step.angLim = tests.getAngLim();
+			step.trueMedian = tests.isTrueMedianFilter();
+			step.tempDerivativeLimit = tests.getTempDerivativeLimit();
+			step.radialCountLimit = tests.getRadialCountLimit();
+			step.bearingMin = bean.getRadialTest().getAvRadialBearingMin();
+			step.bearingMax = bean.getRadialTest().getAvRadialBearingMax();
+		}
+		steps.add(step);
+		times.put(Long.valueOf(time), Integer.valueOf(t));
+		return true;
+	}
+
+	private void grow(int length) {
+		if (velo.length >= length)
+			return;
+		// the whole month at once, then only the neighbours out of the count
+		int capacity = velo.length == 0 ? Math.max(length, expectedSteps * cells) : length;
+		vflg = Arrays.copyOf(vflg, capacity);
+		velo = Arrays.copyOf(velo, capacity);
+		head = Arrays.copyOf(head, capacity);
+		bear = Arrays.copyOf(bear, capacity);
+		lat = Arrays.copyOf(lat, capacity);
+		lon = Arrays.copyOf(lon, capacity);
+	}
+
+	private static void gather(float[] column, int[] index, float[] cube, int offset) {
+		for (int i = 0; i < index.length; i++)
+			cube[offset + i] = RadialQCKernel.value(column, index[i]);
+	}
+
+	/**
+	 * Runs the tests of all the files added.
+	 */
+	public void run() {
+		addNeighbours();
+		List<Future<RadialQCKernel>> results = new ArrayList<Future<RadialQCKernel>>(steps.size());
+		for (int t = 0; t < steps.size(); t++) {
+			if (steps.get(t).context) {
+				results.add(null);
+				continue;
+			}
+			final int step = t;
+			results.add(scheduler.fork(new Callable<RadialQCKernel>() {
+				@Override
+				public RadialQCKernel call() {
+					return evaluate(step);
+				}
+			}));
+		}
+		for (int t = 0; t < steps.size(); t++) {
+			if (results.get(t) != null)
+				flags.put(steps.get(t).path, scheduler.join(results.get(t)));
+		}
+	}
+
+	/**
+	 * Previous and next time steps of other months, when they exist.
+	 */
+	private void addNeighbours() {
+		int tested = steps.size();
+		for (int t = 0; t < tested; t++) {
+			Step step = steps.get(t);
+			long resolution = step.resolution * 60000L;
+			addNeighbour(step.prevPath, step.time - resolution);
+			addNeighbour(step.nextPath, step.time + resolution);
+		}
+	}
+
+	private void addNeighbour(String path, long time) {
+		// not in the catalog
+		if (path == null || times.containsKey(Long.valueOf(time)))
+			return;
+		try {
+			CodarRadialBean bean = frames.getRadial(path);
+			if (bean != null)
+				add(bean, true);
+		} catch (ParseException e) {
+			log.error("Error trying to perform time derivative tests", e);
+		}
+	}
+
+	/**
+	 * Flags of a time step, same passes than RadialQCKernel.run()
+	 */
+	private RadialQCKernel evaluate(int t) {
+		Step step = steps.get(t);
+		int offset = t * cells;
+		Integer prev = times.get(Long.valueOf(step.time - step.resolution * 60000L));
+		Integer next = times.get(Long.valueOf(step.time + step.resolution * 60000L));
+		// tests can not be performed without both neighbours
+		boolean temporal = prev != null && next != null;
+		int prevOffset = temporal ? prev.intValue() * cells : -1;
+		int nextOffset = temporal ? next.intValue() * cells : -1;
+
+		// file level counters
+		float[] veloMs = new float[cells];
+		int vectors = 0;
+		int bearings = 0;
+		float sumBearing = 0;
+		for (int i = 0; i < cells; i++) {
+			veloMs[i] = -velo[offset + i] / 100;
+			if (!Float.isNaN(veloMs[i]))
+				vectors++;
+			if (!Float.isNaN(head[offset + i])) {
+				bearings++;
+				sumBearing = sumBearing + head[offset + i];
+			}
+		}
+		byte radialCount = RadialQCKernel.toByte(RadialQualityTests.radialCount(vectors, step.radialCountLimit));
+		byte averageBearing = RadialQCKernel.toByte(
+				RadialQualityTests.averageBearing(sumBearing, bearings, step.bearingMin, step.bearingMax));
+
+		// neighbourhood of the time step
+		RadialNeighbourhood neighbourhood = new RadialNeighbourhood(
+				Arrays.copyOfRange(bear, offset, offset + cells), Arrays.copyOfRange(lat, offset, offset + cells),
+				Arrays.copyOfRange(lon, offset, offset + cells));
+		float[] mfDiff = step.trueMedian ? neighbourhood.medianDifference(veloMs, step.angLim, step.rcLim)
+				: neighbourhood.meanDifference(veloMs, step.angLim, step.rcLim);
+
+		byte[] overWater = new byte[cells];
+		byte[] velocityThreshold = new byte[cells];
+		byte[] medianFilter = new byte[cells];
+		byte[] tempDerivative = new byte[cells];
+		byte[] overall = new byte[cells];
+		for (int i = 0; i < cells; i++) {
+			byte ow = RadialQCKernel.toByte(RadialQualityTests.overWater(vflg[offset + i]));
+			byte velt = RadialQCKernel.toByte(QualityTests.threshold(veloMs[i], step.veloLimit));
+			byte mf = RadialQCKernel.toByte(QualityTests.threshold(mfDiff[i], step.medianFilterLimit));
+			byte tder = RadialQCKernel.toByte(temporal
+					? QualityTests.temporalDerivative(velo[prevOffset + i], velo[offset + i], velo[nextOffset + i],
+							step.tempDerivativeLimit)
+					: QualityTests.threshold(veloMs[i], Float.NaN));
+			overWater[i] = ow;
+			velocityThreshold[i] = velt;
+			medianFilter[i] = mf;
+			tempDerivative[i] = tder;
+			overall[i] = RadialQCKernel.overall(ow, velt, mf, tder, radialCount, averageBearing);
+		}
+		return new RadialQCKernel(step.gridIndex, step.limits, overWater, velocityThreshold, medianFilter, tempDerivative,
+				overall, averageBearing, radialCount);
+	}
+
+	/**
+	 * @param path
+	 *            path of a file added
+	 * @return true if the file was added and tested in the cube
+	 */
+	public boolean contains(String path) {
+		return flags.containsKey(path);
+	}
+
+	/**
+	 * @param path
+	 *            path of a file added
+	 * @return the flags of the file, null if it was not tested in the cube.
+	 */
+	public RadialQCKernel getFlags(String path) {
+		return flags.get(path);
+	}
+
+	/**
+	 * @return number of time steps in the cube, neighbours of other months
+	 *         included.
+	 */
+	public int getTimeSteps() {
+		return steps.size();
+	}
+}
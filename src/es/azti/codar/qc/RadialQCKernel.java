@@ -0,0 +1,373 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import es.azti.codar.beans.CodarDataTableBean;
+import es.azti.codar.beans.CodarRadialBean;
+import es.azti.codar.utils.CodarFrameCache;
+import es.azti.utils.RadialNeighbourhood;
+import es.azti.utils.TableColumnNames;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         All the QC flags of a radial file computed together, as they are
+ *         written in the netcdf file. The columns used by the tests (VFLG,
+ *         VELO, HEAD, BEAR, LATD, LOND) are read once per grid cell, the file
+ *         level tests (radial count and average bearing) are accumulated in
+ *         the same pass, and the over water, velocity threshold, median
+ *         filter, temporal derivative and overall flags are evaluated cell by
+ *         cell in a second one, directly as bytes. Missing values are stored
+ *         as the netcdf byte fill value.
+ *
+ *         The flags are the same than the ones of RadialQualityTests.
+ *
+ *         The time of the median filter and temporal derivative tests is
+ *         recorded in the QC metrics, the tests evaluated in the passes are
+ *         counted with no time and the passes are recorded as QCflag.
+ */
+public class RadialQCKernel {
+
+	private static final byte FILL = N3iosp.NC_FILL_BYTE;
+
+	// smaller grids are not split
+	private static final int MIN_CELLS_PER_PART = 2048;
+
+	private final CodarRadialBean bean;
+	private final RadialQualityTests tests;
+	private QCScheduler scheduler = QCScheduler.SEQUENTIAL;
+	private QCMetrics metrics = QCMetrics.getDefault();
+
+	private byte[] overWater;
+	private byte[] velocityThreshold;
+	private byte[] medianFilter;
+	private byte[] tempDerivative;
+	private byte[] overall;
+	private byte averageBearing;
+	private byte radialCount;
+	// limits of the tests, when the flags were calculated by a month cube
+	private float[] limits;
+
+	/**
+	 * @param bean
+	 *            radial file loaded
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell, -1 if empty.
+	 */
+	public RadialQCKernel(CodarRadialBean bean, CodarRadialBean profile, int[] gridIndex) {
+		this.bean = bean;
+		this.tests = new RadialQualityTests(bean, profile, gridIndex);
+	}
+
+	/**
+	 * Flags already calculated for a time step of a RadialMonthCube, run()
+	 * can not be called.
+	 */
+	RadialQCKernel(int[] gridIndex, float[] limits, byte[] overWater, byte[] velocityThreshold,
+			byte[] medianFilter, byte[] tempDerivative, byte[] overall, byte averageBearing, byte radialCount) {
+		this.bean = null;
+		this.tests = new RadialQualityTests(null, null, gridIndex);
+		this.limits = limits;
+		this.overWater = overWater;
+		this.velocityThreshold = velocityThreshold;
+		this.medianFilter = medianFilter;
+		this.tempDerivative = tempDerivative;
+		this.overall = overall;
+		this.averageBearing = averageBearing;
+		this.radialCount = radialCount;
+	}
+
+	/**
+	 * @param frames
+	 *            files of the batch run already loaded, used by the temporal
+	 *            derivative test.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		tests.setFrameCache(frames);
+	}
+
+	/**
+	 * @param scheduler
+	 *            threads used to run the tests, sequential by default
+	 */
+	public void setScheduler(QCScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * @param metrics
+	 *            where the time and flags of the tests are recorded, the
+	 *            default metrics if not set.
+	 */
+	public void setMetrics(QCMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param bean
+	 *            radial file to write
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell
+	 * @return true if the flags were calculated by a month cube for the same
+	 *         grid and with the limits the file has now.
+	 */
+	public boolean isValidFor(CodarRadialBean bean, CodarRadialBean profile, int[] gridIndex) {
+		return limits != null && Arrays.equals(getGridIndex(), gridIndex)
+				&& Arrays.equals(limits, new RadialQualityTests(bean, profile, gridIndex).getLimits());
+	}
+
+	/**
+	 * Runs all the tests.
+	 */
+	public void run() {
+		long start = System.nanoTime();
+		int[] index = tests.getGridIndex();
+		int cells = index.length;
+		CodarDataTableBean table = bean.getTable();
+		float[] vflgColumn = table.getColumn(TableColumnNames.VFLG);
+		float[] veloColumn = table.getColumn(TableColumnNames.VELO);
+		float[] headColumn = table.getColumn(TableColumnNames.HEAD);
+		float[] bearColumn = table.getColumn(TableColumnNames.BEAR);
+		float[] latColumn = table.getColumn(TableColumnNames.LATD);
+		float[] lonColumn = table.getColumn(TableColumnNames.LOND);
+
+		// first pass: columns in grid order and file level counters
+		float[] vflg = new float[cells];
+		float[] velo = new float[cells];
+		float[] bear = new float[cells];
+		float[] lat = new float[cells];
+		float[] lon = new float[cells];
+		int vectors = 0;
+		int bearings = 0;
+		float sumBearing = 0;
+		for (int i = 0; i < cells; i++) {
+			int row = index[i];
+			vflg[i] = value(vflgColumn, row);
+			velo[i] = -value(veloColumn, row) / 100;
+			bear[i] = value(bearColumn, row);
+			lat[i] = value(latColumn, row);
+			lon[i] = value(lonColumn, row);
+			if (!Float.isNaN(velo[i]))
+				vectors++;
+			float head = value(headColumn, row);
+			if (!Float.isNaN(head)) {
+				bearings++;
+				sumBearing = sumBearing + head;
+			}
+		}
+		radialCount = toByte(tests.radialCount(vectors));
+		averageBearing = toByte(RadialQualityTests.averageBearing(sumBearing, bearings,
+				bean.getRadialTest().getAvRadialBearingMin(), bean.getRadialTest().getAvRadialBearingMax()));
+
+		long passes = System.nanoTime() - start;
+
+		// neighbourhood and time based tests, at the same time
+		final long[] tdNanos = new long[1];
+		Future<float[]> tdTask = scheduler.fork(new Callable<float[]>() {
+			@Override
+			public float[] call() {
+				long tdStart = System.nanoTime();
+				float[] td = tests.runTempDerivativeTest();
+				tdNanos[0] = System.nanoTime() - tdStart;
+				return td;
+			}
+		});
+		long mfStart = System.nanoTime();
+		float[] mfDiff = medianFilterDifferences(bear, lat, lon, velo);
+		long mfNanos = System.nanoTime() - mfStart;
+		float mfLimit = tests.getMedianFilterLimit();
+		float[] td = scheduler.join(tdTask);
+		if (td.length != cells) {
+			// the neighbour files could not be read, test not performed
+			td = QualityTests.threshold(velo, Float.NaN);
+		}
+		float veloLimit = bean.getRadialTest().getVeloThreshold();
+
+		// second pass: flags of each cell
+		long flagStart = System.nanoTime();
+		overWater = new byte[cells];
+		velocityThreshold = new byte[cells];
+		medianFilter = new byte[cells];
+		tempDerivative = new byte[cells];
+		overall = new byte[cells];
+		for (int i = 0; i < cells; i++) {
+			byte ow = toByte(RadialQualityTests.overWater(vflg[i]));
+			byte velt = toByte(QualityTests.threshold(velo[i], veloLimit));
+			byte mf = toByte(QualityTests.threshold(mfDiff[i], mfLimit));
+			byte tder = toByte(td[i]);
+			overWater[i] = ow;
+			velocityThreshold[i] = velt;
+			medianFilter[i] = mf;
+			tempDerivative[i] = tder;
+			overall[i] = overall(ow, velt, mf, tder, radialCount, averageBearing);
+		}
+		passes = passes + System.nanoTime() - flagStart;
+
+		String network = bean.getNetworkBean() != null ? bean.getNetworkBean().getNetwork_id() : null;
+		metrics.record(network, "OWTR_QC", 0, overWater);
+		metrics.record(network, "MDFL_QC", mfNanos, medianFilter);
+		metrics.record(network, "VART_QC", tdNanos[0], tempDerivative);
+		metrics.record(network, "CSPD_QC", 0, velocityThreshold);
+		metrics.record(network, "AVRB_QC", 0, new byte[] { averageBearing });
+		metrics.record(network, "RDCT_QC", 0, new byte[] { radialCount });
+		metrics.record(network, "QCflag", passes, overall);
+	}
+
+	/**
+	 * Median filter differences, with the mean or the true median of the
+	 * neighbourhood. The grid is split in parts calculated by different
+	 * threads, each cell is calculated in the same way whatever the part it is
+	 * in.
+	 */
+	private float[] medianFilterDifferences(float[] bear, float[] lat, float[] lon, final float[] velo) {
+		final RadialNeighbourhood neighbourhood = new RadialNeighbourhood(bear, lat, lon);
+		final float rcLim = tests.getRcLim();
+		final float angLim = tests.getAngLim();
+		final boolean trueMedian = tests.isTrueMedianFilter();
+		final float[] diff = new float[velo.length];
+		int parts = Math.max(1, Math.min(scheduler.getThreads(), velo.length / MIN_CELLS_PER_PART));
+		List<Future<Void>> forked = new ArrayList<Future<Void>>(parts);
+		for (int part = 1; part < parts; part++) {
+			final int from = (int) ((long) velo.length * part / parts);
+			final int to = (int) ((long) velo.length * (part + 1) / parts);
+			forked.add(scheduler.fork(new Callable<Void>() {
+				@Override
+				public Void call() {
+					difference(neighbourhood, trueMedian, velo, angLim, rcLim, diff, from, to);
+					return null;
+				}
+			}));
+		}
+		// the first part in this thread
+		difference(neighbourhood, trueMedian, velo, angLim, rcLim, diff, 0, velo.length / parts);
+		for (Future<Void> part : forked)
+			scheduler.join(part);
+		return diff;
+	}
+
+	private static void difference(RadialNeighbourhood neighbourhood, boolean trueMedian, float[] velo,
+			float angLim, float rcLim, float[] diff, int from, int to) {
+		if (trueMedian)
+			neighbourhood.medianDifference(velo, angLim, rcLim, diff, from, to);
+		else
+			neighbourhood.meanDifference(velo, angLim, rcLim, diff, from, to);
+	}
+
+	/**
+	 * Same combination than QualityTests.overall, the scalar tests are only
+	 * checked when all the gridded ones are equal.
+	 */
+	static byte overall(byte ow, byte velt, byte mf, byte tder, byte radialCount, byte averageBearing) {
+		if (ow == velt && ow == mf && ow == tder) {
+			if ((ow == 1 || ow == 9 || ow == 0) && radialCount == ow && averageBearing == ow)
+				return ow;
+			if (ow == FILL)
+				return FILL;
+		}
+		return 4;
+	}
+
+	/**
+	 * Overall flags with a test more, the same combination than
+	 * QualityTests.overall with all the tests. The gridded tests must be
+	 * combined before the ones with a single flag.
+	 *
+	 * @param overall
+	 *            overall flags of the tests already combined, not modified
+	 * @param flags
+	 *            flags of the test, a single one if it is not gridded
+	 * @param gridded
+	 *            true if the test has a flag per cell
+	 * @return the new overall flags
+	 */
+	public static byte[] overall(byte[] overall, float[] flags, boolean gridded) {
+		byte[] combined = new byte[overall.length];
+		for (int i = 0; i < overall.length; i++) {
+			byte o = overall[i];
+			if (gridded)
+				combined[i] = o == toByte(flags[i]) ? o : 4;
+			else
+				combined[i] = o == FILL || o == toByte(flags[0]) ? o : 4;
+		}
+		return combined;
+	}
+
+	static float value(float[] column, int row) {
+		return column != null && row != -1 ? column[row] : Float.NaN;
+	}
+
+	static byte toByte(float flag) {
+		return Float.isNaN(flag) ? FILL : (byte) flag;
+	}
+
+	/**
+	 * @return the grid index used
+	 */
+	public int[] getGridIndex() {
+		return tests.getGridIndex();
+	}
+
+	/**
+	 * @return OWTR_QC flags
+	 */
+	public byte[] getOverWater() {
+		return overWater;
+	}
+
+	/**
+	 * @return CSPD_QC flags
+	 */
+	public byte[] getVelocityThreshold() {
+		return velocityThreshold;
+	}
+
+	/**
+	 * @return MDFL_QC flags
+	 */
+	public byte[] getMedianFilter() {
+		return medianFilter;
+	}
+
+	/**
+	 * @return VART_QC flags
+	 */
+	public byte[] getTempDerivative() {
+		return tempDerivative;
+	}
+
+	/**
+	 * @return QCflag, overall flags
+	 */
+	public byte[] getOverall() {
+		return overall;
+	}
+
+	/**
+	 * @return AVRB_QC flag
+	 */
+	public byte getAverageBearing() {
+		return averageBearing;
+	}
+
+	/**
+	 * @return RDCT_QC flag
+	 */
+	public byte getRadialCount() {
+		return radialCount;
+	}
+}
@@ -0,0 +1,441 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarRadialBean;
+import es.azti.codar.utils.CodarFrameCache;
+import es.azti.codar.utils.CodarUtils;
+import es.azti.utils.RadialNeighbourhood;
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         QC tests of a radial file, without user interface. The data are
+ *         taken from the bean table in netcdf grid order as primitive arrays,
+ *         and the thresholds from the radial test bean or, if they are not
+ *         defined, from the station. The flags follow the ARGO QC flag scale
+ *         described in QualityTests.
+ *
+ *         It is used by the netcdf writer and by the QC window, each instance
+ *         works only with its own bean so several files can be tested at the
+ *         same time.
+ */
+public class RadialQualityTests {
+
+	// logger
+	private static Logger log = Logger.getLogger(RadialQualityTests.class);
+
+	private final CodarRadialBean bean;
+	private final CodarRadialBean profile;
+	// codar table row of each netcdf cell
+	private int[] gridIndex;
+	// previous and next time steps already loaded, may be null
+	private CodarFrameCache frames;
+	// metrics of each cell kept between runs, when a limit changes only the
+	// threshold is applied again
+	private float[] velocity;
+	private float[] medianFilterDifferences;
+	// neighbourhood limits and method of the median filter differences kept
+	private float medianFilterRcLim;
+	private float medianFilterAngLim;
+	private boolean medianFilterTrueMedian;
+
+	/**
+	 * @param bean
+	 *            radial file loaded
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 */
+	public RadialQualityTests(CodarRadialBean bean, CodarRadialBean profile) {
+		this.bean = bean;
+		this.profile = profile;
+	}
+
+	/**
+	 * @param bean
+	 *            radial file loaded
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell, when it is already
+	 *            calculated.
+	 */
+	public RadialQualityTests(CodarRadialBean bean, CodarRadialBean profile, int[] gridIndex) {
+		this(bean, profile);
+		this.gridIndex = gridIndex;
+	}
+
+	/**
+	 * @return radial file tested
+	 */
+	public CodarRadialBean getBean() {
+		return bean;
+	}
+
+	/**
+	 * @return codar table row of each netcdf grid cell, -1 if empty.
+	 */
+	public synchronized int[] getGridIndex() {
+		if (gridIndex == null)
+			gridIndex = CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile);
+		return gridIndex;
+	}
+
+	/**
+	 * @param frames
+	 *            window of the files of a batch run, the neighbour time steps
+	 *            of the temporal derivative test are taken from it instead of
+	 *            loading them again.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * @param col
+	 *            column
+	 * @return the column values in netcdf grid order, NaN in empty cells.
+	 */
+	public float[] getColumn(TableColumnNames col) {
+		return bean.getTable().getColumnInOrder(col, getGridIndex());
+	}
+
+	/**
+	 * @return radial velocity in m/s, positive away from the radar, in grid
+	 *         order.
+	 */
+	public float[] getVelocity() {
+		float[] velo = getColumn(TableColumnNames.VELO);
+		for (int i = 0; i < velo.length; i++)
+			velo[i] = -velo[i] / 100;
+		return velo;
+	}
+
+	/**
+	 * @return radial velocity in m/s, calculated once.
+	 */
+	private synchronized float[] velocity() {
+		if (velocity == null)
+			velocity = getVelocity();
+		return velocity;
+	}
+
+	/**
+	 * Velocity threshold test, with the limit of the radial test bean.
+	 *
+	 * @return the qc test flags
+	 */
+	public float[] runVelocityThresholdTest() {
+		return QualityTests.threshold(velocity(), bean.getRadialTest().getVeloThreshold());
+	}
+
+	/**
+	 * Over water test, from the VFLG column. 0 values are good data, NaN
+	 * missing values and the rest bad data.
+	 *
+	 * @param vflag
+	 *            VFLG values in grid order
+	 * @return the qc test flags
+	 */
+	public static float[] overWater(float[] vflag) {
+		float[] overWaterTest = new float[vflag.length];
+		for (int i = 0; i < vflag.length; i++) {
+			overWaterTest[i] = overWater(vflag[i]);
+		}
+		return overWaterTest;
+	}
+
+	/**
+	 * Over water test of a single VFLG value.
+	 *
+	 * @param vflag
+	 *            VFLG value
+	 * @return the qc test flag
+	 */
+	public static float overWater(float vflag) {
+		if (vflag == 0) {
+			// good data
+			return 1;
+		} else if (Float.isNaN(vflag)) {
+			// missing value, NaN
+			return vflag;
+		}
+		// the rest of values, are suspicious of being bad data
+		return 4;
+	}
+
+	/**
+	 * Average Radial Bearing Test: the mean of the not null values of the
+	 * bearing must be inside the maximum and minimun defined in the thresholds
+	 *
+	 * @param data
+	 *            HEAD column
+	 * @param minimum
+	 *            minimum of the range allowed
+	 * @param maximum
+	 *            maximum of the range allowed
+	 * @return the flag of the test
+	 */
+	public static float averageBearing(float[] data, float minimum, float maximum) {
+		// counter for not null values, only not nulls must be taken in to
+		// account.
+		int i = 0;
+		// The addition of the values
+		float suma = 0;
+		for (float valor : data) {
+			if (!Float.isNaN(valor)) {
+				i++;
+				suma = suma + valor;
+			}
+		}
+		return averageBearing(suma, i, minimum, maximum);
+	}
+
+	/**
+	 * @param suma
+	 *            addition of the not null bearings
+	 * @param i
+	 *            number of not null bearings
+	 * @param minimum
+	 *            minimum of the range allowed
+	 * @param maximum
+	 *            maximum of the range allowed
+	 * @return the flag of the average radial bearing test
+	 */
+	static float averageBearing(float suma, int i, float minimum, float maximum) {
+		if (suma / i >= minimum && suma / i <= maximum)
+			return 1;
+		return 4;
+	}
+
+	/**
+	 * Test labeling radial data having a number of velocity vectors bigger than
+	 * the threshold with a good_data flag and radial data having a number of
+	 * velocity vectors smaller than the threshold with a bad_data flag
+	 *
+	 * @return the flag of the test
+	 */
+	public float runRadialCountTest() {
+		int val1 = 0; // good data if value == 1
+		for (float res : velocity()) {
+			if (!Float.isNaN(res)) {
+				val1 = val1 + 1;
+			}
+		}
+		return radialCount(val1);
+	}
+
+	/**
+	 * @param vectors
+	 *            number of velocity vectors of the file
+	 * @return the flag of the radial count test
+	 */
+	float radialCount(int vectors) {
+		return radialCount(vectors, getRadialCountLimit());
+	}
+
+	/**
+	 * @param vectors
+	 *            number of velocity vectors of the file
+	 * @param limit
+	 *            minimum number of vectors
+	 * @return the flag of the radial count test
+	 */
+	static float radialCount(int vectors, float limit) {
+		return limit < vectors ? 1 : 4;
+	}
+
+	/**
+	 * @return minimum number of vectors of the radial count test
+	 */
+	float getRadialCountLimit() {
+		return Float.isNaN(bean.getRadialTest().getRadialCount())
+				? bean.getStationBean().getRadial_QC_radial_count_threshold_float()
+				: bean.getRadialTest().getRadialCount();
+	}
+
+	/**
+	 * For each source vector, the mean of all velocities within a radius of
+	 * <RCLim> and whose vector bearing (angle of arrival at site) is also
+	 * within an angular distance of <AngLim> degres from the source vector's
+	 * bearing is evaluated, or their median if the radial test bean asks for
+	 * the true median filter.
+	 *
+	 * @return the flags, if the difference between the vector's velocity and
+	 *         the mean velocity is greater than a threshold, then the vector is
+	 *         labeled with "bad_data" flag, otherwise it is labeled with a
+	 *         "good_data" flag.
+	 */
+	public float[] runMedianFilterTest() {
+		return QualityTests.threshold(getMedianFilterDifferences(), getMedianFilterLimit());
+	}
+
+	/**
+	 * The differences are calculated again only when the neighbourhood limits
+	 * (RCLim and AngLim) or the method change.
+	 *
+	 * @return difference between the velocity of each cell and the mean, or
+	 *         the median, of its neighbourhood, to be compared with the median
+	 *         filter limit.
+	 */
+	public synchronized float[] getMedianFilterDifferences() {
+		float rcLim = getRcLim();
+		float angLim = getAngLim();
+		boolean trueMedian = isTrueMedianFilter();
+		if (medianFilterDifferences == null || Float.compare(rcLim, medianFilterRcLim) != 0
+				|| Float.compare(angLim, medianFilterAngLim) != 0 || trueMedian != medianFilterTrueMedian) {
+			// Only the cells in the bearing window are compared.
+			RadialNeighbourhood neighbourhood = new RadialNeighbourhood(getColumn(TableColumnNames.BEAR),
+					getColumn(TableColumnNames.LATD), getColumn(TableColumnNames.LOND));
+			medianFilterDifferences = trueMedian ? neighbourhood.medianDifference(velocity(), angLim, rcLim)
+					: neighbourhood.meanDifference(velocity(), angLim, rcLim);
+			medianFilterRcLim = rcLim;
+			medianFilterAngLim = angLim;
+			medianFilterTrueMedian = trueMedian;
+		}
+		return medianFilterDifferences;
+	}
+
+	/**
+	 * @return true if the median filter compares with the median of the
+	 *         neighbourhood, false for the mean. Taken from the file or, if it
+	 *         is not defined, from the profile. The mean by default.
+	 */
+	boolean isTrueMedianFilter() {
+		Boolean trueMedian = bean.getRadialTest().getTrueMedianFilter();
+		if (trueMedian == null && profile != null && profile.getRadialTest() != null)
+			trueMedian = profile.getRadialTest().getTrueMedianFilter();
+		return trueMedian != null && trueMedian.booleanValue();
+	}
+
+	/**
+	 * @return distance limit of the median filter neighbourhood, km
+	 */
+	float getRcLim() {
+		return Float.isNaN(bean.getRadialTest().getRcLim())
+				? bean.getStationBean().getRadial_QC_median_filter_RCLim_float()
+				: bean.getRadialTest().getRcLim();
+	}
+
+	/**
+	 * @return bearing limit of the median filter neighbourhood, degrees
+	 */
+	float getAngLim() {
+		return Float.isNaN(bean.getRadialTest().getAngLim())
+				? bean.getStationBean().getRadial_QC_median_filter_AngLim_float()
+				: bean.getRadialTest().getAngLim();
+	}
+
+	/**
+	 * @return current limit of the median filter test, m/s
+	 */
+	float getMedianFilterLimit() {
+		return Float.isNaN(bean.getRadialTest().getMedianFilter())
+				? bean.getStationBean().getRadial_QC_median_filter_CurLim_float()
+				: bean.getRadialTest().getMedianFilter();
+	}
+
+	/**
+	 * temporal derivative test It looks for the files of the same site one time
+	 * step before and after the present file in the catalog. Then, compares the velocity
+	 * vectors and checks that the difference is not bigger than the threshold
+	 *
+	 * @return the flags related to the velocity array.
+	 */
+	public float[] runTempDerivativeTest() {
+		float[] velo = getColumn(TableColumnNames.VELO);
+		float limit = getTempDerivativeLimit();
+
+		float[] tdThreshold = new float[0];
+		try {
+			int resolution = bean.getNetworkBean().getTemporal_resolution_Int();
+			CodarFrameCache frames = this.frames;
+			if (frames == null) {
+				// without the catalog of a batch run, the time steps are
+				// looked up by the names of their files
+				Properties props = new Properties();
+				props.load(new FileInputStream("codar.properties"));
+				frames = new CodarFrameCache(props);
+			}
+			CodarRadialBean prevBean = frames.getRadialStep(bean, Math.negateExact(resolution));
+			CodarRadialBean nextBean = frames.getRadialStep(bean, resolution);
+
+			if (prevBean != null && nextBean != null) {
+				// perform tests
+
+				float[] prevVelo = prevBean.getTable().getColumnInOrder(TableColumnNames.VELO,
+						CodarUtils.getRadialIndexArray(bean, prevBean.getTable(), profile));
+				float[] nextVelo = nextBean.getTable().getColumnInOrder(TableColumnNames.VELO,
+						CodarUtils.getRadialIndexArray(bean, nextBean.getTable(), profile));
+				tdThreshold = QualityTests.temporalDerivative(prevVelo, velo, nextVelo, limit);
+			} else {
+				// tests can not be performed due to a missing files.
+				tdThreshold = QualityTests.threshold(velo, Float.NaN);
+			}
+		} catch (ParseException e) {
+			log.error("Error trying to perform time derivative tests", e);
+		} catch (FileNotFoundException e) {
+			log.error("property file not found", e);
+		} catch (IOException e) {
+			log.error("error al leer el fichero de propiedades", e);
+		}
+		return tdThreshold;
+	}
+
+	/**
+	 * @return limit of the temporal derivative test, m/s
+	 */
+	float getTempDerivativeLimit() {
+		return Float.isNaN(bean.getRadialTest().getTempThreshold())
+				? bean.getStationBean().getRadial_QC_temporal_derivative_thresholdFloat()
+				: bean.getRadialTest().getTempThreshold();
+	}
+
+	/**
+	 * @return all the limits used by the tests of the file and its temporal
+	 *         resolution, to know if some flags already calculated are still
+	 *         valid.
+	 */
+	float[] getLimits() {
+		return new float[] { bean.getRadialTest().getVeloThreshold(), getMedianFilterLimit(), getRcLim(),
+				getAngLim(), getTempDerivativeLimit(), getRadialCountLimit(),
+				bean.getRadialTest().getAvRadialBearingMin(), bean.getRadialTest().getAvRadialBearingMax(),
+				bean.getNetworkBean().getTemporal_resolution_Int(), isTrueMedianFilter() ? 1 : 0 };
+	}
+
+	/**
+	 * Overall QC flag of the radial file.
+	 *
+	 * @param overWater
+	 *            over water test flags
+	 * @param velocityThreshold
+	 *            velocity threshold test flags
+	 * @param medianFilter
+	 *            median filter test flags
+	 * @param tempDerivative
+	 *            temporal derivative test flags
+	 * @param radialCount
+	 *            radial count test flag
+	 * @param averageBearing
+	 *            average radial bearing test flag
+	 * @return the overall flags
+	 */
+	public static float[] overall(float[] overWater, float[] velocityThreshold, float[] medianFilter,
+			float[] tempDerivative, float radialCount, float averageBearing) {
+		return QualityTests.overall(new float[][] { overWater, velocityThreshold, medianFilter, tempDerivative },
+				new float[] { radialCount, averageBearing });
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import es.azti.codar.beans.CodarDataTableBean;
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Values of each grid cell tested by the QC tests of a total file,
+ *         calculated together: current speed (cm/s and m/s), number of
+ *         contributing radials (S1CN..S6CN), velocity standard deviation
+ *         (UQAL and VQAL) and GDOP (CQAL). The table columns are read directly
+ *         as primitive arrays, each codar row once, in a single pass over the
+ *         grid.
+ *
+ *         Empty cells are NaN, and a value is empty if the columns it needs
+ *         are not in the file, the same than calculating each one from the
+ *         columns in grid order. The squares are calculated in double, so the
+ *         results are the ones of Math.pow.
+ */
+public class TotalQCKernel {
+
+	private static final TableColumnNames[] DENSITY_COLUMNS = { TableColumnNames.S1CN, TableColumnNames.S2CN,
+			TableColumnNames.S3CN, TableColumnNames.S4CN, TableColumnNames.S5CN, TableColumnNames.S6CN };
+
+	private static final float[] EMPTY = new float[0];
+
+	private final CodarDataTableBean table;
+	private final int[] gridIndex;
+
+	private float[] speed;
+	private float[] velocity;
+	private float[] density;
+	private float[] variance;
+	private float[] gdop;
+
+	/**
+	 * @param table
+	 *            codar table of the total file
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell, -1 if empty.
+	 */
+	public TotalQCKernel(CodarDataTableBean table, int[] gridIndex) {
+		this.table = table;
+		this.gridIndex = gridIndex;
+	}
+
+	/**
+	 * Calculates all the values.
+	 */
+	public void run() {
+		int cells = gridIndex.length;
+		float[] velu = table.getColumn(TableColumnNames.VELU);
+		float[] velv = table.getColumn(TableColumnNames.VELV);
+		float[] uqal = table.getColumn(TableColumnNames.UQAL);
+		float[] vqal = table.getColumn(TableColumnNames.VQAL);
+		float[] cqal = table.getColumn(TableColumnNames.CQAL);
+		// only the sites present in the file, the first one is needed
+		float[][] sites = new float[DENSITY_COLUMNS.length][];
+		int siteCount = 0;
+		for (TableColumnNames site : DENSITY_COLUMNS) {
+			float[] column = table.getColumn(site);
+			if (column != null)
+				sites[siteCount++] = column;
+		}
+		boolean velocities = velu != null && velv != null;
+		boolean densities = table.getColumn(DENSITY_COLUMNS[0]) != null;
+
+		speed = velocities ? new float[cells] : EMPTY;
+		velocity = velocities ? new float[cells] : EMPTY;
+		density = densities ? new float[cells] : EMPTY;
+		variance = uqal != null ? new float[cells] : EMPTY;
+		gdop = cqal != null ? new float[cells] : EMPTY;
+
+		for (int i = 0; i < cells; i++) {
+			int row = gridIndex[i];
+			if (row == -1) {
+				if (velocities) {
+					speed[i] = Float.NaN;
+					velocity[i] = Float.NaN;
+				}
+				if (densities)
+					density[i] = Float.NaN;
+				if (uqal != null)
+					variance[i] = Float.NaN;
+				if (cqal != null)
+					gdop[i] = Float.NaN;
+				continue;
+			}
+			if (velocities) {
+				double u = velu[row];
+				double v = velv[row];
+				speed[i] = (float) Math.sqrt(u * u + v * v);
+				// transform cm to m
+				double um = velu[row] / 100;
+				double vm = velv[row] / 100;
+				velocity[i] = (float) Math.sqrt(um * um + vm * vm);
+			}
+			if (densities) {
+				float sum = 0;
+				for (int s = 0; s < siteCount; s++)
+					sum = sum + sites[s][row];
+				density[i] = sum;
+			}
+			if (uqal != null) {
+				double u = uqal[row];
+				double v = vqal != null ? vqal[row] : Double.NaN;
+				variance[i] = (float) Math.sqrt(v * v + u * u);
+			}
+			if (cqal != null)
+				gdop[i] = cqal[row];
+		}
+	}
+
+	/**
+	 * Current speed of a time step, for the temporal derivative test.
+	 *
+	 * @param table
+	 *            codar table of the total file
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell, -1 if empty.
+	 * @return current speed in cm/s, from VELU and VELV, empty if they are
+	 *         not in the file.
+	 */
+	public static float[] speed(CodarDataTableBean table, int[] gridIndex) {
+		float[] velu = table.getColumn(TableColumnNames.VELU);
+		float[] velv = table.getColumn(TableColumnNames.VELV);
+		if (velu == null || velv == null)
+			return EMPTY;
+		float[] speed = new float[gridIndex.length];
+		for (int i = 0; i < speed.length; i++) {
+			int row = gridIndex[i];
+			if (row == -1) {
+				speed[i] = Float.NaN;
+			} else {
+				double u = velu[row];
+				double v = velv[row];
+				speed[i] = (float) Math.sqrt(u * u + v * v);
+			}
+		}
+		return speed;
+	}
+
+	/**
+	 * @return current speed in cm/s
+	 */
+	public float[] getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * @return current speed in m/s
+	 */
+	public float[] getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * @return number of radials contributing to each total
+	 */
+	public float[] getDataDensity() {
+		return density;
+	}
+
+	/**
+	 * @return standard deviation of the velocity, from UQAL and VQAL
+	 */
+	public float[] getVariance() {
+		return variance;
+	}
+
+	/**
+	 * @return GDOP, the CQAL column
+	 */
+	public float[] getGdop() {
+		return gdop;
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.util.Arrays;
+
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         QC test of the total files. The providers are listed in
+ *         META-INF/services/es.azti.codar.qc.TotalQCTest and need a public
+ *         constructor without arguments.
+ */
+public abstract class TotalQCTest implements QCTest<TotalQualityTests> {
+
+	private final String variable;
+	private final String longName;
+	private final Cost cost;
+	private final TableColumnNames[] inputs;
+	private final String[] qualifiedVariables;
+
+	/**
+	 * @param variable
+	 *            QC variable, e.g. GDOP_QC
+	 * @param longName
+	 *            long_name of the QC variable
+	 * @param cost
+	 *            cost class, FILE for the tests with a single flag
+	 * @param inputs
+	 *            codar columns read
+	 * @param qualifiedVariables
+	 *            data variables that have this test in ancillary_variables
+	 */
+	protected TotalQCTest(String variable, String longName, Cost cost, TableColumnNames[] inputs,
+			String[] qualifiedVariables) {
+		this.variable = variable;
+		this.longName = longName;
+		this.cost = cost;
+		this.inputs = inputs.clone();
+		this.qualifiedVariables = qualifiedVariables.clone();
+	}
+
+	@Override
+	public String getVariable() {
+		return variable;
+	}
+
+	@Override
+	public String getLongName() {
+		return longName;
+	}
+
+	@Override
+	public Cost getCost() {
+		return cost;
+	}
+
+	@Override
+	public boolean isGridded() {
+		return cost != Cost.FILE;
+	}
+
+	@Override
+	public TableColumnNames[] getInputs() {
+		return inputs.clone();
+	}
+
+	@Override
+	public String[] getQualifiedVariables() {
+		return qualifiedVariables.clone();
+	}
+
+	@Override
+	public String toString() {
+		return variable + " " + cost + " " + Arrays.toString(inputs);
+	}
+}
@@ -0,0 +1,251 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.qc;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarTotalBean;
+import es.azti.codar.utils.CodarFrameCache;
+import es.azti.codar.utils.CodarUtils;
+import es.azti.utils.TableColumnNames;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         QC tests of a total file, without user interface. The data are taken
+ *         from the bean table in netcdf grid order as primitive arrays, and the
+ *         thresholds from the total test bean or, if they are not defined,
+ *         from the network. Used by the netcdf writer and by the QC window.
+ */
+public class TotalQualityTests {
+
+	// logger
+	private static Logger log = Logger.getLogger(TotalQualityTests.class);
+
+	private final CodarTotalBean bean;
+	private final CodarTotalBean profile;
+	// codar table row of each netcdf cell
+	private int[] gridIndex;
+	// previous and next time steps already loaded, may be null
+	private CodarFrameCache frames;
+	// metrics of each cell kept between runs, when a limit changes only the
+	// threshold is applied again
+	private TotalQCKernel kernel;
+
+	/**
+	 * @param bean
+	 *            total file loaded
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 */
+	public TotalQualityTests(CodarTotalBean bean, CodarTotalBean profile) {
+		this.bean = bean;
+		this.profile = profile;
+	}
+
+	/**
+	 * @param bean
+	 *            total file loaded
+	 * @param profile
+	 *            a profile just in case some grid values are missing in the
+	 *            bean, may be null.
+	 * @param gridIndex
+	 *            codar table row of each netcdf grid cell, when it is already
+	 *            calculated.
+	 */
+	public TotalQualityTests(CodarTotalBean bean, CodarTotalBean profile, int[] gridIndex) {
+		this(bean, profile);
+		this.gridIndex = gridIndex;
+	}
+
+	/**
+	 * @return total file tested
+	 */
+	public CodarTotalBean getBean() {
+		return bean;
+	}
+
+	/**
+	 * @return codar table row of each netcdf grid cell, -1 if empty.
+	 */
+	public synchronized int[] getGridIndex() {
+		if (gridIndex == null)
+			gridIndex = CodarUtils.getTotalIndexArray(bean, bean.getTable(), profile);
+		return gridIndex;
+	}
+
+	/**
+	 * @param frames
+	 *            window of the files of a batch run, the neighbour time steps
+	 *            of the temporal derivative test are taken from it instead of
+	 *            loading them again.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * @param col
+	 *            column
+	 * @return the column values in netcdf grid order, NaN in empty cells.
+	 */
+	public float[] getColumn(TableColumnNames col) {
+		return bean.getTable().getColumnInOrder(col, getGridIndex());
+	}
+
+	/**
+	 * @return current speed, from VELU and VELV, in netcdf grid order.
+	 */
+	public float[] getSpeed() {
+		return speed().clone();
+	}
+
+	/**
+	 * @return current speed, calculated once.
+	 */
+	private float[] speed() {
+		return kernel().getSpeed();
+	}
+
+	/**
+	 * @return the values of all the tests, calculated together the first time
+	 *         one of them is needed.
+	 */
+	private synchronized TotalQCKernel kernel() {
+		if (kernel == null) {
+			TotalQCKernel values = new TotalQCKernel(bean.getTable(), getGridIndex());
+			values.run();
+			kernel = values;
+		}
+		return kernel;
+	}
+
+	/**
+	 * Velocity threshold test, over the current speed in m/s and with the
+	 * limit of the total test bean.
+	 *
+	 * @return the qc test flags
+	 */
+	public float[] runVelocityThresholdTest() {
+		return QualityTests.threshold(kernel().getVelocity(), bean.getTotalTest().getVeloThreshold());
+	}
+
+	/**
+	 * GDOP threshold test, from the CQAL column and with the limit of the
+	 * total test bean.
+	 *
+	 * @return the qc test flags
+	 */
+	public float[] runGDOPThresholdTest() {
+		return QualityTests.threshold(kernel().getGdop(), bean.getTotalTest().getGDOPThreshold());
+	}
+
+	/**
+	 * temporal derivative test It looks for the files of the same site one time
+	 * step before and after the present file in the catalog. Then, compares the current
+	 * speed and checks that the difference is not bigger than the threshold
+	 *
+	 * @return the flags related to the velocity array.
+	 */
+	public float[] runTempDerivativeTest() {
+		float[] velo = speed();
+		float limit = Float.isNaN(bean.getTotalTest().getTempThreshold())
+				? bean.getNetworkBean().getTotal_QC_temporal_derivative_threshold_float()
+				: bean.getTotalTest().getTempThreshold();
+
+		float[] tdThreshold = new float[0];
+		try {
+			int resolution = bean.getNetworkBean().getTemporal_resolution_Int();
+			CodarFrameCache frames = this.frames;
+			if (frames == null) {
+				// without the catalog of a batch run, the time steps are
+				// looked up by the names of their files
+				Properties props = new Properties();
+				props.load(new FileInputStream("codar.properties"));
+				frames = new CodarFrameCache(props);
+			}
+			CodarTotalBean prevBean = frames.getTotalStep(bean, Math.negateExact(resolution));
+			CodarTotalBean nextBean = frames.getTotalStep(bean, resolution);
+
+			if (prevBean != null && nextBean != null) {
+				// perform tests
+
+				float[] prevVelo = TotalQCKernel.speed(prevBean.getTable(),
+						CodarUtils.getTotalIndexArray(bean, prevBean.getTable(), profile));
+				float[] nextVelo = TotalQCKernel.speed(nextBean.getTable(),
+						CodarUtils.getTotalIndexArray(bean, nextBean.getTable(), profile));
+				tdThreshold = QualityTests.temporalDerivative(prevVelo, velo, nextVelo, limit);
+			} else {
+				// tests can not be performed due to a missing files.
+				tdThreshold = QualityTests.threshold(velo, Float.NaN);
+			}
+		} catch (ParseException e) {
+			log.error("Error trying to perform time derivative tests", e);
+		} catch (FileNotFoundException e) {
+			log.error("property file not found", e);
+		} catch (IOException e) {
+			log.error("error al leer el fichero de propiedades", e);
+		}
+		return tdThreshold;
+	}
+
+	/**
+	 * Data density test: the number of radials contributing to each total
+	 * (S1CN..S6CN columns) must reach the limit.
+	 *
+	 * @param limit
+	 *            minimum number of radials
+	 * @return the qc test flags
+	 */
+	public float[] runDataDensityTest(float limit) {
+		return QualityTests.inverseThreshold(getDataDensity(), limit);
+	}
+
+	/**
+	 * @return number of radials contributing to each total, calculated once.
+	 */
+	public float[] getDataDensity() {
+		return kernel().getDataDensity();
+	}
+
+	/**
+	 * Variance threshold test, from the standard deviation of the velocity
+	 * components (UQAL and VQAL).
+	 *
+	 * @param limit
+	 *            maximum allowed
+	 * @return the qc test flags
+	 */
+	public float[] runVarianceThresholdTest(float limit) {
+		// TODO calculate properly, Variance Threshold Quality
+		return QualityTests.threshold(kernel().getVariance(), limit);
+	}
+
+	/**
+	 * Overall QC flag of the total file.
+	 *
+	 * @param gdop
+	 *            GDOP threshold test flags
+	 * @param tempDerivative
+	 *            temporal derivative test flags
+	 * @param velocityThreshold
+	 *            velocity threshold test flags
+	 * @param dataDensity
+	 *            data density test flags
+	 * @return the overall flags
+	 */
+	public static float[] overall(float[] gdop, float[] tempDerivative, float[] velocityThreshold,
+			float[] dataDensity) {
+		return QualityTests.overall(new float[][] { gdop, tempDerivative, velocityThreshold, dataDensity },
+				new float[0]);
+	}
+}
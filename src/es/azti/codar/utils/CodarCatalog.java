@@ -0,0 +1,442 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarFileHeaderBean;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Catalog of the codar files of a directory tree: every input read by
+ *         CodarInput, plain (.ruv / .tuv), gzipped or inside zip archives. Each
+ *         file is described by its header (site, time stamp, origin, pattern,
+ *         UUID and table rows) obtained with a header only scan, so the data
+ *         tables are never read. The catalog is stored in a text file in the
+ *         root of the directory and updated incrementally: only new or
+ *         modified files are scanned again, the entries of a zip when the
+ *         archive changes.
+ *
+ *         The frame cache looks up the neighbour time steps of a file here,
+ *         by site, pattern and time, instead of building their names.
+ */
+public class CodarCatalog {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarCatalog.class);
+
+	// name of the catalog file, starts with a dot to be skipped by the
+	// console file walker.
+	public static final String CATALOG_FILE_NAME = ".jradar_catalog.txt";
+
+	private static final String CATALOG_HEADER = "#JRadar codar catalog 1";
+	private static final String SEPARATOR = "\t";
+
+	// root of the catalog, paths are stored relative to it
+	private final File root;
+	// relative path -> file header
+	private final TreeMap<String, CodarFileHeaderBean> entries = new TreeMap<String, CodarFileHeaderBean>();
+	// files of each site code in time order, built when looked up
+	private Map<String, List<CodarFileHeaderBean>> sites;
+
+	private CodarCatalog(File root) {
+		this.root = root.getAbsoluteFile();
+	}
+
+	/**
+	 * Opens the catalog of a directory: loads the stored one if exists, scans
+	 * the new or modified files and saves it again if something has changed.
+	 *
+	 * @param directory
+	 *            root of the codar archive
+	 * @return the catalog updated
+	 */
+	public static CodarCatalog open(File directory) {
+		CodarCatalog catalog = new CodarCatalog(directory);
+		File catalogFile = new File(directory, CATALOG_FILE_NAME);
+		if (catalogFile.isFile()) {
+			try {
+				catalog.load(catalogFile);
+			} catch (IOException e) {
+				log.error("Codar catalog could not be read, building it again", e);
+				catalog.entries.clear();
+			}
+		}
+		if (catalog.update()) {
+			try {
+				catalog.save(catalogFile);
+			} catch (IOException e) {
+				log.error("Codar catalog could not be saved", e);
+			}
+		}
+		return catalog;
+	}
+
+	/**
+	 * Header only scan of a codar file.
+	 *
+	 * @param codarFile
+	 *            .ruv or .tuv file
+	 * @return the header information
+	 * @throws IOException
+	 */
+	public static CodarFileHeaderBean scanFile(File codarFile) throws IOException {
+		return scanFile(new CodarInput(codarFile));
+	}
+
+	/**
+	 * Header only scan of a codar input. Gzipped files and zip entries are
+	 * decompressed in memory.
+	 *
+	 * @param input
+	 *            codar file, gzipped file or zip entry
+	 * @return the header information, with the modification time and length
+	 *         of the file on disk (the archive for zip entries).
+	 * @throws IOException
+	 */
+	public static CodarFileHeaderBean scanFile(CodarInput input) throws IOException {
+		final CodarFileHeaderBean header = new CodarFileHeaderBean();
+		header.setPathToFile(input.getPath());
+		header.setLastModified(input.getFile().lastModified());
+		header.setLength(input.getFile().length());
+		CodarLLUVParser.scanHeader(input.read(), new CodarLLUVParser.HeaderListener() {
+			@Override
+			public boolean header(String name, String value) {
+				if (name.equals("Site")) {
+					header.setSite(value);
+				} else if (name.equals("TimeStamp")) {
+					header.setTimeStamp(value);
+				} else if (name.equals("Origin")) {
+					header.setOrigin(value);
+				} else if (name.equals("PatternType")) {
+					header.setPatternType(value);
+				} else if (name.equals("UUID")) {
+					header.setUUID(value);
+				} else if (name.equals("TableType") && header.getTableType() == null) {
+					header.setTableType(value);
+				} else if (name.equals("TableRows") && header.getTableRows() < 0) {
+					try {
+						header.setTableRows(Integer.parseInt(value.trim()));
+					} catch (NumberFormatException e) {
+						log.error("Wrong TableRows value in " + header.getPathToFile(), e);
+					}
+				}
+				return true;
+			}
+		});
+		return header;
+	}
+
+	/**
+	 * Scans again the directory tree, adding new files, updating the modified
+	 * ones and removing the deleted ones.
+	 *
+	 * @return true if the catalog has changed
+	 */
+	public synchronized boolean update() {
+		Set<String> found = new HashSet<String>();
+		boolean changed = update(root, found);
+		if (entries.keySet().retainAll(found))
+			changed = true;
+		if (changed)
+			sites = null;
+		return changed;
+	}
+
+	private boolean update(File directory, Set<String> found) {
+		boolean changed = false;
+		File[] lista = directory.listFiles();
+		if (lista == null)
+			return false;
+		for (File individual : lista) {
+			// skip hidden and temporal files, as the console mode does
+			if (!individual.getName().substring(0, 1).matches("\\w"))
+				continue;
+			if (individual.isDirectory()) {
+				changed |= update(individual, found);
+			} else if (CodarInput.isZipFile(individual.getName())) {
+				changed |= updateZip(individual, found);
+			} else if (CodarInput.isCodarFile(individual.getName())) {
+				String path = relativePath(individual);
+				found.add(path);
+				if (isModified(entries.get(path), individual)) {
+					try {
+						entries.put(path, scanFile(individual));
+						changed = true;
+					} catch (IOException e) {
+						log.error("Error scanning codar file " + individual.getAbsolutePath(), e);
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * The entries of a zip archive are scanned again only if the archive has
+	 * changed.
+	 */
+	private boolean updateZip(File zipFile, Set<String> found) {
+		String prefix = relativePath(zipFile) + CodarInput.ZIP_SEPARATOR;
+		Map<String, CodarFileHeaderBean> stored = entries.subMap(prefix, prefix + Character.MAX_VALUE);
+		boolean modified = stored.isEmpty();
+		for (CodarFileHeaderBean header : stored.values())
+			modified |= isModified(header, zipFile);
+		if (!modified) {
+			found.addAll(stored.keySet());
+			return false;
+		}
+		try {
+			for (CodarInput input : CodarInput.listZip(zipFile)) {
+				// the archive path followed by "!/entry"
+				String path = relativePath(zipFile) + input.getPath().substring(input.getFile().getPath().length());
+				found.add(path);
+				try {
+					entries.put(path, scanFile(input));
+				} catch (IOException e) {
+					log.error("Error scanning codar file " + input.getPath(), e);
+				}
+			}
+		} catch (IOException e) {
+			log.error("Error reading zip archive " + zipFile.getAbsolutePath(), e);
+		}
+		return true;
+	}
+
+	private static boolean isModified(CodarFileHeaderBean stored, File file) {
+		return stored == null || stored.getLastModified() != file.lastModified() || stored.getLength() != file.length();
+	}
+
+	/**
+	 * @return all the files of the catalog, ordered by site and time.
+	 */
+	public synchronized List<CodarFileHeaderBean> getEntries() {
+		List<CodarFileHeaderBean> lista = new ArrayList<CodarFileHeaderBean>(entries.values());
+		Collections.sort(lista);
+		return lista;
+	}
+
+	/**
+	 * @return the site codes present in the catalog.
+	 */
+	public synchronized List<String> getSites() {
+		TreeSet<String> sites = new TreeSet<String>();
+		for (CodarFileHeaderBean header : entries.values()) {
+			if (header.getSiteCode() != null)
+				sites.add(header.getSiteCode());
+		}
+		return new ArrayList<String>(sites);
+	}
+
+	/**
+	 * Files of a site in a time range.
+	 *
+	 * @param siteCode
+	 *            site code, null for all the sites
+	 * @param from
+	 *            start of the range, milliseconds UTC, included
+	 * @param to
+	 *            end of the range, milliseconds UTC, included
+	 * @return the files ordered by site and time.
+	 */
+	public synchronized List<CodarFileHeaderBean> find(String siteCode, long from, long to) {
+		List<CodarFileHeaderBean> lista = new ArrayList<CodarFileHeaderBean>();
+		if (siteCode != null) {
+			List<CodarFileHeaderBean> site = index().get(siteCode);
+			if (site == null)
+				return lista;
+			// first file of the range, the files of a site are in time order
+			int low = 0;
+			int high = site.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (site.get(mid).getTimeInMillis() < from)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			for (int i = low; i < site.size() && site.get(i).getTimeInMillis() <= to; i++)
+				lista.add(site.get(i));
+			return lista;
+		}
+		for (CodarFileHeaderBean header : entries.values()) {
+			if (header.getTimeInMillis() >= from && header.getTimeInMillis() <= to)
+				lista.add(header);
+		}
+		Collections.sort(lista);
+		return lista;
+	}
+
+	/**
+	 * File of a site at a time.
+	 *
+	 * @param siteCode
+	 *            site code
+	 * @param time
+	 *            milliseconds UTC
+	 * @param radial
+	 *            true to look for radial files, false for totals.
+	 * @return the file header or null if the file is not in the catalog.
+	 */
+	public CodarFileHeaderBean find(String siteCode, long time, boolean radial) {
+		return find(siteCode, null, time, radial);
+	}
+
+	/**
+	 * File of a site and antenna pattern at a time.
+	 *
+	 * @param siteCode
+	 *            site code
+	 * @param patternType
+	 *            pattern type of the radials (Ideal, Measured), null for any
+	 * @param time
+	 *            milliseconds UTC
+	 * @param radial
+	 *            true to look for radial files, false for totals.
+	 * @return the file header or null if the file is not in the catalog.
+	 */
+	public CodarFileHeaderBean find(String siteCode, String patternType, long time, boolean radial) {
+		for (CodarFileHeaderBean header : find(siteCode, time, time)) {
+			if (header.isRadial() == radial && (patternType == null || header.getPatternType() == null
+					|| patternType.trim().equals(header.getPatternType().trim())))
+				return header;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the files of each site code, in time order.
+	 */
+	private Map<String, List<CodarFileHeaderBean>> index() {
+		if (sites == null) {
+			sites = new HashMap<String, List<CodarFileHeaderBean>>();
+			for (CodarFileHeaderBean header : entries.values()) {
+				if (header.getSiteCode() == null)
+					continue;
+				List<CodarFileHeaderBean> site = sites.get(header.getSiteCode());
+				if (site == null) {
+					site = new ArrayList<CodarFileHeaderBean>();
+					sites.put(header.getSiteCode(), site);
+				}
+				site.add(header);
+			}
+			for (List<CodarFileHeaderBean> site : sites.values())
+				Collections.sort(site);
+		}
+		return sites;
+	}
+
+	/**
+	 * Loads a stored catalog.
+	 */
+	private void load(File catalogFile) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(catalogFile), "UTF-8"));
+		try {
+			String currentLine = reader.readLine();
+			if (currentLine == null || !currentLine.equals(CATALOG_HEADER))
+				throw new IOException("Not a codar catalog: " + catalogFile.getAbsolutePath());
+			while ((currentLine = reader.readLine()) != null) {
+				String[] campos = currentLine.split(SEPARATOR, -1);
+				if (campos.length != 10) {
+					log.error("Wrong codar catalog line: " + currentLine);
+					continue;
+				}
+				CodarFileHeaderBean header = new CodarFileHeaderBean();
+				header.setPathToFile(absolutePath(campos[0]));
+				header.setLastModified(Long.parseLong(campos[1]));
+				header.setLength(Long.parseLong(campos[2]));
+				header.setSite(fromField(campos[3]));
+				header.setTimeStamp(fromField(campos[4]));
+				header.setOrigin(fromField(campos[5]));
+				header.setPatternType(fromField(campos[6]));
+				header.setUUID(fromField(campos[7]));
+				header.setTableType(fromField(campos[8]));
+				header.setTableRows(Integer.parseInt(campos[9]));
+				entries.put(campos[0], header);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Wrong codar catalog: " + catalogFile.getAbsolutePath(), e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Stores the catalog in a text file, one line per codar file.
+	 *
+	 * @param catalogFile
+	 *            destination file
+	 * @throws IOException
+	 */
+	public synchronized void save(File catalogFile) throws IOException {
+		BufferedWriter writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(catalogFile), "UTF-8"));
+		try {
+			writer.write(CATALOG_HEADER);
+			writer.newLine();
+			for (String path : entries.keySet()) {
+				CodarFileHeaderBean header = entries.get(path);
+				writer.write(path + SEPARATOR + header.getLastModified() + SEPARATOR + header.getLength() + SEPARATOR
+						+ toField(header.getSite()) + SEPARATOR + toField(header.getTimeStamp()) + SEPARATOR
+						+ toField(header.getOrigin()) + SEPARATOR + toField(header.getPatternType()) + SEPARATOR
+						+ toField(header.getUUID()) + SEPARATOR + toField(header.getTableType()) + SEPARATOR
+						+ header.getTableRows());
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return path of the file relative to the catalog root, with '/' as
+	 *         separator.
+	 */
+	private String relativePath(File file) {
+		String rootPath = root.getPath();
+		String path = file.getAbsolutePath();
+		if (path.startsWith(rootPath + File.separator))
+			path = path.substring(rootPath.length() + 1);
+		return path.replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * @return absolute path of a path relative to the catalog root,
+	 *         "archive.zip!/entry" for zip entries.
+	 */
+	private String absolutePath(String path) {
+		int separator = path.indexOf(CodarInput.ZIP_SEPARATOR);
+		if (separator < 0)
+			return new File(root, path).getAbsolutePath();
+		return new File(root, path.substring(0, separator)).getAbsolutePath() + path.substring(separator);
+	}
+
+	private static String toField(String value) {
+		return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	private static String fromField(String value) {
+		return value.isEmpty() ? null : value;
+	}
+}
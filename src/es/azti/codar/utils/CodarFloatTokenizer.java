@@ -0,0 +1,191 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Numeric parser for the cells of the LLUV tables. The cells are read
+ *         directly from the file buffer, without creating Strings nor throwing
+ *         exceptions. Plain decimal numbers ("-142.", "+27.", "0.7330",
+ *         "1.5e-3") with up to 15 significant digits are converted exactly
+ *         (the product or quotient of two doubles exactly representable is
+ *         correctly rounded, and it is rounded again to float only when it is
+ *         not halfway between two floats), so the result is always the same
+ *         as Float.parseFloat. Any other token (NaN, Infinity, very long
+ *         numbers...) goes through Float.parseFloat. Malformed cells are
+ *         returned as NaN and counted.
+ */
+public class CodarFloatTokenizer {
+
+	private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+	// exact powers of ten in double
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// mantissas up to 2^53 are exact in double
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	// number of cells that could not be parsed
+	private int malformed;
+
+	/**
+	 * Parses the token [start, end) of the buffer.
+	 *
+	 * @return the value, NaN if the token is malformed.
+	 */
+	public float parseFloat(ByteBuffer buffer, int start, int end) {
+		int p = start;
+		boolean negative = false;
+		if (p < end) {
+			byte b = buffer.get(p);
+			if (b == '-' || b == '+') {
+				negative = b == '-';
+				p++;
+			}
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int significant = 0;
+		int exponent = 0;
+		for (; p < end; p++) {
+			int d = buffer.get(p) - '0';
+			if (d < 0 || d > 9)
+				break;
+			if (significant > 0 || d != 0) {
+				if (++significant > 18)
+					return parseSlow(buffer, start, end);
+				mantissa = mantissa * 10 + d;
+			}
+			digits++;
+		}
+		if (p < end && buffer.get(p) == '.') {
+			for (p++; p < end; p++) {
+				int d = buffer.get(p) - '0';
+				if (d < 0 || d > 9)
+					break;
+				if (significant > 0 || d != 0) {
+					if (++significant > 18)
+						return parseSlow(buffer, start, end);
+					mantissa = mantissa * 10 + d;
+				}
+				exponent--;
+				digits++;
+			}
+		}
+		if (digits == 0)
+			return parseSlow(buffer, start, end);
+		if (p < end && (buffer.get(p) == 'e' || buffer.get(p) == 'E')) {
+			p++;
+			boolean negativeExponent = false;
+			if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+				negativeExponent = buffer.get(p) == '-';
+				p++;
+			}
+			int exponentStart = p;
+			int value = 0;
+			for (; p < end; p++) {
+				int d = buffer.get(p) - '0';
+				if (d < 0 || d > 9 || value > 10000)
+					break;
+				value = value * 10 + d;
+			}
+			if (p == exponentStart)
+				return parseSlow(buffer, start, end);
+			exponent += negativeExponent ? -value : value;
+		}
+		if (p != end || mantissa > MAX_EXACT_MANTISSA)
+			return parseSlow(buffer, start, end);
+		double value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return parseSlow(buffer, start, end);
+		}
+		// the double is the correctly rounded value, rounding it to float is
+		// only ambiguous if it lies halfway between two floats or in the
+		// subnormal range.
+		if (value != 0 && (value < Float.MIN_NORMAL
+				|| (Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L))
+			return parseSlow(buffer, start, end);
+		float result = (float) value;
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Parses the hexadecimal token [start, end) of the buffer, as
+	 * Integer.parseInt(token, 16).
+	 *
+	 * @return the value, NaN if the token is malformed.
+	 */
+	public float parseHex(ByteBuffer buffer, int start, int end) {
+		int p = start;
+		boolean negative = false;
+		if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+			negative = buffer.get(p) == '-';
+			p++;
+		}
+		if (p == end || end - p > 7) {
+			// empty or could overflow an int, let Integer decide
+			try {
+				return Integer.parseInt(new String(bytes(buffer, start, end), ASCII), 16);
+			} catch (NumberFormatException e) {
+				malformed++;
+				return Float.NaN;
+			}
+		}
+		int value = 0;
+		for (; p < end; p++) {
+			int d = Character.digit((char) (buffer.get(p) & 0xff), 16);
+			if (d < 0) {
+				malformed++;
+				return Float.NaN;
+			}
+			value = value * 16 + d;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return the number of malformed cells found since the last reset
+	 */
+	public int getMalformed() {
+		return malformed;
+	}
+
+	/**
+	 * Sets the malformed cell count to zero.
+	 */
+	public void reset() {
+		malformed = 0;
+	}
+
+	/**
+	 * Tokens not handled by the fast path.
+	 */
+	private float parseSlow(ByteBuffer buffer, int start, int end) {
+		try {
+			return Float.parseFloat(new String(bytes(buffer, start, end), ASCII));
+		} catch (NumberFormatException e) {
+			malformed++;
+			return Float.NaN;
+		}
+	}
+
+	private static byte[] bytes(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		return bytes;
+	}
+}
@@ -0,0 +1,310 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarFileHeaderBean;
+import es.azti.codar.beans.CodarRadialBean;
+import es.azti.codar.beans.CodarTotalBean;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Windows of the last codar files loaded in a batch run, used by the
+ *         temporal derivative tests. The files are identified by their path
+ *         and each site has its own window: when it is full, the oldest time
+ *         step of the site is discarded, so the files of other sites are kept
+ *         whatever the order of the batch. The site is the one of the header,
+ *         or the one of the file name if the header has none. When the files
+ *         of each site are processed in time order each file is parsed only
+ *         once: as the next time step of the previous file, then as the file
+ *         converted and finally as the previous time step of the next one.
+ *
+ *         The previous and next time steps of a file are looked up in the
+ *         catalog of the archive, by site, pattern and time, or by their file
+ *         names, the time stamp of the file replaced, if there is no catalog.
+ *
+ *         The beans are shared, only their tables are read by the tests.
+ */
+public class CodarFrameCache {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarFrameCache.class);
+
+	// previous, current and next time steps of a site, and one more for the
+	// gaps
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private final Properties props;
+	private int capacity;
+	// frames loaded, by path
+	private final Map<String, Frame> frames = new HashMap<String, Frame>();
+	// paths of the frames of each site
+	private final Map<String, List<String>> sites = new HashMap<String, List<String>>();
+	// inputs of the batch run, they may have been read in advance
+	private final Map<String, CodarInput> inputs = new HashMap<String, CodarInput>();
+	// catalog used to look up the time steps, may be null
+	private CodarCatalog catalog;
+	private int loads;
+
+	private static class Frame {
+		private final Object bean;
+		private final long time;
+
+		private Frame(Object bean, long time) {
+			this.bean = bean;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * @param props
+	 *            codar.properties file loaded, used to load the files
+	 */
+	public CodarFrameCache(Properties props) {
+		this(props, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param props
+	 *            codar.properties file loaded, used to load the files
+	 * @param capacity
+	 *            number of time steps kept of each site, at least 3
+	 */
+	public CodarFrameCache(Properties props, int capacity) {
+		this.props = props;
+		this.capacity = Math.max(3, capacity);
+	}
+
+	/**
+	 * Changes the number of time steps kept of each site. The windows bigger
+	 * than the new capacity shrink as the next files of their sites are
+	 * loaded.
+	 *
+	 * @param capacity
+	 *            number of time steps kept of each site, at least 3
+	 */
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = Math.max(3, capacity);
+	}
+
+	/**
+	 * Inputs of the batch run, so the contents read in advance are used when
+	 * the files are loaded as neighbour time steps.
+	 *
+	 * @param lista
+	 *            codar files
+	 */
+	public synchronized void register(List<CodarInput> lista) {
+		for (CodarInput input : lista)
+			inputs.put(input.getPath(), input);
+	}
+
+	/**
+	 * @param catalog
+	 *            catalog of the codar archive, used to look up the previous and
+	 *            next time steps. Without it they are looked up by file name.
+	 */
+	public synchronized void setCatalog(CodarCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	/**
+	 * @param path
+	 *            path of a radial file, "archive.zip!/entry" for zip entries
+	 * @return the radial file, null if it does not exist.
+	 * @throws ParseException
+	 */
+	public synchronized CodarRadialBean getRadial(String path) throws ParseException {
+		CodarInput input = input(path);
+		if (!frames.containsKey(input.getPath()) && !input.exists())
+			return null;
+		return getRadial(input);
+	}
+
+	/**
+	 * @param input
+	 *            radial file
+	 * @return the radial file, loaded now or before.
+	 * @throws ParseException
+	 */
+	public synchronized CodarRadialBean getRadial(CodarInput input) throws ParseException {
+		Frame frame = frames.get(input.getPath());
+		if (frame == null) {
+			CodarRadialBean bean = CodarUtils.loadCodarRadialData(input, props);
+			frame = add(input, bean, "radial " + siteOf(bean.getSite(), input),
+					bean.getTimeStampAsCalendar().getTimeInMillis());
+		}
+		return (CodarRadialBean) frame.bean;
+	}
+
+	/**
+	 * Time step of the same site and antenna pattern than a radial file.
+	 *
+	 * @param bean
+	 *            radial file loaded
+	 * @param minutes
+	 *            time from the file, negative before it
+	 * @return the radial file of that time, null if it does not exist.
+	 * @throws ParseException
+	 */
+	public synchronized CodarRadialBean getRadialStep(CodarRadialBean bean, int minutes) throws ParseException {
+		String path = getRadialStepPath(bean, minutes);
+		return path == null ? null : getRadial(path);
+	}
+
+	/**
+	 * @param bean
+	 *            radial file loaded
+	 * @param minutes
+	 *            time from the file, negative before it
+	 * @return path of the radial file of that time, not loaded. Null if it is
+	 *         not in the catalog.
+	 * @throws ParseException
+	 */
+	public synchronized String getRadialStepPath(CodarRadialBean bean, int minutes) throws ParseException {
+		return stepPath(bean.getPathToFile(), bean.getSite(), bean.getPatternType(), bean.getTimeStampAsCalendar(),
+				minutes, true);
+	}
+
+	/**
+	 * @param path
+	 *            path of a total file, "archive.zip!/entry" for zip entries
+	 * @return the total file, null if it does not exist.
+	 * @throws ParseException
+	 */
+	public synchronized CodarTotalBean getTotal(String path) throws ParseException {
+		CodarInput input = input(path);
+		if (!frames.containsKey(input.getPath()) && !input.exists())
+			return null;
+		return getTotal(input);
+	}
+
+	/**
+	 * @param input
+	 *            total file
+	 * @return the total file, loaded now or before.
+	 * @throws ParseException
+	 */
+	public synchronized CodarTotalBean getTotal(CodarInput input) throws ParseException {
+		Frame frame = frames.get(input.getPath());
+		if (frame == null) {
+			CodarTotalBean bean = CodarUtils.loadCodarTotalData(input, props);
+			frame = add(input, bean, "total " + siteOf(bean.getSite(), input),
+					bean.getTimeStampAsCalendar().getTimeInMillis());
+		}
+		return (CodarTotalBean) frame.bean;
+	}
+
+	/**
+	 * Time step of the same site than a total file.
+	 *
+	 * @param bean
+	 *            total file loaded
+	 * @param minutes
+	 *            time from the file, negative before it
+	 * @return the total file of that time, null if it does not exist.
+	 * @throws ParseException
+	 */
+	public synchronized CodarTotalBean getTotalStep(CodarTotalBean bean, int minutes) throws ParseException {
+		String path = stepPath(bean.getPathToFile(), bean.getSite(), null, bean.getTimeStampAsCalendar(), minutes,
+				false);
+		return path == null ? null : getTotal(path);
+	}
+
+	/**
+	 * @param path
+	 *            path of a codar file
+	 * @param time
+	 *            time stamp of the file
+	 * @param minutes
+	 *            time from the file, negative before it
+	 * @return path of the file of the same site at that time, the time stamp
+	 *         of the name replaced.
+	 */
+	public static String timeStepPath(String path, Calendar time, int minutes) {
+		SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyy_MM_dd_HHmm");
+		filenameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Calendar step = (Calendar) time.clone();
+		step.add(Calendar.MINUTE, minutes);
+		return path.replace(filenameFormat.format(time.getTime()), filenameFormat.format(step.getTime()));
+	}
+
+	/**
+	 * @return path of a time step from the catalog or the file name, null if
+	 *         it is not in the catalog.
+	 */
+	private String stepPath(String path, String site, String patternType, Calendar time, int minutes,
+			boolean radial) {
+		if (catalog == null)
+			return timeStepPath(path, time, minutes);
+		CodarFileHeaderBean header = catalog.find(siteOf(site, CodarInput.forPath(path)), patternType,
+				time.getTimeInMillis() + minutes * 60000L, radial);
+		return header == null ? null : header.getPathToFile();
+	}
+
+	/**
+	 * @return number of files parsed since the cache was created
+	 */
+	public synchronized int getLoads() {
+		return loads;
+	}
+
+	private CodarInput input(String path) {
+		CodarInput input = CodarInput.forPath(path);
+		CodarInput registered = inputs.get(input.getPath());
+		return registered != null ? registered : input;
+	}
+
+	/**
+	 * @param site
+	 *            site header of the file, "HIGE \"\"" in radials
+	 * @param input
+	 *            codar file, RDLi_HIGE_2018_09_01_0000.ruv
+	 * @return the site code, the first word of the header or the second field
+	 *         of the file name.
+	 */
+	static String siteOf(String site, CodarInput input) {
+		if (site != null && !site.trim().isEmpty())
+			return site.trim().split("\\s+")[0];
+		String[] fields = input.getName().split("_");
+		return fields.length > 1 ? fields[1] : input.getName();
+	}
+
+	private Frame add(CodarInput input, Object bean, String site, long time) {
+		loads++;
+		Frame frame = new Frame(bean, time);
+		frames.put(input.getPath(), frame);
+		List<String> window = sites.get(site);
+		if (window == null) {
+			window = new ArrayList<String>();
+			sites.put(site, window);
+		}
+		window.add(input.getPath());
+		while (window.size() > capacity) {
+			// the oldest time step of the site goes out
+			int oldest = 0;
+			for (int i = 1; i < window.size(); i++) {
+				if (frames.get(window.get(i)).time < frames.get(window.get(oldest)).time)
+					oldest = i;
+			}
+			frames.remove(window.remove(oldest));
+		}
+		if (log.isDebugEnabled())
+			log.debug("frame loaded " + input.getPath() + ", " + window.size() + " of " + site + " in memory");
+		return frame;
+	}
+}
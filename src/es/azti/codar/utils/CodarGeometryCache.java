@@ -0,0 +1,266 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import net.sf.geographiclib.Geodesic;
+import net.sf.geographiclib.GeodesicData;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Latitude and longitude of the netcdf grids, calculated with the
+ *         WGS84 geodesic from the origin of the site. The grid of a site only
+ *         changes with its origin, its resolution or its extent, so each
+ *         geometry is calculated once and kept in memory, by the origin and
+ *         the bearings and ranges (radials) or the x and y distances (totals)
+ *         of the grid. The last MAX_GEOMETRIES geometries used are kept.
+ *
+ *         If the jradar.geometry.dir property of codar.properties is set, the
+ *         geometries are also stored in that folder, one file per geometry,
+ *         and read from there by the next runs. A stored file is only used if
+ *         its key is the one of the grid.
+ *
+ *         The arrays returned are shared and must not be modified.
+ */
+public class CodarGeometryCache {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarGeometryCache.class);
+
+	// sites of a network
+	public static final int MAX_GEOMETRIES = 64;
+
+	private static final String FILE_HEADER = "JRadar geometry 1";
+	private static final String FILE_EXTENSION = ".geo";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static CodarGeometryCache defaultCache = new CodarGeometryCache(null);
+
+	// folder of the stored geometries, null if only kept in memory
+	private final File directory;
+	private final Map<String, float[][]> geometries = new LinkedHashMap<String, float[][]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, float[][]> eldest) {
+			return size() > MAX_GEOMETRIES;
+		}
+	};
+
+	/**
+	 * @param directory
+	 *            folder of the stored geometries, null to keep them only in
+	 *            memory
+	 */
+	public CodarGeometryCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the cache used by the writers
+	 */
+	public static synchronized CodarGeometryCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * Sets the folder of the cache used by the writers, from the
+	 * jradar.geometry.dir property.
+	 *
+	 * @param props
+	 *            codar.properties file loaded
+	 */
+	public static synchronized void configure(Properties props) {
+		String dir = props.getProperty("jradar.geometry.dir");
+		File directory = null;
+		if (dir != null && !dir.trim().isEmpty()) {
+			directory = new File(dir.trim());
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				log.error("geometry folder " + directory.getAbsolutePath() + " could not be created, not used");
+				directory = null;
+			}
+		}
+		defaultCache = new CodarGeometryCache(directory);
+	}
+
+	/**
+	 * @param siteLat
+	 *            latitude of the origin
+	 * @param siteLon
+	 *            longitude of the origin
+	 * @param rangeDims
+	 *            ranges of the grid, in km
+	 * @param bearingDims
+	 *            bearings of the grid, in degrees
+	 * @return latitudes and longitudes of the grid cells, by bearing and then
+	 *         by range.
+	 */
+	public float[][] getRadial(float siteLat, float siteLon, List<Float> rangeDims, List<Integer> bearingDims) {
+		String key = "radial " + siteLat + " " + siteLon + " bearings " + bearingDims + " ranges " + rangeDims;
+		float[][] geometry = get(key);
+		if (geometry == null) {
+			geometry = new float[2][bearingDims.size() * rangeDims.size()];
+			int i = 0;
+			for (float bear : bearingDims) {
+				for (float range : rangeDims) {
+					GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, bear, range * 1000);
+					geometry[0][i] = (float) data.lat2;
+					geometry[1][i] = (float) data.lon2;
+					i++;
+				}
+			}
+			put(key, geometry);
+		}
+		return geometry;
+	}
+
+	/**
+	 * @param siteLat
+	 *            latitude of the origin
+	 * @param siteLon
+	 *            longitude of the origin
+	 * @param x
+	 *            eastward distances of the grid, in km
+	 * @param y
+	 *            northward distances of the grid, in km
+	 * @return latitudes of the y distances and longitudes of the x distances.
+	 */
+	public float[][] getTotal(float siteLat, float siteLon, List<Float> x, List<Float> y) {
+		String key = "total " + siteLat + " " + siteLon + " x " + x + " y " + y;
+		float[][] geometry = get(key);
+		if (geometry == null) {
+			geometry = new float[][] { new float[y.size()], new float[x.size()] };
+			int i = 0;
+			for (float xInc : x) {
+				GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, 90, xInc * 1000);
+				geometry[1][i++] = (float) data.lon2;
+			}
+			i = 0;
+			for (float yInc : y) {
+				GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, 0, yInc * 1000);
+				geometry[0][i++] = (float) data.lat2;
+			}
+			put(key, geometry);
+		}
+		return geometry;
+	}
+
+	private float[][] get(String key) {
+		synchronized (geometries) {
+			float[][] geometry = geometries.get(key);
+			if (geometry != null || directory == null)
+				return geometry;
+		}
+		File file = new File(directory, fileName(key));
+		if (!file.isFile())
+			return null;
+		try {
+			float[][] geometry = load(file, key);
+			if (geometry != null) {
+				synchronized (geometries) {
+					geometries.put(key, geometry);
+				}
+			}
+			return geometry;
+		} catch (IOException e) {
+			log.error("geometry " + file.getAbsolutePath() + " could not be read, calculating it again", e);
+			return null;
+		}
+	}
+
+	private void put(String key, float[][] geometry) {
+		synchronized (geometries) {
+			geometries.put(key, geometry);
+		}
+		if (directory == null)
+			return;
+		File file = new File(directory, fileName(key));
+		try {
+			save(file, key, geometry);
+		} catch (IOException e) {
+			log.error("geometry " + file.getAbsolutePath() + " could not be stored", e);
+		}
+	}
+
+	private static float[][] load(File file, String key) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (!FILE_HEADER.equals(in.readUTF()))
+				return null;
+			byte[] storedKey = new byte[in.readInt()];
+			in.readFully(storedKey);
+			// another grid with the same hash
+			if (!key.equals(new String(storedKey, UTF8)))
+				return null;
+			float[][] geometry = new float[2][];
+			for (int j = 0; j < geometry.length; j++) {
+				geometry[j] = new float[in.readInt()];
+				for (int i = 0; i < geometry[j].length; i++)
+					geometry[j][i] = in.readFloat();
+			}
+			return geometry;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void save(File file, String key, float[][] geometry) throws IOException {
+		// written aside and renamed, never read half written
+		File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeUTF(FILE_HEADER);
+			byte[] keyBytes = key.getBytes(UTF8);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+			for (float[] values : geometry) {
+				out.writeInt(values.length);
+				for (float value : values)
+					out.writeFloat(value);
+			}
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				temp.delete();
+				throw new IOException("could not rename " + temp.getAbsolutePath());
+			}
+		}
+	}
+
+	private static String fileName(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF8));
+			StringBuilder name = new StringBuilder(key.substring(0, key.indexOf(' ')));
+			name.append('_');
+			for (byte b : digest)
+				name.append(String.format("%02x", b));
+			return name.append(FILE_EXTENSION).toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform has SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Dispatch table from codar header names to bean setters. The
+ *         codar.properties entries (codar.file.prop.name.XXX=HeaderName) are
+ *         resolved once per bean class into MethodHandles of the setXXX(String)
+ *         methods, so loading a file does not need reflection lookups nor
+ *         Properties scans.
+ *
+ *         The table is looked up by bean class and Properties instance without
+ *         locks, so files can be loaded from several threads. The properties
+ *         are compared only when another instance is given, a Properties
+ *         object must not be changed once files have been loaded with it.
+ */
+public class CodarHeaderDispatcher {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarHeaderDispatcher.class);
+
+	// codar.properties prefix of the header names
+	private static final String PROPERTY_PREFIX = "codar.file.prop.name.";
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, String.class);
+
+	// dispatch table of each bean class, with the properties it was last
+	// requested with
+	private static final ConcurrentHashMap<Class<?>, Entry> dispatchers = new ConcurrentHashMap<Class<?>, Entry>();
+
+	private static class Entry {
+		private final Properties props;
+		private final CodarHeaderDispatcher dispatcher;
+
+		private Entry(Properties props, CodarHeaderDispatcher dispatcher) {
+			this.props = props;
+			this.dispatcher = dispatcher;
+		}
+	}
+
+	private final Properties props;
+	// header name -> setter, null if the bean has no setter for it
+	private final HashMap<String, MethodHandle> setters = new HashMap<String, MethodHandle>();
+
+	private CodarHeaderDispatcher(Class<?> beanClass, Properties props) {
+		this.props = props;
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		for (String property : props.stringPropertyNames()) {
+			if (!property.startsWith(PROPERTY_PREFIX))
+				continue;
+			String headerName = props.getProperty(property);
+			String setter = "set" + property.substring(PROPERTY_PREFIX.length());
+			MethodHandle handle = null;
+			try {
+				handle = lookup.findVirtual(beanClass, setter, MethodType.methodType(void.class, String.class))
+						.asType(SETTER_TYPE);
+			} catch (NoSuchMethodException e) {
+				// codar.properties has the headers of radials and totals,
+				// reported only if a file has it
+				log.debug("no setter " + setter + " in " + beanClass.getSimpleName());
+			} catch (IllegalAccessException e) {
+				log.debug("setter " + setter + " of " + beanClass.getSimpleName() + " not accessible");
+			}
+			setters.put(headerName, handle);
+		}
+	}
+
+	/**
+	 * Returns the dispatch table of a bean class. It is built the first time
+	 * and reused while the codar properties do not change: for the same
+	 * Properties instance it is returned directly, for another one it is
+	 * reused if they have the same values.
+	 *
+	 * @param beanClass
+	 *            CodarRadialBean or CodarTotalBean
+	 * @param props
+	 *            codar.properties file loaded
+	 * @return the dispatch table
+	 */
+	public static CodarHeaderDispatcher getDispatcher(Class<?> beanClass, Properties props) {
+		Entry entry = dispatchers.get(beanClass);
+		if (entry != null && entry.props == props)
+			return entry.dispatcher;
+		CodarHeaderDispatcher dispatcher;
+		if (entry != null && entry.dispatcher.props.equals(props)) {
+			dispatcher = entry.dispatcher;
+		} else {
+			Properties snapshot = new Properties();
+			snapshot.putAll(props);
+			dispatcher = new CodarHeaderDispatcher(beanClass, snapshot);
+		}
+		// two threads may build it at the same time, both tables are valid
+		dispatchers.put(beanClass, new Entry(props, dispatcher));
+		return dispatcher;
+	}
+
+	/**
+	 * @param headerName
+	 *            name of the header, without %
+	 * @return true if the header is defined in codar.properties
+	 */
+	public boolean isDefined(String headerName) {
+		return setters.containsKey(headerName);
+	}
+
+	/**
+	 * Stores a header value in the bean.
+	 *
+	 * @param bean
+	 *            codar bean being loaded
+	 * @param headerName
+	 *            name of the header, without %
+	 * @param value
+	 *            header value
+	 * @return true if the header is defined in codar.properties, even if it
+	 *         could not be set.
+	 */
+	public boolean set(Object bean, String headerName, String value) {
+		if (!setters.containsKey(headerName))
+			return false;
+		MethodHandle handle = setters.get(headerName);
+		if (handle == null) {
+			log.error("Setter not found - attribute " + headerName + " not set in " + bean.getClass().getSimpleName());
+			return true;
+		}
+		try {
+			handle.invokeExact(bean, value);
+		} catch (Throwable e) {
+			log.error("Target error  - attribute not set", e);
+		}
+		return true;
+	}
+}
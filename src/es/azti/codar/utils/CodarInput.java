@@ -0,0 +1,312 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         A codar file to be loaded: a plain .ruv / .tuv file, a gzipped one
+ *         (.ruv.gz / .tuv.gz) or an entry of a .zip archive. Plain files are
+ *         memory mapped, compressed ones are decompressed in memory while
+ *         reading, so no temporal files are needed. The entries of a zip are
+ *         identified by the path "archive.zip!/entry".
+ *
+ *         The contents can be read in advance (prefetch) from another thread,
+ *         so several files can be decompressed in parallel while they are
+ *         processed in order.
+ */
+public class CodarInput {
+
+	// separator between the zip archive and the entry in the paths
+	public static final String ZIP_SEPARATOR = "!/";
+
+	private static final String GZIP_EXTENSION = ".gz";
+	private static final String ZIP_EXTENSION = ".zip";
+
+	// file on disk: the codar file, the gzipped one or the zip archive
+	private final File file;
+	// entry in the zip archive, null if file is not a zip
+	private final String entry;
+	// contents read in advance, released when they are used
+	private volatile ByteBuffer contents;
+
+	/**
+	 * @param file
+	 *            .ruv, .tuv, .ruv.gz or .tuv.gz file
+	 */
+	public CodarInput(File file) {
+		this(file, null);
+	}
+
+	/**
+	 * @param zipFile
+	 *            zip archive
+	 * @param entry
+	 *            name of the codar file in the archive
+	 */
+	public CodarInput(File zipFile, String entry) {
+		this.file = zipFile.getAbsoluteFile();
+		this.entry = entry;
+	}
+
+	/**
+	 * @param path
+	 *            path to a codar file, "archive.zip!/entry" for the files
+	 *            stored in a zip.
+	 * @return the input
+	 */
+	public static CodarInput forPath(String path) {
+		int separator = path.indexOf(ZIP_SEPARATOR);
+		if (separator > 0 && path.substring(0, separator).toLowerCase().endsWith(ZIP_EXTENSION))
+			return new CodarInput(new File(path.substring(0, separator)),
+					path.substring(separator + ZIP_SEPARATOR.length()));
+		return new CodarInput(new File(path));
+	}
+
+	/**
+	 * @param name
+	 *            file name
+	 * @return true for .ruv, .tuv, .ruv.gz and .tuv.gz files
+	 */
+	public static boolean isCodarFile(String name) {
+		String codarName = stripGzip(name);
+		return codarName.endsWith(".ruv") || codarName.endsWith(".tuv");
+	}
+
+	/**
+	 * @param name
+	 *            file name
+	 * @return true for zip archives
+	 */
+	public static boolean isZipFile(String name) {
+		return name.toLowerCase().endsWith(ZIP_EXTENSION);
+	}
+
+	/**
+	 * Codar files of a directory, in name order: the plain and gzipped codar
+	 * files and the codar entries of the zip archives. Files whose name does
+	 * not start with a letter or digit (hidden and temporal files) are
+	 * skipped. Subdirectories are not visited.
+	 *
+	 * @param directory
+	 *            directory to list
+	 * @return the codar files found
+	 * @throws IOException
+	 *             if a zip archive can not be read.
+	 */
+	public static List<CodarInput> list(File directory) throws IOException {
+		List<CodarInput> lista = new ArrayList<CodarInput>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			return lista;
+		Arrays.sort(files);
+		for (File individual : files) {
+			if (!individual.isFile() || !individual.getName().substring(0, 1).matches("\\w"))
+				continue;
+			if (isZipFile(individual.getName())) {
+				lista.addAll(listZip(individual));
+			} else if (isCodarFile(individual.getName())) {
+				lista.add(new CodarInput(individual));
+			}
+		}
+		return lista;
+	}
+
+	/**
+	 * @param zipFile
+	 *            zip archive
+	 * @return the codar entries of the archive, in name order
+	 * @throws IOException
+	 */
+	public static List<CodarInput> listZip(File zipFile) throws IOException {
+		List<String> names = new ArrayList<String>();
+		ZipFile zip = new ZipFile(zipFile);
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry zipEntry = entries.nextElement();
+				String name = baseName(zipEntry.getName());
+				if (!zipEntry.isDirectory() && !name.isEmpty() && name.substring(0, 1).matches("\\w")
+						&& isCodarFile(name))
+					names.add(zipEntry.getName());
+			}
+		} finally {
+			zip.close();
+		}
+		Collections.sort(names);
+		List<CodarInput> lista = new ArrayList<CodarInput>();
+		for (String name : names)
+			lista.add(new CodarInput(zipFile, name));
+		return lista;
+	}
+
+	/**
+	 * @return name of the codar file, without directories nor .gz extension
+	 */
+	public String getName() {
+		return stripGzip(baseName(entry != null ? entry : file.getName()));
+	}
+
+	/**
+	 * @return absolute path of the file, "archive.zip!/entry" for zip entries
+	 */
+	public String getPath() {
+		return entry != null ? file.getPath() + ZIP_SEPARATOR + entry : file.getPath();
+	}
+
+	/**
+	 * @return the file on disk: the codar file, the gzipped one or the zip
+	 *         archive.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return true if the contents are decompressed while reading
+	 */
+	public boolean isCompressed() {
+		return entry != null || file.getName().endsWith(GZIP_EXTENSION);
+	}
+
+	/**
+	 * @return true if it is a radial file
+	 */
+	public boolean isRadial() {
+		return getName().endsWith(".ruv");
+	}
+
+	/**
+	 * @return true if it is a total file
+	 */
+	public boolean isTotal() {
+		return getName().endsWith(".tuv");
+	}
+
+	/**
+	 * @return true if the file, or the zip entry, exists.
+	 */
+	public boolean exists() {
+		if (!file.isFile())
+			return false;
+		if (entry == null)
+			return true;
+		try {
+			ZipFile zip = new ZipFile(file);
+			try {
+				return zip.getEntry(entry) != null;
+			} finally {
+				zip.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the contents now, to be used later by read(). It may be called
+	 * from another thread.
+	 *
+	 * @throws IOException
+	 */
+	public void prefetch() throws IOException {
+		contents = readContents();
+	}
+
+	/**
+	 * @return the contents of the codar file, decompressed. The prefetched
+	 *         contents are returned, and released, if present.
+	 * @throws IOException
+	 */
+	public ByteBuffer read() throws IOException {
+		ByteBuffer buffer = contents;
+		if (buffer != null) {
+			contents = null;
+			return buffer;
+		}
+		return readContents();
+	}
+
+	/**
+	 * Forgets the contents read in advance, if they have not been used.
+	 */
+	public void release() {
+		contents = null;
+	}
+
+	private ByteBuffer readContents() throws IOException {
+		if (entry != null) {
+			ZipFile zip = new ZipFile(file);
+			try {
+				ZipEntry zipEntry = zip.getEntry(entry);
+				if (zipEntry == null)
+					throw new FileNotFoundException(getPath());
+				InputStream input = zip.getInputStream(zipEntry);
+				if (entry.endsWith(GZIP_EXTENSION))
+					input = new GZIPInputStream(input);
+				return readFully(input, zipEntry.getSize());
+			} finally {
+				zip.close();
+			}
+		}
+		FileInputStream input = new FileInputStream(file);
+		try {
+			if (file.getName().endsWith(GZIP_EXTENSION)) {
+				// codar files compress about 4 times
+				return readFully(new GZIPInputStream(input, 65536), file.length() * 4);
+			}
+			FileChannel channel = input.getChannel();
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			input.close();
+		}
+	}
+
+	private static ByteBuffer readFully(InputStream input, long sizeHint) throws IOException {
+		try {
+			byte[] bytes = new byte[(int) Math.max(8192, Math.min(sizeHint, Integer.MAX_VALUE - 8))];
+			int length = 0;
+			int read;
+			while ((read = input.read(bytes, length, bytes.length - length)) >= 0) {
+				length += read;
+				if (length == bytes.length)
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			return ByteBuffer.wrap(bytes, 0, length).slice();
+		} finally {
+			input.close();
+		}
+	}
+
+	private static String baseName(String name) {
+		return name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+	}
+
+	private static String stripGzip(String name) {
+		return name.endsWith(GZIP_EXTENSION) ? name.substring(0, name.length() - GZIP_EXTENSION.length()) : name;
+	}
+
+	@Override
+	public String toString() {
+		return getPath();
+	}
+}
@@ -0,0 +1,546 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import es.azti.codar.beans.CodarDataTableBean;
+import es.azti.codar.beans.CodarTableBlockBean;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         LLUV (.ruv / .tuv) file parser. The file is memory mapped and
+ *         scanned byte by byte, header values are decoded only when a
+ *         "Name: value" line is found and the table rows are tokenized
+ *         directly from the mapped buffer into primitive float columns, so
+ *         no String is created per line. The parsing rules are
+ *         the same ones used by the old BufferedReader + split(": ") loader.
+ * 
+ *         The position of every table is recorded in a CodarTableBlockBean.
+ *         Tables of other types (rads, rcvr diagnostics) are skipped looking
+ *         just for the next %TableEnd line and can be read later on demand
+ *         with readTable.
+ */
+public class CodarLLUVParser {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarLLUVParser.class);
+
+	// codar files are written with the platform charset, as FileReader did
+	private static final Charset HEADER_CHARSET = Charset.defaultCharset();
+
+	private static final byte[] TABLE_END = "%TableEnd:".getBytes();
+	private static final byte[] TABLE_START_LINE = "%TableStart:".getBytes();
+	private static final byte[] TABLE_START = "TableStart".getBytes();
+	private static final byte[] TABLE_TYPE = "TableType".getBytes();
+	private static final byte[] TABLE_COLUMNS = "TableColumns".getBytes();
+	private static final byte[] TABLE_COLUMN_TYPES = "TableColumnTypes".getBytes();
+	private static final byte[] TABLE_ROWS = "TableRows".getBytes();
+
+	// diagnostic columns written as hexadecimal codes
+	private static final List<String> HEX_COLUMNS = Arrays.asList("XTRP");
+
+	/**
+	 * Receives every "%Name: value" header line found outside the data tables.
+	 */
+	public interface HeaderListener {
+		/**
+		 * @param name
+		 *            header name without the leading %
+		 * @param value
+		 *            header value
+		 * @return true if the header has been consumed, false to let the parser
+		 *         check if it is the beginning of a data table.
+		 */
+		boolean header(String name, String value);
+	}
+
+	private final ByteBuffer buffer;
+	private final int limit;
+
+	// current line: [lineStart, lineEnd) without line terminators
+	private int lineStart;
+	private int lineEnd;
+	private int next;
+
+	// table columns being loaded, columnValues[column][row]
+	private float[][] columnValues;
+	private int loadedRows;
+	// cell parser, counts the malformed cells of the table being loaded
+	private final CodarFloatTokenizer numbers = new CodarFloatTokenizer();
+
+	private CodarLLUVParser(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.limit = buffer.limit();
+		this.next = 0;
+	}
+
+	/**
+	 * Parses a codar LLUV file. Headers are passed to the listener and the
+	 * first table of the required type is returned.
+	 *
+	 * @param codarFile
+	 *            .ruv or .tuv file
+	 * @param tableType
+	 *            table type we want to load, "LLUV RDL" or "LLUV TOT"
+	 * @param listener
+	 *            header receiver
+	 * @return the data table, or null if the file does not contain a table of
+	 *         the required type.
+	 * @throws IOException
+	 */
+	public static CodarDataTableBean parse(File codarFile, String tableType, HeaderListener listener)
+			throws IOException {
+		return parse(codarFile, tableType, listener, null);
+	}
+
+	/**
+	 * Parses a codar LLUV file recording the position of all its tables.
+	 *
+	 * @param codarFile
+	 *            .ruv or .tuv file
+	 * @param tableType
+	 *            table type we want to load, "LLUV RDL" or "LLUV TOT"
+	 * @param listener
+	 *            header receiver
+	 * @param blocks
+	 *            list where the tables found are added, in file order. May be
+	 *            null.
+	 * @return the data table, or null if the file does not contain a table of
+	 *         the required type.
+	 * @throws IOException
+	 */
+	public static CodarDataTableBean parse(File codarFile, String tableType, HeaderListener listener,
+			List<CodarTableBlockBean> blocks) throws IOException {
+		return parse(new CodarInput(codarFile).read(), tableType, listener, blocks);
+	}
+
+	/**
+	 * Parses the contents of a codar LLUV file already read, see
+	 * CodarInput.read().
+	 *
+	 * @param contents
+	 *            file contents, from position 0 to the limit.
+	 * @param tableType
+	 *            table type we want to load, "LLUV RDL" or "LLUV TOT"
+	 * @param listener
+	 *            header receiver
+	 * @param blocks
+	 *            list where the tables found are added, in file order. May be
+	 *            null.
+	 * @return the data table, or null if the file does not contain a table of
+	 *         the required type.
+	 */
+	public static CodarDataTableBean parse(ByteBuffer contents, String tableType, HeaderListener listener,
+			List<CodarTableBlockBean> blocks) {
+		return new CodarLLUVParser(contents).parse(tableType, listener, blocks);
+	}
+
+	/**
+	 * Reads on demand a table previously located by parse. Only the data lines
+	 * of the block are mapped. The rows of the diagnostic tables start with a
+	 * single %, it is skipped, and the %% lines are comments. Hexadecimal
+	 * columns (XTRP) are converted to their numeric value.
+	 *
+	 * @param codarFile
+	 *            .ruv or .tuv file the block belongs to
+	 * @param block
+	 *            table position
+	 * @return the table with its columns loaded, null if the block has no data
+	 *         lines.
+	 * @throws IOException
+	 */
+	public static CodarDataTableBean readTable(File codarFile, CodarTableBlockBean block) throws IOException {
+		if (!block.hasData())
+			return null;
+		FileInputStream input = new FileInputStream(codarFile);
+		try {
+			FileChannel channel = input.getChannel();
+			long end = Math.min(block.getDataEnd(), channel.size());
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, block.getDataStart(),
+					Math.max(0, end - block.getDataStart()));
+			return new CodarLLUVParser(buffer).readBlock(block);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads on demand a table previously located by parse, from the contents
+	 * of the file already read (compressed files).
+	 *
+	 * @param contents
+	 *            file contents, see CodarInput.read()
+	 * @param block
+	 *            table position
+	 * @return the table with its columns loaded, null if the block has no data
+	 *         lines.
+	 */
+	public static CodarDataTableBean readTable(ByteBuffer contents, CodarTableBlockBean block) {
+		if (!block.hasData())
+			return null;
+		ByteBuffer data = contents.duplicate();
+		data.limit((int) Math.min(block.getDataEnd(), data.limit()));
+		data.position((int) Math.min(block.getDataStart(), data.limit()));
+		return new CodarLLUVParser(data.slice()).readBlock(block);
+	}
+
+	/**
+	 * Header only scan of a codar LLUV file. Every "%Name: value" line is
+	 * passed to the listener until the first "%TableStart:" line, the data
+	 * tables are never read. The table description headers (TableType,
+	 * TableColumns, TableRows...) of the first table are included.
+	 *
+	 * @param codarFile
+	 *            .ruv or .tuv file
+	 * @param listener
+	 *            header receiver, its return value is ignored.
+	 * @throws IOException
+	 */
+	public static void scanHeader(File codarFile, HeaderListener listener) throws IOException {
+		FileInputStream input = new FileInputStream(codarFile);
+		try {
+			FileChannel channel = input.getChannel();
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			new CodarLLUVParser(buffer).scanHeader(listener);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Header only scan of the contents of a codar LLUV file, read by
+	 * CodarInput (gzipped files and zip entries).
+	 *
+	 * @param contents
+	 *            file contents, from position 0 to the limit.
+	 * @param listener
+	 *            header receiver, its return value is ignored.
+	 */
+	public static void scanHeader(ByteBuffer contents, HeaderListener listener) {
+		new CodarLLUVParser(contents).scanHeader(listener);
+	}
+
+	private void scanHeader(HeaderListener listener) {
+		while (nextLine()) {
+			if (startsWith(lineStart, lineEnd, TABLE_START_LINE))
+				return;
+			int sep = indexOfSeparator(lineStart, lineEnd);
+			if (sep < 0 || !hasValue(sep + 2, lineEnd))
+				continue;
+			listener.header(decode(skipPercent(lineStart), sep),
+					decode(sep + 2, indexOfSeparatorOrEnd(sep + 2, lineEnd)));
+		}
+	}
+
+	private CodarDataTableBean parse(String tableType, HeaderListener listener, List<CodarTableBlockBean> blocks) {
+		CodarDataTableBean table = null;
+		while (nextLine()) {
+			int sep = indexOfSeparator(lineStart, lineEnd);
+			if (sep < 0 || !hasValue(sep + 2, lineEnd))
+				continue;
+			String name = decode(skipPercent(lineStart), sep);
+			String value = decode(sep + 2, indexOfSeparatorOrEnd(sep + 2, lineEnd));
+			if (listener.header(name, value))
+				continue;
+			if (name.contains("Table")) {
+				CodarTableBlockBean block = new CodarTableBlockBean();
+				CodarDataTableBean rtb = readTable(tableType, block);
+				if (blocks != null)
+					blocks.add(block);
+				if (rtb.getType() != null && rtb.getType().contains(tableType)) {
+					rtb.setColumnData(trimColumns(rtb.getColumns()), loadedRows);
+					setMalformedCells(rtb);
+					table = rtb;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Reads a table starting at the current line and ending at the
+	 * "%TableEnd:" line. Rows are only tokenized when the table type is the
+	 * required one, the data lines of other tables are skipped.
+	 */
+	private CodarDataTableBean readTable(String tableType, CodarTableBlockBean block) {
+		CodarDataTableBean rtb = new CodarDataTableBean();
+		loadedRows = 0;
+		columnValues = null;
+		numbers.reset();
+		boolean wanted = false;
+		block.setBlockStart(lineStart);
+		block.setDataEnd(limit);
+		block.setBlockEnd(limit);
+		do {
+			if (startsWith(lineStart, lineEnd, TABLE_END)) {
+				block.setDataEnd(lineStart);
+				block.setBlockEnd(next);
+				break;
+			}
+			if (block.getDataStart() < 0 && startsWith(lineStart, lineEnd, TABLE_START_LINE)) {
+				block.setDataStart(next);
+				if (!wanted) {
+					skipToTableEnd();
+					continue;
+				}
+			}
+			int sep = indexOfSeparator(lineStart, lineEnd);
+			int nameStart = skipPercent(lineStart);
+			int nameEnd = sep < 0 ? lineEnd : sep;
+			boolean hasValue = sep >= 0 && hasValue(sep + 2, lineEnd);
+			int valueEnd = hasValue ? indexOfSeparatorOrEnd(sep + 2, lineEnd) : -1;
+			if (hasValue && equals(nameStart, nameEnd, TABLE_TYPE)) {
+				rtb.setType(decode(sep + 2, valueEnd));
+				wanted = rtb.getType().contains(tableType);
+				block.setType(rtb.getType());
+			} else if (hasValue && equals(nameStart, nameEnd, TABLE_COLUMNS)) {
+				rtb.setColumns(Integer.parseInt(decode(sep + 2, valueEnd)));
+				block.setColumns(rtb.getColumns());
+			} else if (hasValue && equals(nameStart, nameEnd, TABLE_COLUMN_TYPES)) {
+				rtb.setColumnTypes(decode(sep + 2, valueEnd).split(" "));
+				block.setColumnTypes(rtb.getColumnTypes());
+			} else if (hasValue && equals(nameStart, nameEnd, TABLE_ROWS)) {
+				rtb.setRows(Integer.parseInt(decode(sep + 2, valueEnd)));
+				block.setRows(rtb.getRows());
+			} else if (wanted && !(nameStart < nameEnd && byteAt(nameStart) == '%')
+					&& !startsWith(nameStart, nameEnd, TABLE_START)) {
+				// check that the lines are not corrupt, the column number must
+				// fit.
+				if (rtb.getColumns() > 0 && countTokens(nameStart, nameEnd) == rtb.getColumns())
+					readRow(nameStart, nameEnd, rtb.getColumns(), rtb.getRows(), null);
+			}
+		} while (nextLine());
+		return rtb;
+	}
+
+	/**
+	 * Moves to the beginning of the next "%TableEnd:" line, or to the end of
+	 * the file, looking only for line terminators followed by the mark.
+	 */
+	private void skipToTableEnd() {
+		int p = next;
+		while (p < limit) {
+			if (startsWith(p, limit, TABLE_END)) {
+				next = p;
+				return;
+			}
+			// next line
+			while (p < limit) {
+				byte b = buffer.get(p++);
+				if (b == '\n' || b == '\r')
+					break;
+			}
+			if (p < limit && buffer.get(p) == '\n' && buffer.get(p - 1) == '\r')
+				p++;
+		}
+		next = limit;
+	}
+
+	/**
+	 * Loads the data lines of a block, the buffer contains only them.
+	 */
+	private CodarDataTableBean readBlock(CodarTableBlockBean block) {
+		CodarDataTableBean rtb = new CodarDataTableBean();
+		rtb.setType(block.getType());
+		rtb.setColumns(block.getColumns());
+		rtb.setRows(block.getRows());
+		rtb.setColumnTypes(block.getColumnTypes());
+		boolean[] hex = new boolean[block.getColumns()];
+		for (int i = 0; i < hex.length && block.getColumnTypes() != null && i < block.getColumnTypes().length; i++)
+			hex[i] = HEX_COLUMNS.contains(block.getColumnTypes()[i]);
+		loadedRows = 0;
+		columnValues = null;
+		numbers.reset();
+		while (nextLine()) {
+			int rowStart = skipPercent(lineStart);
+			// %% lines are comments
+			if (rowStart < lineEnd && buffer.get(rowStart) == '%')
+				continue;
+			if (block.getColumns() > 0 && countTokens(rowStart, lineEnd) == block.getColumns())
+				readRow(rowStart, lineEnd, block.getColumns(), block.getRows(), hex);
+		}
+		rtb.setColumnData(trimColumns(block.getColumns()), loadedRows);
+		setMalformedCells(rtb);
+		return rtb;
+	}
+
+	/**
+	 * Tokenizes a data row into the float columns. Malformed cells are stored
+	 * as NaN and counted by the tokenizer.
+	 * 
+	 * @param hex
+	 *            columns written as hexadecimal codes, null if there are none
+	 */
+	private void readRow(int start, int end, int columns, int expectedRows, boolean[] hex) {
+		if (columnValues == null) {
+			// TableRows is usually right, grow if it is not.
+			columnValues = new float[columns][Math.max(expectedRows, 64)];
+		} else if (columnValues[0].length == loadedRows) {
+			for (int i = 0; i < columns; i++)
+				columnValues[i] = Arrays.copyOf(columnValues[i], loadedRows * 2);
+		}
+		int p = start;
+		while (p < end && (buffer.get(p) & 0xff) <= ' ')
+			p++;
+		for (int i = 0; i < columns; i++) {
+			while (p < end && isWhitespace(buffer.get(p)))
+				p++;
+			int tokenStart = p;
+			while (p < end && !isWhitespace(buffer.get(p)))
+				p++;
+			if (hex != null && hex[i])
+				columnValues[i][loadedRows] = numbers.parseHex(buffer, tokenStart, p);
+			else
+				columnValues[i][loadedRows] = numbers.parseFloat(buffer, tokenStart, p);
+		}
+		loadedRows++;
+	}
+
+	/**
+	 * Stores the malformed cell count of the table just loaded, reporting it
+	 * once instead of once per cell.
+	 */
+	private void setMalformedCells(CodarDataTableBean rtb) {
+		rtb.setMalformedCells(numbers.getMalformed());
+		if (numbers.getMalformed() > 0)
+			log.error("Error loading data: " + numbers.getMalformed() + " malformed cells in table "
+					+ rtb.getType() + ", stored as NaN");
+	}
+
+	/**
+	 * @return the loaded columns with their length fitted to the loaded rows.
+	 */
+	private float[][] trimColumns(int columns) {
+		float[][] table = new float[columns][];
+		for (int i = 0; i < columns; i++) {
+			if (columnValues == null)
+				table[i] = new float[0];
+			else if (columnValues[i].length == loadedRows)
+				table[i] = columnValues[i];
+			else
+				table[i] = Arrays.copyOf(columnValues[i], loadedRows);
+		}
+		return table;
+	}
+
+	/**
+	 * Moves to the next line. Line terminators are \n, \r or \r\n as in
+	 * BufferedReader.readLine()
+	 *
+	 * @return false at the end of the file.
+	 */
+	private boolean nextLine() {
+		if (next >= limit)
+			return false;
+		lineStart = next;
+		int p = next;
+		while (p < limit) {
+			byte b = buffer.get(p);
+			if (b == '\n' || b == '\r')
+				break;
+			p++;
+		}
+		lineEnd = p;
+		if (p < limit && buffer.get(p) == '\r')
+			p++;
+		if (p < limit && buffer.get(p) == '\n' && (p == lineEnd || buffer.get(p - 1) == '\r'))
+			p++;
+		next = p;
+		return true;
+	}
+
+	private byte byteAt(int p) {
+		return p < lineEnd ? buffer.get(p) : (byte) '\n';
+	}
+
+	private int skipPercent(int p) {
+		return (p < lineEnd && buffer.get(p) == '%') ? p + 1 : p;
+	}
+
+	/**
+	 * @return position of the first ": " in [start, end) or -1
+	 */
+	private int indexOfSeparator(int start, int end) {
+		for (int p = start; p + 1 < end; p++) {
+			if (buffer.get(p) == ':' && buffer.get(p + 1) == ' ')
+				return p;
+		}
+		return -1;
+	}
+
+	private int indexOfSeparatorOrEnd(int start, int end) {
+		int sep = indexOfSeparator(start, end);
+		return sep < 0 ? end : sep;
+	}
+
+	/**
+	 * split(": ") drops trailing empty strings, so a header has a value only
+	 * if something else than separators follows the first one.
+	 */
+	private boolean hasValue(int start, int end) {
+		int p = start;
+		while (p + 1 < end && buffer.get(p) == ':' && buffer.get(p + 1) == ' ')
+			p += 2;
+		return p < end;
+	}
+
+	private boolean startsWith(int start, int end, byte[] prefix) {
+		if (end - start < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(start + i) != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	private boolean equals(int start, int end, byte[] word) {
+		return end - start == word.length && startsWith(start, end, word);
+	}
+
+	/**
+	 * same behaviour as trim().split("\\s+").length
+	 */
+	private int countTokens(int start, int end) {
+		while (start < end && (buffer.get(start) & 0xff) <= ' ')
+			start++;
+		while (end > start && (buffer.get(end - 1) & 0xff) <= ' ')
+			end--;
+		if (start == end)
+			return 1;
+		int tokens = 1;
+		for (int p = start; p < end; p++) {
+			if (isWhitespace(buffer.get(p))) {
+				while (isWhitespace(buffer.get(p + 1)))
+					p++;
+				tokens++;
+			}
+		}
+		return tokens;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	private String decode(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		return new String(bytes, HEADER_CHARSET);
+	}
+}
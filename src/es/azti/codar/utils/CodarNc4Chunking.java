@@ -0,0 +1,101 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.util.List;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.Variable;
+import ucar.nc2.write.Nc4Chunking;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Chunking of the NetCDF-4 files of JRadar. The grids (TIME, DEPTH,
+ *         BEAR, RNGE) and (TIME, DEPTH, LAT, LON) are stored a time step and a
+ *         depth per chunk, with the whole spatial grid, so each chunk is the
+ *         map read by THREDDS and most of it are fill values, that deflate
+ *         very well. Only if the grid is larger than MAX_CHUNK_BYTES its
+ *         longest dimension is halved until it fits.
+ *
+ *         The small variables (coordinates, site tables, scalar flags) are
+ *         contiguous and not compressed, unless they have an unlimited
+ *         dimension, that must be chunked.
+ */
+public class CodarNc4Chunking implements Nc4Chunking {
+
+	// larger chunks are not read in a single operation by the hdf5 cache
+	public static final int MAX_CHUNK_BYTES = 1 << 20;
+
+	public static final int DEFAULT_DEFLATE_LEVEL = 6;
+	public static final boolean DEFAULT_SHUFFLE = true;
+
+	private final int deflateLevel;
+	private final boolean shuffle;
+
+	/**
+	 * @param deflateLevel
+	 *            deflate level of the chunked variables, 0 (none) to 9
+	 * @param shuffle
+	 *            apply the shuffle filter before deflating
+	 */
+	public CodarNc4Chunking(int deflateLevel, boolean shuffle) {
+		this.deflateLevel = Math.max(0, Math.min(9, deflateLevel));
+		this.shuffle = shuffle;
+	}
+
+	@Override
+	public boolean isChunked(Variable v) {
+		if (v.isUnlimited())
+			return true;
+		return v.getRank() >= 3;
+	}
+
+	@Override
+	public long[] computeChunking(Variable v) {
+		List<Dimension> dims = v.getDimensions();
+		long[] chunk = new long[dims.size()];
+		for (int i = 0; i < chunk.length; i++) {
+			Dimension dim = dims.get(i);
+			String name = dim.getShortName();
+			if (dim.isUnlimited() || "TIME".equals(name) || "DEPTH".equals(name))
+				chunk[i] = 1;
+			else
+				chunk[i] = Math.max(1, dim.getLength());
+		}
+		long elementSize = Math.max(1, v.getDataType().getSize());
+		while (size(chunk) * elementSize > MAX_CHUNK_BYTES) {
+			int longest = 0;
+			for (int i = 1; i < chunk.length; i++) {
+				if (chunk[i] > chunk[longest])
+					longest = i;
+			}
+			if (chunk[longest] == 1)
+				break;
+			chunk[longest] = (chunk[longest] + 1) / 2;
+		}
+		return chunk;
+	}
+
+	@Override
+	public int getDeflateLevel(Variable v) {
+		return isChunked(v) ? deflateLevel : 0;
+	}
+
+	@Override
+	public boolean isShuffle(Variable v) {
+		// shuffling the bytes of a char or a byte variable does nothing
+		return shuffle && deflateLevel > 0 && isChunked(v) && v.getDataType() != DataType.CHAR
+				&& v.getDataType() != DataType.BYTE;
+	}
+
+	private static long size(long[] chunk) {
+		long size = 1;
+		for (long length : chunk)
+			size = size * length;
+		return size;
+	}
+}
@@ -0,0 +1,338 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import org.apache.log4j.Logger;
+
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Aggregation of the netcdf files of a site in daily or monthly files,
+ *         along an unlimited TIME dimension. The radial and total writers
+ *         define each time step as a file of its own, but do not create it:
+ *         the time step is begun here with that definition, and the writers
+ *         write its variables straight in the aggregated file. The variables
+ *         with the TIME dimension are written in the next record, and the rest
+ *         (coordinates, grids, site tables) only with the first time step.
+ *         The global attributes are the ones of the first time step, but
+ *         time_coverage_end and date_update, updated when the file is closed.
+ *
+ *         The aggregated file is kept open while the time steps of its period
+ *         are appended, so the batch must process the files in time order,
+ *         one time step at a time. A time step that is not after the last one
+ *         of the file is skipped, and an existing file is continued, so a
+ *         batch run can be repeated.
+ *
+ *         The period is defined by the jradar.aggregate property of
+ *         codar.properties: hourly (no aggregation, by default), daily or
+ *         monthly.
+ */
+public class CodarNetcdfAggregator {
+
+	// logger
+	private static Logger log = Logger.getLogger(CodarNetcdfAggregator.class);
+
+	private static final String TIME = "TIME";
+
+	// global attributes of the last time step appended
+	private static final String[] UPDATED_ATTRIBUTES = { "time_coverage_end", "date_update" };
+
+	/**
+	 * Time steps of each aggregated file.
+	 */
+	public enum Period {
+		HOURLY(null), DAILY("yyyy_MM_dd"), MONTHLY("yyyy_MM");
+
+		private final String pattern;
+
+		private Period(String pattern) {
+			this.pattern = pattern;
+		}
+	}
+
+	/**
+	 * Result of beginning a time step.
+	 */
+	public enum Append {
+		// its variables are written in the next record of the aggregated file
+		APPENDED,
+		// not after the last time step of the aggregated file, not written
+		SKIPPED,
+		// not the variables or the grid of the aggregated file, to be written
+		// in a file of its own
+		INCOMPATIBLE
+	}
+
+	private final Period period;
+	private final Integer deflateLevel;
+	private final Boolean shuffle;
+
+	// aggregated file open
+	private String fileName;
+	private NetcdfFileWriter writer;
+	private int steps;
+	private double lastTime;
+	private final Map<String, Attribute> updated = new HashMap<String, Attribute>();
+
+	// time step begun, written until it is ended
+	private boolean appending;
+	private double stepTime;
+	private final Map<String, Attribute> stepAttributes = new HashMap<String, Attribute>();
+
+	/**
+	 * @param period
+	 *            time steps of each file
+	 * @param deflateLevel
+	 *            deflate level of the NetCDF-4 files, the default one if null
+	 * @param shuffle
+	 *            shuffle filter of the NetCDF-4 files, the default one if null
+	 */
+	public CodarNetcdfAggregator(Period period, Integer deflateLevel, Boolean shuffle) {
+		this.period = period;
+		this.deflateLevel = deflateLevel;
+		this.shuffle = shuffle;
+	}
+
+	/**
+	 * @param props
+	 *            codar.properties file loaded
+	 * @param deflateLevel
+	 *            deflate level of the NetCDF-4 files, the default one if null
+	 * @param shuffle
+	 *            shuffle filter of the NetCDF-4 files, the default one if null
+	 * @return an aggregator with the period defined in jradar.aggregate
+	 */
+	public static CodarNetcdfAggregator fromProperties(Properties props, Integer deflateLevel, Boolean shuffle) {
+		String value = props.getProperty("jradar.aggregate", Period.HOURLY.name());
+		Period period = Period.HOURLY;
+		try {
+			period = Period.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			log.error("jradar.aggregate must be hourly, daily or monthly, not " + value + ". Files not aggregated");
+		}
+		return new CodarNetcdfAggregator(period, deflateLevel, shuffle);
+	}
+
+	/**
+	 * @return false if each time step is written in its own file
+	 */
+	public boolean isAggregating() {
+		return period != Period.HOURLY;
+	}
+
+	/**
+	 * @param prefix
+	 *            path of the file without the time stamp
+	 * @param time
+	 *            time stamp of the time step
+	 * @return the aggregated file of the time step
+	 */
+	public String getFileName(String prefix, Calendar time) {
+		SimpleDateFormat format = new SimpleDateFormat(period.pattern);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return prefix + "_" + format.format(time.getTime()) + ".nc";
+	}
+
+	/**
+	 * Begins a time step of an aggregated file. The file open is closed if it
+	 * is not the same one. If the time step is appended its variables are
+	 * written with {@link #write(Variable, Array)}, and it is ended with
+	 * {@link #end()}.
+	 *
+	 * @param step
+	 *            netcdf file of the time step in define mode, with its global
+	 *            attributes, not created
+	 * @param time
+	 *            time of the time step, in days since 1950
+	 * @param aggregateName
+	 *            aggregated file, created if it does not exist
+	 * @return APPENDED if the variables of the time step are to be written,
+	 *         SKIPPED if the time step is not after the last one of the
+	 *         aggregated file, and INCOMPATIBLE if the time step has not the
+	 *         variables or the grid of the aggregated file.
+	 * @throws IOException
+	 */
+	public synchronized Append begin(NetcdfFileWriter step, double time, String aggregateName) throws IOException {
+		if (appending)
+			log.warn("time step " + stepTime + " of " + fileName + " not ended, its record is written again");
+		appending = false;
+		if (!aggregateName.equals(fileName)) {
+			close();
+			if (new File(aggregateName).exists())
+				openExisting(aggregateName);
+		}
+		Group source = step.getNetcdfFile().getRootGroup();
+		if (writer == null) {
+			create(source, step.getVersion(), aggregateName);
+		} else if (!isCompatible(source)) {
+			log.warn("time " + time + " has not the variables of " + aggregateName + ", not aggregated");
+			return Append.INCOMPATIBLE;
+		}
+		if (steps > 0 && time <= lastTime) {
+			log.warn("time " + time + " is not after the last one of " + aggregateName + ", time step skipped");
+			return Append.SKIPPED;
+		}
+		stepAttributes.clear();
+		for (String name : UPDATED_ATTRIBUTES) {
+			Attribute attribute = source.findAttribute(name);
+			if (attribute != null)
+				stepAttributes.put(name, attribute);
+		}
+		stepTime = time;
+		appending = true;
+		return Append.APPENDED;
+	}
+
+	/**
+	 * Writes a variable of the time step begun in the aggregated file.
+	 *
+	 * @param variable
+	 *            variable of the time step
+	 * @param values
+	 *            values of the time step
+	 * @throws IOException
+	 * @throws InvalidRangeException
+	 */
+	public synchronized void write(Variable variable, Array values) throws IOException, InvalidRangeException {
+		if (!appending)
+			throw new IllegalStateException("no time step begun in " + fileName);
+		Variable target = writer.findVariable(variable.getShortName());
+		if (isTimeVariable(variable)) {
+			int[] origin = new int[variable.getRank()];
+			origin[0] = steps;
+			writer.write(target, origin, values);
+		} else if (steps == 0) {
+			writer.write(target, values);
+		}
+	}
+
+	/**
+	 * Ends the time step begun, once all its variables are written.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void end() throws IOException {
+		if (!appending)
+			return;
+		appending = false;
+		updated.putAll(stepAttributes);
+		steps++;
+		lastTime = stepTime;
+		writer.flush();
+	}
+
+	/**
+	 * Closes the aggregated file open, if any, updating its time coverage.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		if (writer == null)
+			return;
+		try {
+			if (!updated.isEmpty()) {
+				writer.setRedefineMode(true);
+				for (Attribute attribute : updated.values())
+					writer.addGroupAttribute(null, attribute);
+				writer.setRedefineMode(false);
+			}
+		} finally {
+			log.debug(steps + " time steps in " + fileName);
+			writer.close();
+			writer = null;
+			fileName = null;
+			appending = false;
+			updated.clear();
+		}
+	}
+
+	private void openExisting(String aggregateName) throws IOException {
+		writer = NetcdfFileWriter.openExisting(aggregateName);
+		fileName = aggregateName;
+		steps = writer.findDimension(TIME).getLength();
+		if (steps > 0)
+			lastTime = writer.findVariable(TIME).read().getDouble(steps - 1);
+	}
+
+	/**
+	 * Defines the aggregated file as the time step, with TIME unlimited.
+	 */
+	private void create(Group source, NetcdfFileWriter.Version version, String aggregateName) throws IOException {
+		writer = CodarUtils.createNetcdfWriter(aggregateName, version == null ? null : version.name(), deflateLevel,
+				shuffle);
+		fileName = aggregateName;
+		steps = 0;
+		Map<String, Dimension> dimensions = new HashMap<String, Dimension>();
+		for (Dimension dimension : source.getDimensions()) {
+			String name = dimension.getShortName();
+			if (TIME.equals(name))
+				dimensions.put(name, writer.addUnlimitedDimension(name));
+			else
+				dimensions.put(name, writer.addDimension(null, name, dimension.getLength()));
+		}
+		for (Attribute attribute : source.getAttributes())
+			writer.addGroupAttribute(null, attribute);
+		for (Variable variable : source.getVariables()) {
+			List<Dimension> dims = new ArrayList<Dimension>(variable.getRank());
+			for (Dimension dimension : variable.getDimensions())
+				dims.add(dimensions.get(dimension.getShortName()));
+			Variable target = writer.addVariable(null, variable.getShortName(), variable.getDataType(), dims);
+			for (Attribute attribute : variable.getAttributes())
+				writer.addVariableAttribute(target, attribute);
+		}
+		writer.create();
+	}
+
+	/**
+	 * @return true if the time step has the variables of the aggregated file,
+	 *         with the same types and dimensions.
+	 */
+	private boolean isCompatible(Group source) {
+		List<Variable> variables = source.getVariables();
+		if (variables.size() != writer.getNetcdfFile().getVariables().size())
+			return false;
+		for (Variable variable : variables) {
+			Variable target = writer.findVariable(variable.getShortName());
+			if (target == null || target.getDataType() != variable.getDataType()
+					|| target.getRank() != variable.getRank())
+				return false;
+			List<Dimension> sourceDims = variable.getDimensions();
+			List<Dimension> targetDims = target.getDimensions();
+			for (int i = 0; i < sourceDims.size(); i++) {
+				Dimension dim = sourceDims.get(i);
+				if (!dim.getShortName().equals(targetDims.get(i).getShortName()))
+					return false;
+				if (!TIME.equals(dim.getShortName()) && dim.getLength() != targetDims.get(i).getLength())
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTimeVariable(Variable variable) {
+		List<Dimension> dims = variable.getDimensions();
+		return !dims.isEmpty() && TIME.equals(dims.get(0).getShortName());
+	}
+}
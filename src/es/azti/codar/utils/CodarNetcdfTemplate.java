@@ -0,0 +1,151 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Dimensions and variables, with their attributes, of the netcdf files
+ *         of a station. They only depend on the grid, the station codes and
+ *         the QC thresholds, so the writers define them once, keep them here
+ *         by a key made of those values, and copy them to the next files of
+ *         the station. The global attributes have the time stamp and the
+ *         header of each codar file, and are added by the writers every time.
+ *
+ *         The attributes are immutable and shared by all the files defined
+ *         from a template. The last MAX_TEMPLATES templates used are kept.
+ */
+public class CodarNetcdfTemplate {
+
+	// stations of a batch run
+	public static final int MAX_TEMPLATES = 64;
+
+	private static final Map<String, CodarNetcdfTemplate> TEMPLATES = new LinkedHashMap<String, CodarNetcdfTemplate>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CodarNetcdfTemplate> eldest) {
+			return size() > MAX_TEMPLATES;
+		}
+	};
+
+	/**
+	 * Definition of a variable.
+	 */
+	private static class VariableTemplate {
+		private final String name;
+		private final DataType type;
+		private final String[] dimensions;
+		private final List<Attribute> attributes;
+
+		private VariableTemplate(Variable variable) {
+			name = variable.getShortName();
+			type = variable.getDataType();
+			List<Dimension> dims = variable.getDimensions();
+			dimensions = new String[dims.size()];
+			for (int i = 0; i < dimensions.length; i++)
+				dimensions[i] = dims.get(i).getShortName();
+			attributes = new ArrayList<Attribute>(variable.getAttributes());
+		}
+	}
+
+	private final List<Dimension> dimensions = new ArrayList<Dimension>();
+	private final List<VariableTemplate> variables = new ArrayList<VariableTemplate>();
+
+	private CodarNetcdfTemplate() {
+	}
+
+	/**
+	 * @param key
+	 *            values the dimensions and variables depend on
+	 * @return the template of the key, null if it has not been defined
+	 */
+	public static synchronized CodarNetcdfTemplate get(String key) {
+		return TEMPLATES.get(key);
+	}
+
+	/**
+	 * Keeps the dimensions and variables defined in a file, before the file
+	 * is created.
+	 *
+	 * @param key
+	 *            values the dimensions and variables depend on
+	 * @param dataFile
+	 *            netcdf file in define mode, without global attributes
+	 * @return the template
+	 */
+	public static CodarNetcdfTemplate put(String key, NetcdfFileWriter dataFile) {
+		// the lists of the file are only built when it is created, the ones of
+		// the root group are kept while it is defined
+		Group root = dataFile.getNetcdfFile().getRootGroup();
+		CodarNetcdfTemplate template = new CodarNetcdfTemplate();
+		for (Dimension dimension : root.getDimensions())
+			template.dimensions.add(dimension);
+		for (Variable variable : root.getVariables())
+			template.variables.add(new VariableTemplate(variable));
+		synchronized (CodarNetcdfTemplate.class) {
+			TEMPLATES.put(key, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Discards all the templates.
+	 */
+	public static synchronized void clear() {
+		TEMPLATES.clear();
+	}
+
+	/**
+	 * Defines the dimensions and variables of the template in a file.
+	 *
+	 * @param dataFile
+	 *            netcdf file in define mode, empty
+	 */
+	public void define(NetcdfFileWriter dataFile) {
+		Map<String, Dimension> dims = new HashMap<String, Dimension>();
+		for (Dimension dimension : dimensions) {
+			String name = dimension.getShortName();
+			if (dimension.isUnlimited())
+				dims.put(name, dataFile.addUnlimitedDimension(name));
+			else
+				dims.put(name, dataFile.addDimension(null, name, dimension.getLength()));
+		}
+		for (VariableTemplate template : variables) {
+			List<Dimension> varDims = new ArrayList<Dimension>(template.dimensions.length);
+			for (String name : template.dimensions)
+				varDims.add(dims.get(name));
+			Variable variable = dataFile.addVariable(null, template.name, template.type, varDims);
+			for (Attribute attribute : template.attributes)
+				dataFile.addVariableAttribute(variable, attribute);
+		}
+	}
+
+	/**
+	 * @param values
+	 *            values the dimensions and variables depend on
+	 * @return key of the values
+	 */
+	public static String key(Object... values) {
+		StringBuilder key = new StringBuilder();
+		for (Object value : values)
+			key.append(value).append('\n');
+		return key.toString();
+	}
+}
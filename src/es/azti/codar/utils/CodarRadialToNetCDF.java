@@ -12,13 +12,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import es.azti.codar.beans.CodarRadialBean;
-import es.azti.netcdf.ui.VentanaRunRadialQualityTests;
+import es.azti.codar.qc.QCMetrics;
+import es.azti.codar.qc.QCScheduler;
+import es.azti.codar.qc.QCTestRegistry;
+import es.azti.codar.qc.QCTestRunner;
+import es.azti.codar.qc.RadialQCKernel;
+import es.azti.codar.qc.RadialQCTest;
+import es.azti.codar.qc.RadialQualityTests;
 import es.azti.netcdf.ui.VentanaSaveFichero;
 import es.azti.utils.TableColumnNames;
 import ucar.ma2.Array;
@@ -28,8 +35,6 @@ import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.Variable;
-import ucar.nc2.write.Nc4Chunking;
-import ucar.nc2.write.Nc4ChunkingStrategy;
 
 /**
  * @author Jose Luis Asensio (jlasensio@azti.es) 30 de may. de 2016
@@ -45,11 +50,68 @@ public class CodarRadialToNetCDF {
 	private static final int SDN_DEPTH_QC_FLAG = 1;
 
 	CodarRadialBean bean;
+	// neighbour time steps, may be null
+	private CodarFrameCache frames;
+	// QC tests run in parallel
+	private QCScheduler scheduler = QCScheduler.SEQUENTIAL;
+	// aggregated file the time step is written in, may be null
+	private CodarNetcdfAggregator aggregator;
+	private String aggregateName;
+	private CodarNetcdfAggregator.Append append;
+	// flags already calculated, may be null
+	private RadialQCKernel qcFlags;
 
 	public CodarRadialToNetCDF(CodarRadialBean bean) {
 		this.bean = bean;
 	}
 
+	/**
+	 * @param frames
+	 *            files of the batch run already loaded, used by the temporal
+	 *            derivative test.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * @param scheduler
+	 *            threads used to run the QC tests.
+	 */
+	public void setScheduler(QCScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * @param aggregator
+	 *            aggregated files of the batch run, null to write the time
+	 *            step in a file of its own
+	 * @param aggregateName
+	 *            aggregated file of the time step
+	 */
+	public void setAggregator(CodarNetcdfAggregator aggregator, String aggregateName) {
+		this.aggregator = aggregator;
+		this.aggregateName = aggregateName;
+	}
+
+	/**
+	 * @return how the time step was appended to the aggregated file, null if
+	 *         it is not aggregated
+	 */
+	public CodarNetcdfAggregator.Append getAppend() {
+		return append;
+	}
+
+	/**
+	 * @param qcFlags
+	 *            QC flags of the file already calculated, by a month cube.
+	 *            They are used only if the grid and the limits of the tests
+	 *            are still the ones of the file.
+	 */
+	public void setQCFlags(RadialQCKernel qcFlags) {
+		this.qcFlags = qcFlags;
+	}
+
 	public String getOutputFileName() {
 		JFileChooser fileChooser = new JFileChooser();
 		VentanaSaveFichero vs = new VentanaSaveFichero();
@@ -154,7 +216,8 @@ public class CodarRadialToNetCDF {
 					rangeDims.add(i);
 				}
 
-				List<Integer> codarToNetcdfIndex = bean.getTable().getRadialTableIndexInNetCdf(bearingDims, rangeDims);
+				int[] gridIndex = bean.getTable().getRadialTableIndex(CodarUtils.toIntArray(bearingDims),
+						CodarUtils.toFloatArray(rangeDims));
 				// time coverage data
 
 				// Current Speed - flip sign so positive velocity is away from
@@ -163,47 +226,37 @@ public class CodarRadialToNetCDF {
 				// 'radial_sea_water_velocity_away_from_instrument'.
 				// CODAR reports positive speeds as toward the radar.
 				// transform cm to m
-				List<Float> veloRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-						codarToNetcdfIndex);
-				List<Float> veloURead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELU,
-						codarToNetcdfIndex);
-				List<Float> veloVRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELV,
-						codarToNetcdfIndex);
-				List<Float> velo = new ArrayList<Float>(veloRead.size());
-				List<Float> velu = new ArrayList<Float>(veloURead.size());
-				List<Float> velv = new ArrayList<Float>(veloVRead.size());
-				for (Float velTemp : veloRead) {
-					velo.add(Float.valueOf(-velTemp / 100));
+				float[] velo = bean.getTable().getColumnInOrder(TableColumnNames.VELO, gridIndex);
+				float[] velu = bean.getTable().getColumnInOrder(TableColumnNames.VELU, gridIndex);
+				float[] velv = bean.getTable().getColumnInOrder(TableColumnNames.VELV, gridIndex);
+				for (int i = 0; i < velo.length; i++) {
+					velo[i] = -velo[i] / 100;
 				}
-				for (Float velTemp : veloURead) {
-					velu.add(Float.valueOf(velTemp / 100));
+				for (int i = 0; i < velu.length; i++) {
+					velu[i] = velu[i] / 100;
 				}
-				for (Float velTemp : veloVRead) {
-					velv.add(Float.valueOf(velTemp / 100));
+				for (int i = 0; i < velv.length; i++) {
+					velv[i] = velv[i] / 100;
 				}
 				// processing data. changing units
 				// Spatial Quality
-				List<Float> spatialQTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.ESPC,
-						codarToNetcdfIndex);
-				List<Float> spatialQ = new ArrayList<Float>(spatialQTemp.size());
-				for (Float sq : spatialQTemp) {
-					float sqTemp = Float.valueOf(sq / 100);
+				float[] spatialQ = bean.getTable().getColumnInOrder(TableColumnNames.ESPC, gridIndex);
+				for (int i = 0; i < spatialQ.length; i++) {
+					float sqTemp = spatialQ[i] / 100;
 					// Locate native bad-values for codar files.
 					if (sqTemp == 9.99)
 						sqTemp = Float.NaN;
-					spatialQ.add(sqTemp);
+					spatialQ[i] = sqTemp;
 				}
 
 				// Temporal Quality
-				List<Float> tempQTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.ETMP,
-						codarToNetcdfIndex);
-				List<Float> tempQ = new ArrayList<Float>(tempQTemp.size());
-				for (Float tq : tempQTemp) {
-					float tqTemp = Float.valueOf(tq / 100);
+				float[] tempQ = bean.getTable().getColumnInOrder(TableColumnNames.ETMP, gridIndex);
+				for (int i = 0; i < tempQ.length; i++) {
+					float tqTemp = tempQ[i] / 100;
 					// Locate native bad-values for codar files
 					if (tqTemp == 9.99)
 						tqTemp = Float.NaN;
-					tempQ.add(tqTemp);
+					tempQ[i] = tqTemp;
 				}
 
 				// Velocity Maximum - flip sign so positive velocity is away
@@ -211,15 +264,13 @@ public class CodarRadialToNetCDF {
 				// according to CF standard name
 				// 'radial_sea_water_velocity_away_from_instrument'.
 				// CODAR reports positive speeds as toward the radar.
-				List<Float> maxvTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.MAXV,
-						codarToNetcdfIndex);
-				List<Float> maxv = new ArrayList<Float>(maxvTemp.size());
-				for (Float tq : maxvTemp) {
-					float tqTemp = Float.valueOf(-tq / 100);
+				float[] maxv = bean.getTable().getColumnInOrder(TableColumnNames.MAXV, gridIndex);
+				for (int i = 0; i < maxv.length; i++) {
+					float tqTemp = -maxv[i] / 100;
 					// Locate native bad-values for codar files.
 					if (tqTemp == 9.99)
 						tqTemp = Float.NaN;
-					maxv.add(tqTemp);
+					maxv[i] = tqTemp;
 				}
 
 				// Velocity Minimum - flip sign so positive velocity is away
@@ -227,15 +278,13 @@ public class CodarRadialToNetCDF {
 				// according to CF standard name
 				// 'radial_sea_water_velocity_away_from_instrument'.
 				// CODAR reports positive speeds as toward the radar.
-				List<Float> minvTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.MINV,
-						codarToNetcdfIndex);
-				List<Float> minv = new ArrayList<Float>(minvTemp.size());
-				for (Float tq : minvTemp) {
-					float tqTemp = Float.valueOf(-tq / 100);
+				float[] minv = bean.getTable().getColumnInOrder(TableColumnNames.MINV, gridIndex);
+				for (int i = 0; i < minv.length; i++) {
+					float tqTemp = -minv[i] / 100;
 					// Locate native bad-values for codar files.
 					if (tqTemp == 9.99)
 						tqTemp = Float.NaN;
-					minv.add(tqTemp);
+					minv[i] = tqTemp;
 				}
 
 				String site_code = bean.getNetworkBean().getNetwork_id();
@@ -249,838 +298,31 @@ public class CodarRadialToNetCDF {
 				if (fileName == null)
 					fileName = this.getOutputFileName();
 
-				Nc4Chunking chunker = Nc4ChunkingStrategy.factory(Nc4Chunking.Strategy.standard, 6, true);
-				dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName, chunker);
-
-				Dimension dimid_t = dataFile.addDimension(null, "TIME", 1);
-				// Dimension dimid_t = dataFile.addUnlimitedDimension("TIME");
-				Dimension dimid_bearing = dataFile.addDimension(null, "BEAR", bearingDims.size());
-				Dimension dimid_range = dataFile.addDimension(null, "RNGE", rangeDims.size());
-				Dimension dimid_depth = dataFile.addDimension(null, "DEPTH", 1);
-				Dimension dimid_maxsite = dataFile.addDimension(null, "MAXSITE", CodarRadialToNetCDF.MAX_SITE);
-				Dimension dimid_maxinst = dataFile.addDimension(null, "MAXINST", CodarRadialToNetCDF.MAX_SITE);
-				Dimension dimid_refmax = dataFile.addDimension(null, "REFMAX", CodarRadialToNetCDF.REF_MAX);
-				Dimension dimid_string_site_id = dataFile.addDimension(null, "STRING" + site_id.length(),
-						site_id.length());
-				Dimension dimid_string_site_code = dimid_string_site_id;
-				if (site_code.length() != site_id.length()) {
-					dimid_string_site_code = dataFile.addDimension(null, "STRING" + site_code.length(),
-							site_code.length());
+				dataFile = createNetcdfFile(fileName, profile);
+
+				// QC tests written, and the ones added as providers, after the
+				// ones of JRadar
+				List<RadialQCTest> qcTests = QCTestRegistry.getRadialTests();
+				List<RadialQCTest> extraTests = QCTestRegistry.getRadialExtensions();
+				RadialQualityTests extraQualityTests = new RadialQualityTests(bean, profile, gridIndex);
+
+				// the dimensions and variables only change with the grid, the
+				// codes and the QC thresholds of the station, written in the
+				// comments of the tests
+				StringBuilder tests = new StringBuilder();
+				for (RadialQCTest test : qcTests)
+					tests.append(test.getVariable()).append(test.isGridded())
+							.append(test.getComment(extraQualityTests));
+				String templateKey = CodarNetcdfTemplate.key("radial", bearingDims.size(), rangeDims.size(), site_code,
+						site_id, platform_code, id.length(), TDS_catalog, xlink, bean.getData_mode(), tests);
+				CodarNetcdfTemplate template = CodarNetcdfTemplate.get(templateKey);
+				if (template == null) {
+					defineVariables(dataFile, bearingDims.size(), rangeDims.size(), site_code, site_id, platform_code,
+							id, TDS_catalog, xlink, qcTests, extraQualityTests);
+					CodarNetcdfTemplate.put(templateKey, dataFile);
+				} else {
+					template.define(dataFile);
 				}
-				Dimension dimid_string_platform_code = dataFile.addDimension(null, "STRING" + platform_code.length(),
-						platform_code.length());
-				Dimension dimid_string_sdn_local_cdi_id = dataFile.addDimension(null, "STRING" + id.length(),
-						id.length());
-				Dimension dimid_string_sdn_references = dataFile.addDimension(null, "STRING" + TDS_catalog.length(),
-						TDS_catalog.length());
-				Dimension dimid_string_sdn_xlink = dataFile.addDimension(null, "STRING" + xlink.length(),
-						xlink.length());
-
-				List<Dimension> dimsT = new ArrayList<Dimension>();
-				List<Dimension> dimsTDBR = new ArrayList<Dimension>();
-				List<Dimension> dimsBR = new ArrayList<Dimension>();
-				List<Dimension> dimsTS = new ArrayList<Dimension>();
-				List<Dimension> dimsTP = new ArrayList<Dimension>();
-				List<Dimension> dimsTId = new ArrayList<Dimension>();
-				List<Dimension> dimsTSdnRef = new ArrayList<Dimension>();
-				List<Dimension> dimsTRmaxXlink = new ArrayList<Dimension>();
-				List<Dimension> dimsTM = new ArrayList<Dimension>();
-				List<Dimension> dimsTMI = new ArrayList<Dimension>();
-				List<Dimension> dimsTMS4 = new ArrayList<Dimension>();
-
-				dimsT.add(dimid_t);
-
-				dimsTDBR.add(dimid_t);
-				dimsTDBR.add(dimid_depth);
-				dimsTDBR.add(dimid_bearing);
-				dimsTDBR.add(dimid_range);
-
-				dimsBR.add(dimid_bearing);
-				dimsBR.add(dimid_range);
-
-				dimsTS.add(dimid_t);
-				dimsTS.add(dimid_string_site_code);
-
-				dimsTP.add(dimid_t);
-				dimsTP.add(dimid_string_platform_code);
-
-				dimsTId.add(dimid_t);
-				dimsTId.add(dimid_string_sdn_local_cdi_id);
-
-				dimsTSdnRef.add(dimid_t);
-				dimsTSdnRef.add(dimid_string_sdn_references);
-
-				dimsTRmaxXlink.add(dimid_t);
-				dimsTRmaxXlink.add(dimid_refmax);
-				dimsTRmaxXlink.add(dimid_string_sdn_xlink);
-
-				dimsTM.add(dimid_t);
-				dimsTM.add(dimid_maxsite);
-
-				dimsTMI.add(dimid_t);
-				dimsTMI.add(dimid_maxinst);
-
-				dimsTMS4.add(dimid_t);
-				dimsTMS4.add(dimid_maxsite);
-				dimsTMS4.add(dimid_string_site_id);
-
-				// https://www.unidata.ucar.edu/software/netcdf/docs/BestPractices.html
-				// check how to add fillvalues..
-				Variable varid_t = dataFile.addVariable(null, "TIME", DataType.DOUBLE, "TIME");
-				varid_t.addAttribute(new Attribute("long_name", "Time"));
-				varid_t.addAttribute(new Attribute("standard_name", "time"));
-				varid_t.addAttribute(new Attribute("units", "days since 1950-01-01T00:00:00Z"));
-				varid_t.addAttribute(new Attribute("valid_min", Double.parseDouble("-90000")));
-				varid_t.addAttribute(new Attribute("valid_max", Double.parseDouble("90000")));
-				varid_t.addAttribute(new Attribute("calendar", "standard"));
-				varid_t.addAttribute(new Attribute("axis", "T"));
-				varid_t.addAttribute(new Attribute("sdn_parameter_name", "Elapsed time (since 1950-01-01T00:00:00Z)"));
-				varid_t.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ELTJLD01"));
-				varid_t.addAttribute(new Attribute("sdn_uom_name", "Days"));
-				varid_t.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UTAA"));
-				varid_t.addAttribute(new Attribute("ancillary_variables", "TIME_QC"));
-
-				Variable varid_bearing = dataFile.addVariable(null, "BEAR", DataType.FLOAT, "BEAR");
-				varid_bearing.addAttribute(new Attribute("axis", "X"));
-				varid_bearing.addAttribute(new Attribute("long_name", "Bearing away from instrument"));
-				varid_bearing.addAttribute(new Attribute("standard_name", " "));
-				varid_bearing.addAttribute(new Attribute("units", "degree_true"));
-				varid_bearing.addAttribute(new Attribute("uncertainty", ""));
-				varid_bearing.addAttribute(new Attribute("sdn_parameter_name", "Bearing"));
-				varid_bearing.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::BEARRFTR"));
-				varid_bearing.addAttribute(new Attribute("sdn_uom_name", "Degrees true"));
-				varid_bearing.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UABB"));
-				varid_bearing.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				Variable varid_range = dataFile.addVariable(null, "RNGE", DataType.FLOAT, "RNGE");
-				varid_range.addAttribute(new Attribute("axis", "Y"));
-				varid_range.addAttribute(new Attribute("long_name", "Range away from instrument"));
-				varid_range.addAttribute(new Attribute("standard_name", " "));
-				varid_range.addAttribute(new Attribute("units", "km"));
-				varid_range.addAttribute(new Attribute("uncertainty", ""));
-				varid_range.addAttribute(new Attribute("sdn_parameter_name",
-						"Range (from fixed reference point) by unspecified GPS system"));
-				varid_range.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::RIFNAX01"));
-				varid_range.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
-				varid_range.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
-				varid_range.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				Variable varid_depth = dataFile.addVariable(null, "DEPH", DataType.FLOAT, "DEPTH");
-				varid_depth.addAttribute(new Attribute("long_name", "Depth"));
-				varid_depth.addAttribute(new Attribute("standard_name", "depth"));
-				varid_depth.addAttribute(new Attribute("_FillValue", "9.96921E36"));
-				varid_depth.addAttribute(new Attribute("units", "m"));
-				varid_depth.addAttribute(new Attribute("valid_min", Float.parseFloat("-12000")));
-				varid_depth.addAttribute(new Attribute("valid_max", Float.parseFloat("12000")));
-				varid_depth.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_depth.addAttribute(new Attribute("axis", "Z"));
-				varid_depth.addAttribute(new Attribute("positive", "down"));
-				varid_depth.addAttribute(new Attribute("reference", "sea_level"));
-				varid_depth.addAttribute(new Attribute("sdn_parameter_name", "Depth below surface of the water body"));
-				varid_depth.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ADEPZZ01"));
-				varid_depth.addAttribute(new Attribute("sdn_uom_name", "Metres"));
-				varid_depth.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULAA"));
-				varid_depth.addAttribute(new Attribute("ancillary_variables", "DEPH_QC"));
-
-				// Add auxillary coordinate variables to provide mapping from
-				// range and bearing to lat, lon.
-				// A minimum of 4 significant figures to the right of the
-				// decimal
-				// place is needed to keep resolution below 10's of meters.
-				// Using
-				// float data type for lat yields at least 5 significant digits
-				// to
-				// the right of the decimal giving ~1/2m resolution in latitude.
-				// Nine significant figures (at least 7 to the right of the
-				// decimal) could be achieved using int data type but need to
-				// introduce a scale factor.
-
-				// Latitude
-				Variable varid_lat = dataFile.addVariable(null, "LATITUDE", DataType.FLOAT, dimsBR);
-				varid_lat.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_lat.addAttribute(new Attribute("long_name", "Latitude of each location"));
-				varid_lat.addAttribute(new Attribute("units", "degree_north"));
-				varid_lat.addAttribute(new Attribute("valid_min", Float.parseFloat("-90")));
-				varid_lat.addAttribute(new Attribute("valid_max", Float.parseFloat("90")));
-				varid_lat.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_FLOAT));
-				varid_lat.addAttribute(new Attribute("grid_mapping", "crs"));
-				varid_lat.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_lat.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_lat.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_lat.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-				varid_lat.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				// Longitude
-				Variable varid_lon = dataFile.addVariable(null, "LONGITUDE", DataType.FLOAT, dimsBR);
-				varid_lon.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_lon.addAttribute(new Attribute("long_name", "Longitude of each location"));
-				varid_lon.addAttribute(new Attribute("units", "degree_east"));
-				varid_lon.addAttribute(new Attribute("valid_min", Float.parseFloat("-180")));
-				varid_lon.addAttribute(new Attribute("valid_max", Float.parseFloat("180")));
-				varid_lon.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_FLOAT));
-				varid_lon.addAttribute(new Attribute("grid_mapping", "crs"));
-				varid_lon.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_lon.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_lon.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_lon.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-				varid_lon.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				// crs
-				Variable varid_crs = dataFile.addVariable(null, "crs", DataType.SHORT, new ArrayList<Dimension>(0));
-				varid_crs.addAttribute(new Attribute("grid_mapping_name", "latitude_longitude"));
-				varid_crs.addAttribute(new Attribute("epsg_code", "EPSG:4326"));
-				varid_crs.addAttribute(new Attribute("semi_major_axis", Double.valueOf(6378137.0)));
-				varid_crs.addAttribute(new Attribute("inverse_flattening", Double.valueOf(298.257223563)));
-
-				//// Add SDN namespace variables
-				// To enforce homogeneity in the codes and interoperability with
-				//// SDC, the site_code has to be set equal
-				// to the EDIOS Series id of the HFR network and platform_code
-				//// must include the EDIOS Platform id of the
-				// HFR site, i.e.:
-				// SDN_CRUISE=site_code=EDIOS-Series-id
-				// SDN_STATION=platform_code=EDIOS-Series-id_Total (for total
-				//// current data files)
-				// SDN_STATION=platform_code=EDIOS-Series-id_ EDIOS-Platform-id
-				//// (for radial current data files)
-
-				// SDN_CRUISE
-				Variable varid_sdncruise = dataFile.addVariable(null, "SDN_CRUISE", DataType.CHAR, dimsTS);
-				varid_sdncruise.addAttribute(new Attribute("long_name", "Grid grouping label"));
-
-				// SDN_STATION
-				Variable varid_sdnstation = dataFile.addVariable(null, "SDN_STATION", DataType.CHAR, dimsTP);
-				varid_sdnstation.addAttribute(new Attribute("long_name", "Grid label"));
-
-				// SDN_LOCAL_CDI_ID
-				Variable varid_sdnlocalcdiid = dataFile.addVariable(null, "SDN_LOCAL_CDI_ID", DataType.CHAR, dimsTId);
-				varid_sdnlocalcdiid.addAttribute(new Attribute("long_name", "SeaDataCloud CDI identifier"));
-				varid_sdnlocalcdiid.addAttribute(new Attribute("cf_role", "grid_id"));
-
-				// SDN_EDMO_CODE
-				Variable varid_sdnedmocode = dataFile.addVariable(null, "SDN_EDMO_CODE", DataType.SHORT, dimsTMI);
-				varid_sdnedmocode.addAttribute(new Attribute("long_name",
-						"European Directory of Marine Organisations code for the CDI partner"));
-				varid_sdnedmocode.addAttribute(new Attribute("units", "1"));
-
-				// SDN_REFERENCES
-				Variable varid_sdnreferences = dataFile.addVariable(null, "SDN_REFERENCES", DataType.CHAR, dimsTSdnRef);
-				varid_sdnreferences.addAttribute(new Attribute("long_name", "Usage metadata reference"));
-
-				// SDN_XLINK
-				Variable varid_sdnxlink = dataFile.addVariable(null, "SDN_XLINK", DataType.CHAR, dimsTRmaxXlink);
-				varid_sdnxlink.addAttribute(new Attribute("long_name", "External resource linkages"));
-
-				// Add data variables
-				//
-				// radial_sea_water_velocity_away_from_instrument:
-				// A velocity is a vector quantity. Radial velocity away from
-				// instrument
-				// means the component of the velocity along the line of sight
-				// of the
-				// instrument where positive implies movement away from the
-				// instrument (i.e.
-				// outward). The "instrument" (examples are radar and lidar) is
-				// the device
-				// used to make an observation.
-				Variable varid_speed = dataFile.addVariable(null, "RDVA", DataType.SHORT, dimsTDBR);
-				varid_speed
-						.addAttribute(new Attribute("standard_name", "radial_sea_water_velocity_away_from_instrument"));
-				varid_speed.addAttribute(new Attribute("units", "m s-1"));
-				varid_speed.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
-				varid_speed.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
-				varid_speed.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_speed.addAttribute(new Attribute("long_name", "Radial sea water velocity away from instrument"));
-				varid_speed.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_speed.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_speed.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_speed.addAttribute(new Attribute("sdn_parameter_name",
-						"Speed of water current (Eulerian measurement) in the water body by directional range-gated radar"));
-				varid_speed.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
-				varid_speed.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_speed.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_speed.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_speed.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC, RDCT_QC"));
-
-				// (radial current) direction
-				//
-				// direction_of_radial_vector_away_from_instrument:
-				// The direction_of_radial_vector_away_from_instrument is the
-				// direction in
-				// which the instrument itself is pointing. The direction is
-				// measured
-				// positive clockwise from due north. The "instrument" (examples
-				// are radar
-				// and lidar) is the device used to make an observation.
-				// "direction_of_X"
-				// means direction of a vector, a bearing.
-				Variable varid_direction = dataFile.addVariable(null, "DRVA", DataType.INT, dimsTDBR);
-				varid_direction.addAttribute(
-						new Attribute("standard_name", "direction_of_radial_vector_away_from_instrument"));
-				varid_direction
-						.addAttribute(new Attribute("long_name", "Direction of radial vector away from instrument"));
-				varid_direction.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_direction.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_direction.addAttribute(new Attribute("units", "degree_true"));
-				varid_direction.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
-				varid_direction.addAttribute(new Attribute("valid_max", Integer.parseInt("360000")));
-				varid_direction.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_direction
-						.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_direction.addAttribute(new Attribute("sdn_parameter_name",
-						"Direction (towards) of water current (Eulerian measurement) in the water body by directional range-gated radar"));
-				varid_direction.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCDAWVRD"));
-				varid_direction.addAttribute(new Attribute("sdn_uom_name", "Degrees True"));
-				varid_direction.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UABB"));
-				varid_direction.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_direction.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, OWTR_QC, MDFL_QC, AVRB_QC, RDCT_QC"));
-
-				// u
-				Variable varid_u = dataFile.addVariable(null, "EWCT", DataType.SHORT, dimsTDBR);
-				varid_u.addAttribute(new Attribute("standard_name", "eastward_sea_water_velocity"));
-				varid_u.addAttribute(new Attribute("long_name", "West-east current component"));
-				varid_u.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_u.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_u.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_u.addAttribute(new Attribute("units", "m s-1"));
-				varid_u.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
-				varid_u.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
-				varid_u.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_u.addAttribute(
-						new Attribute("sdn_parameter_name", "Eastward current velocity in the water body"));
-				varid_u.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCEWZZ01"));
-				varid_u.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_u.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_u.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_u.addAttribute(new Attribute("ancillary_variables",
-						"QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC, AVRB_QC, RDCT_QC"));
-
-				// v
-				Variable varid_v = dataFile.addVariable(null, "NSCT", DataType.SHORT, dimsTDBR);
-				varid_v.addAttribute(new Attribute("standard_name", "northward_sea_water_velocity"));
-				varid_v.addAttribute(new Attribute("long_name", "South-north current component"));
-				varid_v.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_v.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_v.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_v.addAttribute(new Attribute("units", "m s-1"));
-				varid_v.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
-				varid_v.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
-				varid_v.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_v.addAttribute(
-						new Attribute("sdn_parameter_name", "Northward current velocity in the water body"));
-				varid_v.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCNSZZ01"));
-				varid_v.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_v.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_v.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_v.addAttribute(new Attribute("ancillary_variables",
-						"QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC, AVRB_QC, RDCT_QC"));
-
-				// Spatial Quality
-				Variable varid_espc = dataFile.addVariable(null, "ESPC", DataType.SHORT, dimsTDBR);
-				varid_espc.addAttribute(new Attribute("long_name",
-						"Radial standard deviation of current velocity over the scatter patch"));
-				varid_espc.addAttribute(new Attribute("standard_name", " "));
-				varid_espc.addAttribute(new Attribute("units", "m s-1"));
-				varid_espc.addAttribute(new Attribute("valid_min", Short.parseShort("-32000")));
-				varid_espc.addAttribute(new Attribute("valid_max", Short.parseShort("32000")));
-				varid_espc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_espc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_espc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_espc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_espc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_espc.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_espc.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_espc.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_espc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_espc.addAttribute(new Attribute("ancillary_variables", "QCflag, VART_QC"));
-
-				// Temporal Quality
-				Variable varid_etmp = dataFile.addVariable(null, "ETMP", DataType.SHORT, dimsTDBR);
-				varid_etmp.addAttribute(new Attribute("long_name",
-						"Radial standard deviation of current velocity over coverage period"));
-				varid_etmp.addAttribute(new Attribute("standard_name", " "));
-				varid_etmp.addAttribute(new Attribute("units", "m s-1"));
-				varid_etmp.addAttribute(new Attribute("valid_min", Short.parseShort("-32000")));
-				varid_etmp.addAttribute(new Attribute("valid_max", Short.parseShort("32000")));
-				varid_etmp.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_etmp.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_etmp.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_etmp.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_etmp.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_etmp.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_etmp.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_etmp.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_etmp.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_etmp.addAttribute(new Attribute("ancillary_variables", "QCflag, VART_QC"));
-
-				// Velocity Maximum
-				Variable varid_maxv = dataFile.addVariable(null, "MAXV", DataType.SHORT, dimsTDBR);
-				varid_maxv.addAttribute(
-						new Attribute("long_name", "Radial sea water velocity away from instrument maximum"));
-				varid_maxv.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
-				varid_maxv.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
-				varid_maxv.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_maxv.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_maxv.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_maxv.addAttribute(new Attribute("units", "m s-1"));
-				varid_maxv.addAttribute(new Attribute("sdn_parameter_name",
-						"Current speed (Eulerian) in the water body by directional range-gated radar"));
-				varid_maxv.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
-				varid_maxv.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_maxv.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_maxv.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_maxv.addAttribute(new Attribute("ancillary_variables", "QCflag, MDFL_QC, CSPD_QC, VART_QC"));
-
-				// Velocity Minimum
-				Variable varid_minv = dataFile.addVariable(null, "MINV", DataType.SHORT, dimsTDBR);
-				varid_minv.addAttribute(
-						new Attribute("long_name", "Radial sea water velocity away from instrument minimum"));
-				varid_minv.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
-				varid_minv.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
-				varid_minv.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_minv.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_minv.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_minv.addAttribute(new Attribute("units", "m s-1"));
-				varid_minv.addAttribute(new Attribute("sdn_parameter_name",
-						"Current speed (Eulerian) in the water body by directional range-gated radar"));
-				varid_minv.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
-				varid_minv.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_minv.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_minv.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_minv.addAttribute(new Attribute("ancillary_variables", "QCflag, MDFL_QC, CSPD_QC, VART_QC"));
-
-				// Spatial Count
-				Variable varid_ersc = dataFile.addVariable(null, "ERSC", DataType.SHORT, dimsTDBR);
-				varid_ersc.addAttribute(new Attribute("long_name", "Radial sea water velocity spatial quality count"));
-				varid_ersc.addAttribute(new Attribute("standard_name", " "));
-				varid_ersc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_ersc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_ersc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_ersc.addAttribute(new Attribute("units", "1"));
-				varid_ersc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
-				varid_ersc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
-				varid_ersc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_ersc.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_ersc.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_ersc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_ersc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-				varid_ersc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_ersc.addAttribute(new Attribute("ancillary_variables", "QCflag"));
-
-				// Temporal Count
-				Variable varid_ertc = dataFile.addVariable(null, "ERTC", DataType.SHORT, dimsTDBR);
-				varid_ertc.addAttribute(new Attribute("long_name", "Radial sea water velocity temporal quality count"));
-				varid_ertc.addAttribute(new Attribute("standard_name", " "));
-				varid_ertc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_ertc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_ertc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_ertc.addAttribute(new Attribute("units", "1"));
-				varid_ertc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
-				varid_ertc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
-				varid_ertc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_ertc.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_ertc.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_ertc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_ertc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-				varid_ertc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_ertc.addAttribute(new Attribute("ancillary_variables", "QCflag"));
-
-				// X-Distance
-				Variable varid_xdst = dataFile.addVariable(null, "XDST", DataType.INT, dimsBR);
-				varid_xdst.addAttribute(new Attribute("long_name", "Eastward distance from instrument"));
-				varid_xdst.addAttribute(new Attribute("standard_name", " "));
-				varid_xdst.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_xdst.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_xdst.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_xdst.addAttribute(new Attribute("units", "km"));
-				varid_xdst.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
-				varid_xdst.addAttribute(new Attribute("valid_max", Integer.parseInt("1000000")));
-				varid_xdst.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_xdst.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_xdst.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_xdst.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
-				varid_xdst.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
-				varid_xdst.addAttribute(new Attribute("coordinates", "LATITUDE LONGITUDE"));
-				varid_xdst.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC"));
-
-				// Y-Distance
-				Variable varid_ydst = dataFile.addVariable(null, "YDST", DataType.INT, dimsBR);
-				varid_ydst.addAttribute(new Attribute("long_name", "Northward distance from instrument"));
-				varid_ydst.addAttribute(new Attribute("standard_name", " "));
-				varid_ydst.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_ydst.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_ydst.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_ydst.addAttribute(new Attribute("units", "km"));
-				varid_ydst.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
-				varid_ydst.addAttribute(new Attribute("valid_max", Integer.parseInt("1000000")));
-				varid_ydst.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_ydst.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_ydst.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_ydst.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
-				varid_ydst.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
-				varid_ydst.addAttribute(new Attribute("coordinates", "LATITUDE LONGITUDE"));
-				varid_ydst.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC"));
-
-				// Spectra Range Cell
-				Variable varid_sprc = dataFile.addVariable(null, "SPRC", DataType.SHORT, dimsTDBR);
-				varid_sprc
-						.addAttribute(new Attribute("long_name", "Radial sea water velocity cross spectra range cell"));
-				varid_sprc.addAttribute(new Attribute("standard_name", " "));
-				varid_sprc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_sprc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_sprc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_sprc.addAttribute(new Attribute("units", "1"));
-				varid_sprc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
-				varid_sprc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
-				varid_sprc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_sprc.addAttribute(new Attribute("coordinates", "LONGITUDE LATITUDE"));
-				varid_sprc.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_sprc.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_sprc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_sprc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-				varid_sprc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_sprc.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, OWTR_QC, MDFL_QC, CSPD_QC, VART_QC"));
-
-				// Number of receive antennas
-				Variable varid_narx = dataFile.addVariable(null, "NARX", DataType.BYTE, "TIME");
-				varid_narx.addAttribute(new Attribute("long_name", "Number of receive antennas"));
-				varid_narx.addAttribute(new Attribute("standard_name", " "));
-				varid_narx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_narx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_narx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_narx.addAttribute(new Attribute("units", "1"));
-				varid_narx.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_narx.addAttribute(new Attribute("valid_max", Byte.parseByte("127")));
-				varid_narx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_narx.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_narx.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_narx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_narx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				// Number of transmit antennas
-				Variable varid_natx = dataFile.addVariable(null, "NATX", DataType.BYTE, "TIME");
-				varid_natx.addAttribute(new Attribute("long_name", "Number of transmit antennas"));
-				varid_natx.addAttribute(new Attribute("standard_name", " "));
-				varid_natx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_natx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_natx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_natx.addAttribute(new Attribute("units", "1"));
-				varid_natx.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_natx.addAttribute(new Attribute("valid_max", Byte.parseByte("127")));
-				varid_natx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_natx.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_natx.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_natx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_natx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				// Receive antenna latitudes
-				Variable varid_sltr = dataFile.addVariable(null, "SLTR", DataType.INT, dimsTM);
-				varid_sltr.addAttribute(new Attribute("long_name", "Receive antenna latitudes"));
-				varid_sltr.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_sltr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_sltr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_sltr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_sltr.addAttribute(new Attribute("units", "degree_north"));
-				varid_sltr.addAttribute(new Attribute("valid_min", Integer.parseInt("-90000")));
-				varid_sltr.addAttribute(new Attribute("valid_max", Integer.parseInt("90000")));
-				varid_sltr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_sltr.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_sltr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_sltr.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_sltr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-				varid_sltr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-
-				// Receive antenna longitudes
-				Variable varid_slnr = dataFile.addVariable(null, "SLNR", DataType.INT, dimsTM);
-				varid_slnr.addAttribute(new Attribute("long_name", "Receive antenna longitudes"));
-				varid_slnr.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_slnr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_slnr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_slnr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_slnr.addAttribute(new Attribute("units", "degree_east"));
-				varid_slnr.addAttribute(new Attribute("valid_min", Integer.parseInt("-180000")));
-				varid_slnr.addAttribute(new Attribute("valid_max", Integer.parseInt("180000")));
-				varid_slnr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_slnr.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_slnr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_slnr.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_slnr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-				varid_slnr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-
-				// Transmit antenna latitudes
-				Variable varid_sltt = dataFile.addVariable(null, "SLTT", DataType.INT, dimsTM);
-				varid_sltt.addAttribute(new Attribute("long_name", "Transmit antenna latitudes"));
-				varid_sltt.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_sltt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_sltt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_sltt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_sltt.addAttribute(new Attribute("units", "degree_north"));
-				varid_sltt.addAttribute(new Attribute("valid_min", Integer.parseInt("-90000")));
-				varid_sltt.addAttribute(new Attribute("valid_max", Integer.parseInt("90000")));
-				varid_sltt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_sltt.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_sltt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_sltt.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_sltt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-				varid_sltt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-
-				// Transmit antenna longitudes
-				Variable varid_slnt = dataFile.addVariable(null, "SLNT", DataType.INT, dimsTM);
-				varid_slnt.addAttribute(new Attribute("long_name", "Transmit antenna longitudes"));
-				varid_slnt.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_slnt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_slnt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_slnt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_slnt.addAttribute(new Attribute("units", "degree_east"));
-				varid_slnt.addAttribute(new Attribute("valid_min", Integer.parseInt("-180000")));
-				varid_slnt.addAttribute(new Attribute("valid_max", Integer.parseInt("180000")));
-				varid_slnt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_slnt.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_slnt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_slnt.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_slnt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-				varid_slnt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-
-				// Receive antenna codes
-				Variable varid_scdr = dataFile.addVariable(null, "SCDR", DataType.CHAR, dimsTMS4);
-				varid_scdr.addAttribute(new Attribute("_FillValue", " "));
-				varid_scdr.addAttribute(new Attribute("long_name", "Receive antenna codes"));
-				varid_scdr.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_scdr.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_scdr.addAttribute(new Attribute("units", "1"));
-				varid_scdr.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_scdr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				// Transmit antenna codes
-				Variable varid_scdt = dataFile.addVariable(null, "SCDT", DataType.CHAR, dimsTMS4);
-				varid_scdt.addAttribute(new Attribute("long_name", "Transmit antenna codes"));
-				varid_scdt.addAttribute(new Attribute("units", "1"));
-				varid_scdt.addAttribute(new Attribute("_FillValue", " "));
-				varid_scdt.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_scdt.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_scdt.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_scdt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				// Add QC variables
-
-				// Time QC Flag
-				Variable varid_tqc = dataFile.addVariable(null, "TIME_QC", DataType.BYTE, "TIME");
-				varid_tqc.addAttribute(new Attribute("long_name", "Time quality flag"));
-				varid_tqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_tqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_tqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_tqc
-						.addAttribute(new Attribute("comment", "OceanSITES quality flagging for temporal coordinate."));
-				varid_tqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_tqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_tqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_tqc.addAttribute(new Attribute("units", "1"));
-				varid_tqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_tqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-
-				// Position QC Flag
-				Variable varid_posqc = dataFile.addVariable(null, "POSITION_QC", DataType.BYTE, dimsTDBR);
-				varid_posqc.addAttribute(new Attribute("long_name", "Position quality flag"));
-				varid_posqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_posqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_posqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_posqc
-						.addAttribute(new Attribute("comment", "OceanSITES quality flagging for position coordinates"));
-				varid_posqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_posqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_posqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_posqc.addAttribute(new Attribute("units", "1"));
-				varid_posqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_posqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_posqc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Depth QC
-				Variable varid_dqc = dataFile.addVariable(null, "DEPH_QC", DataType.BYTE, "TIME");
-				varid_dqc.addAttribute(new Attribute("long_name", "Depth quality flag"));
-				varid_dqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_dqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_dqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_dqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for depth coordinate."));
-				varid_dqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_dqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_dqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_dqc.addAttribute(new Attribute("units", "1"));
-				varid_dqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_dqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-
-				// Overal QC flag
-				Variable varid_ovqc = dataFile.addVariable(null, "QCflag", DataType.BYTE, dimsTDBR);
-				varid_ovqc.addAttribute(new Attribute("long_name", "Overall quality flag"));
-				varid_ovqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_ovqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_ovqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_ovqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for all QC tests."));
-				varid_ovqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_ovqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_ovqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_ovqc.addAttribute(new Attribute("units", "1"));
-				varid_ovqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_ovqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_ovqc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Over-water QC Flag
-				Variable varid_owtr = dataFile.addVariable(null, "OWTR_QC", DataType.BYTE, dimsTDBR);
-				varid_owtr.addAttribute(new Attribute("long_name", "Over-water quality flag"));
-				varid_owtr.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_owtr.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_owtr.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_owtr
-						.addAttribute(new Attribute("comment", "OceanSITES quality flagging for Over-water QC test."));
-				varid_owtr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_owtr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_owtr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_owtr.addAttribute(new Attribute("units", "1"));
-				varid_owtr.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_owtr.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_owtr.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Median Filter QC Flag
-				Variable varid_mdfl = dataFile.addVariable(null, "MDFL_QC", DataType.BYTE, dimsTDBR);
-				varid_mdfl.addAttribute(new Attribute("long_name", "Median filter quality flag"));
-				varid_mdfl.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_mdfl.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_mdfl.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_mdfl.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Median Filter QC test. Threshold set to "
-								+ bean.getRadialTest().getMedianFilter() + " m/s."));
-				varid_mdfl.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_mdfl.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_mdfl.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_mdfl.addAttribute(new Attribute("units", "1"));
-				varid_mdfl.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_mdfl.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_mdfl.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Variance Threshold QC Flag
-				Variable varid_vart = dataFile.addVariable(null, "VART_QC", DataType.BYTE, dimsTDBR);
-				// netcdf4 compreison netcdf.defVarDeflate(ncid, varid_vart,
-				// true, true, 6);
-				varid_vart.addAttribute(new Attribute("long_name", "Variance threshold quality flag"));
-				varid_vart.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_vart.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_vart.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_vart.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Variance Threshold QC test. Test not applicable "
-								+ "to Direction Finding Systems. "
-								+ "The Temporal Derivative test is applied. Threshold set to "
-								+ bean.getRadialTest().getVarianceThreshold() + " m2/s2."));
-				varid_vart.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_vart.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_vart.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_vart.addAttribute(new Attribute("units", "1"));
-				varid_vart.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_vart.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_vart.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Velocity Threshold QC Flag
-				Variable varid_cspd = dataFile.addVariable(null, "CSPD_QC", DataType.BYTE, dimsTDBR);
-				varid_cspd.addAttribute(new Attribute("long_name", "Velocity threshold quality flag"));
-				varid_cspd.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_cspd.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_cspd.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_cspd.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Velocity Threshold QC test. Threshold set to "
-								+ bean.getRadialTest().getVeloThreshold() + " m/s."));
-				varid_cspd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_cspd.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_cspd.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_cspd.addAttribute(new Attribute("units", "1"));
-				varid_cspd.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_cspd.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-				varid_cspd.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-
-				// Average Radial Bearing QC Flag
-				Variable varid_avrb = dataFile.addVariable(null, "AVRB_QC", DataType.BYTE, "TIME");
-				varid_avrb.addAttribute(new Attribute("long_name", "Average radial bearing quality flag"));
-				varid_avrb.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_avrb.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_avrb.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_avrb.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Average Radial Bearing QC test. Threshold set between "
-								+ bean.getRadialTest().getAvRadialBearingMin() + " and "
-								+ bean.getRadialTest().getAvRadialBearingMax() + " deg."));
-				varid_avrb.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_avrb.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_avrb.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_avrb.addAttribute(new Attribute("units", "1"));
-				varid_avrb.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_avrb.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
-
-				// Radial Count QC Flag
-				Variable varid_rdct = dataFile.addVariable(null, "RDCT_QC", DataType.BYTE, "TIME");
-				varid_rdct.addAttribute(new Attribute("long_name", "Radial count quality flag"));
-				varid_rdct.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_rdct.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
-								Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
-								Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_rdct.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_rdct.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Radial Count QC test. Thresholds set to"
-								+ bean.getRadialTest().getRadialCount() + " vectors."));
-				varid_rdct.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_rdct.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_rdct.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_rdct.addAttribute(new Attribute("units", "1"));
-				varid_rdct.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
-				varid_rdct.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
 
 				// MANDATORY ATTRIBUTES
 				// Discovery and Identification
@@ -1192,7 +434,7 @@ public class CodarRadialToNetCDF {
 
 				// Conventions used
 				dataFile.addGroupAttribute(null, new Attribute("netcdf_version", bean.getNetcdf_version()));
-				dataFile.addGroupAttribute(null, new Attribute("netcdf_format", bean.getNetcdf_format()));
+				dataFile.addGroupAttribute(null, new Attribute("netcdf_format", dataFile.getVersion().name()));
 
 				// OTHER ATTRIBUTES
 				dataFile.addGroupAttribute(null, new Attribute("metadata_contact", bean.getMetadata_contact()));
@@ -1320,13 +562,6 @@ public class CodarRadialToNetCDF {
 					dataFile.addGroupAttribute(null,
 							new Attribute("SpectraDopplerCells", bean.getSpectraDopplerCells()));
 
-				// End the definition mode and start writing data
-				dataFile.create();
-
-				// write main dimensions bearing and range
-				dataFile.write(varid_bearing, CodarUtils.transformCollectionInArray(bearingDims));
-				dataFile.write(varid_range, CodarUtils.transformCollectionInArray(rangeDims));
-
 				// time dimension, days from 1950 We create a variable of that
 				// date, and calculate de day number.
 				Array timeData = Array.factory(DataType.DOUBLE, new int[] { 1 });
@@ -1338,16 +573,76 @@ public class CodarRadialToNetCDF {
 				date2.setTime(codarFormat.parse("1950 01 01 00 00 00"));
 				// 1950 and divide by millisec, sec, min and hours to get days sice 1950
 				timeData.setDouble(0, (((date.getTimeInMillis() - date2.getTimeInMillis()) / (1000.0 * 3600 * 24))));
-				dataFile.write(varid_t, timeData);
+
+				// End the definition mode and start writing data, in the
+				// aggregated file if the time step is appended to it
+				if (aggregator != null)
+					append = aggregator.begin(dataFile, timeData.getDouble(0), aggregateName);
+				if (append == CodarNetcdfAggregator.Append.SKIPPED)
+					break;
+				if (append != CodarNetcdfAggregator.Append.APPENDED)
+					dataFile.create();
+
+				// variables defined by the template
+				Variable varid_t = dataFile.findVariable("TIME");
+				Variable varid_bearing = dataFile.findVariable("BEAR");
+				Variable varid_range = dataFile.findVariable("RNGE");
+				Variable varid_depth = dataFile.findVariable("DEPH");
+				Variable varid_lat = dataFile.findVariable("LATITUDE");
+				Variable varid_lon = dataFile.findVariable("LONGITUDE");
+				Variable varid_crs = dataFile.findVariable("crs");
+				Variable varid_sdncruise = dataFile.findVariable("SDN_CRUISE");
+				Variable varid_sdnstation = dataFile.findVariable("SDN_STATION");
+				Variable varid_sdnlocalcdiid = dataFile.findVariable("SDN_LOCAL_CDI_ID");
+				Variable varid_sdnedmocode = dataFile.findVariable("SDN_EDMO_CODE");
+				Variable varid_sdnreferences = dataFile.findVariable("SDN_REFERENCES");
+				Variable varid_sdnxlink = dataFile.findVariable("SDN_XLINK");
+				Variable varid_speed = dataFile.findVariable("RDVA");
+				Variable varid_direction = dataFile.findVariable("DRVA");
+				Variable varid_u = dataFile.findVariable("EWCT");
+				Variable varid_v = dataFile.findVariable("NSCT");
+				Variable varid_espc = dataFile.findVariable("ESPC");
+				Variable varid_etmp = dataFile.findVariable("ETMP");
+				Variable varid_maxv = dataFile.findVariable("MAXV");
+				Variable varid_minv = dataFile.findVariable("MINV");
+				Variable varid_ersc = dataFile.findVariable("ERSC");
+				Variable varid_ertc = dataFile.findVariable("ERTC");
+				Variable varid_xdst = dataFile.findVariable("XDST");
+				Variable varid_ydst = dataFile.findVariable("YDST");
+				Variable varid_sprc = dataFile.findVariable("SPRC");
+				Variable varid_narx = dataFile.findVariable("NARX");
+				Variable varid_natx = dataFile.findVariable("NATX");
+				Variable varid_sltr = dataFile.findVariable("SLTR");
+				Variable varid_slnr = dataFile.findVariable("SLNR");
+				Variable varid_sltt = dataFile.findVariable("SLTT");
+				Variable varid_slnt = dataFile.findVariable("SLNT");
+				Variable varid_scdr = dataFile.findVariable("SCDR");
+				Variable varid_scdt = dataFile.findVariable("SCDT");
+				Variable varid_tqc = dataFile.findVariable("TIME_QC");
+				Variable varid_posqc = dataFile.findVariable("POSITION_QC");
+				Variable varid_dqc = dataFile.findVariable("DEPH_QC");
+				Variable varid_ovqc = dataFile.findVariable("QCflag");
+				Variable varid_owtr = dataFile.findVariable("OWTR_QC");
+				Variable varid_mdfl = dataFile.findVariable("MDFL_QC");
+				Variable varid_vart = dataFile.findVariable("VART_QC");
+				Variable varid_cspd = dataFile.findVariable("CSPD_QC");
+				Variable varid_avrb = dataFile.findVariable("AVRB_QC");
+				Variable varid_rdct = dataFile.findVariable("RDCT_QC");
+				List<Variable> varid_extra = new ArrayList<Variable>(extraTests.size());
+				for (RadialQCTest test : extraTests)
+					varid_extra.add(dataFile.findVariable(test.getVariable()));
+
+				// write main dimensions bearing and range
+				write(dataFile, varid_bearing, CodarUtils.transformCollectionInArray(bearingDims));
+				write(dataFile, varid_range, CodarUtils.transformCollectionInArray(rangeDims));
+
+				write(dataFile, varid_t, timeData);
 				timeData = null; // delete value to avoid non expected values.
 
 				// depth
-				dataFile.write(varid_depth, CodarUtils.transformCollectionInMultidimensionalFloatArray(
+				write(dataFile, varid_depth, CodarUtils.transformCollectionInMultidimensionalFloatArray(
 						Arrays.asList(Float.valueOf(0)), varid_depth.getDimensions()));
 
-				// get lat and lon from table
-				List<Float> lond = bean.getTable().getColumnElementsInOrder(TableColumnNames.LOND, codarToNetcdfIndex);
-				List<Float> latd = bean.getTable().getColumnElementsInOrder(TableColumnNames.LATD, codarToNetcdfIndex);
 				// get origin lat and lon
 				float siteLat = (bean.getOriginElementAsFloat(0) == null)
 						? Float.parseFloat(bean.getStationBean().getSite_lat())
@@ -1356,35 +651,36 @@ public class CodarRadialToNetCDF {
 						? Float.parseFloat(bean.getStationBean().getSite_lon())
 						: bean.getOriginElementAsFloat(1);
 
-				// Calculate lat and lon values.
-				CodarUtils.fillLatLonValues(siteLat, siteLon, latd, lond, rangeDims, bearingDims);
-				Array latArray = CodarUtils.transformCollectionInMultidimensionalFloatArray(latd,
-						varid_lat.getDimensions());
-				Array lonArray = CodarUtils.transformCollectionInMultidimensionalFloatArray(lond,
-						varid_lon.getDimensions());
+				// Calculate lat and lon values, once for each site geometry.
+				float[][] latLon = CodarGeometryCache.getDefault().getRadial(siteLat, siteLon, rangeDims, bearingDims);
+				Array latArray = CodarUtils.transformFloatArrayInMultidimensionalArray(latLon[0],
+						varid_lat.getDimensions(), DataType.FLOAT, 1);
+				Array lonArray = CodarUtils.transformFloatArrayInMultidimensionalArray(latLon[1],
+						varid_lon.getDimensions(), DataType.FLOAT, 1);
 
-				dataFile.write(varid_lat, latArray);
-				dataFile.write(varid_lon, lonArray);
+				write(dataFile, varid_lat, latArray);
+				write(dataFile, varid_lon, lonArray);
 
-				dataFile.write(varid_crs, CodarUtils.transformCollectionInMultidimensionalShortArray(
+				write(dataFile, varid_crs, CodarUtils.transformCollectionInMultidimensionalShortArray(
 						Arrays.asList(Float.valueOf(0)), new ArrayList<Dimension>(0), 1));
-				dataFile.write(varid_sdncruise,
+				write(dataFile, varid_sdncruise,
 						CodarUtils.transformStringIntoArrayChar(site_code, varid_sdncruise.getDimensions()));
-				dataFile.write(varid_sdnstation,
+				write(dataFile, varid_sdnstation,
 						CodarUtils.transformStringIntoArrayChar(platform_code, varid_sdnstation.getDimensions()));
-				dataFile.write(varid_sdnedmocode, CodarUtils.transformCollectionInMultidimensionalShortArray(
-						Arrays.asList(Float.valueOf(bean.getNetworkBean().getEDMO_code_As_Short())), dimsTMI, 1));
-				dataFile.write(varid_sdnlocalcdiid,
+				write(dataFile, varid_sdnedmocode, CodarUtils.transformCollectionInMultidimensionalShortArray(
+						Arrays.asList(Float.valueOf(bean.getNetworkBean().getEDMO_code_As_Short())),
+						varid_sdnedmocode.getDimensions(), 1));
+				write(dataFile, varid_sdnlocalcdiid,
 						CodarUtils.transformStringIntoArrayChar(id, varid_sdnlocalcdiid.getDimensions()));
-				dataFile.write(varid_sdnreferences,
+				write(dataFile, varid_sdnreferences,
 						CodarUtils.transformStringIntoArrayChar(TDS_catalog, varid_sdnreferences.getDimensions()));
-				dataFile.write(varid_sdnxlink,
+				write(dataFile, varid_sdnxlink,
 						CodarUtils.transformStringIntoArrayChar(xlink, varid_sdnxlink.getDimensions()));
 
 				// velocity
-				Array arrayData = CodarUtils.transformCollectionInMultidimensionalFloatArray(velo,
-						varid_speed.getDimensions());
-				dataFile.write(varid_speed, arrayData);
+				Array arrayData = CodarUtils.transformFloatArrayInMultidimensionalArray(velo,
+						varid_speed.getDimensions(), DataType.FLOAT, 1);
+				write(dataFile, varid_speed, arrayData);
 
 				// head
 				// Bearing and heading are only reported to 10ths and can be
@@ -1396,215 +692,182 @@ public class CodarRadialToNetCDF {
 				// model,
 				// otherwise w/classic data model you're limited ot signed data
 				// types.
-				List<Float> head = bean.getTable().getColumnElementsInOrder(TableColumnNames.HEAD, codarToNetcdfIndex);
+				float[] head = bean.getTable().getColumnInOrder(TableColumnNames.HEAD, gridIndex);
 				// multiplicar por 10 y redondear a short integer?
 				// head = head.*10);
 
-				Array arrayHead = CodarUtils.transformCollectionInMultidimensionalFloatArray(head,
-						varid_direction.getDimensions());
-				dataFile.write(varid_direction, arrayHead);
+				Array arrayHead = CodarUtils.transformFloatArrayInMultidimensionalArray(head,
+						varid_direction.getDimensions(), DataType.FLOAT, 1);
+				write(dataFile, varid_direction, arrayHead);
 
 				// vel_u
-				Array arrayVelU = CodarUtils.transformCollectionInMultidimensionalShortArray(velu,
-						varid_u.getDimensions(), 1000);
-				dataFile.write(varid_u, arrayVelU);
+				Array arrayVelU = CodarUtils.transformFloatArrayInMultidimensionalArray(velu,
+						varid_u.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_u, arrayVelU);
 
 				// vel_v
-				Array arrayVelV = CodarUtils.transformCollectionInMultidimensionalShortArray(velv,
-						varid_v.getDimensions(), 1000);
-				dataFile.write(varid_v, arrayVelV);
+				Array arrayVelV = CodarUtils.transformFloatArrayInMultidimensionalArray(velv,
+						varid_v.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_v, arrayVelV);
 
 				// temporal and spatial quality
-				Array spatialQData = CodarUtils.transformCollectionInMultidimensionalShortArray(spatialQ,
-						varid_espc.getDimensions(), 1000);
-				dataFile.write(varid_espc, spatialQData);
-				Array temporalQData = CodarUtils.transformCollectionInMultidimensionalShortArray(tempQ,
-						varid_etmp.getDimensions(), 1000);
-				dataFile.write(varid_etmp, temporalQData);
+				Array spatialQData = CodarUtils.transformFloatArrayInMultidimensionalArray(spatialQ,
+						varid_espc.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_espc, spatialQData);
+				Array temporalQData = CodarUtils.transformFloatArrayInMultidimensionalArray(tempQ,
+						varid_etmp.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_etmp, temporalQData);
 
 				// temporal and spatial quality
-				Array maxVData = CodarUtils.transformCollectionInMultidimensionalShortArray(maxv,
-						varid_maxv.getDimensions(), 1000);
-				dataFile.write(varid_maxv, maxVData);
-				Array minVData = CodarUtils.transformCollectionInMultidimensionalShortArray(minv,
-						varid_minv.getDimensions(), 1000);
-				dataFile.write(varid_minv, minVData);
+				Array maxVData = CodarUtils.transformFloatArrayInMultidimensionalArray(maxv,
+						varid_maxv.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_maxv, maxVData);
+				Array minVData = CodarUtils.transformFloatArrayInMultidimensionalArray(minv,
+						varid_minv.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_minv, minVData);
 
 				// ersc-edvc Spatial quality count
-				List<Float> erscTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.ERSC,
-						codarToNetcdfIndex);
-				List<Float> ersc = new ArrayList<Float>(erscTemp.size());
-				if (erscTemp.size() == 0) {
-					erscTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.EDVC, codarToNetcdfIndex);
+				float[] ersc = bean.getTable().getColumnInOrder(TableColumnNames.ERSC, gridIndex);
+				if (ersc.length == 0) {
+					ersc = bean.getTable().getColumnInOrder(TableColumnNames.EDVC, gridIndex);
 				}
 				// Locate native bad-values
-				for (Float er : erscTemp) {
-					float erTemp = er;
-					if (erTemp == 999)
-						erTemp = Float.NaN;
-					else if (erTemp > 127)
-						erTemp = 127;
-					ersc.add(erTemp);
+				for (int i = 0; i < ersc.length; i++) {
+					if (ersc[i] == 999)
+						ersc[i] = Float.NaN;
+					else if (ersc[i] > 127)
+						ersc[i] = 127;
 				}
-				Array erscData = CodarUtils.transformCollectionInMultidimensionalShortArray(ersc,
-						varid_ersc.getDimensions(), 1);
-				dataFile.write(varid_ersc, erscData);
+				Array erscData = CodarUtils.transformFloatArrayInMultidimensionalArray(ersc,
+						varid_ersc.getDimensions(), DataType.SHORT, 1);
+				write(dataFile, varid_ersc, erscData);
 
 				// ertc temporal quality count
-				List<Float> ertcTemp = bean.getTable().getColumnElementsInOrder(TableColumnNames.ERTC,
-						codarToNetcdfIndex);
-				List<Float> ertc = new ArrayList<Float>(ertcTemp.size());
+				float[] ertc = bean.getTable().getColumnInOrder(TableColumnNames.ERTC, gridIndex);
 				// Locate native bad-values
-				for (Float er : ertcTemp) {
-					float erTemp = er;
-					if (erTemp == 999)
-						erTemp = Float.NaN;
-					else if (erTemp > 127)
-						erTemp = 127;
-					ertc.add(erTemp);
+				for (int i = 0; i < ertc.length; i++) {
+					if (ertc[i] == 999)
+						ertc[i] = Float.NaN;
+					else if (ertc[i] > 127)
+						ertc[i] = 127;
 				}
-				Array ertcData = CodarUtils.transformCollectionInMultidimensionalShortArray(ertc,
-						varid_ertc.getDimensions(), 1);
-				dataFile.write(varid_ertc, ertcData);
+				Array ertcData = CodarUtils.transformFloatArrayInMultidimensionalArray(ertc,
+						varid_ertc.getDimensions(), DataType.SHORT, 1);
+				write(dataFile, varid_ertc, ertcData);
 
 				// Eastware distance from instrument
-				List<Float> xdst = bean.getTable().getColumnElementsInOrder(TableColumnNames.XDST, codarToNetcdfIndex);
-				Array xdstData = CodarUtils.transformCollectionInMultidimensionalFloatArray(xdst,
-						varid_xdst.getDimensions());
-				dataFile.write(varid_xdst, xdstData);
+				float[] xdst = bean.getTable().getColumnInOrder(TableColumnNames.XDST, gridIndex);
+				Array xdstData = CodarUtils.transformFloatArrayInMultidimensionalArray(xdst,
+						varid_xdst.getDimensions(), DataType.FLOAT, 1);
+				write(dataFile, varid_xdst, xdstData);
 
 				// Northward distance from instrument
-				List<Float> ydst = bean.getTable().getColumnElementsInOrder(TableColumnNames.YDST, codarToNetcdfIndex);
-				Array ydstData = CodarUtils.transformCollectionInMultidimensionalFloatArray(ydst,
-						varid_ydst.getDimensions());
-				dataFile.write(varid_ydst, ydstData);
+				float[] ydst = bean.getTable().getColumnInOrder(TableColumnNames.YDST, gridIndex);
+				Array ydstData = CodarUtils.transformFloatArrayInMultidimensionalArray(ydst,
+						varid_ydst.getDimensions(), DataType.FLOAT, 1);
+				write(dataFile, varid_ydst, ydstData);
 
 				// Cross Spectal Range Cell
-				List<Float> sprc = bean.getTable().getColumnElementsInOrder(TableColumnNames.SPRC, codarToNetcdfIndex);
-				Array sprcData = CodarUtils.transformCollectionInMultidimensionalByteArray(sprc,
-						varid_sprc.getDimensions());
-				dataFile.write(varid_sprc, sprcData);
-
-				dataFile.write(varid_narx, CodarUtils.transformCollectionInMultidimensionalByteArray(
-						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.NUM_SITES)), dimsT));
-				dataFile.write(varid_natx, CodarUtils.transformCollectionInMultidimensionalByteArray(
-						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.NUM_SITES)), dimsT));
-				dataFile.write(varid_sltr, CodarUtils.transformCollectionInMultidimensionalIntArray(
-						Arrays.asList(Float.valueOf(siteLat)), dimsTM, 1000));
-				dataFile.write(varid_slnr, CodarUtils.transformCollectionInMultidimensionalIntArray(
-						Arrays.asList(Float.valueOf(siteLon)), dimsTM, 1000));
-				dataFile.write(varid_sltt, CodarUtils.transformCollectionInMultidimensionalIntArray(
-						Arrays.asList(Float.valueOf(siteLat)), dimsTM, 1000));
-				dataFile.write(varid_slnt, CodarUtils.transformCollectionInMultidimensionalIntArray(
-						Arrays.asList(Float.valueOf(siteLon)), dimsTM, 1000));
-
-				dataFile.write(varid_scdr, CodarUtils.transformStringIntoArrayChar(
+				float[] sprc = bean.getTable().getColumnInOrder(TableColumnNames.SPRC, gridIndex);
+				Array sprcData = CodarUtils.transformFloatArrayInMultidimensionalArray(sprc,
+						varid_sprc.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_sprc, sprcData);
+
+				write(dataFile, varid_narx, CodarUtils.transformCollectionInMultidimensionalByteArray(
+						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.NUM_SITES)), varid_narx.getDimensions()));
+				write(dataFile, varid_natx, CodarUtils.transformCollectionInMultidimensionalByteArray(
+						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.NUM_SITES)), varid_natx.getDimensions()));
+				write(dataFile, varid_sltr, CodarUtils.transformCollectionInMultidimensionalIntArray(
+						Arrays.asList(Float.valueOf(siteLat)), varid_sltr.getDimensions(), 1000));
+				write(dataFile, varid_slnr, CodarUtils.transformCollectionInMultidimensionalIntArray(
+						Arrays.asList(Float.valueOf(siteLon)), varid_slnr.getDimensions(), 1000));
+				write(dataFile, varid_sltt, CodarUtils.transformCollectionInMultidimensionalIntArray(
+						Arrays.asList(Float.valueOf(siteLat)), varid_sltt.getDimensions(), 1000));
+				write(dataFile, varid_slnt, CodarUtils.transformCollectionInMultidimensionalIntArray(
+						Arrays.asList(Float.valueOf(siteLon)), varid_slnt.getDimensions(), 1000));
+
+				write(dataFile, varid_scdr, CodarUtils.transformStringIntoArrayChar(
 						bean.getStationBean().getStation_id(), varid_scdr.getDimensions()));
-				dataFile.write(varid_scdt, CodarUtils.transformStringIntoArrayChar(
+				write(dataFile, varid_scdt, CodarUtils.transformStringIntoArrayChar(
 						bean.getStationBean().getStation_id(), varid_scdt.getDimensions()));
 
 				// QC flags
-				dataFile.write(varid_tqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
-						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.SDN_TIME_QC_FLAG)), dimsT));
-
-				List<Float> sdnPosFlag = new ArrayList<Float>(velu.size());
-				for (Float vtemp : velu) {
-					if (Float.isNaN(vtemp)) {
-						sdnPosFlag.add(Float.NaN);
-					} else {
-						sdnPosFlag.add(Float.valueOf(1));
-					}
+				write(dataFile, varid_tqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
+						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.SDN_TIME_QC_FLAG)), varid_tqc.getDimensions()));
+
+				float[] sdnPosFlag = new float[velu.length];
+				for (int i = 0; i < velu.length; i++) {
+					sdnPosFlag[i] = Float.isNaN(velu[i]) ? Float.NaN : 1;
 				}
 
-				dataFile.write(varid_posqc,
-						CodarUtils.transformCollectionInMultidimensionalByteArray(sdnPosFlag, dimsTDBR));
+				write(dataFile, varid_posqc, CodarUtils.transformFloatArrayInMultidimensionalArray(sdnPosFlag,
+						varid_posqc.getDimensions(), DataType.BYTE, 1));
 
-				dataFile.write(varid_dqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
-						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.SDN_DEPTH_QC_FLAG)), dimsT));
+				write(dataFile, varid_dqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
+						Arrays.asList(Float.valueOf(CodarRadialToNetCDF.SDN_DEPTH_QC_FLAG)),
+						varid_dqc.getDimensions()));
 
-				// QA - QC flags
-				VentanaRunRadialQualityTests qcqaTest = new VentanaRunRadialQualityTests(bean);
+				// QA - QC flags, all the tests in the same pass
+				RadialQCKernel qcqaTest = qcFlags;
+				if (qcqaTest == null || !qcqaTest.isValidFor(bean, profile, gridIndex)) {
+					qcqaTest = new RadialQCKernel(bean, profile, gridIndex);
+					qcqaTest.setFrameCache(frames);
+					qcqaTest.setScheduler(scheduler);
+					qcqaTest.run();
+				}
 
 				// OverWater Quality test
-				List<Float> overWater_QCflag = qcqaTest.runOverWaterTest(
-						bean.getTable().getColumnElementsInOrder(TableColumnNames.VFLG, codarToNetcdfIndex));
-				Array array_owtr = CodarUtils.transformCollectionInMultidimensionalByteArray(overWater_QCflag,
-						varid_owtr.getDimensions());
-				dataFile.write(varid_owtr, array_owtr);
+				write(dataFile, varid_owtr, CodarUtils.transformByteArrayInMultidimensionalArray(
+						qcqaTest.getOverWater(), varid_owtr.getDimensions()));
 
 				// medianFilter Quality test
-				List<Float> medianFilter_QCflag = qcqaTest.runMedianFilterTest(profile);
-				Array array_medianFilter = CodarUtils.transformCollectionInMultidimensionalByteArray(
-						medianFilter_QCflag, varid_mdfl.getDimensions());
-				dataFile.write(varid_mdfl, array_medianFilter);
+				write(dataFile, varid_mdfl, CodarUtils.transformByteArrayInMultidimensionalArray(
+						qcqaTest.getMedianFilter(), varid_mdfl.getDimensions()));
 
 				// temporal derivative
-				List<Float> tempDerFilter_QCflag = qcqaTest.runTempDerivativeTest(profile);
-				Array array_TempDerFilter = CodarUtils.transformCollectionInMultidimensionalByteArray(
-						tempDerFilter_QCflag, varid_vart.getDimensions());
-				dataFile.write(varid_vart, array_TempDerFilter);
+				write(dataFile, varid_vart, CodarUtils.transformByteArrayInMultidimensionalArray(
+						qcqaTest.getTempDerivative(), varid_vart.getDimensions()));
 
 				// Velocity Threshold Quality Test
-				List<Float> velocityThreshold_QCflag = qcqaTest.runThresholdTest(velo,
-						bean.getRadialTest().getVeloThreshold());
-				Array array_velt = CodarUtils.transformCollectionInMultidimensionalByteArray(velocityThreshold_QCflag,
-						varid_cspd.getDimensions());
-				dataFile.write(varid_cspd, array_velt);
+				write(dataFile, varid_cspd, CodarUtils.transformByteArrayInMultidimensionalArray(
+						qcqaTest.getVelocityThreshold(), varid_cspd.getDimensions()));
 
 				// Average Radial Bearing Quality Test
-				List<Float> averageRadialBearing_QC_flag = bean.getTable()
-						.getColumnElementsInOrder(TableColumnNames.HEAD, codarToNetcdfIndex);
-				List<Float> avRadialB_QC_flag = qcqaTest.runAverageBearinTest(averageRadialBearing_QC_flag,
-						bean.getRadialTest().getAvRadialBearingMin(), bean.getRadialTest().getAvRadialBearingMax());
-				Array array_avrb = CodarUtils.transformCollectionInMultidimensionalByteArray(avRadialB_QC_flag,
-						varid_avrb.getDimensions());
-				dataFile.write(varid_avrb, array_avrb);
+				write(dataFile, varid_avrb, CodarUtils.transformByteArrayInMultidimensionalArray(
+						new byte[] { qcqaTest.getAverageBearing() }, varid_avrb.getDimensions()));
 
 				// radial count Quality test
-				List<Float> radialCountFilter_QCflag = qcqaTest.runRadialCountTest(profile);
-				Array array_radCountFilter = CodarUtils.transformCollectionInMultidimensionalByteArray(
-						radialCountFilter_QCflag, varid_rdct.getDimensions());
-				dataFile.write(varid_rdct, array_radCountFilter);
-
-				// OverAll QC checks all the QC tests.
-				List<Float> overal_QCflag = new ArrayList<Float>(overWater_QCflag.size());
-				// warning: avRadialB_QC_flag and radialCountFilter_QCflag, are
-				// scalar values not gridded.
-
-				for (int i = 0; i < overWater_QCflag.size(); i++) {
-					if (overWater_QCflag.get(i).floatValue() == 1 && radialCountFilter_QCflag.get(0).floatValue() == 1
-							&& velocityThreshold_QCflag.get(i).floatValue() == 1
-							&& medianFilter_QCflag.get(i).floatValue() == 1
-							&& tempDerFilter_QCflag.get(i).floatValue() == 1
-							&& avRadialB_QC_flag.get(0).floatValue() == 1) {
-						overal_QCflag.add(Float.valueOf(1));
-					} else if (overWater_QCflag.get(i).floatValue() == 9
-							&& radialCountFilter_QCflag.get(0).floatValue() == 9
-							&& velocityThreshold_QCflag.get(i).floatValue() == 9
-							&& medianFilter_QCflag.get(i).floatValue() == 9
-							&& tempDerFilter_QCflag.get(i).floatValue() == 9
-							&& avRadialB_QC_flag.get(0).floatValue() == 9) {
-						overal_QCflag.add(Float.valueOf(9));
-					} else if (overWater_QCflag.get(i).floatValue() == 0
-							&& radialCountFilter_QCflag.get(0).floatValue() == 0
-							&& velocityThreshold_QCflag.get(i).floatValue() == 0
-							&& medianFilter_QCflag.get(i).floatValue() == 0
-							&& tempDerFilter_QCflag.get(i).floatValue() == 0
-							&& avRadialB_QC_flag.get(0).floatValue() == 0) {
-						overal_QCflag.add(Float.valueOf(0));
-					} else if (overWater_QCflag.get(i).isNaN() && velocityThreshold_QCflag.get(i).isNaN()
-							&& medianFilter_QCflag.get(i).isNaN() && tempDerFilter_QCflag.get(i).isNaN()) {
-						overal_QCflag.add(Float.NaN);
-					} else {
-						overal_QCflag.add(Float.valueOf(4));
+				write(dataFile, varid_rdct, CodarUtils.transformByteArrayInMultidimensionalArray(
+						new byte[] { qcqaTest.getRadialCount() }, varid_rdct.getDimensions()));
+
+				// QC tests added as providers, combined with the overall flag
+				byte[] overall = qcqaTest.getOverall();
+				if (!extraTests.isEmpty()) {
+					extraQualityTests.setFrameCache(frames);
+					Map<String, float[]> extraFlags = new QCTestRunner<RadialQualityTests>(scheduler,
+							QCMetrics.getDefault(), site_code).run(extraTests, extraQualityTests);
+					for (int i = 0; i < extraTests.size(); i++) {
+						float[] flags = extraFlags.get(extraTests.get(i).getVariable());
+						write(dataFile, varid_extra.get(i), CodarUtils.transformFloatArrayInMultidimensionalArray(flags,
+								varid_extra.get(i).getDimensions(), DataType.BYTE, 1));
+						if (extraTests.get(i).isGridded())
+							overall = RadialQCKernel.overall(overall, flags, true);
+					}
+					// the tests with a single flag go after the gridded ones
+					for (RadialQCTest test : extraTests) {
+						if (!test.isGridded())
+							overall = RadialQCKernel.overall(overall, extraFlags.get(test.getVariable()), false);
 					}
-
 				}
-				Array array_ovqc = CodarUtils.transformCollectionInMultidimensionalByteArray(overal_QCflag,
-						varid_ovqc.getDimensions());
-				dataFile.write(varid_ovqc, array_ovqc);
 
-				dataFile.close();
+				// OverAll QC checks all the QC tests.
+				write(dataFile, varid_ovqc,
+						CodarUtils.transformByteArrayInMultidimensionalArray(overall, varid_ovqc.getDimensions()));
+
+				if (append == CodarNetcdfAggregator.Append.APPENDED)
+					aggregator.end();
+				else
+					dataFile.close();
 
 				if (fixed) {
 					errorCode = 6;
@@ -1630,6 +893,817 @@ public class CodarRadialToNetCDF {
 		return errorCode;
 	}
 
+	/**
+	 * Defines the dimensions and the variables of the file, with their
+	 * attributes.
+	 * 
+	 * @param dataFile
+	 *            netcdf file in define mode
+	 * @param bearings
+	 *            length of the BEAR dimension
+	 * @param ranges
+	 *            length of the RNGE dimension
+	 * @param site_code
+	 *            network id
+	 * @param site_id
+	 *            station id
+	 * @param platform_code
+	 *            network and station ids
+	 * @param id
+	 *            platform code and time stamp
+	 * @param TDS_catalog
+	 *            metadata page of the network
+	 * @param xlink
+	 *            sdn_reference of the metadata page
+	 * @param qcTests
+	 *            QC tests written, for their flag variables and the
+	 *            ancillary_variables
+	 * @param qualityTests
+	 *            input of the QC tests, for their comments
+	 */
+	private void defineVariables(NetcdfFileWriter dataFile, int bearings, int ranges, String site_code, String site_id,
+			String platform_code, String id, String TDS_catalog, String xlink, List<RadialQCTest> qcTests,
+			RadialQualityTests qualityTests) {
+		Dimension dimid_t = dataFile.addDimension(null, "TIME", 1);
+		// Dimension dimid_t = dataFile.addUnlimitedDimension("TIME");
+		Dimension dimid_bearing = dataFile.addDimension(null, "BEAR", bearings);
+		Dimension dimid_range = dataFile.addDimension(null, "RNGE", ranges);
+		Dimension dimid_depth = dataFile.addDimension(null, "DEPTH", 1);
+		Dimension dimid_maxsite = dataFile.addDimension(null, "MAXSITE", CodarRadialToNetCDF.MAX_SITE);
+		Dimension dimid_maxinst = dataFile.addDimension(null, "MAXINST", CodarRadialToNetCDF.MAX_SITE);
+		Dimension dimid_refmax = dataFile.addDimension(null, "REFMAX", CodarRadialToNetCDF.REF_MAX);
+		Dimension dimid_string_site_id = dataFile.addDimension(null, "STRING" + site_id.length(),
+				site_id.length());
+		Dimension dimid_string_site_code = dimid_string_site_id;
+		if (site_code.length() != site_id.length()) {
+			dimid_string_site_code = dataFile.addDimension(null, "STRING" + site_code.length(),
+					site_code.length());
+		}
+		Dimension dimid_string_platform_code = dataFile.addDimension(null, "STRING" + platform_code.length(),
+				platform_code.length());
+		Dimension dimid_string_sdn_local_cdi_id = dataFile.addDimension(null, "STRING" + id.length(),
+				id.length());
+		Dimension dimid_string_sdn_references = dataFile.addDimension(null, "STRING" + TDS_catalog.length(),
+				TDS_catalog.length());
+		Dimension dimid_string_sdn_xlink = dataFile.addDimension(null, "STRING" + xlink.length(),
+				xlink.length());
+
+		List<Dimension> dimsT = new ArrayList<Dimension>();
+		List<Dimension> dimsTDBR = new ArrayList<Dimension>();
+		List<Dimension> dimsBR = new ArrayList<Dimension>();
+		List<Dimension> dimsTS = new ArrayList<Dimension>();
+		List<Dimension> dimsTP = new ArrayList<Dimension>();
+		List<Dimension> dimsTId = new ArrayList<Dimension>();
+		List<Dimension> dimsTSdnRef = new ArrayList<Dimension>();
+		List<Dimension> dimsTRmaxXlink = new ArrayList<Dimension>();
+		List<Dimension> dimsTM = new ArrayList<Dimension>();
+		List<Dimension> dimsTMI = new ArrayList<Dimension>();
+		List<Dimension> dimsTMS4 = new ArrayList<Dimension>();
+
+		dimsT.add(dimid_t);
+
+		dimsTDBR.add(dimid_t);
+		dimsTDBR.add(dimid_depth);
+		dimsTDBR.add(dimid_bearing);
+		dimsTDBR.add(dimid_range);
+
+		dimsBR.add(dimid_bearing);
+		dimsBR.add(dimid_range);
+
+		dimsTS.add(dimid_t);
+		dimsTS.add(dimid_string_site_code);
+
+		dimsTP.add(dimid_t);
+		dimsTP.add(dimid_string_platform_code);
+
+		dimsTId.add(dimid_t);
+		dimsTId.add(dimid_string_sdn_local_cdi_id);
+
+		dimsTSdnRef.add(dimid_t);
+		dimsTSdnRef.add(dimid_string_sdn_references);
+
+		dimsTRmaxXlink.add(dimid_t);
+		dimsTRmaxXlink.add(dimid_refmax);
+		dimsTRmaxXlink.add(dimid_string_sdn_xlink);
+
+		dimsTM.add(dimid_t);
+		dimsTM.add(dimid_maxsite);
+
+		dimsTMI.add(dimid_t);
+		dimsTMI.add(dimid_maxinst);
+
+		dimsTMS4.add(dimid_t);
+		dimsTMS4.add(dimid_maxsite);
+		dimsTMS4.add(dimid_string_site_id);
+
+		// https://www.unidata.ucar.edu/software/netcdf/docs/BestPractices.html
+		// check how to add fillvalues..
+		Variable varid_t = dataFile.addVariable(null, "TIME", DataType.DOUBLE, "TIME");
+		varid_t.addAttribute(new Attribute("long_name", "Time"));
+		varid_t.addAttribute(new Attribute("standard_name", "time"));
+		varid_t.addAttribute(new Attribute("units", "days since 1950-01-01T00:00:00Z"));
+		varid_t.addAttribute(new Attribute("valid_min", Double.parseDouble("-90000")));
+		varid_t.addAttribute(new Attribute("valid_max", Double.parseDouble("90000")));
+		varid_t.addAttribute(new Attribute("calendar", "standard"));
+		varid_t.addAttribute(new Attribute("axis", "T"));
+		varid_t.addAttribute(new Attribute("sdn_parameter_name", "Elapsed time (since 1950-01-01T00:00:00Z)"));
+		varid_t.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ELTJLD01"));
+		varid_t.addAttribute(new Attribute("sdn_uom_name", "Days"));
+		varid_t.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UTAA"));
+		varid_t.addAttribute(new Attribute("ancillary_variables", "TIME_QC"));
+
+		Variable varid_bearing = dataFile.addVariable(null, "BEAR", DataType.FLOAT, "BEAR");
+		varid_bearing.addAttribute(new Attribute("axis", "X"));
+		varid_bearing.addAttribute(new Attribute("long_name", "Bearing away from instrument"));
+		varid_bearing.addAttribute(new Attribute("standard_name", " "));
+		varid_bearing.addAttribute(new Attribute("units", "degree_true"));
+		varid_bearing.addAttribute(new Attribute("uncertainty", ""));
+		varid_bearing.addAttribute(new Attribute("sdn_parameter_name", "Bearing"));
+		varid_bearing.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::BEARRFTR"));
+		varid_bearing.addAttribute(new Attribute("sdn_uom_name", "Degrees true"));
+		varid_bearing.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UABB"));
+		varid_bearing.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		Variable varid_range = dataFile.addVariable(null, "RNGE", DataType.FLOAT, "RNGE");
+		varid_range.addAttribute(new Attribute("axis", "Y"));
+		varid_range.addAttribute(new Attribute("long_name", "Range away from instrument"));
+		varid_range.addAttribute(new Attribute("standard_name", " "));
+		varid_range.addAttribute(new Attribute("units", "km"));
+		varid_range.addAttribute(new Attribute("uncertainty", ""));
+		varid_range.addAttribute(new Attribute("sdn_parameter_name",
+				"Range (from fixed reference point) by unspecified GPS system"));
+		varid_range.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::RIFNAX01"));
+		varid_range.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
+		varid_range.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
+		varid_range.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		Variable varid_depth = dataFile.addVariable(null, "DEPH", DataType.FLOAT, "DEPTH");
+		varid_depth.addAttribute(new Attribute("long_name", "Depth"));
+		varid_depth.addAttribute(new Attribute("standard_name", "depth"));
+		varid_depth.addAttribute(new Attribute("_FillValue", "9.96921E36"));
+		varid_depth.addAttribute(new Attribute("units", "m"));
+		varid_depth.addAttribute(new Attribute("valid_min", Float.parseFloat("-12000")));
+		varid_depth.addAttribute(new Attribute("valid_max", Float.parseFloat("12000")));
+		varid_depth.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_depth.addAttribute(new Attribute("axis", "Z"));
+		varid_depth.addAttribute(new Attribute("positive", "down"));
+		varid_depth.addAttribute(new Attribute("reference", "sea_level"));
+		varid_depth.addAttribute(new Attribute("sdn_parameter_name", "Depth below surface of the water body"));
+		varid_depth.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ADEPZZ01"));
+		varid_depth.addAttribute(new Attribute("sdn_uom_name", "Metres"));
+		varid_depth.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULAA"));
+		varid_depth.addAttribute(new Attribute("ancillary_variables", "DEPH_QC"));
+
+		// Add auxillary coordinate variables to provide mapping from
+		// range and bearing to lat, lon.
+		// A minimum of 4 significant figures to the right of the
+		// decimal
+		// place is needed to keep resolution below 10's of meters.
+		// Using
+		// float data type for lat yields at least 5 significant digits
+		// to
+		// the right of the decimal giving ~1/2m resolution in latitude.
+		// Nine significant figures (at least 7 to the right of the
+		// decimal) could be achieved using int data type but need to
+		// introduce a scale factor.
+
+		// Latitude
+		Variable varid_lat = dataFile.addVariable(null, "LATITUDE", DataType.FLOAT, dimsBR);
+		varid_lat.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_lat.addAttribute(new Attribute("long_name", "Latitude of each location"));
+		varid_lat.addAttribute(new Attribute("units", "degree_north"));
+		varid_lat.addAttribute(new Attribute("valid_min", Float.parseFloat("-90")));
+		varid_lat.addAttribute(new Attribute("valid_max", Float.parseFloat("90")));
+		varid_lat.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_FLOAT));
+		varid_lat.addAttribute(new Attribute("grid_mapping", "crs"));
+		varid_lat.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_lat.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_lat.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_lat.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+		varid_lat.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		// Longitude
+		Variable varid_lon = dataFile.addVariable(null, "LONGITUDE", DataType.FLOAT, dimsBR);
+		varid_lon.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_lon.addAttribute(new Attribute("long_name", "Longitude of each location"));
+		varid_lon.addAttribute(new Attribute("units", "degree_east"));
+		varid_lon.addAttribute(new Attribute("valid_min", Float.parseFloat("-180")));
+		varid_lon.addAttribute(new Attribute("valid_max", Float.parseFloat("180")));
+		varid_lon.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_FLOAT));
+		varid_lon.addAttribute(new Attribute("grid_mapping", "crs"));
+		varid_lon.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_lon.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_lon.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_lon.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+		varid_lon.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		// crs
+		Variable varid_crs = dataFile.addVariable(null, "crs", DataType.SHORT, new ArrayList<Dimension>(0));
+		varid_crs.addAttribute(new Attribute("grid_mapping_name", "latitude_longitude"));
+		varid_crs.addAttribute(new Attribute("epsg_code", "EPSG:4326"));
+		varid_crs.addAttribute(new Attribute("semi_major_axis", Double.valueOf(6378137.0)));
+		varid_crs.addAttribute(new Attribute("inverse_flattening", Double.valueOf(298.257223563)));
+
+		//// Add SDN namespace variables
+		// To enforce homogeneity in the codes and interoperability with
+		//// SDC, the site_code has to be set equal
+		// to the EDIOS Series id of the HFR network and platform_code
+		//// must include the EDIOS Platform id of the
+		// HFR site, i.e.:
+		// SDN_CRUISE=site_code=EDIOS-Series-id
+		// SDN_STATION=platform_code=EDIOS-Series-id_Total (for total
+		//// current data files)
+		// SDN_STATION=platform_code=EDIOS-Series-id_ EDIOS-Platform-id
+		//// (for radial current data files)
+
+		// SDN_CRUISE
+		Variable varid_sdncruise = dataFile.addVariable(null, "SDN_CRUISE", DataType.CHAR, dimsTS);
+		varid_sdncruise.addAttribute(new Attribute("long_name", "Grid grouping label"));
+
+		// SDN_STATION
+		Variable varid_sdnstation = dataFile.addVariable(null, "SDN_STATION", DataType.CHAR, dimsTP);
+		varid_sdnstation.addAttribute(new Attribute("long_name", "Grid label"));
+
+		// SDN_LOCAL_CDI_ID
+		Variable varid_sdnlocalcdiid = dataFile.addVariable(null, "SDN_LOCAL_CDI_ID", DataType.CHAR, dimsTId);
+		varid_sdnlocalcdiid.addAttribute(new Attribute("long_name", "SeaDataCloud CDI identifier"));
+		varid_sdnlocalcdiid.addAttribute(new Attribute("cf_role", "grid_id"));
+
+		// SDN_EDMO_CODE
+		Variable varid_sdnedmocode = dataFile.addVariable(null, "SDN_EDMO_CODE", DataType.SHORT, dimsTMI);
+		varid_sdnedmocode.addAttribute(new Attribute("long_name",
+				"European Directory of Marine Organisations code for the CDI partner"));
+		varid_sdnedmocode.addAttribute(new Attribute("units", "1"));
+
+		// SDN_REFERENCES
+		Variable varid_sdnreferences = dataFile.addVariable(null, "SDN_REFERENCES", DataType.CHAR, dimsTSdnRef);
+		varid_sdnreferences.addAttribute(new Attribute("long_name", "Usage metadata reference"));
+
+		// SDN_XLINK
+		Variable varid_sdnxlink = dataFile.addVariable(null, "SDN_XLINK", DataType.CHAR, dimsTRmaxXlink);
+		varid_sdnxlink.addAttribute(new Attribute("long_name", "External resource linkages"));
+
+		// Add data variables
+		//
+		// radial_sea_water_velocity_away_from_instrument:
+		// A velocity is a vector quantity. Radial velocity away from
+		// instrument
+		// means the component of the velocity along the line of sight
+		// of the
+		// instrument where positive implies movement away from the
+		// instrument (i.e.
+		// outward). The "instrument" (examples are radar and lidar) is
+		// the device
+		// used to make an observation.
+		Variable varid_speed = dataFile.addVariable(null, "RDVA", DataType.SHORT, dimsTDBR);
+		varid_speed
+				.addAttribute(new Attribute("standard_name", "radial_sea_water_velocity_away_from_instrument"));
+		varid_speed.addAttribute(new Attribute("units", "m s-1"));
+		varid_speed.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
+		varid_speed.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
+		varid_speed.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_speed.addAttribute(new Attribute("long_name", "Radial sea water velocity away from instrument"));
+		varid_speed.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_speed.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_speed.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_speed.addAttribute(new Attribute("sdn_parameter_name",
+				"Speed of water current (Eulerian measurement) in the water body by directional range-gated radar"));
+		varid_speed.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
+		varid_speed.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_speed.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_speed.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_speed.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("RDVA", qcTests)));
+
+		// (radial current) direction
+		//
+		// direction_of_radial_vector_away_from_instrument:
+		// The direction_of_radial_vector_away_from_instrument is the
+		// direction in
+		// which the instrument itself is pointing. The direction is
+		// measured
+		// positive clockwise from due north. The "instrument" (examples
+		// are radar
+		// and lidar) is the device used to make an observation.
+		// "direction_of_X"
+		// means direction of a vector, a bearing.
+		Variable varid_direction = dataFile.addVariable(null, "DRVA", DataType.INT, dimsTDBR);
+		varid_direction.addAttribute(
+				new Attribute("standard_name", "direction_of_radial_vector_away_from_instrument"));
+		varid_direction
+				.addAttribute(new Attribute("long_name", "Direction of radial vector away from instrument"));
+		varid_direction.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_direction.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_direction.addAttribute(new Attribute("units", "degree_true"));
+		varid_direction.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
+		varid_direction.addAttribute(new Attribute("valid_max", Integer.parseInt("360000")));
+		varid_direction.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_direction
+				.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_direction.addAttribute(new Attribute("sdn_parameter_name",
+				"Direction (towards) of water current (Eulerian measurement) in the water body by directional range-gated radar"));
+		varid_direction.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCDAWVRD"));
+		varid_direction.addAttribute(new Attribute("sdn_uom_name", "Degrees True"));
+		varid_direction.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UABB"));
+		varid_direction.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_direction.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("DRVA", qcTests)));
+
+		// u
+		Variable varid_u = dataFile.addVariable(null, "EWCT", DataType.SHORT, dimsTDBR);
+		varid_u.addAttribute(new Attribute("standard_name", "eastward_sea_water_velocity"));
+		varid_u.addAttribute(new Attribute("long_name", "West-east current component"));
+		varid_u.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_u.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_u.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_u.addAttribute(new Attribute("units", "m s-1"));
+		varid_u.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
+		varid_u.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
+		varid_u.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_u.addAttribute(
+				new Attribute("sdn_parameter_name", "Eastward current velocity in the water body"));
+		varid_u.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCEWZZ01"));
+		varid_u.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_u.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_u.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_u.addAttribute(new Attribute("ancillary_variables",
+				QCTestRegistry.ancillaryVariables("EWCT", qcTests)));
+
+		// v
+		Variable varid_v = dataFile.addVariable(null, "NSCT", DataType.SHORT, dimsTDBR);
+		varid_v.addAttribute(new Attribute("standard_name", "northward_sea_water_velocity"));
+		varid_v.addAttribute(new Attribute("long_name", "South-north current component"));
+		varid_v.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_v.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_v.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_v.addAttribute(new Attribute("units", "m s-1"));
+		varid_v.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
+		varid_v.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
+		varid_v.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_v.addAttribute(
+				new Attribute("sdn_parameter_name", "Northward current velocity in the water body"));
+		varid_v.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCNSZZ01"));
+		varid_v.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_v.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_v.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_v.addAttribute(new Attribute("ancillary_variables",
+				QCTestRegistry.ancillaryVariables("NSCT", qcTests)));
+
+		// Spatial Quality
+		Variable varid_espc = dataFile.addVariable(null, "ESPC", DataType.SHORT, dimsTDBR);
+		varid_espc.addAttribute(new Attribute("long_name",
+				"Radial standard deviation of current velocity over the scatter patch"));
+		varid_espc.addAttribute(new Attribute("standard_name", " "));
+		varid_espc.addAttribute(new Attribute("units", "m s-1"));
+		varid_espc.addAttribute(new Attribute("valid_min", Short.parseShort("-32000")));
+		varid_espc.addAttribute(new Attribute("valid_max", Short.parseShort("32000")));
+		varid_espc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_espc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_espc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_espc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_espc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_espc.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_espc.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_espc.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_espc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_espc.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("ESPC", qcTests)));
+
+		// Temporal Quality
+		Variable varid_etmp = dataFile.addVariable(null, "ETMP", DataType.SHORT, dimsTDBR);
+		varid_etmp.addAttribute(new Attribute("long_name",
+				"Radial standard deviation of current velocity over coverage period"));
+		varid_etmp.addAttribute(new Attribute("standard_name", " "));
+		varid_etmp.addAttribute(new Attribute("units", "m s-1"));
+		varid_etmp.addAttribute(new Attribute("valid_min", Short.parseShort("-32000")));
+		varid_etmp.addAttribute(new Attribute("valid_max", Short.parseShort("32000")));
+		varid_etmp.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_etmp.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_etmp.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_etmp.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_etmp.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_etmp.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_etmp.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_etmp.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_etmp.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_etmp.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("ETMP", qcTests)));
+
+		// Velocity Maximum
+		Variable varid_maxv = dataFile.addVariable(null, "MAXV", DataType.SHORT, dimsTDBR);
+		varid_maxv.addAttribute(
+				new Attribute("long_name", "Radial sea water velocity away from instrument maximum"));
+		varid_maxv.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
+		varid_maxv.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
+		varid_maxv.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_maxv.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_maxv.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_maxv.addAttribute(new Attribute("units", "m s-1"));
+		varid_maxv.addAttribute(new Attribute("sdn_parameter_name",
+				"Current speed (Eulerian) in the water body by directional range-gated radar"));
+		varid_maxv.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
+		varid_maxv.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_maxv.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_maxv.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_maxv.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("MAXV", qcTests)));
+
+		// Velocity Minimum
+		Variable varid_minv = dataFile.addVariable(null, "MINV", DataType.SHORT, dimsTDBR);
+		varid_minv.addAttribute(
+				new Attribute("long_name", "Radial sea water velocity away from instrument minimum"));
+		varid_minv.addAttribute(new Attribute("valid_min", Short.parseShort("-10000")));
+		varid_minv.addAttribute(new Attribute("valid_max", Short.parseShort("10000")));
+		varid_minv.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_minv.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_minv.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_minv.addAttribute(new Attribute("units", "m s-1"));
+		varid_minv.addAttribute(new Attribute("sdn_parameter_name",
+				"Current speed (Eulerian) in the water body by directional range-gated radar"));
+		varid_minv.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCSAWVRD"));
+		varid_minv.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_minv.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_minv.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_minv.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("MINV", qcTests)));
+
+		// Spatial Count
+		Variable varid_ersc = dataFile.addVariable(null, "ERSC", DataType.SHORT, dimsTDBR);
+		varid_ersc.addAttribute(new Attribute("long_name", "Radial sea water velocity spatial quality count"));
+		varid_ersc.addAttribute(new Attribute("standard_name", " "));
+		varid_ersc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_ersc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_ersc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_ersc.addAttribute(new Attribute("units", "1"));
+		varid_ersc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
+		varid_ersc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
+		varid_ersc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_ersc.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_ersc.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_ersc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_ersc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+		varid_ersc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_ersc.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("ERSC", qcTests)));
+
+		// Temporal Count
+		Variable varid_ertc = dataFile.addVariable(null, "ERTC", DataType.SHORT, dimsTDBR);
+		varid_ertc.addAttribute(new Attribute("long_name", "Radial sea water velocity temporal quality count"));
+		varid_ertc.addAttribute(new Attribute("standard_name", " "));
+		varid_ertc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_ertc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_ertc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_ertc.addAttribute(new Attribute("units", "1"));
+		varid_ertc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
+		varid_ertc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
+		varid_ertc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_ertc.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_ertc.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_ertc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_ertc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+		varid_ertc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_ertc.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("ERTC", qcTests)));
+
+		// X-Distance
+		Variable varid_xdst = dataFile.addVariable(null, "XDST", DataType.INT, dimsBR);
+		varid_xdst.addAttribute(new Attribute("long_name", "Eastward distance from instrument"));
+		varid_xdst.addAttribute(new Attribute("standard_name", " "));
+		varid_xdst.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_xdst.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_xdst.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_xdst.addAttribute(new Attribute("units", "km"));
+		varid_xdst.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
+		varid_xdst.addAttribute(new Attribute("valid_max", Integer.parseInt("1000000")));
+		varid_xdst.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_xdst.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_xdst.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_xdst.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
+		varid_xdst.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
+		varid_xdst.addAttribute(new Attribute("coordinates", "LATITUDE LONGITUDE"));
+		varid_xdst.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("XDST", qcTests)));
+
+		// Y-Distance
+		Variable varid_ydst = dataFile.addVariable(null, "YDST", DataType.INT, dimsBR);
+		varid_ydst.addAttribute(new Attribute("long_name", "Northward distance from instrument"));
+		varid_ydst.addAttribute(new Attribute("standard_name", " "));
+		varid_ydst.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_ydst.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_ydst.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_ydst.addAttribute(new Attribute("units", "km"));
+		varid_ydst.addAttribute(new Attribute("valid_min", Integer.parseInt("0")));
+		varid_ydst.addAttribute(new Attribute("valid_max", Integer.parseInt("1000000")));
+		varid_ydst.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_ydst.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_ydst.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_ydst.addAttribute(new Attribute("sdn_uom_name", "Kilometres"));
+		varid_ydst.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULKM"));
+		varid_ydst.addAttribute(new Attribute("coordinates", "LATITUDE LONGITUDE"));
+		varid_ydst.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("YDST", qcTests)));
+
+		// Spectra Range Cell
+		Variable varid_sprc = dataFile.addVariable(null, "SPRC", DataType.SHORT, dimsTDBR);
+		varid_sprc
+				.addAttribute(new Attribute("long_name", "Radial sea water velocity cross spectra range cell"));
+		varid_sprc.addAttribute(new Attribute("standard_name", " "));
+		varid_sprc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_sprc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_sprc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_sprc.addAttribute(new Attribute("units", "1"));
+		varid_sprc.addAttribute(new Attribute("valid_min", Short.parseShort("0")));
+		varid_sprc.addAttribute(new Attribute("valid_max", Short.parseShort("127")));
+		varid_sprc.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_sprc.addAttribute(new Attribute("coordinates", "LONGITUDE LATITUDE"));
+		varid_sprc.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_sprc.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_sprc.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_sprc.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+		varid_sprc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_sprc.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("SPRC", qcTests)));
+
+		// Number of receive antennas
+		Variable varid_narx = dataFile.addVariable(null, "NARX", DataType.BYTE, "TIME");
+		varid_narx.addAttribute(new Attribute("long_name", "Number of receive antennas"));
+		varid_narx.addAttribute(new Attribute("standard_name", " "));
+		varid_narx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_narx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_narx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_narx.addAttribute(new Attribute("units", "1"));
+		varid_narx.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_narx.addAttribute(new Attribute("valid_max", Byte.parseByte("127")));
+		varid_narx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_narx.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_narx.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_narx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_narx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		// Number of transmit antennas
+		Variable varid_natx = dataFile.addVariable(null, "NATX", DataType.BYTE, "TIME");
+		varid_natx.addAttribute(new Attribute("long_name", "Number of transmit antennas"));
+		varid_natx.addAttribute(new Attribute("standard_name", " "));
+		varid_natx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_natx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_natx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_natx.addAttribute(new Attribute("units", "1"));
+		varid_natx.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_natx.addAttribute(new Attribute("valid_max", Byte.parseByte("127")));
+		varid_natx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_natx.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_natx.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_natx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_natx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		// Receive antenna latitudes
+		Variable varid_sltr = dataFile.addVariable(null, "SLTR", DataType.INT, dimsTM);
+		varid_sltr.addAttribute(new Attribute("long_name", "Receive antenna latitudes"));
+		varid_sltr.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_sltr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_sltr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_sltr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_sltr.addAttribute(new Attribute("units", "degree_north"));
+		varid_sltr.addAttribute(new Attribute("valid_min", Integer.parseInt("-90000")));
+		varid_sltr.addAttribute(new Attribute("valid_max", Integer.parseInt("90000")));
+		varid_sltr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_sltr.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_sltr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_sltr.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_sltr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+		varid_sltr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+
+		// Receive antenna longitudes
+		Variable varid_slnr = dataFile.addVariable(null, "SLNR", DataType.INT, dimsTM);
+		varid_slnr.addAttribute(new Attribute("long_name", "Receive antenna longitudes"));
+		varid_slnr.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_slnr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_slnr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_slnr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_slnr.addAttribute(new Attribute("units", "degree_east"));
+		varid_slnr.addAttribute(new Attribute("valid_min", Integer.parseInt("-180000")));
+		varid_slnr.addAttribute(new Attribute("valid_max", Integer.parseInt("180000")));
+		varid_slnr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_slnr.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_slnr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_slnr.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_slnr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+		varid_slnr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+
+		// Transmit antenna latitudes
+		Variable varid_sltt = dataFile.addVariable(null, "SLTT", DataType.INT, dimsTM);
+		varid_sltt.addAttribute(new Attribute("long_name", "Transmit antenna latitudes"));
+		varid_sltt.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_sltt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_sltt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_sltt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_sltt.addAttribute(new Attribute("units", "degree_north"));
+		varid_sltt.addAttribute(new Attribute("valid_min", Integer.parseInt("-90000")));
+		varid_sltt.addAttribute(new Attribute("valid_max", Integer.parseInt("90000")));
+		varid_sltt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_sltt.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_sltt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_sltt.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_sltt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+		varid_sltt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+
+		// Transmit antenna longitudes
+		Variable varid_slnt = dataFile.addVariable(null, "SLNT", DataType.INT, dimsTM);
+		varid_slnt.addAttribute(new Attribute("long_name", "Transmit antenna longitudes"));
+		varid_slnt.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_slnt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_slnt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_slnt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_slnt.addAttribute(new Attribute("units", "degree_east"));
+		varid_slnt.addAttribute(new Attribute("valid_min", Integer.parseInt("-180000")));
+		varid_slnt.addAttribute(new Attribute("valid_max", Integer.parseInt("180000")));
+		varid_slnt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_slnt.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_slnt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_slnt.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_slnt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+		varid_slnt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+
+		// Receive antenna codes
+		Variable varid_scdr = dataFile.addVariable(null, "SCDR", DataType.CHAR, dimsTMS4);
+		varid_scdr.addAttribute(new Attribute("_FillValue", " "));
+		varid_scdr.addAttribute(new Attribute("long_name", "Receive antenna codes"));
+		varid_scdr.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_scdr.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_scdr.addAttribute(new Attribute("units", "1"));
+		varid_scdr.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_scdr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		// Transmit antenna codes
+		Variable varid_scdt = dataFile.addVariable(null, "SCDT", DataType.CHAR, dimsTMS4);
+		varid_scdt.addAttribute(new Attribute("long_name", "Transmit antenna codes"));
+		varid_scdt.addAttribute(new Attribute("units", "1"));
+		varid_scdt.addAttribute(new Attribute("_FillValue", " "));
+		varid_scdt.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_scdt.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_scdt.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_scdt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		// Add QC variables
+
+		// Time QC Flag
+		Variable varid_tqc = dataFile.addVariable(null, "TIME_QC", DataType.BYTE, "TIME");
+		varid_tqc.addAttribute(new Attribute("long_name", "Time quality flag"));
+		varid_tqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_tqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
+						Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
+						Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_tqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_tqc
+				.addAttribute(new Attribute("comment", "OceanSITES quality flagging for temporal coordinate."));
+		varid_tqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_tqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_tqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_tqc.addAttribute(new Attribute("units", "1"));
+		varid_tqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_tqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
+
+		// Position QC Flag
+		Variable varid_posqc = dataFile.addVariable(null, "POSITION_QC", DataType.BYTE, dimsTDBR);
+		varid_posqc.addAttribute(new Attribute("long_name", "Position quality flag"));
+		varid_posqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_posqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
+						Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
+						Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_posqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_posqc
+				.addAttribute(new Attribute("comment", "OceanSITES quality flagging for position coordinates"));
+		varid_posqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_posqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_posqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_posqc.addAttribute(new Attribute("units", "1"));
+		varid_posqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_posqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
+		varid_posqc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+
+		// Depth QC
+		Variable varid_dqc = dataFile.addVariable(null, "DEPH_QC", DataType.BYTE, "TIME");
+		varid_dqc.addAttribute(new Attribute("long_name", "Depth quality flag"));
+		varid_dqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_dqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
+						Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
+						Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_dqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_dqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for depth coordinate."));
+		varid_dqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_dqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_dqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_dqc.addAttribute(new Attribute("units", "1"));
+		varid_dqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_dqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
+
+		// Overal QC flag
+		Variable varid_ovqc = dataFile.addVariable(null, "QCflag", DataType.BYTE, dimsTDBR);
+		varid_ovqc.addAttribute(new Attribute("long_name", "Overall quality flag"));
+		varid_ovqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_ovqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
+						Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
+						Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_ovqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_ovqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for all QC tests."));
+		varid_ovqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_ovqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_ovqc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_ovqc.addAttribute(new Attribute("units", "1"));
+		varid_ovqc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_ovqc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
+		varid_ovqc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+
+		// QC flags of the tests, in the order of the registry
+		for (RadialQCTest test : qcTests) {
+			addQCVariable(dataFile, test.getVariable(), test.isGridded() ? dimsTDBR : dimsT, test.getLongName(),
+					test.getComment(qualityTests));
+		}
+	}
+
+	/**
+	 * Creates the netcdf file in the format and with the compression of the
+	 * profile, or of the bean if the profile does not set them.
+	 * 
+	 * @param fileName
+	 *            output file
+	 * @param profile
+	 *            network profile, may be null
+	 * @return the file in define mode
+	 * @throws IOException
+	 */
+	private NetcdfFileWriter createNetcdfFile(String fileName, CodarRadialBean profile) throws IOException {
+		String format = bean.getNetcdf_format();
+		Integer deflateLevel = bean.getNetcdf_deflate_level();
+		Boolean shuffle = bean.getNetcdf_shuffle();
+		if (profile != null) {
+			if (profile.getNetcdf_format() != null)
+				format = profile.getNetcdf_format();
+			if (profile.getNetcdf_deflate_level() != null)
+				deflateLevel = profile.getNetcdf_deflate_level();
+			if (profile.getNetcdf_shuffle() != null)
+				shuffle = profile.getNetcdf_shuffle();
+		}
+		return CodarUtils.createNetcdfWriter(fileName, format, deflateLevel, shuffle);
+	}
+
+	/**
+	 * Defines a QC flag variable with the attributes of the QC tests.
+	 * 
+	 * @param dataFile
+	 *            netcdf file in define mode
+	 * @param name
+	 *            variable name, e.g. MDFL_QC
+	 * @param dims
+	 *            dimensions, TIME for the tests with a single flag
+	 * @param longName
+	 *            long_name attribute
+	 * @param comment
+	 *            comment attribute
+	 * @return the variable
+	 */
+	private static Variable addQCVariable(NetcdfFileWriter dataFile, String name, List<Dimension> dims,
+			String longName, String comment) {
+		Variable varid_qc = dataFile.addVariable(null, name, DataType.BYTE, dims);
+		varid_qc.addAttribute(new Attribute("long_name", longName));
+		varid_qc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_qc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2),
+						Byte.valueOf((byte) 3), Byte.valueOf((byte) 4), Byte.valueOf((byte) 5),
+						Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_qc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_qc.addAttribute(new Attribute("comment", comment));
+		varid_qc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_qc.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_qc.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_qc.addAttribute(new Attribute("units", "1"));
+		varid_qc.addAttribute(new Attribute("valid_min", Byte.parseByte("0")));
+		varid_qc.addAttribute(new Attribute("valid_max", Byte.parseByte("9")));
+		if (dims.size() > 1)
+			varid_qc.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		return varid_qc;
+	}
+
+	/**
+	 * Writes a variable in the file, or in the aggregated file if the time
+	 * step is appended to it.
+	 */
+	private void write(NetcdfFileWriter dataFile, Variable variable, Array values)
+			throws IOException, InvalidRangeException {
+		if (append == CodarNetcdfAggregator.Append.APPENDED)
+			aggregator.write(variable, values);
+		else
+			dataFile.write(variable, values);
+	}
+
 	public boolean checkBeanRadialTable() {
 		boolean hasError = (this.bean.getTable() == null || this.bean.getTable().isEmpty());
 
@@ -12,13 +12,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import es.azti.codar.beans.CodarTotalBean;
-import es.azti.netcdf.ui.VentanaRunTotalQualityTests;
+import es.azti.codar.qc.QCMetrics;
+import es.azti.codar.qc.QCScheduler;
+import es.azti.codar.qc.QCTestRegistry;
+import es.azti.codar.qc.QCTestRunner;
+import es.azti.codar.qc.QualityTests;
+import es.azti.codar.qc.TotalQCTest;
+import es.azti.codar.qc.TotalQualityTests;
 import es.azti.netcdf.ui.VentanaSaveFichero;
 import es.azti.utils.Lldistkm;
 import es.azti.utils.TableColumnNames;
@@ -31,8 +38,6 @@ import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.Variable;
-import ucar.nc2.write.Nc4Chunking;
-import ucar.nc2.write.Nc4ChunkingStrategy;
 
 /**
  * @author Jose Luis Asensio (jlasensio@azti.es) 19 abril. de 2017
@@ -47,11 +52,56 @@ public class CodarTotalToNetCDF {
 	private static final int SDN_DEPTH_QC_FLAG = 1;
 
 	CodarTotalBean bean;
+	// neighbour time steps, may be null
+	private CodarFrameCache frames;
+	// QC tests run in parallel
+	private QCScheduler scheduler = QCScheduler.SEQUENTIAL;
+	// aggregated file the time step is written in, may be null
+	private CodarNetcdfAggregator aggregator;
+	private String aggregateName;
+	private CodarNetcdfAggregator.Append append;
 
 	public CodarTotalToNetCDF(CodarTotalBean bean) {
 		this.bean = bean;
 	}
 
+	/**
+	 * @param frames
+	 *            files of the batch run already loaded, used by the temporal
+	 *            derivative test.
+	 */
+	public void setFrameCache(CodarFrameCache frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * @param scheduler
+	 *            threads used to run the QC tests.
+	 */
+	public void setScheduler(QCScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * @param aggregator
+	 *            aggregated files of the batch run, null to write the time
+	 *            step in a file of its own
+	 * @param aggregateName
+	 *            aggregated file of the time step
+	 */
+	public void setAggregator(CodarNetcdfAggregator aggregator, String aggregateName) {
+		this.aggregator = aggregator;
+		this.aggregateName = aggregateName;
+	}
+
+	/**
+	 * @return how the time step was appended to the aggregated file, null if
+	 *         it is not aggregated
+	 */
+	public CodarNetcdfAggregator.Append getAppend() {
+		return append;
+	}
+
 	public String getOutputFileName() {
 		JFileChooser fileChooser = new JFileChooser();
 		VentanaSaveFichero vs = new VentanaSaveFichero();
@@ -173,7 +223,8 @@ public class CodarTotalToNetCDF {
 				}
 
 				// TODO: This must be improved the values are aproximated
-				List<Integer> codarToNetcdfIndex = bean.getTable().getTotalTableIndexInNetCdf(xAxisDims, yAxisDims);
+				int[] gridIndex = bean.getTable().getTotalTableIndex(CodarUtils.toFloatArray(xAxisDims),
+						CodarUtils.toFloatArray(yAxisDims));
 
 				List<Float> lonCalc = new ArrayList<Float>(xAxisDims.size());
 				List<Float> latCalc = new ArrayList<Float>(yAxisDims.size());
@@ -187,21 +238,13 @@ public class CodarTotalToNetCDF {
 				// 'total_sea_water_velocity_away_from_instrument'.
 				// CODAR reports positive speeds as toward the radar.
 				// transform cm to m
-				List<Float> veloURead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELU,
-						codarToNetcdfIndex);
-				List<Float> veloVRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELV,
-						codarToNetcdfIndex);
-				List<Float> velo = new ArrayList<Float>(veloURead.size());
-				List<Float> velu = new ArrayList<Float>(veloURead.size());
-				List<Float> velv = new ArrayList<Float>(veloVRead.size());
-				for (Float velTemp : veloURead) {
-					velu.add(Float.valueOf(velTemp / 100));
-				}
-				for (Float velTemp : veloVRead) {
-					velv.add(Float.valueOf(velTemp / 100));
+				float[] velu = bean.getTable().getColumnInOrder(TableColumnNames.VELU, gridIndex);
+				float[] velv = bean.getTable().getColumnInOrder(TableColumnNames.VELV, gridIndex);
+				for (int i = 0; i < velu.length; i++) {
+					velu[i] = velu[i] / 100;
 				}
-				for (int i = 0; i < veloVRead.size(); i++) {
-					velo.add(Float.valueOf((float) Math.sqrt(Math.pow(veloURead.get(i), 2) + Math.pow(veloVRead.get(i), 2))));
+				for (int i = 0; i < velv.length; i++) {
+					velv[i] = velv[i] / 100;
 				}
 
 				String site_code = bean.getNetworkBean().getNetwork_id();
@@ -214,602 +257,29 @@ public class CodarTotalToNetCDF {
 				if (fileName == null)
 					fileName = this.getOutputFileName();
 
-				Nc4Chunking chunker = Nc4ChunkingStrategy.factory(Nc4Chunking.Strategy.standard, 6, true);
-				dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName, chunker);
-
-				Dimension dimid_t = dataFile.addDimension(null, "TIME", 1);
-				Dimension dimid_lat = dataFile.addDimension(null, "LATITUDE", latCalc.size());
-				Dimension dimid_lon = dataFile.addDimension(null, "LONGITUDE", lonCalc.size());
-
-				Dimension dimid_depth = dataFile.addDimension(null, "DEPTH", 1);
-				Dimension dimid_refmax = dataFile.addDimension(null, "REFMAX", CodarTotalToNetCDF.REF_MAX);
-				Dimension dimid_maxsite = dataFile.addDimension(null, "MAXSITE", CodarTotalToNetCDF.MAX_SITE);
-				Dimension dimid_maxinst = dataFile.addDimension(null, "MAXINST", CodarTotalToNetCDF.MAX_SITE);
-				Dimension dimid_string50 = dataFile.addDimension(null, "STRING50", 50);
-				Dimension dimid_string250 = dataFile.addDimension(null, "STRING" + xlink.length(), xlink.length());
-				Dimension dimid_string15 = dataFile.addDimension(null, "STRING15", 15);
-
-				List<Dimension> dimsTDYX = new ArrayList<Dimension>();
-				List<Dimension> dimsT50 = new ArrayList<Dimension>();
-				List<Dimension> dimsT250 = new ArrayList<Dimension>();
-				List<Dimension> dimsTRefMax250 = new ArrayList<Dimension>();
-				List<Dimension> dimsTM = new ArrayList<Dimension>();
-				List<Dimension> dimsTMI = new ArrayList<Dimension>();
-				List<Dimension> dimsTMS15 = new ArrayList<Dimension>();
-
-				dimsTDYX.add(dimid_t);
-				dimsTDYX.add(dimid_depth);
-				dimsTDYX.add(dimid_lat);
-				dimsTDYX.add(dimid_lon);
-
-				dimsT50.add(dimid_t);
-				dimsT50.add(dimid_string50);
-
-				dimsT250.add(dimid_t);
-				dimsT250.add(dimid_string250);
-
-				dimsTRefMax250.add(dimid_t);
-				dimsTRefMax250.add(dimid_refmax);
-				dimsTRefMax250.add(dimid_string250);
-
-				dimsTM.add(dimid_t);
-				dimsTM.add(dimid_maxsite);
-
-				dimsTMI.add(dimid_t);
-				dimsTMI.add(dimid_maxinst);
-
-				dimsTMS15.add(dimid_t);
-				dimsTMS15.add(dimid_maxsite);
-				dimsTMS15.add(dimid_string15);
-
-				Variable varid_t = dataFile.addVariable(null, "TIME", DataType.DOUBLE, "TIME");
-				varid_t.addAttribute(new Attribute("long_name", "Time"));
-				varid_t.addAttribute(new Attribute("standard_name", "time"));
-				varid_t.addAttribute(new Attribute("units", "days since 1950-01-01T00:00:00Z"));
-				varid_t.addAttribute(new Attribute("valid_min", "-90000"));
-				varid_t.addAttribute(new Attribute("valid_max", "90000"));
-				varid_t.addAttribute(new Attribute("calendar", "standard"));
-				varid_t.addAttribute(new Attribute("axis", "T"));
-				varid_t.addAttribute(new Attribute("sdn_parameter_name", "Elapsed time (since 1950-01-01T00:00:00Z)"));
-				varid_t.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ELTJLD01"));
-				varid_t.addAttribute(new Attribute("sdn_uom_name", "Days"));
-				varid_t.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UTAA"));
-				varid_t.addAttribute(new Attribute("ancillary_variables", "TIME_QC"));
-
-				// Latitude
-				Variable varid_lat = dataFile.addVariable(null, "LATITUDE", DataType.FLOAT, "LATITUDE");
-				varid_lat.addAttribute(new Attribute("long_name", "Latitude of each location"));
-				varid_lat.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_lat.addAttribute(new Attribute("axis", "Y"));
-				varid_lat.addAttribute(new Attribute("units", "degree_north"));
-				varid_lat.addAttribute(new Attribute("valid_min", "-90"));
-				varid_lat.addAttribute(new Attribute("valid_max", "90"));
-				varid_lat.addAttribute(new Attribute("grid_mapping", "crs"));
-				varid_lat.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_lat.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_lat.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_lat.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-				varid_lat.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				// Longitude
-				Variable varid_lon = dataFile.addVariable(null, "LONGITUDE", DataType.FLOAT, "LONGITUDE");
-				varid_lon.addAttribute(new Attribute("long_name", "Longitude of each location"));
-				varid_lon.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_lon.addAttribute(new Attribute("units", "degree_east"));
-				varid_lon.addAttribute(new Attribute("valid_min", "-180"));
-				varid_lon.addAttribute(new Attribute("valid_max", "180"));
-				varid_lon.addAttribute(new Attribute("axis", "X"));
-				varid_lon.addAttribute(new Attribute("grid_mapping", "crs"));
-				varid_lon.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_lon.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_lon.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_lon.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-				varid_lon.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
-
-				// crs
-				Variable varid_crs = dataFile.addVariable(null, "crs", DataType.SHORT, new ArrayList<Dimension>(0));
-				varid_crs.addAttribute(new Attribute("grid_mapping_name", "latitude_longitude"));
-				varid_crs.addAttribute(new Attribute("epsg_code", "EPSG:4326"));
-				varid_crs.addAttribute(new Attribute("semi_major_axis", 6378137.0f));
-				varid_crs.addAttribute(new Attribute("inverse_flattening", 298.257223563));
-
-				//// Add SDN namespace variables
-				// To enforce homogeneity in the codes and interoperability with
-				//// SDC, the site_code has to be set equal
-				// to the EDIOS Series id of the HFR network and platform_code
-				//// must include the EDIOS Platform id of the
-				// HFR site, i.e.:
-				// SDN_CRUISE=site_code=EDIOS-Series-id
-				// SDN_STATION=platform_code=EDIOS-Series-id_Total (for total
-				//// current data files)
-				// SDN_STATION=platform_code=EDIOS-Series-id_ EDIOS-Platform-id
-				//// (for radial current data files)
-
-				// SDN_CRUISE
-				Variable varid_sdncruise = dataFile.addVariable(null, "SDN_CRUISE", DataType.CHAR, dimsT50);
-				varid_sdncruise.addAttribute(new Attribute("long_name", "Grid grouping label"));
-
-				// SDN_STATION
-				Variable varid_sdnstation = dataFile.addVariable(null, "SDN_STATION", DataType.CHAR, dimsT50);
-				varid_sdnstation.addAttribute(new Attribute("long_name", "Grid label"));
-
-				// SDN_LOCAL_CDI_ID
-				Variable varid_sdnlocalcdiid = dataFile.addVariable(null, "SDN_LOCAL_CDI_ID", DataType.CHAR, dimsT50);
-				varid_sdnlocalcdiid.addAttribute(new Attribute("long_name", "SeaDataCloud CDI identifier"));
-				varid_sdnlocalcdiid.addAttribute(new Attribute("cf_role", "grid_id"));
-
-				// SDN_EDMO_CODE
-				Variable varid_sdnedmocode = dataFile.addVariable(null, "SDN_EDMO_CODE", DataType.SHORT, dimsTMI);
-				varid_sdnedmocode.addAttribute(new Attribute("long_name", "European Directory of Marine Organisations code for the CDI partner"));
-				varid_sdnedmocode.addAttribute(new Attribute("units", "1"));
-
-				// SDN_REFERENCES
-				Variable varid_sdnreferences = dataFile.addVariable(null, "SDN_REFERENCES", DataType.CHAR, dimsT250);
-				varid_sdnreferences.addAttribute(new Attribute("long_name", "Usage metadata reference"));
-
-				// SDN_XLINK
-				Variable varid_sdnxlink = dataFile.addVariable(null, "SDN_XLINK", DataType.CHAR, dimsTRefMax250);
-				varid_sdnxlink.addAttribute(new Attribute("long_name", "External resource linkages"));
-
-				Variable varid_depth = dataFile.addVariable(null, "DEPH", DataType.FLOAT, "DEPTH");
-				varid_depth.addAttribute(new Attribute("long_name", "Depth"));
-				varid_depth.addAttribute(new Attribute("standard_name", "depth"));
-				varid_depth.addAttribute(new Attribute("_FillValue", "9.96921E36"));
-				varid_depth.addAttribute(new Attribute("units", "m"));
-				varid_depth.addAttribute(new Attribute("valid_min", "-12000"));
-				varid_depth.addAttribute(new Attribute("valid_max", "12000"));
-				varid_depth.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_depth.addAttribute(new Attribute("axis", "Z"));
-				varid_depth.addAttribute(new Attribute("positive", "down"));
-				varid_depth.addAttribute(new Attribute("reference", "sea_level"));
-				varid_depth.addAttribute(new Attribute("sdn_parameter_name", "Depth below surface of the water body"));
-				varid_depth.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ADEPZZ01"));
-				varid_depth.addAttribute(new Attribute("sdn_uom_name", "Metres"));
-				varid_depth.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULAA"));
-				varid_depth.addAttribute(new Attribute("ancillary_variables", "DEPH_QC"));
-
-				// u
-				Variable varid_u = dataFile.addVariable(null, "EWCT", DataType.SHORT, dimsTDYX);
-				varid_u.addAttribute(new Attribute("long_name", "West-east current component"));
-				varid_u.addAttribute(new Attribute("standard_name", "eastward_sea_water_velocity"));
-				varid_u.addAttribute(new Attribute("units", "m s-1"));
-				varid_u.addAttribute(new Attribute("valid_min", "-10000"));
-				varid_u.addAttribute(new Attribute("valid_max", "10000"));
-				varid_u.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_u.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
-				varid_u.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_u.addAttribute(new Attribute("ioos_category", "Currents"));
-				varid_u.addAttribute(new Attribute("coordsys", "geographic"));
-				varid_u.addAttribute(new Attribute("sdn_parameter_name", "Eastward current velocity in the water body"));
-				varid_u.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCEWZZ01"));
-				varid_u.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_u.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_u.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_u.addAttribute(new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
-				varid_u.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_u.addAttribute(new Attribute("ancillary_variables", "QCflag, VART_QC, CSPD_QC, DDNS_QC, GDOP_QC"));
-
-				// v
-				Variable varid_v = dataFile.addVariable(null, "NSCT", DataType.SHORT, dimsTDYX);
-				varid_v.addAttribute(new Attribute("long_name", "South-north current component"));
-				varid_v.addAttribute(new Attribute("standard_name", "northward_sea_water_velocity"));
-				varid_v.addAttribute(new Attribute("units", "m s-1"));
-				varid_v.addAttribute(new Attribute("valid_min", "-10000"));
-				varid_v.addAttribute(new Attribute("valid_max", "10000"));
-				varid_v.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_v.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
-				varid_v.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_v.addAttribute(new Attribute("ioos_category", "Currents"));
-				varid_v.addAttribute(new Attribute("coordsys", "geographic"));
-				varid_v.addAttribute(
-						new Attribute("sdn_parameter_name", "Northward current velocity in the water body"));
-				varid_v.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCNSZZ01"));
-				varid_v.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_v.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_v.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_v.addAttribute(
-						new Attribute("ancillary_variables", "QCflag, VART_QC, CSPD_QC, DDNS_QC, GDOP_QC"));
-				varid_v.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
-				varid_v.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-
-				// standar deviation
-				Variable varid_usd = dataFile.addVariable(null, "EWCS", DataType.SHORT, dimsTDYX);
-				varid_usd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_usd.addAttribute(
-						new Attribute("long_name", "Standard deviation of surface eastward sea water velocity"));
-				varid_usd.addAttribute(new Attribute("standard_name", " "));
-				varid_usd.addAttribute(new Attribute("units", "m s-1"));
-				varid_usd.addAttribute(new Attribute("valid_min", "-10000"));
-				varid_usd.addAttribute(new Attribute("valid_max", "10000"));
-				varid_usd.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_usd.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
-				varid_usd.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_usd.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
-				varid_usd.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_usd.addAttribute(new Attribute("sdn_parameter_name",
-						"Eastward current velocity standard deviation in the water body"));
-				varid_usd.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::SDEWZZZZ"));
-				varid_usd.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_usd.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_usd.addAttribute(new Attribute("ancillary_variables", "QCflag, VART_QC"));
-
-				// standar deviation
-				Variable varid_vsd = dataFile.addVariable(null, "NSCS", DataType.SHORT, dimsTDYX);
-				varid_vsd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_vsd.addAttribute(
-						new Attribute("long_name", "Standard deviation of surface northward sea water velocity"));
-				varid_vsd.addAttribute(new Attribute("standard_name", " "));
-				varid_vsd.addAttribute(new Attribute("units", "m s-1"));
-				varid_vsd.addAttribute(new Attribute("valid_min", "-10000"));
-				varid_vsd.addAttribute(new Attribute("valid_max", "10000"));
-				varid_vsd.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_vsd.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
-				varid_vsd.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_vsd.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
-				varid_vsd.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_vsd.addAttribute(new Attribute("sdn_parameter_name",
-						"Northward current velocity standard deviation in the water body"));
-				varid_vsd.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::SDNSZZZZ"));
-				varid_vsd.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
-				varid_vsd.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
-				varid_vsd.addAttribute(new Attribute("ancillary_variables", "QCflag, VART_QC"));
-
-				// CCOV
-				Variable varid_ccov = dataFile.addVariable(null, "CCOV", DataType.INT, dimsTDYX);
-				varid_ccov.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_ccov.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_ccov.addAttribute(new Attribute("long_name", "Covariance of surface sea water velocity"));
-				varid_ccov.addAttribute(new Attribute("standard_name", " "));
-				varid_ccov.addAttribute(new Attribute("units", "m2 s-2"));
-				varid_ccov.addAttribute(new Attribute("valid_min", ""));
-				varid_ccov.addAttribute(new Attribute("valid_max", ""));
-				varid_ccov.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -10), Integer.valueOf((int) 10))));
-				varid_ccov.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_ccov.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.000001))));
-				varid_ccov.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_ccov.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_ccov.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_ccov.addAttribute(new Attribute("sdn_uom_name", "Square metres per second squared"));
-				varid_ccov.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::SQM2"));
-				varid_ccov.addAttribute(new Attribute("ancillary_variables", "QCflag"));
-
-				// GDOP
-				Variable varid_gdop = dataFile.addVariable(null, "GDOP", DataType.SHORT, dimsTDYX);
-				varid_gdop.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
-				varid_gdop.addAttribute(new Attribute("long_name", "Geometrical dilution of precision"));
-				varid_gdop.addAttribute(new Attribute("standard_name", " "));
-				varid_gdop.addAttribute(new Attribute("units", "1"));
-				varid_gdop.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_gdop.addAttribute(new Attribute("valid_min", "-20000"));
-				varid_gdop.addAttribute(new Attribute("valid_max", "20000"));
-				varid_gdop.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_gdop.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -20), Short.valueOf((short) 20))));
-				varid_gdop.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
-				varid_gdop.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
-				varid_gdop.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
-				varid_gdop.addAttribute(new Attribute("comment",
-						"The Geometric Dilution of PRecision (GDOP) is the coefficient of the uncertainty, "
-								+ "which relates the uncertainties in radial and velocity vectors. The GDOP is a unit-less coefficient, which characterizes "
-								+ "the effect that radar station geometry has on the measurement and positioin determination errors. A low GDOP corresponds "
-								+ "to an optimal geometric configuration of radar stations, and results in accurate surface current data. Essentially GDOP is "
-								+ "a quantitative way to relate the radial an dvelocity vector uncertainties. Setting a threshold on GDOP for total combination "
-								+ "avoids the combination of radials with an intersection angle below a certain value. GDOP is a useful metric for filtering errant "
-								+ "velocities due to poor geometry"));
-				varid_gdop.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_gdop.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_gdop.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_gdop.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-				varid_gdop.addAttribute(new Attribute("ancillary_variables", "QCflag, GDOP_QC"));
-
-				// Add QC variables
-				// Time QC Flag
-				Variable varid_tqc = dataFile.addVariable(null, "TIME_QC", DataType.BYTE, "TIME");
-				varid_tqc.addAttribute(new Attribute("long_name", "Time quality flag"));
-				varid_tqc.addAttribute(new Attribute("units", "1"));
-				varid_tqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_tqc.addAttribute(new Attribute("valid_min", "0"));
-				varid_tqc.addAttribute(new Attribute("valid_max", "9"));
-				varid_tqc.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_tqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_tqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_tqc
-						.addAttribute(new Attribute("comment", "OceanSITES quality flagging for temporal coordinate."));
-				varid_tqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_tqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_tqc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-
-				// Position QC Flag
-				Variable varid_posqc = dataFile.addVariable(null, "POSITION_QC", DataType.BYTE, dimsTDYX);
-				varid_posqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_posqc.addAttribute(new Attribute("long_name", "Position quality flag"));
-				varid_posqc.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_posqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_posqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_posqc
-						.addAttribute(new Attribute("comment", "OceanSITES quality flagging for position coordinates"));
-				varid_posqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_posqc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-				varid_posqc.addAttribute(new Attribute("units", "1"));
-				varid_posqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_posqc.addAttribute(new Attribute("valid_min", "0"));
-				varid_posqc.addAttribute(new Attribute("valid_max", "9"));
-
-				// Depth QC Flag
-				Variable varid_dqc = dataFile.addVariable(null, "DEPH_QC", DataType.BYTE, "TIME");
-				varid_dqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_dqc.addAttribute(new Attribute("long_name", "Depth quality flag"));
-				varid_dqc.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_dqc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_dqc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_dqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for depth coordinate."));
-				varid_dqc.addAttribute(new Attribute("units", "1"));
-				varid_dqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_dqc.addAttribute(new Attribute("valid_min", "0"));
-				varid_dqc.addAttribute(new Attribute("valid_max", "9"));
-				varid_dqc.addAttribute(new Attribute("add_offset", "0"));
-				varid_dqc.addAttribute(new Attribute("scale_factor", "1"));
-
-				// Vector Flag
-				// Overal QC flag
-				Variable varid_vflg = dataFile.addVariable(null, "QCflag", DataType.BYTE, dimsTDYX);
-				varid_vflg.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_vflg.addAttribute(new Attribute("long_name", "Overall quality flag"));
-				varid_vflg.addAttribute(new Attribute("units", "1"));
-				varid_vflg.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_vflg.addAttribute(new Attribute("valid_min", "0"));
-				varid_vflg.addAttribute(new Attribute("valid_max", "9"));
-				varid_vflg.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_vflg.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_vflg.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_vflg.addAttribute(new Attribute("comment", "OceanSITES quality flagging for all QC tests."));
-				varid_vflg.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_vflg.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-
-				// Variance Threshold QC Flag
-				Variable varid_vart = dataFile.addVariable(null, "VART_QC", DataType.BYTE, dimsTDYX);
-				varid_vart.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_vart.addAttribute(new Attribute("long_name", "Variance threshold quality flag"));
-				varid_vart.addAttribute(new Attribute("units", "1"));
-				varid_vart.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_vart.addAttribute(new Attribute("valid_min", "0"));
-				varid_vart.addAttribute(new Attribute("valid_max", "9"));
-				varid_vart.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_vart.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_vart.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_vart.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Variance Threshold QC test. Test not applicable "
-								+ "to Direction Finding Systems. "
-								+ "The Temporal Derivative test is applied. Threshold set to "
-								+ bean.getTotalTest().getVarianceThreshold() + " m2/s2."));
-				varid_vart.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_vart.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-
-				// GDOP Quality flag density_QC
-				Variable varid_gdop_qc = dataFile.addVariable(null, "GDOP_QC", DataType.BYTE, dimsTDYX);
-				varid_gdop_qc.addAttribute(new Attribute("long_name", "GDOP threshold quality flag"));
-				varid_gdop_qc.addAttribute(new Attribute("units", "1"));
-				varid_gdop_qc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_gdop_qc.addAttribute(new Attribute("valid_min", "0"));
-				varid_gdop_qc.addAttribute(new Attribute("valid_max", "9"));
-				varid_gdop_qc.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_gdop_qc.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_gdop_qc.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_gdop_qc.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for GDOP threshold QC test. Threshold set to "
-								+ bean.getTotalTest().getGDOPThreshold()));
-				varid_gdop_qc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_gdop_qc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_gdop_qc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-
-				// Data Density Quality flag density_QC
-				Variable varid_dd = dataFile.addVariable(null, "DDNS_QC", DataType.BYTE, dimsTDYX);
-				varid_dd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_dd.addAttribute(new Attribute("long_name", "Data density threshold quality flag"));
-				varid_dd.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_dd.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_dd.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_dd.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Data Density threshold QC test. Threshold set to contributing radials. Minimun number of contribution is set to: "
-								+ bean.getTotalTest().getDataDensityThreshold()));
-				varid_dd.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_dd.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-				varid_dd.addAttribute(new Attribute("units", "1"));
-				varid_dd.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_dd.addAttribute(new Attribute("valid_min", "0"));
-				varid_dd.addAttribute(new Attribute("valid_max", "9"));
-
-				// Velocity Threshold QC Flag
-				Variable varid_velt = dataFile.addVariable(null, "CSPD_QC", DataType.BYTE, dimsTDYX);
-				varid_velt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_velt.addAttribute(new Attribute("long_name", "Velocity threshold quality flag"));
-				varid_velt.addAttribute(new Attribute("units", "1"));
-				varid_velt.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
-				varid_velt.addAttribute(new Attribute("valid_min", "0"));
-				varid_velt.addAttribute(new Attribute("valid_max", "9"));
-				varid_velt.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
-				varid_velt.addAttribute(new Attribute("flag_values",
-						Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
-								Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
-								Byte.valueOf((byte) 9))));
-				varid_velt.addAttribute(new Attribute("flag_meanings",
-						"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
-				varid_velt.addAttribute(new Attribute("comment",
-						"OceanSITES quality flagging for Velocity Threshold QC test. Threshold set to "
-								+ bean.getTotalTest().getVeloThreshold() + " m/s."));
-				varid_velt.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
-				varid_velt.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
-
-				// Number of received antennas
-				Variable varid_narx = dataFile.addVariable(null, "NARX", DataType.BYTE, "TIME");
-				varid_narx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_narx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_narx.addAttribute(new Attribute("long_name", "Number of receive antennas"));
-				varid_narx.addAttribute(new Attribute("standard_name", " "));
-				varid_narx.addAttribute(new Attribute("units", "1"));
-				varid_narx.addAttribute(new Attribute("valid_min", "0"));
-				varid_narx.addAttribute(new Attribute("valid_max", "127"));
-				varid_narx.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), CodarTotalToNetCDF.MAX_SITE)));
-				varid_narx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_narx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_narx.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_narx.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_narx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_narx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				Variable varid_natx = dataFile.addVariable(null, "NATX", DataType.BYTE, "TIME");
-				varid_natx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
-				varid_natx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_natx.addAttribute(new Attribute("long_name", "Number of transmit antennas"));
-				varid_natx.addAttribute(new Attribute("standard_name", " "));
-				varid_natx.addAttribute(new Attribute("units", "1"));
-				varid_natx.addAttribute(new Attribute("valid_min", "0"));
-				varid_natx.addAttribute(new Attribute("valid_max", "127"));
-				varid_natx.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), CodarTotalToNetCDF.MAX_SITE)));
-				varid_natx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
-				varid_natx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_natx.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_natx.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_natx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_natx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				Variable varid_sltr = dataFile.addVariable(null, "SLTR", DataType.INT, dimsTM);
-				varid_sltr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_sltr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_sltr.addAttribute(new Attribute("long_name", "Receive antenna latitudes"));
-				varid_sltr.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_sltr.addAttribute(new Attribute("units", "degree_north"));
-				varid_sltr.addAttribute(new Attribute("valid_min", "-90000"));
-				varid_sltr.addAttribute(new Attribute("valid_max", "90000"));
-				varid_sltr.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -90), Integer.valueOf((int) 90))));
-				varid_sltr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-				varid_sltr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_sltr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_sltr.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_sltr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_sltr.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_sltr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-
-				Variable varid_slnr = dataFile.addVariable(null, "SLNR", DataType.INT, dimsTM);
-				varid_slnr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_slnr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_slnr.addAttribute(new Attribute("long_name", "Receive antenna longitudes"));
-				varid_slnr.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_slnr.addAttribute(new Attribute("units", "degree_east"));
-				varid_slnr.addAttribute(new Attribute("valid_min", "-180000"));
-				varid_slnr.addAttribute(new Attribute("valid_max", "180000"));
-				varid_slnr.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -180), Integer.valueOf((int) 180))));
-				varid_slnr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-				varid_slnr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_slnr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_slnr.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_slnr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_slnr.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_slnr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-
-				Variable varid_sltt = dataFile.addVariable(null, "SLTT", DataType.INT, dimsTM);
-				varid_sltt.addAttribute(new Attribute("long_name", "Transmit antenna latitudes"));
-				varid_sltt.addAttribute(new Attribute("standard_name", "latitude"));
-				varid_sltt.addAttribute(new Attribute("units", "degree_north"));
-				varid_sltt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_sltt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_sltt.addAttribute(new Attribute("valid_min", "-90000"));
-				varid_sltt.addAttribute(new Attribute("valid_max", "90000"));
-				varid_sltt.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -90), Integer.valueOf((int) 90))));
-				varid_sltt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-				varid_sltt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_sltt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_sltt.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
-				varid_sltt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
-				varid_sltt.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
-				varid_sltt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
-
-				Variable varid_slnt = dataFile.addVariable(null, "SLNT", DataType.INT, dimsTM);
-				varid_slnt.addAttribute(new Attribute("long_name", "Transmit antenna longitudes"));
-				varid_slnt.addAttribute(new Attribute("standard_name", "longitude"));
-				varid_slnt.addAttribute(new Attribute("units", "degree_east"));
-				varid_slnt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
-				varid_slnt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_slnt.addAttribute(new Attribute("valid_min", "-180000"));
-				varid_slnt.addAttribute(new Attribute("valid_max", "180000"));
-				varid_slnt.addAttribute(
-						new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -180), Integer.valueOf((int) 180))));
-				varid_slnt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
-				varid_slnt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
-				varid_slnt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
-				varid_slnt.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
-				varid_slnt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
-				varid_slnt.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
-				varid_slnt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
-
-				// Receive antenna codes
-				Variable varid_scdr = dataFile.addVariable(null, "SCDR", DataType.CHAR, dimsTMS15);
-				varid_scdr.addAttribute(new Attribute("long_name", "Receive antenna codes"));
-				varid_scdr.addAttribute(new Attribute("standard_name", " "));
-				varid_scdr.addAttribute(new Attribute("units", "1"));
-				varid_scdr.addAttribute(new Attribute("_FillValue", " "));
-				varid_scdr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_scdr.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_scdr.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_scdr.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_scdr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
-
-				// Transmit antenna codes
-				Variable varid_scdt = dataFile.addVariable(null, "SCDT", DataType.CHAR, dimsTMS15);
-				varid_scdt.addAttribute(new Attribute("long_name", "Transmit antenna codes"));
-				varid_scdt.addAttribute(new Attribute("standard_name", " "));
-				varid_scdt.addAttribute(new Attribute("units", "1"));
-				varid_scdt.addAttribute(new Attribute("_FillValue", " "));
-				varid_scdt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
-				varid_scdt.addAttribute(new Attribute("sdn_parameter_name", ""));
-				varid_scdt.addAttribute(new Attribute("sdn_parameter_urn", ""));
-				varid_scdt.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
-				varid_scdt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+				dataFile = createNetcdfFile(fileName, profile);
+
+				// QC tests written, their flag variables and the ancillary_variables
+				List<TotalQCTest> qcTests = QCTestRegistry.getTotalTests();
+				// QC tests added as providers, after the ones of JRadar
+				TotalQualityTests qcqaTest = new TotalQualityTests(bean, profile, gridIndex);
+				List<TotalQCTest> extraTests = QCTestRegistry.getTotalExtensions();
+
+				// the dimensions and variables only change with the grid, the
+				// codes and the QC thresholds of the network, written in the
+				// comments of the tests
+				StringBuilder tests = new StringBuilder();
+				for (TotalQCTest test : qcTests)
+					tests.append(test.getVariable()).append(test.isGridded()).append(test.getComment(qcqaTest));
+				String templateKey = CodarNetcdfTemplate.key("total", latCalc.size(), lonCalc.size(), xlink,
+						bean.getData_mode(), tests);
+				CodarNetcdfTemplate template = CodarNetcdfTemplate.get(templateKey);
+				if (template == null) {
+					defineVariables(dataFile, latCalc.size(), lonCalc.size(), xlink, qcTests, qcqaTest);
+					CodarNetcdfTemplate.put(templateKey, dataFile);
+				} else {
+					template.define(dataFile);
+				}
 
 				// MANDATORY ATTRIBUTES
 				// Discovery and Identification
@@ -916,7 +386,7 @@ public class CodarTotalToNetCDF {
 
 				// Conventions used
 				dataFile.addGroupAttribute(null, new Attribute("netcdf_version", bean.getNetcdf_version()));
-				dataFile.addGroupAttribute(null, new Attribute("netcdf_format", bean.getNetcdf_format()));
+				dataFile.addGroupAttribute(null, new Attribute("netcdf_format", dataFile.getVersion().name()));
 
 				// OTHER ATTRIBUTES
 				dataFile.addGroupAttribute(null, new Attribute("metadata_contact", bean.getMetadata_contact()));
@@ -948,9 +418,6 @@ public class CodarTotalToNetCDF {
 				dataFile.addGroupAttribute(null, new Attribute("software_about2",
 						"To get more info about JRadar, write to txelu_ai@hotmail.com"));
 
-				// End the definition mode and start writing data
-				dataFile.create();
-
 				// time dimension, days from 1950 We create a variable of that
 				// date, and calculate de day number.
 				Array timeData = Array.factory(DataType.DOUBLE, new int[] { 1 });
@@ -963,64 +430,112 @@ public class CodarTotalToNetCDF {
 				// diference between timestamp, 1950 and divide by millisec,
 				// sec, min and hours to get days sice 1950
 				timeData.setDouble(0, (((date.getTimeInMillis() - date2.getTimeInMillis()) / (1000.0 * 3600 * 24))));
-				dataFile.write(varid_t, timeData);
+
+				// End the definition mode and start writing data, in the
+				// aggregated file if the time step is appended to it
+				if (aggregator != null)
+					append = aggregator.begin(dataFile, timeData.getDouble(0), aggregateName);
+				if (append == CodarNetcdfAggregator.Append.SKIPPED)
+					break;
+				if (append != CodarNetcdfAggregator.Append.APPENDED)
+					dataFile.create();
+
+				// variables defined by the template
+				Variable varid_t = dataFile.findVariable("TIME");
+				Variable varid_lat = dataFile.findVariable("LATITUDE");
+				Variable varid_lon = dataFile.findVariable("LONGITUDE");
+				Variable varid_crs = dataFile.findVariable("crs");
+				Variable varid_sdncruise = dataFile.findVariable("SDN_CRUISE");
+				Variable varid_sdnstation = dataFile.findVariable("SDN_STATION");
+				Variable varid_sdnlocalcdiid = dataFile.findVariable("SDN_LOCAL_CDI_ID");
+				Variable varid_sdnedmocode = dataFile.findVariable("SDN_EDMO_CODE");
+				Variable varid_sdnreferences = dataFile.findVariable("SDN_REFERENCES");
+				Variable varid_sdnxlink = dataFile.findVariable("SDN_XLINK");
+				Variable varid_depth = dataFile.findVariable("DEPH");
+				Variable varid_u = dataFile.findVariable("EWCT");
+				Variable varid_v = dataFile.findVariable("NSCT");
+				Variable varid_usd = dataFile.findVariable("EWCS");
+				Variable varid_vsd = dataFile.findVariable("NSCS");
+				Variable varid_ccov = dataFile.findVariable("CCOV");
+				Variable varid_gdop = dataFile.findVariable("GDOP");
+				Variable varid_tqc = dataFile.findVariable("TIME_QC");
+				Variable varid_posqc = dataFile.findVariable("POSITION_QC");
+				Variable varid_dqc = dataFile.findVariable("DEPH_QC");
+				Variable varid_vflg = dataFile.findVariable("QCflag");
+				Variable varid_vart = dataFile.findVariable("VART_QC");
+				Variable varid_gdop_qc = dataFile.findVariable("GDOP_QC");
+				Variable varid_dd = dataFile.findVariable("DDNS_QC");
+				Variable varid_velt = dataFile.findVariable("CSPD_QC");
+				Variable varid_narx = dataFile.findVariable("NARX");
+				Variable varid_natx = dataFile.findVariable("NATX");
+				Variable varid_sltr = dataFile.findVariable("SLTR");
+				Variable varid_slnr = dataFile.findVariable("SLNR");
+				Variable varid_sltt = dataFile.findVariable("SLTT");
+				Variable varid_slnt = dataFile.findVariable("SLNT");
+				Variable varid_scdr = dataFile.findVariable("SCDR");
+				Variable varid_scdt = dataFile.findVariable("SCDT");
+				List<Variable> varid_extra = new ArrayList<Variable>(extraTests.size());
+				for (TotalQCTest test : extraTests)
+					varid_extra.add(dataFile.findVariable(test.getVariable()));
+
+				write(dataFile, varid_t, timeData);
 				timeData = null;
-				dataFile.write(varid_depth, CodarUtils.transformCollectionInMultidimensionalFloatArray(
+				write(dataFile, varid_depth, CodarUtils.transformCollectionInMultidimensionalFloatArray(
 						Arrays.asList(Float.valueOf(0)), varid_depth.getDimensions()));
 
-				dataFile.write(varid_lat, CodarUtils.transformCollectionInArray(latCalc));
-				dataFile.write(varid_lon, CodarUtils.transformCollectionInArray(lonCalc));
+				write(dataFile, varid_lat, CodarUtils.transformCollectionInArray(latCalc));
+				write(dataFile, varid_lon, CodarUtils.transformCollectionInArray(lonCalc));
 
-				dataFile.write(varid_crs, CodarUtils.transformCollectionInMultidimensionalShortArray(
+				write(dataFile, varid_crs, CodarUtils.transformCollectionInMultidimensionalShortArray(
 						Arrays.asList(Float.valueOf(0)), varid_crs.getDimensions(), 1));
-				dataFile.write(varid_sdncruise,
+				write(dataFile, varid_sdncruise,
 						CodarUtils.transformStringIntoArrayChar(site_code, varid_sdncruise.getDimensions()));
-				dataFile.write(varid_sdnstation,
+				write(dataFile, varid_sdnstation,
 						CodarUtils.transformStringIntoArrayChar(platform_code, varid_sdnstation.getDimensions()));
-				dataFile.write(varid_sdnlocalcdiid,
+				write(dataFile, varid_sdnlocalcdiid,
 						CodarUtils.transformStringIntoArrayChar(dataID, varid_sdnlocalcdiid.getDimensions()));
-				dataFile.write(varid_sdnedmocode,
+				write(dataFile, varid_sdnedmocode,
 						CodarUtils.transformCollectionInMultidimensionalShortArray(
 								Arrays.asList(Float.valueOf(bean.getNetworkBean().getEDMO_code_As_Short())),
 								varid_sdnedmocode.getDimensions(), 1));
-				dataFile.write(varid_sdnreferences,
+				write(dataFile, varid_sdnreferences,
 						CodarUtils.transformStringIntoArrayChar(TDS_catalog, varid_sdnreferences.getDimensions()));
-				dataFile.write(varid_sdnxlink,
+				write(dataFile, varid_sdnxlink,
 						CodarUtils.transformStringIntoArrayChar(xlink, varid_sdnxlink.getDimensions()));
 
 				// vel_u
-				Array arrayVelU = CodarUtils.transformCollectionInMultidimensionalShortArray(velu,
-						varid_u.getDimensions(), 1000);
-				dataFile.write(varid_u, arrayVelU);
+				Array arrayVelU = CodarUtils.transformFloatArrayInMultidimensionalArray(velu,
+						varid_u.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_u, arrayVelU);
 
 				// vel_v
-				Array arrayVelV = CodarUtils.transformCollectionInMultidimensionalShortArray(velv,
-						varid_v.getDimensions(), 1000);
-				dataFile.write(varid_v, arrayVelV);
+				Array arrayVelV = CodarUtils.transformFloatArrayInMultidimensionalArray(velv,
+						varid_v.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_v, arrayVelV);
 
 				// ewcs east standar deviation u StdDev
-				List<Float> ewcs = bean.getTable().getColumnElementsInOrder(TableColumnNames.UQAL, codarToNetcdfIndex);
-				Array ewcsData = CodarUtils.transformCollectionInMultidimensionalShortArray(ewcs,
-						varid_usd.getDimensions(), 1000);
-				dataFile.write(varid_usd, ewcsData);
+				float[] ewcs = bean.getTable().getColumnInOrder(TableColumnNames.UQAL, gridIndex);
+				Array ewcsData = CodarUtils.transformFloatArrayInMultidimensionalArray(ewcs,
+						varid_usd.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_usd, ewcsData);
 
 				// nscs north standar deviation v StdDev
-				List<Float> nscs = bean.getTable().getColumnElementsInOrder(TableColumnNames.VQAL, codarToNetcdfIndex);
-				Array nscsData = CodarUtils.transformCollectionInMultidimensionalShortArray(nscs,
-						varid_vsd.getDimensions(), 1000);
-				dataFile.write(varid_vsd, nscsData);
+				float[] nscs = bean.getTable().getColumnInOrder(TableColumnNames.VQAL, gridIndex);
+				Array nscsData = CodarUtils.transformFloatArrayInMultidimensionalArray(nscs,
+						varid_vsd.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_vsd, nscsData);
 
 				// covariance quality
-				List<Float> ccov = bean.getTable().getColumnElementsInOrder(TableColumnNames.CQAL, codarToNetcdfIndex);
-				Array ccovData = CodarUtils.transformCollectionInMultidimensionalIntArray(ccov,
-						varid_ccov.getDimensions(), 1000000);
-				dataFile.write(varid_ccov, ccovData);
+				float[] ccov = bean.getTable().getColumnInOrder(TableColumnNames.CQAL, gridIndex);
+				Array ccovData = CodarUtils.transformFloatArrayInMultidimensionalArray(ccov,
+						varid_ccov.getDimensions(), DataType.INT, 1000000);
+				write(dataFile, varid_ccov, ccovData);
 
 				// GDOP
-				List<Float> gdop = bean.getTable().getColumnElementsInOrder(TableColumnNames.CQAL, codarToNetcdfIndex);
-				Array gdopData = CodarUtils.transformCollectionInMultidimensionalShortArray(gdop,
-						varid_gdop.getDimensions(), 1000);
-				dataFile.write(varid_gdop, gdopData);
+				float[] gdop = bean.getTable().getColumnInOrder(TableColumnNames.CQAL, gridIndex);
+				Array gdopData = CodarUtils.transformFloatArrayInMultidimensionalArray(gdop,
+						varid_gdop.getDimensions(), DataType.SHORT, 1000);
+				write(dataFile, varid_gdop, gdopData);
 
 				ArrayList<String> sites = bean.getSiteSource();
 				List<Float> slat = new ArrayList<Float>(sites.size());
@@ -1048,101 +563,89 @@ public class CodarTotalToNetCDF {
 						scodData.setChar(ima.set(0, j, x), aa);
 					}
 				}
-				dataFile.write(varid_narx, CodarUtils.transformCollectionInMultidimensionalByteArray(
+				write(dataFile, varid_narx, CodarUtils.transformCollectionInMultidimensionalByteArray(
 						Arrays.asList(Float.valueOf(slat.size())), varid_narx.getDimensions()));
-				dataFile.write(varid_natx, CodarUtils.transformCollectionInMultidimensionalByteArray(
+				write(dataFile, varid_natx, CodarUtils.transformCollectionInMultidimensionalByteArray(
 						Arrays.asList(Float.valueOf(slat.size())), varid_natx.getDimensions()));
 				Array slatData = CodarUtils.transformCollectionInMultidimensionalIntArray(slat,
 						varid_sltr.getDimensions(), 1000);
 				Array slotData = CodarUtils.transformCollectionInMultidimensionalIntArray(slon,
 						varid_slnr.getDimensions(), 1000);
 
-				dataFile.write(varid_sltr, slatData);
-				dataFile.write(varid_slnr, slotData);
-				dataFile.write(varid_sltt, slatData);
-				dataFile.write(varid_slnt, slotData);
+				write(dataFile, varid_sltr, slatData);
+				write(dataFile, varid_slnr, slotData);
+				write(dataFile, varid_sltt, slatData);
+				write(dataFile, varid_slnt, slotData);
 
-				dataFile.write(varid_scdr, scodData);
-				dataFile.write(varid_scdt, scodData);
+				write(dataFile, varid_scdr, scodData);
+				write(dataFile, varid_scdt, scodData);
 
 				// QC flags
-				dataFile.write(varid_tqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
+				write(dataFile, varid_tqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
 						Arrays.asList(Float.valueOf(CodarTotalToNetCDF.SDN_TIME_QC_FLAG)), varid_tqc.getDimensions()));
-				List<Float> sdnPosFlag = new ArrayList<Float>(velu.size());
-				for (Float vtemp : velu) {
-					if (Float.isNaN(vtemp)) {
-						sdnPosFlag.add(Float.NaN);
-					} else {
-						sdnPosFlag.add(Float.valueOf(1));
-					}
+				float[] sdnPosFlag = new float[velu.length];
+				for (int i = 0; i < velu.length; i++) {
+					sdnPosFlag[i] = Float.isNaN(velu[i]) ? Float.NaN : 1;
 				}
-				dataFile.write(varid_posqc, CodarUtils.transformCollectionInMultidimensionalByteArray(sdnPosFlag,
-						varid_posqc.getDimensions()));
-				dataFile.write(varid_dqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
+				write(dataFile, varid_posqc, CodarUtils.transformFloatArrayInMultidimensionalArray(sdnPosFlag,
+						varid_posqc.getDimensions(), DataType.BYTE, 1));
+				write(dataFile, varid_dqc, CodarUtils.transformCollectionInMultidimensionalByteArray(
 						Arrays.asList(Float.valueOf(CodarTotalToNetCDF.SDN_DEPTH_QC_FLAG)), varid_dqc.getDimensions()));
 
-				// QA - QC flags
-				VentanaRunTotalQualityTests qcqaTest = new VentanaRunTotalQualityTests(bean);
+				// QA - QC flags, the slower tests are started first and the
+				// rest run meanwhile
+				qcqaTest.setFrameCache(frames);
+				Map<String, float[]> qcFlags = new QCTestRunner<TotalQualityTests>(scheduler,
+						QCMetrics.getDefault(), site_code).run(qcTests, qcqaTest);
 
 				// Velocity Threshold Quality Test columna 12?
-				List<Float> velocityThreshold_QCflag = qcqaTest.runThresholdTest(velo,
-						bean.getTotalTest().getVeloThreshold());
-				Array array_velt = CodarUtils.transformCollectionInMultidimensionalByteArray(velocityThreshold_QCflag,
-						varid_velt.getDimensions());
-				dataFile.write(varid_velt, array_velt);
+				Array array_velt = CodarUtils.transformFloatArrayInMultidimensionalArray(qcFlags.get("CSPD_QC"),
+						varid_velt.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_velt, array_velt);
 
 				// DD quality test
-				List<Float> ddThreshold = qcqaTest.runDataDensityTest(bean.getTotalTest().getDataDensityThreshold(),
-						profile);
-				Array array_dd = CodarUtils.transformCollectionInMultidimensionalByteArray(ddThreshold,
-						varid_dd.getDimensions());
-				dataFile.write(varid_dd, array_dd);
+				Array array_dd = CodarUtils.transformFloatArrayInMultidimensionalArray(qcFlags.get("DDNS_QC"),
+						varid_dd.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_dd, array_dd);
 
 				// GDOP Quality Test
-				List<Float> gdopThreshold_QCflag = qcqaTest.runThresholdTest(
-						bean.getTable().getColumnElementsInOrder(TableColumnNames.CQAL, codarToNetcdfIndex),
-						bean.getTotalTest().getGDOPThreshold());
-				Array array_gdop = CodarUtils.transformCollectionInMultidimensionalByteArray(gdopThreshold_QCflag,
-						varid_gdop_qc.getDimensions());
-				dataFile.write(varid_gdop_qc, array_gdop);
+				Array array_gdop = CodarUtils.transformFloatArrayInMultidimensionalArray(qcFlags.get("GDOP_QC"),
+						varid_gdop_qc.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_gdop_qc, array_gdop);
 
 				// Temporal derivative test
-				List<Float> tderThreshold_QCFlags = qcqaTest.runTempDerivativeTest(profile);
-				Array array_tder = CodarUtils.transformCollectionInMultidimensionalByteArray(tderThreshold_QCFlags,
-						varid_vart.getDimensions());
-				dataFile.write(varid_vart, array_tder);
+				Array array_tder = CodarUtils.transformFloatArrayInMultidimensionalArray(qcFlags.get("VART_QC"),
+						varid_vart.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_vart, array_tder);
+
+				// QC tests added as providers
+				for (int i = 0; i < extraTests.size(); i++) {
+					write(dataFile, varid_extra.get(i),
+							CodarUtils.transformFloatArrayInMultidimensionalArray(
+									qcFlags.get(extraTests.get(i).getVariable()), varid_extra.get(i).getDimensions(),
+									DataType.BYTE, 1));
+				}
 
 				// Este QC es la suma logica del resto. Si todo est bien, este
 				// est bien, si alguno esta mal, este esta mal.
-				List<Float> overal_QCflag = new ArrayList<Float>(gdopThreshold_QCflag.size());
-				for (int i = 0; i < gdopThreshold_QCflag.size(); i++) {
-					if (gdopThreshold_QCflag.get(i).floatValue() == 1 && tderThreshold_QCFlags.get(i).floatValue() == 1
-							&& velocityThreshold_QCflag.get(i).floatValue() == 1
-							&& ddThreshold.get(i).floatValue() == 1) {
-						overal_QCflag.add(Float.valueOf(1));
-					} else if (gdopThreshold_QCflag.get(i).floatValue() == 9
-							&& tderThreshold_QCFlags.get(i).floatValue() == 9
-							&& velocityThreshold_QCflag.get(i).floatValue() == 9
-							&& ddThreshold.get(i).floatValue() == 9) {
-						overal_QCflag.add(Float.valueOf(9));
-					} else if (gdopThreshold_QCflag.get(i).floatValue() == 0
-							&& tderThreshold_QCFlags.get(i).floatValue() == 0
-							&& velocityThreshold_QCflag.get(i).floatValue() == 0
-							&& ddThreshold.get(i).floatValue() == 0) {
-						overal_QCflag.add(Float.valueOf(0));
-					} else if (gdopThreshold_QCflag.get(i).isNaN() && tderThreshold_QCFlags.get(i).isNaN()
-							&& velocityThreshold_QCflag.get(i).isNaN() && ddThreshold.get(i).isNaN()) {
-						overal_QCflag.add(Float.NaN);
-					} else {
-						overal_QCflag.add(Float.valueOf(4));
-					}
-
+				List<float[]> gridded = new ArrayList<float[]>(qcTests.size());
+				List<Float> scalar = new ArrayList<Float>();
+				for (TotalQCTest test : qcTests) {
+					if (test.isGridded())
+						gridded.add(qcFlags.get(test.getVariable()));
+					else
+						scalar.add(qcFlags.get(test.getVariable())[0]);
 				}
-				Array array_ovqc = CodarUtils.transformCollectionInMultidimensionalByteArray(overal_QCflag,
-						varid_vflg.getDimensions());
-				dataFile.write(varid_vflg, array_ovqc);
+				float[] overal_QCflag = QualityTests.overall(gridded.toArray(new float[gridded.size()][]),
+						CodarUtils.toFloatArray(scalar));
+				Array array_ovqc = CodarUtils.transformFloatArrayInMultidimensionalArray(overal_QCflag,
+						varid_vflg.getDimensions(), DataType.BYTE, 1);
+				write(dataFile, varid_vflg, array_ovqc);
 
-				dataFile.close();
+				if (append == CodarNetcdfAggregator.Append.APPENDED)
+					aggregator.end();
+				else
+					dataFile.close();
 
 				if (fixed) {
 					errorCode = 6;
@@ -1168,6 +671,613 @@ public class CodarTotalToNetCDF {
 		return errorCode;
 	}
 
+	/**
+	 * Defines the dimensions and the variables of the file, with their
+	 * attributes.
+	 * 
+	 * @param dataFile
+	 *            netcdf file in define mode
+	 * @param lats
+	 *            length of the LATITUDE dimension
+	 * @param lons
+	 *            length of the LONGITUDE dimension
+	 * @param xlink
+	 *            sdn_reference of the metadata page
+	 * @param qcTests
+	 *            QC tests written, for their flag variables and the
+	 *            ancillary_variables
+	 * @param qcqaTest
+	 *            input of the QC tests, for their comments
+	 */
+	private void defineVariables(NetcdfFileWriter dataFile, int lats, int lons, String xlink,
+			List<TotalQCTest> qcTests, TotalQualityTests qcqaTest) {
+		Dimension dimid_t = dataFile.addDimension(null, "TIME", 1);
+		Dimension dimid_lat = dataFile.addDimension(null, "LATITUDE", lats);
+		Dimension dimid_lon = dataFile.addDimension(null, "LONGITUDE", lons);
+
+		Dimension dimid_depth = dataFile.addDimension(null, "DEPTH", 1);
+		Dimension dimid_refmax = dataFile.addDimension(null, "REFMAX", CodarTotalToNetCDF.REF_MAX);
+		Dimension dimid_maxsite = dataFile.addDimension(null, "MAXSITE", CodarTotalToNetCDF.MAX_SITE);
+		Dimension dimid_maxinst = dataFile.addDimension(null, "MAXINST", CodarTotalToNetCDF.MAX_SITE);
+		Dimension dimid_string50 = dataFile.addDimension(null, "STRING50", 50);
+		Dimension dimid_string250 = dataFile.addDimension(null, "STRING" + xlink.length(), xlink.length());
+		Dimension dimid_string15 = dataFile.addDimension(null, "STRING15", 15);
+
+		List<Dimension> dimsTDYX = new ArrayList<Dimension>();
+		List<Dimension> dimsT50 = new ArrayList<Dimension>();
+		List<Dimension> dimsT250 = new ArrayList<Dimension>();
+		List<Dimension> dimsTRefMax250 = new ArrayList<Dimension>();
+		List<Dimension> dimsTM = new ArrayList<Dimension>();
+		List<Dimension> dimsTMI = new ArrayList<Dimension>();
+		List<Dimension> dimsTMS15 = new ArrayList<Dimension>();
+
+		dimsTDYX.add(dimid_t);
+		dimsTDYX.add(dimid_depth);
+		dimsTDYX.add(dimid_lat);
+		dimsTDYX.add(dimid_lon);
+
+		dimsT50.add(dimid_t);
+		dimsT50.add(dimid_string50);
+
+		dimsT250.add(dimid_t);
+		dimsT250.add(dimid_string250);
+
+		dimsTRefMax250.add(dimid_t);
+		dimsTRefMax250.add(dimid_refmax);
+		dimsTRefMax250.add(dimid_string250);
+
+		dimsTM.add(dimid_t);
+		dimsTM.add(dimid_maxsite);
+
+		dimsTMI.add(dimid_t);
+		dimsTMI.add(dimid_maxinst);
+
+		dimsTMS15.add(dimid_t);
+		dimsTMS15.add(dimid_maxsite);
+		dimsTMS15.add(dimid_string15);
+
+		Variable varid_t = dataFile.addVariable(null, "TIME", DataType.DOUBLE, "TIME");
+		varid_t.addAttribute(new Attribute("long_name", "Time"));
+		varid_t.addAttribute(new Attribute("standard_name", "time"));
+		varid_t.addAttribute(new Attribute("units", "days since 1950-01-01T00:00:00Z"));
+		varid_t.addAttribute(new Attribute("valid_min", "-90000"));
+		varid_t.addAttribute(new Attribute("valid_max", "90000"));
+		varid_t.addAttribute(new Attribute("calendar", "standard"));
+		varid_t.addAttribute(new Attribute("axis", "T"));
+		varid_t.addAttribute(new Attribute("sdn_parameter_name", "Elapsed time (since 1950-01-01T00:00:00Z)"));
+		varid_t.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ELTJLD01"));
+		varid_t.addAttribute(new Attribute("sdn_uom_name", "Days"));
+		varid_t.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UTAA"));
+		varid_t.addAttribute(new Attribute("ancillary_variables", "TIME_QC"));
+
+		// Latitude
+		Variable varid_lat = dataFile.addVariable(null, "LATITUDE", DataType.FLOAT, "LATITUDE");
+		varid_lat.addAttribute(new Attribute("long_name", "Latitude of each location"));
+		varid_lat.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_lat.addAttribute(new Attribute("axis", "Y"));
+		varid_lat.addAttribute(new Attribute("units", "degree_north"));
+		varid_lat.addAttribute(new Attribute("valid_min", "-90"));
+		varid_lat.addAttribute(new Attribute("valid_max", "90"));
+		varid_lat.addAttribute(new Attribute("grid_mapping", "crs"));
+		varid_lat.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_lat.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_lat.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_lat.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+		varid_lat.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		// Longitude
+		Variable varid_lon = dataFile.addVariable(null, "LONGITUDE", DataType.FLOAT, "LONGITUDE");
+		varid_lon.addAttribute(new Attribute("long_name", "Longitude of each location"));
+		varid_lon.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_lon.addAttribute(new Attribute("units", "degree_east"));
+		varid_lon.addAttribute(new Attribute("valid_min", "-180"));
+		varid_lon.addAttribute(new Attribute("valid_max", "180"));
+		varid_lon.addAttribute(new Attribute("axis", "X"));
+		varid_lon.addAttribute(new Attribute("grid_mapping", "crs"));
+		varid_lon.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_lon.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_lon.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_lon.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+		varid_lon.addAttribute(new Attribute("ancillary_variables", "POSITION_QC"));
+
+		// crs
+		Variable varid_crs = dataFile.addVariable(null, "crs", DataType.SHORT, new ArrayList<Dimension>(0));
+		varid_crs.addAttribute(new Attribute("grid_mapping_name", "latitude_longitude"));
+		varid_crs.addAttribute(new Attribute("epsg_code", "EPSG:4326"));
+		varid_crs.addAttribute(new Attribute("semi_major_axis", 6378137.0f));
+		varid_crs.addAttribute(new Attribute("inverse_flattening", 298.257223563));
+
+		//// Add SDN namespace variables
+		// To enforce homogeneity in the codes and interoperability with
+		//// SDC, the site_code has to be set equal
+		// to the EDIOS Series id of the HFR network and platform_code
+		//// must include the EDIOS Platform id of the
+		// HFR site, i.e.:
+		// SDN_CRUISE=site_code=EDIOS-Series-id
+		// SDN_STATION=platform_code=EDIOS-Series-id_Total (for total
+		//// current data files)
+		// SDN_STATION=platform_code=EDIOS-Series-id_ EDIOS-Platform-id
+		//// (for radial current data files)
+
+		// SDN_CRUISE
+		Variable varid_sdncruise = dataFile.addVariable(null, "SDN_CRUISE", DataType.CHAR, dimsT50);
+		varid_sdncruise.addAttribute(new Attribute("long_name", "Grid grouping label"));
+
+		// SDN_STATION
+		Variable varid_sdnstation = dataFile.addVariable(null, "SDN_STATION", DataType.CHAR, dimsT50);
+		varid_sdnstation.addAttribute(new Attribute("long_name", "Grid label"));
+
+		// SDN_LOCAL_CDI_ID
+		Variable varid_sdnlocalcdiid = dataFile.addVariable(null, "SDN_LOCAL_CDI_ID", DataType.CHAR, dimsT50);
+		varid_sdnlocalcdiid.addAttribute(new Attribute("long_name", "SeaDataCloud CDI identifier"));
+		varid_sdnlocalcdiid.addAttribute(new Attribute("cf_role", "grid_id"));
+
+		// SDN_EDMO_CODE
+		Variable varid_sdnedmocode = dataFile.addVariable(null, "SDN_EDMO_CODE", DataType.SHORT, dimsTMI);
+		varid_sdnedmocode.addAttribute(new Attribute("long_name", "European Directory of Marine Organisations code for the CDI partner"));
+		varid_sdnedmocode.addAttribute(new Attribute("units", "1"));
+
+		// SDN_REFERENCES
+		Variable varid_sdnreferences = dataFile.addVariable(null, "SDN_REFERENCES", DataType.CHAR, dimsT250);
+		varid_sdnreferences.addAttribute(new Attribute("long_name", "Usage metadata reference"));
+
+		// SDN_XLINK
+		Variable varid_sdnxlink = dataFile.addVariable(null, "SDN_XLINK", DataType.CHAR, dimsTRefMax250);
+		varid_sdnxlink.addAttribute(new Attribute("long_name", "External resource linkages"));
+
+		Variable varid_depth = dataFile.addVariable(null, "DEPH", DataType.FLOAT, "DEPTH");
+		varid_depth.addAttribute(new Attribute("long_name", "Depth"));
+		varid_depth.addAttribute(new Attribute("standard_name", "depth"));
+		varid_depth.addAttribute(new Attribute("_FillValue", "9.96921E36"));
+		varid_depth.addAttribute(new Attribute("units", "m"));
+		varid_depth.addAttribute(new Attribute("valid_min", "-12000"));
+		varid_depth.addAttribute(new Attribute("valid_max", "12000"));
+		varid_depth.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_depth.addAttribute(new Attribute("axis", "Z"));
+		varid_depth.addAttribute(new Attribute("positive", "down"));
+		varid_depth.addAttribute(new Attribute("reference", "sea_level"));
+		varid_depth.addAttribute(new Attribute("sdn_parameter_name", "Depth below surface of the water body"));
+		varid_depth.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ADEPZZ01"));
+		varid_depth.addAttribute(new Attribute("sdn_uom_name", "Metres"));
+		varid_depth.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::ULAA"));
+		varid_depth.addAttribute(new Attribute("ancillary_variables", "DEPH_QC"));
+
+		// u
+		Variable varid_u = dataFile.addVariable(null, "EWCT", DataType.SHORT, dimsTDYX);
+		varid_u.addAttribute(new Attribute("long_name", "West-east current component"));
+		varid_u.addAttribute(new Attribute("standard_name", "eastward_sea_water_velocity"));
+		varid_u.addAttribute(new Attribute("units", "m s-1"));
+		varid_u.addAttribute(new Attribute("valid_min", "-10000"));
+		varid_u.addAttribute(new Attribute("valid_max", "10000"));
+		varid_u.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_u.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
+		varid_u.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_u.addAttribute(new Attribute("ioos_category", "Currents"));
+		varid_u.addAttribute(new Attribute("coordsys", "geographic"));
+		varid_u.addAttribute(new Attribute("sdn_parameter_name", "Eastward current velocity in the water body"));
+		varid_u.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCEWZZ01"));
+		varid_u.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_u.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_u.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_u.addAttribute(new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
+		varid_u.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_u.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("EWCT", qcTests)));
+
+		// v
+		Variable varid_v = dataFile.addVariable(null, "NSCT", DataType.SHORT, dimsTDYX);
+		varid_v.addAttribute(new Attribute("long_name", "South-north current component"));
+		varid_v.addAttribute(new Attribute("standard_name", "northward_sea_water_velocity"));
+		varid_v.addAttribute(new Attribute("units", "m s-1"));
+		varid_v.addAttribute(new Attribute("valid_min", "-10000"));
+		varid_v.addAttribute(new Attribute("valid_max", "10000"));
+		varid_v.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_v.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
+		varid_v.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_v.addAttribute(new Attribute("ioos_category", "Currents"));
+		varid_v.addAttribute(new Attribute("coordsys", "geographic"));
+		varid_v.addAttribute(
+				new Attribute("sdn_parameter_name", "Northward current velocity in the water body"));
+		varid_v.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::LCNSZZ01"));
+		varid_v.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_v.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_v.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_v.addAttribute(
+				new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("NSCT", qcTests)));
+		varid_v.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
+		varid_v.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+
+		// standar deviation
+		Variable varid_usd = dataFile.addVariable(null, "EWCS", DataType.SHORT, dimsTDYX);
+		varid_usd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_usd.addAttribute(
+				new Attribute("long_name", "Standard deviation of surface eastward sea water velocity"));
+		varid_usd.addAttribute(new Attribute("standard_name", " "));
+		varid_usd.addAttribute(new Attribute("units", "m s-1"));
+		varid_usd.addAttribute(new Attribute("valid_min", "-10000"));
+		varid_usd.addAttribute(new Attribute("valid_max", "10000"));
+		varid_usd.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_usd.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
+		varid_usd.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_usd.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
+		varid_usd.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_usd.addAttribute(new Attribute("sdn_parameter_name",
+				"Eastward current velocity standard deviation in the water body"));
+		varid_usd.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::SDEWZZZZ"));
+		varid_usd.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_usd.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_usd.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("EWCS", qcTests)));
+
+		// standar deviation
+		Variable varid_vsd = dataFile.addVariable(null, "NSCS", DataType.SHORT, dimsTDYX);
+		varid_vsd.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_vsd.addAttribute(
+				new Attribute("long_name", "Standard deviation of surface northward sea water velocity"));
+		varid_vsd.addAttribute(new Attribute("standard_name", " "));
+		varid_vsd.addAttribute(new Attribute("units", "m s-1"));
+		varid_vsd.addAttribute(new Attribute("valid_min", "-10000"));
+		varid_vsd.addAttribute(new Attribute("valid_max", "10000"));
+		varid_vsd.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_vsd.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -10), Short.valueOf((short) 10))));
+		varid_vsd.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_vsd.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
+		varid_vsd.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_vsd.addAttribute(new Attribute("sdn_parameter_name",
+				"Northward current velocity standard deviation in the water body"));
+		varid_vsd.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::SDNSZZZZ"));
+		varid_vsd.addAttribute(new Attribute("sdn_uom_name", "Metres per second"));
+		varid_vsd.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UVAA"));
+		varid_vsd.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("NSCS", qcTests)));
+
+		// CCOV
+		Variable varid_ccov = dataFile.addVariable(null, "CCOV", DataType.INT, dimsTDYX);
+		varid_ccov.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_ccov.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_ccov.addAttribute(new Attribute("long_name", "Covariance of surface sea water velocity"));
+		varid_ccov.addAttribute(new Attribute("standard_name", " "));
+		varid_ccov.addAttribute(new Attribute("units", "m2 s-2"));
+		varid_ccov.addAttribute(new Attribute("valid_min", ""));
+		varid_ccov.addAttribute(new Attribute("valid_max", ""));
+		varid_ccov.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -10), Integer.valueOf((int) 10))));
+		varid_ccov.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_ccov.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.000001))));
+		varid_ccov.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_ccov.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_ccov.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_ccov.addAttribute(new Attribute("sdn_uom_name", "Square metres per second squared"));
+		varid_ccov.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::SQM2"));
+		varid_ccov.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("CCOV", qcTests)));
+
+		// GDOP
+		Variable varid_gdop = dataFile.addVariable(null, "GDOP", DataType.SHORT, dimsTDYX);
+		varid_gdop.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT));
+		varid_gdop.addAttribute(new Attribute("long_name", "Geometrical dilution of precision"));
+		varid_gdop.addAttribute(new Attribute("standard_name", " "));
+		varid_gdop.addAttribute(new Attribute("units", "1"));
+		varid_gdop.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_gdop.addAttribute(new Attribute("valid_min", "-20000"));
+		varid_gdop.addAttribute(new Attribute("valid_max", "20000"));
+		varid_gdop.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_gdop.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Short.valueOf((short) -20), Short.valueOf((short) 20))));
+		varid_gdop.addAttribute(new Attribute("coordinates", "TIME DEPH LATITUDE LONGITUDE"));
+		varid_gdop.addAttribute(new Attribute("scale_factor", Arrays.asList(Double.valueOf(0.001))));
+		varid_gdop.addAttribute(new Attribute("add_offset", Arrays.asList(Double.valueOf(0))));
+		varid_gdop.addAttribute(new Attribute("comment",
+				"The Geometric Dilution of PRecision (GDOP) is the coefficient of the uncertainty, "
+						+ "which relates the uncertainties in radial and velocity vectors. The GDOP is a unit-less coefficient, which characterizes "
+						+ "the effect that radar station geometry has on the measurement and positioin determination errors. A low GDOP corresponds "
+						+ "to an optimal geometric configuration of radar stations, and results in accurate surface current data. Essentially GDOP is "
+						+ "a quantitative way to relate the radial an dvelocity vector uncertainties. Setting a threshold on GDOP for total combination "
+						+ "avoids the combination of radials with an intersection angle below a certain value. GDOP is a useful metric for filtering errant "
+						+ "velocities due to poor geometry"));
+		varid_gdop.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_gdop.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_gdop.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_gdop.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+		varid_gdop.addAttribute(new Attribute("ancillary_variables", QCTestRegistry.ancillaryVariables("GDOP", qcTests)));
+
+		// Add QC variables
+		// Time QC Flag
+		Variable varid_tqc = dataFile.addVariable(null, "TIME_QC", DataType.BYTE, "TIME");
+		varid_tqc.addAttribute(new Attribute("long_name", "Time quality flag"));
+		varid_tqc.addAttribute(new Attribute("units", "1"));
+		varid_tqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_tqc.addAttribute(new Attribute("valid_min", "0"));
+		varid_tqc.addAttribute(new Attribute("valid_max", "9"));
+		varid_tqc.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
+		varid_tqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
+						Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_tqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_tqc
+				.addAttribute(new Attribute("comment", "OceanSITES quality flagging for temporal coordinate."));
+		varid_tqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_tqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
+		varid_tqc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
+
+		// Position QC Flag
+		Variable varid_posqc = dataFile.addVariable(null, "POSITION_QC", DataType.BYTE, dimsTDYX);
+		varid_posqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_posqc.addAttribute(new Attribute("long_name", "Position quality flag"));
+		varid_posqc.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
+		varid_posqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
+						Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_posqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_posqc
+				.addAttribute(new Attribute("comment", "OceanSITES quality flagging for position coordinates"));
+		varid_posqc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
+		varid_posqc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
+		varid_posqc.addAttribute(new Attribute("units", "1"));
+		varid_posqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_posqc.addAttribute(new Attribute("valid_min", "0"));
+		varid_posqc.addAttribute(new Attribute("valid_max", "9"));
+
+		// Depth QC Flag
+		Variable varid_dqc = dataFile.addVariable(null, "DEPH_QC", DataType.BYTE, "TIME");
+		varid_dqc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_dqc.addAttribute(new Attribute("long_name", "Depth quality flag"));
+		varid_dqc.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
+		varid_dqc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
+						Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_dqc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_dqc.addAttribute(new Attribute("comment", "OceanSITES quality flagging for depth coordinate."));
+		varid_dqc.addAttribute(new Attribute("units", "1"));
+		varid_dqc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_dqc.addAttribute(new Attribute("valid_min", "0"));
+		varid_dqc.addAttribute(new Attribute("valid_max", "9"));
+		varid_dqc.addAttribute(new Attribute("add_offset", "0"));
+		varid_dqc.addAttribute(new Attribute("scale_factor", "1"));
+
+		// Vector Flag
+		// Overal QC flag
+		Variable varid_vflg = dataFile.addVariable(null, "QCflag", DataType.BYTE, dimsTDYX);
+		varid_vflg.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_vflg.addAttribute(new Attribute("long_name", "Overall quality flag"));
+		varid_vflg.addAttribute(new Attribute("units", "1"));
+		varid_vflg.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_vflg.addAttribute(new Attribute("valid_min", "0"));
+		varid_vflg.addAttribute(new Attribute("valid_max", "9"));
+		varid_vflg.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
+		varid_vflg.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
+						Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_vflg.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_vflg.addAttribute(new Attribute("comment", "OceanSITES quality flagging for all QC tests."));
+		varid_vflg.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
+		varid_vflg.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
+
+		// QC flags of the tests, in the order of the registry
+		for (TotalQCTest test : qcTests) {
+			addQCVariable(dataFile, test.getVariable(), test.isGridded() ? dimsTDYX : Arrays.asList(dimid_t),
+					test.getLongName(), test.getComment(qcqaTest));
+		}
+
+		// Number of received antennas
+		Variable varid_narx = dataFile.addVariable(null, "NARX", DataType.BYTE, "TIME");
+		varid_narx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_narx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_narx.addAttribute(new Attribute("long_name", "Number of receive antennas"));
+		varid_narx.addAttribute(new Attribute("standard_name", " "));
+		varid_narx.addAttribute(new Attribute("units", "1"));
+		varid_narx.addAttribute(new Attribute("valid_min", "0"));
+		varid_narx.addAttribute(new Attribute("valid_max", "127"));
+		varid_narx.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), CodarTotalToNetCDF.MAX_SITE)));
+		varid_narx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_narx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_narx.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_narx.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_narx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_narx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		Variable varid_natx = dataFile.addVariable(null, "NATX", DataType.BYTE, "TIME");
+		varid_natx.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_natx.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_natx.addAttribute(new Attribute("long_name", "Number of transmit antennas"));
+		varid_natx.addAttribute(new Attribute("standard_name", " "));
+		varid_natx.addAttribute(new Attribute("units", "1"));
+		varid_natx.addAttribute(new Attribute("valid_min", "0"));
+		varid_natx.addAttribute(new Attribute("valid_max", "127"));
+		varid_natx.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), CodarTotalToNetCDF.MAX_SITE)));
+		varid_natx.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf(1))));
+		varid_natx.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_natx.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_natx.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_natx.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_natx.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		Variable varid_sltr = dataFile.addVariable(null, "SLTR", DataType.INT, dimsTM);
+		varid_sltr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_sltr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_sltr.addAttribute(new Attribute("long_name", "Receive antenna latitudes"));
+		varid_sltr.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_sltr.addAttribute(new Attribute("units", "degree_north"));
+		varid_sltr.addAttribute(new Attribute("valid_min", "-90000"));
+		varid_sltr.addAttribute(new Attribute("valid_max", "90000"));
+		varid_sltr.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -90), Integer.valueOf((int) 90))));
+		varid_sltr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+		varid_sltr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_sltr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_sltr.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_sltr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_sltr.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_sltr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+
+		Variable varid_slnr = dataFile.addVariable(null, "SLNR", DataType.INT, dimsTM);
+		varid_slnr.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_slnr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_slnr.addAttribute(new Attribute("long_name", "Receive antenna longitudes"));
+		varid_slnr.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_slnr.addAttribute(new Attribute("units", "degree_east"));
+		varid_slnr.addAttribute(new Attribute("valid_min", "-180000"));
+		varid_slnr.addAttribute(new Attribute("valid_max", "180000"));
+		varid_slnr.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -180), Integer.valueOf((int) 180))));
+		varid_slnr.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+		varid_slnr.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_slnr.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_slnr.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_slnr.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_slnr.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_slnr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+
+		Variable varid_sltt = dataFile.addVariable(null, "SLTT", DataType.INT, dimsTM);
+		varid_sltt.addAttribute(new Attribute("long_name", "Transmit antenna latitudes"));
+		varid_sltt.addAttribute(new Attribute("standard_name", "latitude"));
+		varid_sltt.addAttribute(new Attribute("units", "degree_north"));
+		varid_sltt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_sltt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_sltt.addAttribute(new Attribute("valid_min", "-90000"));
+		varid_sltt.addAttribute(new Attribute("valid_max", "90000"));
+		varid_sltt.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -90), Integer.valueOf((int) 90))));
+		varid_sltt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+		varid_sltt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_sltt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_sltt.addAttribute(new Attribute("sdn_parameter_name", "Latitude north"));
+		varid_sltt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALATZZ01"));
+		varid_sltt.addAttribute(new Attribute("sdn_uom_name", "Degrees north"));
+		varid_sltt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGN"));
+
+		Variable varid_slnt = dataFile.addVariable(null, "SLNT", DataType.INT, dimsTM);
+		varid_slnt.addAttribute(new Attribute("long_name", "Transmit antenna longitudes"));
+		varid_slnt.addAttribute(new Attribute("standard_name", "longitude"));
+		varid_slnt.addAttribute(new Attribute("units", "degree_east"));
+		varid_slnt.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT));
+		varid_slnt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_slnt.addAttribute(new Attribute("valid_min", "-180000"));
+		varid_slnt.addAttribute(new Attribute("valid_max", "180000"));
+		varid_slnt.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Integer.valueOf((int) -180), Integer.valueOf((int) 180))));
+		varid_slnt.addAttribute(new Attribute("coordinates", "TIME MAXSITE"));
+		varid_slnt.addAttribute(new Attribute("scale_factor", Arrays.asList(Float.valueOf((float) 0.001))));
+		varid_slnt.addAttribute(new Attribute("add_offset", Arrays.asList(Float.valueOf(0))));
+		varid_slnt.addAttribute(new Attribute("sdn_parameter_name", "Longitude east"));
+		varid_slnt.addAttribute(new Attribute("sdn_parameter_urn", "SDN:P01::ALONZZ01"));
+		varid_slnt.addAttribute(new Attribute("sdn_uom_name", "Degrees east"));
+		varid_slnt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::DEGE"));
+
+		// Receive antenna codes
+		Variable varid_scdr = dataFile.addVariable(null, "SCDR", DataType.CHAR, dimsTMS15);
+		varid_scdr.addAttribute(new Attribute("long_name", "Receive antenna codes"));
+		varid_scdr.addAttribute(new Attribute("standard_name", " "));
+		varid_scdr.addAttribute(new Attribute("units", "1"));
+		varid_scdr.addAttribute(new Attribute("_FillValue", " "));
+		varid_scdr.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_scdr.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_scdr.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_scdr.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_scdr.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+
+		// Transmit antenna codes
+		Variable varid_scdt = dataFile.addVariable(null, "SCDT", DataType.CHAR, dimsTMS15);
+		varid_scdt.addAttribute(new Attribute("long_name", "Transmit antenna codes"));
+		varid_scdt.addAttribute(new Attribute("standard_name", " "));
+		varid_scdt.addAttribute(new Attribute("units", "1"));
+		varid_scdt.addAttribute(new Attribute("_FillValue", " "));
+		varid_scdt.addAttribute(new Attribute("data_mode", bean.getData_mode()));
+		varid_scdt.addAttribute(new Attribute("sdn_parameter_name", ""));
+		varid_scdt.addAttribute(new Attribute("sdn_parameter_urn", ""));
+		varid_scdt.addAttribute(new Attribute("sdn_uom_name", "Dimensionless"));
+		varid_scdt.addAttribute(new Attribute("sdn_uom_urn", "SDN:P06::UUUU"));
+	}
+
+	/**
+	 * Creates the netcdf file in the format and with the compression of the
+	 * profile, or of the bean if the profile does not set them.
+	 * 
+	 * @param fileName
+	 *            output file
+	 * @param profile
+	 *            network profile, may be null
+	 * @return the file in define mode
+	 * @throws IOException
+	 */
+	private NetcdfFileWriter createNetcdfFile(String fileName, CodarTotalBean profile) throws IOException {
+		String format = bean.getNetcdf_format();
+		Integer deflateLevel = bean.getNetcdf_deflate_level();
+		Boolean shuffle = bean.getNetcdf_shuffle();
+		if (profile != null) {
+			if (profile.getNetcdf_format() != null)
+				format = profile.getNetcdf_format();
+			if (profile.getNetcdf_deflate_level() != null)
+				deflateLevel = profile.getNetcdf_deflate_level();
+			if (profile.getNetcdf_shuffle() != null)
+				shuffle = profile.getNetcdf_shuffle();
+		}
+		return CodarUtils.createNetcdfWriter(fileName, format, deflateLevel, shuffle);
+	}
+
+	/**
+	 * Defines a QC flag variable with the attributes of the QC tests.
+	 * 
+	 * @param dataFile
+	 *            netcdf file in define mode
+	 * @param name
+	 *            variable name, e.g. GDOP_QC
+	 * @param dims
+	 *            dimensions, TIME for the tests with a single flag
+	 * @param longName
+	 *            long_name attribute
+	 * @param comment
+	 *            comment attribute
+	 * @return the variable
+	 */
+	private static Variable addQCVariable(NetcdfFileWriter dataFile, String name, List<Dimension> dims,
+			String longName, String comment) {
+		Variable varid_qc = dataFile.addVariable(null, name, DataType.BYTE, dims);
+		varid_qc.addAttribute(new Attribute("_FillValue", ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE));
+		varid_qc.addAttribute(new Attribute("long_name", longName));
+		varid_qc.addAttribute(new Attribute("units", "1"));
+		varid_qc.addAttribute(new Attribute("conventions", "Copernicus Marine In Situ reference table 2"));
+		varid_qc.addAttribute(new Attribute("valid_min", "0"));
+		varid_qc.addAttribute(new Attribute("valid_max", "9"));
+		varid_qc.addAttribute(
+				new Attribute("valid_range", Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 9))));
+		varid_qc.addAttribute(new Attribute("flag_values",
+				Arrays.asList(Byte.valueOf((byte) 0), Byte.valueOf((byte) 1), Byte.valueOf((byte) 2), Byte.valueOf((byte) 3),
+						Byte.valueOf((byte) 4), Byte.valueOf((byte) 5), Byte.valueOf((byte) 6), Byte.valueOf((byte) 7), Byte.valueOf((byte) 8),
+						Byte.valueOf((byte) 9))));
+		varid_qc.addAttribute(new Attribute("flag_meanings",
+				"no_qc_performed good_data probably_good_data bad_data_that_are_potentially_correctable bad_data value_changed value_below_detection nominal_value interpolated_value missing_value"));
+		varid_qc.addAttribute(new Attribute("comment", comment));
+		varid_qc.addAttribute(new Attribute("scale_factor", Arrays.asList(Byte.valueOf((byte) 1))));
+		varid_qc.addAttribute(new Attribute("add_offset", Arrays.asList(Byte.valueOf((byte) 0))));
+		return varid_qc;
+	}
+
+	/**
+	 * Writes a variable in the file, or in the aggregated file if the time
+	 * step is appended to it.
+	 */
+	private void write(NetcdfFileWriter dataFile, Variable variable, Array values)
+			throws IOException, InvalidRangeException {
+		if (append == CodarNetcdfAggregator.Append.APPENDED)
+			aggregator.write(variable, values);
+		else
+			dataFile.write(variable, values);
+	}
+
 	public boolean checkBeanTotalTable() {
 		boolean hasError = (this.bean.getTable() == null || this.bean.getTable().isEmpty());
 
@@ -4,18 +4,15 @@
  */
 package es.azti.codar.utils;
 
-import java.io.BufferedReader;
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
 import java.util.TimeZone;
@@ -29,19 +26,16 @@ import es.azti.codar.beans.CodarTotalBean;
 import es.azti.codar.beans.RadialQCQATestBean;
 import es.azti.codar.beans.TotalQCQATestBean;
 import es.azti.utils.Lldistkm;
-import net.sf.geographiclib.Geodesic;
-import net.sf.geographiclib.GeodesicData;
 import es.azti.codar.beans.CodarDataTableBean;
+import es.azti.codar.beans.CodarTableBlockBean;
 import ucar.ma2.Array;
-import ucar.ma2.ArrayByte;
 import ucar.ma2.ArrayChar;
-import ucar.ma2.ArrayDouble;
-import ucar.ma2.ArrayFloat;
-import ucar.ma2.ArrayInt;
-import ucar.ma2.ArrayShort;
 import ucar.ma2.DataType;
 import ucar.ma2.Index;
 import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.jni.netcdf.Nc4Iosp;
+import ucar.nc2.write.Nc4Chunking;
 
 /**
  * @author Jose Luis Asensio (jlasensio@azti.es) 18 de may. de 2016
@@ -53,11 +47,14 @@ public class CodarUtils {
 	// logger
 	private static Logger log = Logger.getLogger(CodarUtils.class);
 
+	// null until the netcdf C library is looked for
+	private static Boolean netcdf4Available;
+
 	/**
 	 * load a total codar file into a Bean
 	 * 
 	 * @param codarFile
-	 *            File refering to a .tuv file.
+	 *            File refering to a .tuv or .tuv.gz file.
 	 * @param props
 	 *            codar.properties file loaded, the attributes we are loading
 	 *            are defined there.
@@ -65,95 +62,48 @@ public class CodarUtils {
 	 * @throws ParseException
 	 */
 	public static CodarTotalBean loadCodarTotalData(File codarFile, Properties props) throws ParseException {
+		return loadCodarTotalData(new CodarInput(codarFile), props);
+	}
+
+	/**
+	 * load a total codar file, plain, gzipped or stored in a zip archive, into a
+	 * Bean
+	 * 
+	 * @param codarInput
+	 *            .tuv file to load
+	 * @param props
+	 *            codar.properties file loaded, the attributes we are loading
+	 *            are defined there.
+	 * @return A compete CodarTotalBean with the required information.
+	 * @throws ParseException
+	 */
+	public static CodarTotalBean loadCodarTotalData(CodarInput codarInput, Properties props) throws ParseException {
 
 		CodarTotalBean data = new CodarTotalBean();
-		HashMap<String, String> propiedades = new HashMap<String, String>();
-		for (Object id : props.keySet()) {
-			String name = (String) id;
-			String value = props.getProperty(name);
-			propiedades.put(value, name);
-		}
+		final CodarHeaderDispatcher setters = CodarHeaderDispatcher.getDispatcher(CodarTotalBean.class, props);
 
 		// start loading data
-		BufferedReader reader;
 		try {
-			reader = new BufferedReader(new FileReader(codarFile));
-			data.setFileName(codarFile.getName());
-			data.setPathToFile(codarFile.getAbsolutePath());
-			String currentLine;
-
-			while ((currentLine = reader.readLine()) != null) {
-				// locate readed property
-				String[] nameValue = currentLine.split(": ");
-				if (nameValue.length > 1) {
-					String name = nameValue[0];
-					if (name.startsWith("%"))
-						name = name.substring(1);
-					if (props.containsValue(name)) {
-						// locate and store using generic setters.
-						try {
-							String setter = "set" + propiedades.get(name).substring(21);
-							Method method = CodarTotalBean.class.getMethod(setter, new Class[] { String.class });
-							method.invoke(data, nameValue[1]);
-						} catch (IllegalAccessException e) {
-							log.error("Illegal Acces - attribute not set", e);
-						} catch (IllegalArgumentException e) {
-							log.error("Illegal argument - attribute not set", e);
-						} catch (InvocationTargetException e) {
-							log.error("Target error  - attribute not set", e);
-						} catch (NoSuchMethodException e) {
-							log.error("Getter not found - attribute not set", e);
-						} catch (SecurityException e) {
-							log.error("Security error - attribute not set", e);
-						}
-					} else if (name.startsWith("SiteSource")) {
-						data.addSiteSource(nameValue[1]);
-					} else if (name.contains("Table")) {
-						// TODO improve talbe data loading section
-						CodarDataTableBean rtb = new CodarDataTableBean();
-						ArrayList<Float[]> datos = new ArrayList<Float[]>();
-						while (currentLine != null & !currentLine.startsWith("%TableEnd:")) {
-							// TODO duplicated code in radials, check if
-							// refactoring is possible.
-							name = nameValue[0];
-							if (name.startsWith("%"))
-								name = name.substring(1);
-							if (name.equals("TableType") && nameValue.length > 1) {
-								rtb.setType(nameValue[1]);
-							} else if (name.equals("TableColumns") && nameValue.length > 1) {
-								rtb.setColumns(Integer.parseInt(nameValue[1]));
-							} else if (name.equals("TableColumnTypes") && nameValue.length > 1) {
-								rtb.setColumnTypes((nameValue[1]).split(" "));
-							} else if (name.equals("TableRows") && nameValue.length > 1) {
-								rtb.setRows(Integer.parseInt(nameValue[1]));
-							} else if (!name.startsWith("%") && !name.startsWith("TableStart")) {
-								String[] tempData = ((name.trim()).split("\\s+"));
-								// check if the data is part of the data table
-								// and there are not corrupt lines with less
-								// columns
-								if (tempData.length == rtb.getColumns() && rtb.getType().contains("LLUV TOT")) {
-									Float[] tempFloat = new Float[tempData.length];
-									for (int i = 0; i < tempData.length; i++) {
-										try {
-											tempFloat[i] = Float.parseFloat(tempData[i]);
-										} catch (NumberFormatException ex) {
-											log.error("Error loading data", ex);
-										}
-									}
-									datos.add(tempFloat);
-								}
+			data.setFileName(codarInput.getName());
+			data.setPathToFile(codarInput.getPath());
+			final CodarTotalBean bean = data;
+			List<CodarTableBlockBean> blocks = new ArrayList<CodarTableBlockBean>();
+			CodarDataTableBean rtb = CodarLLUVParser.parse(codarInput.read(), "LLUV TOT",
+					new CodarLLUVParser.HeaderListener() {
+						@Override
+						public boolean header(String name, String value) {
+							if (setters.set(bean, name, value)) {
+								return true;
+							} else if (name.startsWith("SiteSource")) {
+								bean.addSiteSource(value);
+								return true;
 							}
-							currentLine = reader.readLine();
-							nameValue = currentLine.split(": ");
+							return false;
 						}
-						// for now.
-						if (rtb.getType().contains("LLUV TOT")) {
-							rtb.setData(datos.toArray(new Float[rtb.getRows()][rtb.getColumns()]));
-							data.setTable(rtb);
-						}
-					}
-				}
-			}
+					}, blocks);
+			if (rtb != null)
+				data.setTable(rtb);
+			data.setTableBlocks(blocks);
 			data.setTotalTest(new TotalQCQATestBean());
 			SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
 			SimpleDateFormat hourFormat = new SimpleDateFormat("HH:mm:ss");
@@ -185,13 +135,11 @@ public class CodarUtils {
 			data.setId(siteCode + '_' + fileTime.substring(0, 10).replaceAll("_", "-") + "_"
 					+ fileTime.substring(11, 13) + 'Z');
 
-			reader.close();
-
 		} catch (FileNotFoundException e) {
-			JOptionPane.showMessageDialog(null, "We could not find CODAR file");
+			showMessage("We could not find CODAR file");
 			log.error("CODAR file not found", e);
 		} catch (IOException e) {
-			JOptionPane.showMessageDialog(null, "We could not read CODAR file");
+			showMessage("We could not read CODAR file");
 			log.error("Error trying to read CODAR file", e);
 		}
 		return data;
@@ -201,7 +149,7 @@ public class CodarUtils {
 	 * load a radial codar file into a Bean
 	 * 
 	 * @param codarFile
-	 *            File refering to a .ruv file.
+	 *            File refering to a .ruv or .ruv.gz file.
 	 * @param props
 	 *            codar.properties file loaded, the attributes we are loading
 	 *            are defined there.
@@ -210,95 +158,42 @@ public class CodarUtils {
 	 */
 
 	public static CodarRadialBean loadCodarRadialData(File codarFile, Properties props) throws ParseException {
+		return loadCodarRadialData(new CodarInput(codarFile), props);
+	}
 
-		CodarRadialBean data = new CodarRadialBean();
-
-		HashMap<String, String> propiedades = new HashMap<String, String>();
-		for (Object id : props.keySet()) {
-			String name = (String) id;
-			String value = props.getProperty(name);
+	/**
+	 * load a radial codar file, plain, gzipped or stored in a zip archive, into a
+	 * Bean
+	 * 
+	 * @param codarInput
+	 *            .ruv file to load
+	 * @param props
+	 *            codar.properties file loaded, the attributes we are loading
+	 *            are defined there.
+	 * @return A compete CodarRadialBean with the required information.
+	 * @throws ParseException
+	 */
+	public static CodarRadialBean loadCodarRadialData(CodarInput codarInput, Properties props) throws ParseException {
 
-			propiedades.put(value, name);
-		}
+		CodarRadialBean data = new CodarRadialBean();
+		final CodarHeaderDispatcher setters = CodarHeaderDispatcher.getDispatcher(CodarRadialBean.class, props);
 
 		// start loading data
-		BufferedReader reader;
 		try {
-			reader = new BufferedReader(new FileReader(codarFile));
-			data.setFileName(codarFile.getName());
-			data.setPathToFile(codarFile.getAbsolutePath());
-			String currentLine;
-
-			while ((currentLine = reader.readLine()) != null) {
-				// locate readed property
-				String[] nameValue = currentLine.split(": ");
-				if (nameValue.length > 1) {
-					String name = nameValue[0];
-					if (name.startsWith("%"))
-						name = name.substring(1);
-					if (props.containsValue(name)) {
-						// locate and store using generic setters.
-						try {
-							String setter = "set" + propiedades.get(name).substring(21);
-							Method method = CodarRadialBean.class.getMethod(setter, new Class[] { String.class });
-							method.invoke(data, nameValue[1]);
-						} catch (IllegalAccessException e) {
-							log.error("Illegal Acces - attribute not set", e);
-						} catch (IllegalArgumentException e) {
-							log.error("Illegal argument - attribute not set", e);
-						} catch (InvocationTargetException e) {
-							log.error("Target error  - attribute not set", e);
-						} catch (NoSuchMethodException e) {
-							log.error("Getter not found - attribute not set", e);
-						} catch (SecurityException e) {
-							log.error("Security error - attribute not set", e);
-						}
-					} else if (name.contains("Table")) {
-						// TODO improve table data loading
-						CodarDataTableBean rtb = new CodarDataTableBean();
-						ArrayList<Float[]> datos = new ArrayList<Float[]>();
-						while (currentLine != null & !currentLine.startsWith("%TableEnd:")) {
-							// TODO duplicated code in total loading methond,
-							// refactorize.
-							name = nameValue[0];
-							if (name.startsWith("%"))
-								name = name.substring(1);
-							if (name.equals("TableType") && nameValue.length > 1) {
-								rtb.setType(nameValue[1]);
-							} else if (name.equals("TableColumns") && nameValue.length > 1) {
-								rtb.setColumns(Integer.parseInt(nameValue[1]));
-							} else if (name.equals("TableColumnTypes") && nameValue.length > 1) {
-								rtb.setColumnTypes((nameValue[1]).split(" "));
-							} else if (name.equals("TableRows") && nameValue.length > 1) {
-								rtb.setRows(Integer.parseInt(nameValue[1]));
-							} else if (!name.startsWith("%") && !name.startsWith("TableStart")) {
-								String[] tempData = ((name.trim()).split("\\s+"));
-								// check if the table is the correct one and
-								// that the lines are not corrupt
-								// the column number must fit.
-								if (tempData.length == rtb.getColumns() && rtb.getType().contains("LLUV RDL")) {
-									Float[] tempFloat = new Float[tempData.length];
-									for (int i = 0; i < tempData.length; i++) {
-										try {
-											tempFloat[i] = Float.parseFloat(tempData[i]);
-										} catch (NumberFormatException ex) {
-											log.error("Error loading data", ex);
-										}
-									}
-									datos.add(tempFloat);
-								}
-							}
-							currentLine = reader.readLine();
-							nameValue = currentLine.split(": ");
+			data.setFileName(codarInput.getName());
+			data.setPathToFile(codarInput.getPath());
+			final CodarRadialBean bean = data;
+			List<CodarTableBlockBean> blocks = new ArrayList<CodarTableBlockBean>();
+			CodarDataTableBean rtb = CodarLLUVParser.parse(codarInput.read(), "LLUV RDL",
+					new CodarLLUVParser.HeaderListener() {
+						@Override
+						public boolean header(String name, String value) {
+							return setters.set(bean, name, value);
 						}
-						// for now
-						if (rtb.getType().contains("LLUV RDL")) {
-							rtb.setData(datos.toArray(new Float[rtb.getRows()][rtb.getColumns()]));
-							data.setTable(rtb);
-						}
-					}
-				}
-			}
+					}, blocks);
+			if (rtb != null)
+				data.setTable(rtb);
+			data.setTableBlocks(blocks);
 			data.setRadialTest(new RadialQCQATestBean());
 
 			SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
@@ -331,18 +226,91 @@ public class CodarUtils {
 			data.setId(siteCode + '_' + fileTime.substring(0, 10).replaceAll("_", "-") + "_"
 					+ fileTime.substring(11, 13) + 'Z');
 
-			reader.close();
-
 		} catch (FileNotFoundException e) {
-			JOptionPane.showMessageDialog(null, "We could not find CODAR file");
+			showMessage("We could not find CODAR file");
 			log.error("CODAR file not found", e);
 		} catch (IOException e) {
-			JOptionPane.showMessageDialog(null, "We could not read CODAR file");
+			showMessage("We could not read CODAR file");
 			log.error("Error trying to read CODAR file", e);
 		}
 		return data;
 	}
 
+	/**
+	 * Loads on demand a secondary table of a radial file already loaded, like
+	 * the radial (rads) or receiver (rcvr) diagnostics. The file is not parsed
+	 * again, only the lines of the table are read.
+	 * 
+	 * @param bean
+	 *            radial file loaded with loadCodarRadialData
+	 * @param tableType
+	 *            "rads", "rcvr"...
+	 * @return the table, null if the file does not contain it or it could not
+	 *         be read.
+	 */
+	public static CodarDataTableBean loadCodarDiagnosticTable(CodarRadialBean bean, String tableType) {
+		CodarTableBlockBean block = bean.getTableBlock(tableType);
+		if (block == null)
+			return null;
+		try {
+			CodarInput input = CodarInput.forPath(bean.getPathToFile());
+			if (input.isCompressed())
+				return CodarLLUVParser.readTable(input.read(), block);
+			return CodarLLUVParser.readTable(input.getFile(), block);
+		} catch (IOException e) {
+			log.error("Error trying to read " + tableType + " table of " + bean.getPathToFile(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Shows an error message to the user, only if there is a display. In
+	 * console or batch mode the errors are only logged.
+	 * 
+	 * @param message
+	 *            message to show
+	 */
+	private static void showMessage(String message) {
+		if (!GraphicsEnvironment.isHeadless())
+			JOptionPane.showMessageDialog(null, message);
+	}
+
+	/**
+	 * @param data
+	 *            list of floats
+	 * @return the values as a primitive array
+	 */
+	public static float[] toFloatArray(List<Float> data) {
+		float[] array = new float[data.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = data.get(i);
+		return array;
+	}
+
+	/**
+	 * @param data
+	 *            list of integers, like the codar to netcdf index
+	 * @return the values as a primitive array
+	 */
+	public static int[] toIntArray(List<Integer> data) {
+		int[] array = new int[data.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = data.get(i);
+		return array;
+	}
+
+	/**
+	 * @param data
+	 *            primitive array
+	 * @return the values as a list, used by the netcdf writers
+	 */
+	public static List<Float> toFloatList(float[] data) {
+		List<Float> list = new ArrayList<Float>(data.length);
+		for (float value : data)
+			list.add(value);
+		return list;
+	}
+
 	/**
 	 * method to transform data in a 1D array TODO check if a multidimension
 	 * array generic method could be implemented.
@@ -370,84 +338,7 @@ public class CodarUtils {
 	 * @return multidimensional Float array from 1D to 4D
 	 */
 	public static Array transformCollectionInMultidimensionalFloatArray(List<Float> data, List<Dimension> dimensions) {
-		ArrayFloat A = null;
-		if (dimensions.size() == 0) {
-			//nada
-			A = new ArrayFloat.D0();
-		} else if (dimensions.size() == 1) {
-			Dimension dimid_1 = dimensions.get(0);
-			A = new ArrayFloat.D1(dimid_1.getLength());
-			Index ima = A.getIndex();
-			// 1D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				if (i < data.size())
-					A.setFloat(ima.set(i), (float) (data.get(i)));
-				else {
-					A.setFloat(ima.set(i), Float.NaN);
-				}
-			}
-		} else if (dimensions.size() == 2) {
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-
-			A = new ArrayFloat.D2(dimid_1.getLength(), dimid_2.getLength());
-			Index ima = A.getIndex();
-			// 2D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					if (j + i * dimid_2.getLength() < data.size())
-						A.setFloat(ima.set(i, j), (float) (data.get(j + i * dimid_2.getLength())));
-					else {
-						A.setFloat(ima.set(i, j), Float.NaN);
-					}
-				}
-			}
-		} else if (dimensions.size() == 3) {
-
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-
-			A = new ArrayFloat.D3(dimid_1.getLength(), dimid_2.getLength(), dimid_3.getLength());
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						if (k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength() < data.size())
-							A.setFloat(ima.set(i, j, k), (float) (data
-									.get(k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength())));
-						else {
-							A.setFloat(ima.set(i, j, k), Float.NaN);
-						}
-					}
-				}
-			}
-		} else if (dimensions.size() == 4) {
-			int dimid_1 = dimensions.get(0).getLength() == 0 ? 1 : dimensions.get(0).getLength();
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-			Dimension dimid_4 = dimensions.get(3);
-
-			A = new ArrayFloat.D4(dimid_1, dimid_2.getLength(), dimid_3.getLength(), dimid_4.getLength());
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1; i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						for (int l = 0; l < dimid_4.getLength(); l++) {
-							if (l + k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-									+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength() < data.size())
-								A.setFloat(ima.set(i, j, k, l), (float) (data.get(l + k * dimid_4.getLength()
-										+ j * dimid_4.getLength() * dimid_3.getLength()
-										+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength())));
-							else {
-								A.setFloat(ima.set(i, j, k, l), Float.NaN);
-							}
-						}
-					}
-				}
-			}
-		}
-		return A;
+		return transformFloatArrayInMultidimensionalArray(toFloatArray(data), dimensions, DataType.FLOAT, 1);
 	}
 
 	/**
@@ -461,83 +352,7 @@ public class CodarUtils {
 	 * @return multidimensional Double array from 1D to 4D
 	 */
 	public static Array transformCollectionInMultidimensionalDoubleArray(List<Float> data, List<Dimension> dimensions) {
-		ArrayDouble A = null;
-		if (dimensions.size() == 0) {
-			A = new ArrayDouble.D0();
-		} else if (dimensions.size() == 1) {
-			Dimension dimid_1 = dimensions.get(0);
-			A = new ArrayDouble.D1(dimid_1.getLength());
-			Index ima = A.getIndex();
-			// 1D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				if (i < data.size())
-					A.setDouble(ima.set(i), (float) (data.get(i)));
-				else {
-					A.setDouble(ima.set(i), Double.NaN);
-				}
-			}
-		} else if (dimensions.size() == 2) {
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-
-			A = new ArrayDouble.D2(dimid_1.getLength(), dimid_2.getLength());
-			Index ima = A.getIndex();
-			// 2D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					if (j + i * dimid_2.getLength() < data.size())
-						A.setDouble(ima.set(i, j), (float) (data.get(j + i * dimid_2.getLength())));
-					else {
-						A.setDouble(ima.set(i, j), Double.NaN);
-					}
-				}
-			}
-		} else if (dimensions.size() == 3) {
-
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-
-			A = new ArrayDouble.D3(dimid_1.getLength(), dimid_2.getLength(), dimid_3.getLength());
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						if (k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength() < data.size())
-							A.setDouble(ima.set(i, j, k), (float) (data
-									.get(k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength())));
-						else {
-							A.setDouble(ima.set(i, j, k), Double.NaN);
-						}
-					}
-				}
-			}
-		} else if (dimensions.size() == 4) {
-			int dimid_1 = dimensions.get(0).getLength() == 0 ? 1 : dimensions.get(0).getLength();
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-			Dimension dimid_4 = dimensions.get(3);
-
-			A = new ArrayDouble.D4(dimid_1, dimid_2.getLength(), dimid_3.getLength(), dimid_4.getLength());
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1; i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						for (int l = 0; l < dimid_4.getLength(); l++) {
-							if (l + k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-									+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength() < data.size())
-								A.setDouble(ima.set(i, j, k, l), (float) (data.get(l + k * dimid_4.getLength()
-										+ j * dimid_4.getLength() * dimid_3.getLength()
-										+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength())));
-							else {
-								A.setDouble(ima.set(i, j, k, l), Double.NaN);
-							}
-						}
-					}
-				}
-			}
-		}
-		return A;
+		return transformFloatArrayInMultidimensionalArray(toFloatArray(data), dimensions, DataType.DOUBLE, 1);
 	}
 
 	/**
@@ -584,85 +399,7 @@ public class CodarUtils {
 	 * @return multidimensional Short array from 1D to 4D
 	 */
 	public static Array transformCollectionInMultidimensionalShortArray(List<Float> data, List<Dimension> dimensions, int scale) {
-		ArrayShort A = null;
-		if (dimensions.size() == 0) {
-			//nada
-			A = new ArrayShort.D0(false);
-		} else if (dimensions.size() == 1) {
-			Dimension dimid_1 = dimensions.get(0);
-			A = new ArrayShort.D1(dimid_1.getLength(),false);
-			Index ima = A.getIndex();
-			// 1D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				if (i < data.size())
-					A.setShort(ima.set(i), CodarUtils.floatToShort((float) (data.get(i) * scale)));
-				else {
-					A.setShort(ima.set(i), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT);
-				}
-			}
-		} else if (dimensions.size() == 2) {
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-
-			A = new ArrayShort.D2(dimid_1.getLength(), dimid_2.getLength(),false);
-			Index ima = A.getIndex();
-			// 2D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					if (j + i * dimid_2.getLength() < data.size())
-						A.setShort(ima.set(i, j),
-								CodarUtils.floatToShort((float) (data.get(j + i * dimid_2.getLength()) * scale)));
-					else {
-						A.setShort(ima.set(i, j), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT);
-					}
-				}
-			}
-		} else if (dimensions.size() == 3) {
-
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-
-			A = new ArrayShort.D3(dimid_1.getLength(), dimid_2.getLength(), dimid_3.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						if (k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength() < data.size())
-							A.setShort(ima.set(i, j, k), CodarUtils.floatToShort((float) data
-									.get(k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength()) * scale));
-						else {
-							A.setShort(ima.set(i, j, k), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT);
-						}
-					}
-				}
-			}
-		} else if (dimensions.size() == 4) {
-			int dimid_1 = dimensions.get(0).getLength() == 0 ? 1 : dimensions.get(0).getLength();
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-			Dimension dimid_4 = dimensions.get(3);
-
-			A = new ArrayShort.D4(dimid_1, dimid_2.getLength(), dimid_3.getLength(), dimid_4.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1; i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						for (int l = 0; l < dimid_4.getLength(); l++) {
-							if (l + k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-									+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength() < data.size())
-								A.setShort(ima.set(i, j, k, l), CodarUtils.floatToShort((float) data.get(l
-										+ k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-										+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength()) * scale));
-							else {
-								A.setShort(ima.set(i, j, k, l), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT);
-							}
-						}
-					}
-				}
-			}
-		}
-		return A;
+		return transformFloatArrayInMultidimensionalArray(toFloatArray(data), dimensions, DataType.SHORT, scale);
 	}
 
 	
@@ -677,85 +414,7 @@ public class CodarUtils {
 	 * @return multidimensional Int array from 1D to 4D
 	 */
 	public static Array transformCollectionInMultidimensionalIntArray(List<Float> data, List<Dimension> dimensions, int scale) {
-		ArrayInt A = null;
-		if (dimensions.size() == 0) {
-			//nada
-			A = new ArrayInt.D0(false);
-		} else if (dimensions.size() == 1) {
-			Dimension dimid_1 = dimensions.get(0);
-			A = new ArrayInt.D1(dimid_1.getLength(),false);
-			Index ima = A.getIndex();
-			// 1D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				if (i < data.size())
-					A.setInt(ima.set(i), CodarUtils.floatToInt((float) (data.get(i) * scale)));
-				else {
-					A.setInt(ima.set(i), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT);
-				}
-			}
-		} else if (dimensions.size() == 2) {
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-
-			A = new ArrayInt.D2(dimid_1.getLength(), dimid_2.getLength(),false);
-			Index ima = A.getIndex();
-			// 2D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					if (j + i * dimid_2.getLength() < data.size())
-						A.setInt(ima.set(i, j),
-								CodarUtils.floatToInt((float) (data.get(j + i * dimid_2.getLength()) * scale)));
-					else {
-						A.setInt(ima.set(i, j), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT);
-					}
-				}
-			}
-		} else if (dimensions.size() == 3) {
-
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-
-			A = new ArrayInt.D3(dimid_1.getLength(), dimid_2.getLength(), dimid_3.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						if (k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength() < data.size())
-							A.setInt(ima.set(i, j, k), CodarUtils.floatToInt((float) data
-									.get(k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength()) * scale));
-						else {
-							A.setInt(ima.set(i, j, k), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT);
-						}
-					}
-				}
-			}
-		} else if (dimensions.size() == 4) {
-			int dimid_1 = dimensions.get(0).getLength() == 0 ? 1 : dimensions.get(0).getLength();
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-			Dimension dimid_4 = dimensions.get(3);
-
-			A = new ArrayInt.D4(dimid_1, dimid_2.getLength(), dimid_3.getLength(), dimid_4.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1; i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						for (int l = 0; l < dimid_4.getLength(); l++) {
-							if (l + k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-									+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength() < data.size())
-								A.setInt(ima.set(i, j, k, l), CodarUtils.floatToInt((float) data.get(l
-										+ k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-										+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength()) * scale));
-							else {
-								A.setInt(ima.set(i, j, k, l), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT);
-							}
-						}
-					}
-				}
-			}
-		}
-		return A;
+		return transformFloatArrayInMultidimensionalArray(toFloatArray(data), dimensions, DataType.INT, scale);
 	}
 
 	/**
@@ -769,84 +428,197 @@ public class CodarUtils {
 	 * @return multidimensional Byte array from 1D to 4D
 	 */
 	public static Array transformCollectionInMultidimensionalByteArray(List<Float> data, List<Dimension> dimensions) {
-		ArrayByte A = null;
-		if (dimensions.size() == 0) {
-			//nada 
-			A = new ArrayByte.D0(false);
-		} else if (dimensions.size() == 1) {
-			Dimension dimid_1 = dimensions.get(0);
-			A = new ArrayByte.D1(dimid_1.getLength(),false);
-			Index ima = A.getIndex();
-			// 1D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				if (i < data.size())
-					A.setByte(ima.set(i), CodarUtils.floatToByte((float) data.get(i)));
-				else {
-					A.setByte(ima.set(i), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
-				}
-			}
-		} else if (dimensions.size() == 2) {
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
+		return transformFloatArrayInMultidimensionalArray(toFloatArray(data), dimensions, DataType.BYTE, 1);
+	}
 
-			A = new ArrayByte.D2(dimid_1.getLength(), dimid_2.getLength(),false);
-			Index ima = A.getIndex();
-			// 2D not tested
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					if (j + i * dimid_2.getLength() < data.size())
-						A.setByte(ima.set(i, j), CodarUtils.floatToByte((float) data.get(j + i * dimid_2.getLength())));
-					else {
-						A.setByte(ima.set(i, j), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
-					}
-				}
+	/**
+	 * Takes an array of float values and returns a multidimensional array of
+	 * the data type of the variable (from 0D to 4D depending on the
+	 * dimensions parameter). The values are converted in one pass to a
+	 * primitive array, in row major order, that is wrapped without copying.
+	 * The integer types are scaled and rounded, the missing values (NaN or
+	 * beyond the end of data) are NaN in the float types and the netcdf fill
+	 * value in the integer ones.
+	 * 
+	 * @param data
+	 *            the information to transform
+	 * @param dimensions
+	 *            variable that defines the dimensions we are needing.
+	 * @param type
+	 *            FLOAT, DOUBLE, SHORT, INT or BYTE
+	 * @param scale
+	 *            factor applied to the values before rounding them
+	 * @return multidimensional array from 0D to 4D
+	 */
+	public static Array transformFloatArrayInMultidimensionalArray(float[] data, List<Dimension> dimensions,
+			DataType type, int scale) {
+		int[] shape = shape(dimensions);
+		return Array.factory(type, shape, pack(data, size(shape), type, scale));
+	}
+
+	/**
+	 * @param data
+	 *            values in row major order
+	 * @param size
+	 *            number of elements of the netcdf array
+	 * @param type
+	 *            netcdf data type
+	 * @param scale
+	 *            factor applied to the values
+	 * @return the primitive array of the data type
+	 */
+	static Object pack(float[] data, int size, DataType type, int scale) {
+		int n = Math.min(size, data.length);
+		switch (type) {
+		case FLOAT: {
+			float[] storage = new float[size];
+			if (scale == 1) {
+				System.arraycopy(data, 0, storage, 0, n);
+			} else {
+				for (int i = 0; i < n; i++)
+					storage[i] = data[i] * scale;
 			}
-		} else if (dimensions.size() == 3) {
+			Arrays.fill(storage, n, size, Float.NaN);
+			return storage;
+		}
+		case DOUBLE: {
+			double[] storage = new double[size];
+			for (int i = 0; i < n; i++)
+				storage[i] = data[i] * scale;
+			Arrays.fill(storage, n, size, Double.NaN);
+			return storage;
+		}
+		case SHORT: {
+			short[] storage = new short[size];
+			for (int i = 0; i < n; i++)
+				storage[i] = floatToShort(data[i] * scale);
+			Arrays.fill(storage, n, size, ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_SHORT);
+			return storage;
+		}
+		case INT: {
+			int[] storage = new int[size];
+			for (int i = 0; i < n; i++)
+				storage[i] = floatToInt(data[i] * scale);
+			Arrays.fill(storage, n, size, ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_INT);
+			return storage;
+		}
+		case BYTE: {
+			byte[] storage = new byte[size];
+			for (int i = 0; i < n; i++)
+				storage[i] = floatToByte(data[i] * scale);
+			Arrays.fill(storage, n, size, ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
+			return storage;
+		}
+		default:
+			throw new IllegalArgumentException("data type not supported " + type);
+		}
+	}
+
+	/**
+	 * @param dimensions
+	 *            dimensions of a variable
+	 * @return the shape of the array, a record dimension not written yet has
+	 *         one element.
+	 */
+	private static int[] shape(List<Dimension> dimensions) {
+		int[] shape = new int[dimensions.size()];
+		for (int i = 0; i < shape.length; i++) {
+			shape[i] = dimensions.get(i).getLength();
+			// a record dimension not written yet
+			if (i == 0 && shape[i] == 0)
+				shape[i] = 1;
+		}
+		return shape;
+	}
 
-			Dimension dimid_1 = dimensions.get(0);
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
+	private static int size(int[] shape) {
+		int size = 1;
+		for (int length : shape)
+			size = size * length;
+		return size;
+	}
 
-			A = new ArrayByte.D3(dimid_1.getLength(), dimid_2.getLength(), dimid_3.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1.getLength(); i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						if (k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength() < data.size())
-							A.setByte(ima.set(i, j, k), CodarUtils.floatToByte((float) data
-									.get(k + j * dimid_3.getLength() + i * dimid_3.getLength() * dimid_2.getLength())));
-						else {
-							A.setByte(ima.set(i, j, k), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
-						}
-					}
-				}
+	/**
+	 * Wraps an array of bytes, like the QC flags, in a multidimensional Byte
+	 * array without copying the values. The data are in row major order, the
+	 * same order used by transformCollectionInMultidimensionalByteArray, and
+	 * the missing elements are filled with the netcdf byte fill value.
+	 * 
+	 * @param data
+	 *            the information to transform
+	 * @param dimensions
+	 *            variable that defines the dimensions we are needing.
+	 * @return multidimensional Byte array
+	 */
+	public static Array transformByteArrayInMultidimensionalArray(byte[] data, List<Dimension> dimensions) {
+		int[] shape = shape(dimensions);
+		int size = size(shape);
+		byte[] storage = data;
+		if (data.length != size) {
+			storage = Arrays.copyOf(data, size);
+			if (size > data.length)
+				Arrays.fill(storage, data.length, size, ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
+		}
+		return Array.factory(DataType.BYTE, shape, storage);
+	}
+
+	/**
+	 * Creates a netcdf file in the format of the bean. The NetCDF-4 formats
+	 * need the netcdf C library, if it is not installed the file is written
+	 * as classic NetCDF-3.
+	 * 
+	 * @param fileName
+	 *            output file
+	 * @param format
+	 *            name of the NetcdfFileWriter.Version, netcdf3 if null or not
+	 *            valid
+	 * @param deflateLevel
+	 *            deflate level of the NetCDF-4 grids, the default one if null
+	 * @param shuffle
+	 *            shuffle filter of the NetCDF-4 grids, the default one if null
+	 * @return the file, in define mode. getVersion() is the format written.
+	 * @throws IOException
+	 */
+	public static NetcdfFileWriter createNetcdfWriter(String fileName, String format, Integer deflateLevel,
+			Boolean shuffle) throws IOException {
+		NetcdfFileWriter.Version version = NetcdfFileWriter.Version.netcdf3;
+		if (format != null && !format.isEmpty()) {
+			try {
+				version = NetcdfFileWriter.Version.valueOf(format);
+			} catch (IllegalArgumentException e) {
+				log.warn("Unknown netcdf format " + format + ", NetCDF-3 file written");
 			}
-		} else if (dimensions.size() == 4) {
-			int dimid_1 = dimensions.get(0).getLength() == 0 ? 1 : dimensions.get(0).getLength();
-			Dimension dimid_2 = dimensions.get(1);
-			Dimension dimid_3 = dimensions.get(2);
-			Dimension dimid_4 = dimensions.get(3);
+		}
+		if (version.isNetdf4format() && !isNetcdf4Available()) {
+			version = NetcdfFileWriter.Version.netcdf3;
+		}
+		if (!version.isNetdf4format()) {
+			return NetcdfFileWriter.createNew(version, fileName);
+		}
+		Nc4Chunking chunker = new CodarNc4Chunking(
+				deflateLevel == null ? CodarNc4Chunking.DEFAULT_DEFLATE_LEVEL : deflateLevel,
+				shuffle == null ? CodarNc4Chunking.DEFAULT_SHUFFLE : shuffle);
+		return NetcdfFileWriter.createNew(version, fileName, chunker);
+	}
 
-			A = new ArrayByte.D4(dimid_1, dimid_2.getLength(), dimid_3.getLength(), dimid_4.getLength(),false);
-			Index ima = A.getIndex();
-			for (int i = 0; i < dimid_1; i++) {
-				for (int j = 0; j < dimid_2.getLength(); j++) {
-					for (int k = 0; k < dimid_3.getLength(); k++) {
-						for (int l = 0; l < dimid_4.getLength(); l++) {
-							if (l + k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-									+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength() < data.size())
-								A.setByte(ima.set(i, j, k, l), CodarUtils.floatToByte((float) data.get(l
-										+ k * dimid_4.getLength() + j * dimid_4.getLength() * dimid_3.getLength()
-										+ i * dimid_4.getLength() * dimid_3.getLength() * dimid_2.getLength())));
-							else {
-								A.setByte(ima.set(i, j, k, l), ucar.nc2.iosp.netcdf3.N3iosp.NC_FILL_BYTE);
-							}
-						}
-					}
-				}
+	/**
+	 * @return true if the netcdf C library is loaded, and NetCDF-4 files can
+	 *         be written.
+	 */
+	public static synchronized boolean isNetcdf4Available() {
+		if (netcdf4Available == null) {
+			try {
+				netcdf4Available = Nc4Iosp.isClibraryPresent();
+			} catch (Throwable e) {
+				// the library is loaded with jna, not available in every
+				// installation
+				log.debug("netcdf C library not loaded", e);
+				netcdf4Available = false;
 			}
+			if (!netcdf4Available)
+				log.warn("netcdf C library not found, NetCDF-4 files will be written as NetCDF-3");
 		}
-		return A;
+		return netcdf4Available;
 	}
 
 	/**
@@ -949,18 +721,11 @@ public class CodarUtils {
 	 */
 	public static void fillLatLonValuesTotals(float siteLat, float siteLon, List<Float> latd, List<Float> lond,
 			List<Float> x, List<Float> y) {
-		int i = 0;
-		for (float xInc : x) {
-			GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, 90, xInc * 1000);
-			lond.add(i, Float.valueOf((float) data.lon2));
-			i++;
-		}
-		i = 0;
-		for (float yInc : y) {
-			GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, 0, yInc * 1000);
-			latd.add(i, Float.valueOf((float) data.lat2));
-			i++;
-		}
+		float[][] geometry = CodarGeometryCache.getDefault().getTotal(siteLat, siteLon, x, y);
+		for (int i = 0; i < geometry[1].length; i++)
+			lond.add(i, Float.valueOf(geometry[1][i]));
+		for (int i = 0; i < geometry[0].length; i++)
+			latd.add(i, Float.valueOf(geometry[0][i]));
 	}
 
 	/**
@@ -983,16 +748,11 @@ public class CodarUtils {
 	 */
 	public static void fillLatLonValues(float siteLat, float siteLon, List<Float> latd, List<Float> lond,
 			List<Float> rangeDims, List<Integer> bearingDims) {
-		int i = 0;
-		for (float bear : bearingDims) {
-			for (float range : rangeDims) {
-				GeodesicData data = Geodesic.WGS84.Direct(siteLat, siteLon, bear, range * 1000);
-				latd.set(i, Float.valueOf((float) data.lat2));
-				lond.set(i, Float.valueOf((float) data.lon2));
-				i++;
-			}
+		float[][] geometry = CodarGeometryCache.getDefault().getRadial(siteLat, siteLon, rangeDims, bearingDims);
+		for (int i = 0; i < geometry[0].length; i++) {
+			latd.set(i, Float.valueOf(geometry[0][i]));
+			lond.set(i, Float.valueOf(geometry[1][i]));
 		}
-
 	}
 
 	/**
@@ -1014,10 +774,11 @@ public class CodarUtils {
 	 * @param profile
 	 *            a profile is used just in case some mandatory bean data are
 	 *            empty.
-	 * @return an ArrayList of index values that represent the position of each
-	 *         value within the table inside the netCDF
+	 * @return the index values that represent the position of each value
+	 *         within the table inside the netCDF. The array is shared by every
+	 *         caller using the same grid, it must not be modified.
 	 */
-	public static List<Integer> getRadialIndexArray(CodarRadialBean bean, CodarDataTableBean table,
+	public static int[] getRadialIndexArray(CodarRadialBean bean, CodarDataTableBean table,
 			CodarRadialBean profile) {
 		List<Integer> bearingDims = new ArrayList<Integer>();
 
@@ -1051,8 +812,7 @@ public class CodarUtils {
 			rangeDims.add(i);
 		}
 
-		List<Integer> codarToNetcdfIndex = table.getRadialTableIndexInNetCdf(bearingDims, rangeDims);
-		return codarToNetcdfIndex;
+		return table.getRadialTableIndex(toIntArray(bearingDims), toFloatArray(rangeDims));
 	}
 
 	/**
@@ -1076,10 +836,11 @@ public class CodarUtils {
 	 * @param profile
 	 *            a profile is used just in case some mandatory bean data are
 	 *            empty.
-	 * @return an ArrayList of index values that represent the position of each
-	 *         value within the table inside the netCDF
+	 * @return the index values that represent the position of each value
+	 *         within the table inside the netCDF. The array is shared by every
+	 *         caller using the same grid, it must not be modified.
 	 */
-	public static List<Integer> getTotalIndexArray(CodarTotalBean bean, CodarDataTableBean table,
+	public static int[] getTotalIndexArray(CodarTotalBean bean, CodarDataTableBean table,
 			CodarTotalBean profile) {
 
 		List<Float> xAxisDims = new ArrayList<Float>();
@@ -1119,7 +880,6 @@ public class CodarUtils {
 			yAxisDims.add(i);
 		}
 
-		List<Integer> codarToNetcdfIndex = table.getTotalTableIndexInNetCdf(xAxisDims, yAxisDims);
-		return codarToNetcdfIndex;
+		return table.getTotalTableIndex(toFloatArray(xAxisDims), toFloatArray(yAxisDims));
 	}
 }
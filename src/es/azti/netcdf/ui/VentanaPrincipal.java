@@ -13,8 +13,17 @@ import java.io.ObjectOutputStream;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
@@ -28,8 +37,17 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.apache.log4j.Logger;
 
+import es.azti.codar.beans.CodarFileHeaderBean;
 import es.azti.codar.beans.CodarRadialBean;
 import es.azti.codar.beans.CodarTotalBean;
+import es.azti.codar.qc.QCMetrics;
+import es.azti.codar.qc.QCScheduler;
+import es.azti.codar.qc.RadialMonthCube;
+import es.azti.codar.utils.CodarCatalog;
+import es.azti.codar.utils.CodarFrameCache;
+import es.azti.codar.utils.CodarGeometryCache;
+import es.azti.codar.utils.CodarInput;
+import es.azti.codar.utils.CodarNetcdfAggregator;
 import es.azti.codar.utils.CodarRadialToNetCDF;
 import es.azti.codar.utils.CodarTotalToNetCDF;
 import es.azti.codar.utils.CodarUtils;
@@ -53,6 +71,9 @@ public class VentanaPrincipal extends JFrame {
 	Properties props;
 	// logger
 	private static Logger log;
+	// console mode arguments
+	private static final String USAGE = "Usage: JRadar console <input file, folder or zip> <output file or folder>"
+			+ " <profile>\n       JRadar catalog <folder>\n       JRadar (main window)";
 	// panel
 	private JPanel contentPane;
 	// file to load
@@ -75,10 +96,15 @@ public class VentanaPrincipal extends JFrame {
 	 * a non user interface way. If not, the main window appear with the
 	 * different options.
 	 * 
-	 * The console mode needs three more arguments: input path (to a file or a
-	 * folder) output path (to a file or a folder) profile path (complete path
+	 * The console mode needs three more arguments: input path (to a file, a
+	 * folder or a zip archive; .ruv.gz and .tuv.gz files are read too) output
+	 * path (to a file or a folder) profile path (complete path
 	 * to a previously created profile).
 	 * 
+	 * If the first argument is "catalog", the header catalog of the codar
+	 * files of the folder given as second argument is built or updated, and a
+	 * summary is written to the log.
+	 * 
 	 * Please, read the documentation of JRadar to lear about the usage of the
 	 * profiles and console mode.
 	 * 
@@ -100,13 +126,23 @@ public class VentanaPrincipal extends JFrame {
 		}
 
 		if (id.equals("console")) {
-			// TODO
+			if (args.length < 4) {
+				System.err.println(USAGE);
+				return;
+			}
 			String input = args[1];
 			String output = args[2];
 			String profile = args[3];
 			bt.loadPropertiesNoUI();
 			log.debug("running with no user interface");
 			bt.process(profile, input, output);
+		} else if (id.equals("catalog")) {
+			if (args.length < 2) {
+				System.err.println(USAGE);
+				return;
+			}
+			log.debug("building codar catalog with no user interface");
+			bt.catalog(args[1]);
 		} else {
 			bt.loadProperties();
 			bt.initMainWindow();
@@ -119,6 +155,7 @@ public class VentanaPrincipal extends JFrame {
 		try {
 			props = new Properties();
 			props.load(new FileInputStream("codar.properties"));
+			CodarGeometryCache.configure(props);
 		} catch (FileNotFoundException e) {
 			log.error("property file not found", e);
 		} catch (IOException e) {
@@ -130,6 +167,7 @@ public class VentanaPrincipal extends JFrame {
 		try {
 			props = new Properties();
 			props.load(new FileInputStream("codar.properties"));
+			CodarGeometryCache.configure(props);
 
 		} catch (FileNotFoundException e) {
 			JOptionPane.showMessageDialog(null, "Error trying to load CODAR property file.");
@@ -141,6 +179,25 @@ public class VentanaPrincipal extends JFrame {
 
 	}
 
+	/**
+	 * builds or updates the catalog of the codar files of a folder and logs
+	 * the sites and time ranges found.
+	 * 
+	 * @param input
+	 *            root folder of the codar files
+	 */
+	private void catalog(String input) {
+		CodarCatalog catalog = CodarCatalog.open(new File(input));
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for (String site : catalog.getSites()) {
+			List<CodarFileHeaderBean> files = catalog.find(site, Long.MIN_VALUE, Long.MAX_VALUE);
+			log.info(site + ": " + files.size() + " files from "
+					+ dateFormat.format(new Date(files.get(0).getTimeInMillis())) + " to "
+					+ dateFormat.format(new Date(files.get(files.size() - 1).getTimeInMillis())));
+		}
+	}
+
 	/**
 	 * background process Takes a profile and a input file or directory, and
 	 * process all the information to create netcdfs+
@@ -184,17 +241,21 @@ public class VentanaPrincipal extends JFrame {
 		// the ones present in mac OS, starting with a dot
 		// TODO check
 		//if (entrada.isFile() && input.substring(0, 1).matches("\\w")) {
-		if (entrada.isFile()) {
+		if (entrada.isFile() && !CodarInput.isZipFile(entrada.getName())) {
 			// Digest file.
+			QCScheduler scheduler = QCScheduler.fromProperties(props);
 			try {
 				int error = -1;
-				if (entrada.getName().endsWith(".ruv") && ficheroProfile.getName().endsWith(".radial")) {
-					codarRadialData = CodarUtils.loadCodarRadialData(entrada, props);
+				CodarInput codarInput = new CodarInput(entrada);
+				if (codarInput.isRadial() && ficheroProfile.getName().endsWith(".radial")) {
+					codarRadialData = CodarUtils.loadCodarRadialData(codarInput, props);
 					CodarRadialToNetCDF ctn = new CodarRadialToNetCDF(codarRadialData);
+					ctn.setScheduler(scheduler);
 					error = ctn.toNetCDF4(profileCodarRadialData, output);
-				} else if (entrada.getName().endsWith(".tuv") && ficheroProfile.getName().endsWith(".total")) {
-					codarTotalData = CodarUtils.loadCodarTotalData(entrada, props);
+				} else if (codarInput.isTotal() && ficheroProfile.getName().endsWith(".total")) {
+					codarTotalData = CodarUtils.loadCodarTotalData(codarInput, props);
 					CodarTotalToNetCDF ctn = new CodarTotalToNetCDF(codarTotalData);
+					ctn.setScheduler(scheduler);
 					error = ctn.toNetCDF4(profileCodarTotalData, output);
 				}
 				// code = 0: ok
@@ -227,30 +288,102 @@ public class VentanaPrincipal extends JFrame {
 				}
 			} catch (ParseException e) {
 				log.error("could not load file, check the path please", e);
+			} finally {
+				scheduler.shutdown();
 			}
 		} else {
 			File outputFile = new File(output);
 			if (outputFile.isFile()) {
 				outputFile = outputFile.getParentFile();
 			}
-			// loop to read all the files in the entry folder.
-			// only codar files accepted.
-			File[] lista = entrada.listFiles();
-			for (File individual : lista) {
-				// Digest files. check temporally files!
-				if (individual.getName().substring(0, 1).matches("\\w")) {
+			// loop to read all the files in the entry folder or zip archive.
+			// only codar files accepted, plain, gzipped or inside zips.
+			List<CodarInput> lista;
+			try {
+				lista = entrada.isDirectory() ? CodarInput.list(entrada) : CodarInput.listZip(entrada);
+			} catch (IOException e) {
+				log.error("could not read the input " + entrada.getAbsolutePath(), e);
+				return;
+			}
+			// only the files of the profile type are read
+			for (int i = lista.size() - 1; i >= 0; i--) {
+				if (!(lista.get(i).isRadial() && ficheroProfile.getName().endsWith(".radial"))
+						&& !(lista.get(i).isTotal() && ficheroProfile.getName().endsWith(".total")))
+					lista.remove(i);
+			}
+			// the files are read and decompressed in parallel, a few files in
+			// advance, and processed in order.
+			int threads = Integer.parseInt(props.getProperty("jradar.input.threads",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, threads));
+			// each file is parsed once, the temporal derivative test takes
+			// the previous and next time steps from this window
+			CodarFrameCache frames = new CodarFrameCache(props);
+			frames.register(lista);
+			// the neighbour time steps are looked up in the catalog of the
+			// input folder, or of the folder of the zip archive
+			frames.setCatalog(CodarCatalog.open(entrada.isDirectory() ? entrada
+					: entrada.getAbsoluteFile().getParentFile()));
+			// the QC tests of each file run in parallel
+			QCScheduler scheduler = QCScheduler.fromProperties(props);
+			// radials may be tested by months, all the time steps together
+			boolean monthCube = Boolean.parseBoolean(props.getProperty("jradar.qc.cube", "false"));
+			RadialMonthCube cube = null;
+			String cubeMonth = null;
+			// the time steps may be appended to daily or monthly files
+			CodarNetcdfAggregator aggregator = ficheroProfile.getName().endsWith(".radial")
+					? CodarNetcdfAggregator.fromProperties(props, profileCodarRadialData.getNetcdf_deflate_level(),
+							profileCodarRadialData.getNetcdf_shuffle())
+					: CodarNetcdfAggregator.fromProperties(props, profileCodarTotalData.getNetcdf_deflate_level(),
+							profileCodarTotalData.getNetcdf_shuffle());
+			List<Future<Void>> prefetched = new ArrayList<Future<Void>>();
+			try {
+				for (int i = 0; i < lista.size(); i++) {
+					while (prefetched.size() < lista.size() && prefetched.size() <= i + 2 * threads) {
+						final CodarInput next = lista.get(prefetched.size());
+						prefetched.add(readers.submit(new Callable<Void>() {
+							@Override
+							public Void call() throws IOException {
+								next.prefetch();
+								return null;
+							}
+						}));
+					}
+					CodarInput individual = lista.get(i);
+					try {
+						prefetched.get(i).get();
+					} catch (InterruptedException e) {
+						log.error("interrupted reading " + individual.getPath(), e);
+						Thread.currentThread().interrupt();
+						return;
+					} catch (ExecutionException e) {
+						// read again when loading, to report the error
+						log.error("could not read " + individual.getPath(), e.getCause());
+					}
+					// Digest files.
 					try {
 						log.debug("********************************************");
-						log.debug("input: " + individual.getAbsolutePath());
+						log.debug("input: " + individual.getPath());
 						log.debug("profile: " + profile);
 
 						SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyy_MM_dd_HHmm");
 						filenameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
 						
 						int error = -1;
-						if (individual.getName().endsWith(".ruv") && ficheroProfile.getName().endsWith(".radial")) {
-							codarRadialData = CodarUtils.loadCodarRadialData(individual, props);
+						if (individual.isRadial() && ficheroProfile.getName().endsWith(".radial")) {
+							String month = RadialMonthCube.monthOf(individual.getPath());
+							if (monthCube && month != null && !month.equals(cubeMonth)) {
+								cubeMonth = month;
+								cube = loadMonthCube(lista, i, month, frames, scheduler);
+							}
+							// with the month cube the file is still in the frame
+							// window, sized for the month
+							codarRadialData = frames.getRadial(individual);
 							CodarRadialToNetCDF ctn = new CodarRadialToNetCDF(codarRadialData);
+							ctn.setFrameCache(frames);
+							ctn.setScheduler(scheduler);
+							if (cube != null)
+								ctn.setQCFlags(cube.getFlags(individual.getPath()));
 							// this is working in console mode, no data base
 							// information, only profiles.
 							String patternType = "";
@@ -260,22 +393,34 @@ public class VentanaPrincipal extends JFrame {
 								patternType="i";
 							}
 							
-							String fileName = profileCodarRadialData.getStationBean().getNetwork_id() + "-RDL_" + patternType + "_"
-									+ profileCodarRadialData.getStationBean().getStation_id() + "_" + 
-									filenameFormat.format(codarRadialData.getTimeStampAsCalendar().getTime() );
-							String outputFileName = outputFile.getAbsolutePath() + File.separatorChar + fileName + ".nc";
-							log.debug("output: " + outputFileName);
+							String prefix = outputFile.getAbsolutePath() + File.separatorChar
+									+ profileCodarRadialData.getStationBean().getNetwork_id() + "-RDL_" + patternType + "_"
+									+ profileCodarRadialData.getStationBean().getStation_id();
+							Calendar time = codarRadialData.getTimeStampAsCalendar();
+							String outputFileName = prefix + "_" + filenameFormat.format(time.getTime()) + ".nc";
+							String aggregateName = null;
+							if (aggregator.isAggregating()) {
+								aggregateName = aggregator.getFileName(prefix, time);
+								ctn.setAggregator(aggregator, aggregateName);
+							}
 							error = ctn.toNetCDF4(profileCodarRadialData, outputFileName);
-						} else if (individual.getName().endsWith(".tuv")
-								&& ficheroProfile.getName().endsWith(".total")) {
-							codarTotalData = CodarUtils.loadCodarTotalData(individual, props);
+							logOutput(ctn.getAppend(), aggregateName, outputFileName);
+						} else if (individual.isTotal() && ficheroProfile.getName().endsWith(".total")) {
+							codarTotalData = frames.getTotal(individual);
 							CodarTotalToNetCDF ctn = new CodarTotalToNetCDF(codarTotalData);
-							String fileName = profileCodarTotalData.getNetworkBean().getNetwork_id() + "-TOTL_" +
-									filenameFormat.format(codarTotalData.getTimeStampAsCalendar().getTime());
-							String outputFileName = outputFile.getAbsolutePath() + File.separatorChar
-									+ fileName + ".nc";
-							log.debug("output: " + outputFileName);
+							ctn.setFrameCache(frames);
+							ctn.setScheduler(scheduler);
+							String prefix = outputFile.getAbsolutePath() + File.separatorChar
+									+ profileCodarTotalData.getNetworkBean().getNetwork_id() + "-TOTL";
+							Calendar time = codarTotalData.getTimeStampAsCalendar();
+							String outputFileName = prefix + "_" + filenameFormat.format(time.getTime()) + ".nc";
+							String aggregateName = null;
+							if (aggregator.isAggregating()) {
+								aggregateName = aggregator.getFileName(prefix, time);
+								ctn.setAggregator(aggregator, aggregateName);
+							}
 							error = ctn.toNetCDF4(profileCodarTotalData, outputFileName);
+							logOutput(ctn.getAppend(), aggregateName, outputFileName);
 						}
 						// code = 0: ok
 						// code = 1: mandatory field is missing or has an error.
@@ -303,13 +448,91 @@ public class VentanaPrincipal extends JFrame {
 					} catch (ParseException e) {
 						log.error("could not load file, check the path please", e);
 					}
+					// the file may have been parsed before it was read in
+					// advance, as next time step of the previous one
+					individual.release();
+				}
+			} finally {
+				readers.shutdownNow();
+				scheduler.shutdown();
+				try {
+					aggregator.close();
+				} catch (IOException e) {
+					log.error("could not close the aggregated file", e);
 				}
-
 			}
+			log.debug(lista.size() + " files processed, " + frames.getLoads() + " parsed");
+			if (log.isDebugEnabled())
+				log.debug("QC tests by network, slowest first\n" + QCMetrics.getDefault().report());
 		}
 
 	}
 
+	/**
+	 * Logs where a time step has been written.
+	 * 
+	 * @param append
+	 *            how the time step was appended to its daily or monthly file,
+	 *            null if it is not aggregated
+	 * @param aggregateName
+	 *            aggregated file of the time step
+	 * @param outputFileName
+	 *            file of the time step when it is not aggregated
+	 */
+	private void logOutput(CodarNetcdfAggregator.Append append, String aggregateName, String outputFileName) {
+		if (append == CodarNetcdfAggregator.Append.APPENDED) {
+			log.debug("output: " + aggregateName);
+		} else if (append == CodarNetcdfAggregator.Append.SKIPPED) {
+			log.warn(outputFileName + " not written, its time step is not after the last one of " + aggregateName);
+		} else {
+			log.debug("output: " + outputFileName);
+		}
+	}
+
+	/**
+	 * Loads the radial files of a site and month and runs their QC tests
+	 * together. The window of the frame cache is widened to the month, so the
+	 * files are still loaded when they are converted, and are parsed once.
+	 * 
+	 * @param lista
+	 *            files of the batch run, in time order
+	 * @param from
+	 *            first file of the month
+	 * @param month
+	 *            site and month, RadialMonthCube.monthOf
+	 * @param frames
+	 *            files of the batch run already loaded
+	 * @param scheduler
+	 *            threads of the QC tests
+	 * @return the QC flags of the month
+	 */
+	private RadialMonthCube loadMonthCube(List<CodarInput> lista, int from, String month, CodarFrameCache frames,
+			QCScheduler scheduler) {
+		List<CodarInput> monthFiles = new ArrayList<CodarInput>();
+		for (int j = from; j < lista.size(); j++) {
+			CodarInput input = lista.get(j);
+			if (input.isRadial() && month.equals(RadialMonthCube.monthOf(input.getPath())))
+				monthFiles.add(input);
+		}
+		// the month and the neighbour time steps of the other months
+		frames.setCapacity(monthFiles.size() + CodarFrameCache.DEFAULT_CAPACITY);
+		RadialMonthCube cube = new RadialMonthCube(props, profileCodarRadialData, monthFiles.size());
+		cube.setFrameCache(frames);
+		cube.setScheduler(scheduler);
+		for (CodarInput input : monthFiles) {
+			try {
+				cube.add(frames.getRadial(input));
+			} catch (ParseException e) {
+				// reported again when the file is converted
+				log.error("could not load file, check the path please", e);
+			}
+		}
+		cube.run();
+		log.debug(month + ": " + monthFiles.size() + " files tested together, " + cube.getTimeSteps()
+				+ " time steps");
+		return cube;
+	}
+
 	/**
 	 * @autor Jose Luis Asensio (jlasensio@azti.es)
 	 * 
@@ -786,7 +1009,7 @@ public class VentanaPrincipal extends JFrame {
 		ventana.setAlwaysOnTop(true);
 		JFileChooser fc = new JFileChooser();
 		// solo aceptamos archivos CODAR, ver como hacer
-		FileNameExtensionFilter filterFileName = new FileNameExtensionFilter("CODAR FILES", "ruv", "tuv");
+		FileNameExtensionFilter filterFileName = new FileNameExtensionFilter("CODAR FILES", "ruv", "tuv", "gz");
 		fc.setFileFilter(filterFileName);
 		fc.setCurrentDirectory(new File("."));
 		int returnVal = fc.showOpenDialog(ventana);
@@ -795,10 +1018,11 @@ public class VentanaPrincipal extends JFrame {
 			fichero = fc.getSelectedFile();
 			try {
 				// Digest file.
-				if (fichero.getName().endsWith("ruv")) {
+				CodarInput codarInput = new CodarInput(fichero);
+				if (codarInput.isRadial()) {
 					codarRadialData = CodarUtils.loadCodarRadialData(fichero, props);
 					codarTotalData = null;
-				} else if (fichero.getName().endsWith("tuv")) {
+				} else if (codarInput.isTotal()) {
 					codarTotalData = CodarUtils.loadCodarTotalData(fichero, props);
 					codarRadialData = null;
 				}
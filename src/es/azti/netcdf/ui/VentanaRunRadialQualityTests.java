@@ -9,16 +9,9 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Properties;
-import java.util.TimeZone;
 
 import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
@@ -32,8 +25,9 @@ import javax.swing.JScrollPane;
 import org.apache.log4j.Logger;
 
 import es.azti.codar.beans.CodarRadialBean;
+import es.azti.codar.qc.QualityTests;
+import es.azti.codar.qc.RadialQualityTests;
 import es.azti.codar.utils.CodarUtils;
-import es.azti.utils.Lldistkm;
 import es.azti.utils.TableColumnNames;
 
 /**
@@ -84,6 +78,8 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	// logger
 	private static Logger log;
 	private CodarRadialBean bean;
+	// tests of the file, they keep the metrics between runs
+	private RadialQualityTests qcTests;
 
 	public VentanaRunRadialQualityTests(CodarRadialBean datos) {
 		// Start logger
@@ -203,15 +199,10 @@ public class VentanaRunRadialQualityTests extends JFrame {
 					try {
 						bean.getRadialTest().setVeloThreshold(Float.parseFloat(veloThreshold));
 						// be carefull with the units. The codar table in the
-						// file is in cm/s and in the ddbb m/s
-						List<Float> veloRead = bean.getTable().getColumnElements(TableColumnNames.VELO);
-						List<Float> velo = new ArrayList<Float>(veloRead.size());
-						for (Float velTemp : veloRead) {
-							// translate to m/s
-							velo.add(Float.valueOf(-velTemp / 100));
-						}
-
-						List<Float> pasaVeloTest = runThresholdTest(velo, bean.getRadialTest().getVeloThreshold());
+						// file is in cm/s and in the ddbb m/s, the velocity
+						// is translated to m/s once.
+						List<Float> pasaVeloTest = CodarUtils
+								.toFloatList(getQualityTests(profile).runVelocityThresholdTest());
 						labelTest2.setText("Test successful");
 						labelTest2.setForeground(Color.blue);
 
@@ -548,12 +539,18 @@ public class VentanaRunRadialQualityTests extends JFrame {
 				String angLimStr = (String) JOptionPane.showInputDialog(frame,
 						"Enter a value for the AngLim bearing distance:", angLim);
 
+				// the mean of the neighbourhood is kept for the old results
+				int trueMedian = JOptionPane.showConfirmDialog(frame,
+						"Compare with the median of the neighbourhood? (No: compare with the mean)",
+						"median filter test", JOptionPane.YES_NO_OPTION);
+
 				if (medFilterThreshold != null && !medFilterThreshold.equals("NaN") && rcLimStr != null
 						&& !rcLimStr.equals("NaN") && angLimStr != null && !angLimStr.equals("NaN")) {
 					try {
 						bean.getRadialTest().setMedianFilter(Float.parseFloat(medFilterThreshold));
 						bean.getRadialTest().setRcLim(Float.parseFloat(rcLimStr));
 						bean.getRadialTest().setAngLim(Float.parseFloat(angLimStr));
+						bean.getRadialTest().setTrueMedianFilter(Boolean.valueOf(trueMedian == JOptionPane.YES_OPTION));
 
 						// Test
 						List<Float> pasaMedianFilterTest = runMedianFilterTest(profile);
@@ -706,22 +703,7 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 * @param datos
 	 */
 	public List<Float> runOverWaterTest(List<Float> vflag) {
-		// Take in to account the order of the elements.
-		List<Float> overWaterTest = new ArrayList<Float>(vflag.size());
-		for (int i = 0; i < vflag.size(); i++) {
-			float value = vflag.get(i);
-			if (value == 0) {
-				// good data
-				overWaterTest.add(i, Float.valueOf((float) 1));
-			} else if (Float.isNaN(value)) {
-				// missing value, NaN
-				overWaterTest.add(i, value);
-			} else {
-				// the rest of values, are suspicious of being bad data
-				overWaterTest.add(i, Float.valueOf((float) 4));
-			}
-		}
-		return overWaterTest;
+		return CodarUtils.toFloatList(RadialQualityTests.overWater(CodarUtils.toFloatArray(vflag)));
 	}
 
 	/**
@@ -735,25 +717,7 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 * @return list of short values representinig qc test flags.
 	 */
 	public List<Float> runThresholdTest(List<Float> data, float limit) {
-		// Take in to account the order of the elements.
-		List<Float> thresholdTest = new ArrayList<Float>(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			float value = data.get(i);
-			if (Math.abs(value) <= limit) {
-				// good data
-				thresholdTest.add(i, Float.valueOf((float) 1));
-			} else if (Float.isNaN(value)) {
-				// missing value
-				thresholdTest.add(i, Float.NaN);
-			} else if (Float.isNaN(limit)) {
-				// if the limit is NaN, test not performed
-				thresholdTest.add(i, Float.valueOf((float) 0));
-			} else {
-				// the rest of values, are suspicious of being bad data
-				thresholdTest.add(i, Float.valueOf((float) 4));
-			}
-		}
-		return thresholdTest;
+		return CodarUtils.toFloatList(QualityTests.threshold(CodarUtils.toFloatArray(data), limit));
 	}
 
 	/**
@@ -763,35 +727,9 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 */
 
 	public List<Float> runRadialCountTest(CodarRadialBean profile) {
-
-		// Dependant of Velo test, check if good values are more than the
-		// threshold.
-		List<Float> veloRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-		List<Float> velo = new ArrayList<Float>(veloRead.size());
-		for (Float velTemp : veloRead) {
-			velo.add(Float.valueOf(-velTemp / 100));
-		}
-
-		int val1 = 0; // good data if value == 1
-		for (float res : velo) {
-			if (!Float.isNaN(res)) {
-				val1 = val1 + 1;
-			}
-		}
-
 		List<Float> resultado = new ArrayList<Float>(1);
-		Float radCount = Float.isNaN(bean.getRadialTest().getRadialCount())
-				? bean.getStationBean().getRadial_QC_radial_count_threshold_float()
-				: bean.getRadialTest().getRadialCount();
-		if (radCount < val1) {
-			resultado.add(0, Float.valueOf(1));
-		} else {
-			resultado.add(0, Float.valueOf(4));
-		}
-
+		resultado.add(getQualityTests(profile).runRadialCountTest());
 		return resultado;
-
 	}
 
 	/**
@@ -806,75 +744,7 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 *         labeled with a "good_data" flag.
 	 */
 	public List<Float> runMedianFilterTest(CodarRadialBean profile) {
-
-		List<Float> veloRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-		List<Float> velo = new ArrayList<Float>(veloRead.size());
-		for (Float velTemp2 : veloRead) {
-			velo.add(Float.valueOf(-velTemp2 / 100));
-		}
-
-		List<Float> bear = bean.getTable().getColumnElementsInOrder(TableColumnNames.BEAR,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-		List<Float> lat = bean.getTable().getColumnElementsInOrder(TableColumnNames.LATD,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-		List<Float> lon = bean.getTable().getColumnElementsInOrder(TableColumnNames.LOND,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-
-		List<Float> medianMatrix = new ArrayList<Float>(velo.size());
-		List<Float> mfResults = new ArrayList<Float>(velo.size());
-
-		float rcLim = Float.isNaN(this.bean.getRadialTest().getRcLim())
-				? this.bean.getStationBean().getRadial_QC_median_filter_RCLim_float()
-				: this.bean.getRadialTest().getRcLim();
-		float angLim = Float.isNaN(this.bean.getRadialTest().getAngLim())
-				? this.bean.getStationBean().getRadial_QC_median_filter_AngLim_float()
-				: this.bean.getRadialTest().getAngLim();
-		float mfThreshold = Float.isNaN(this.bean.getRadialTest().getMedianFilter())
-				? this.bean.getStationBean().getRadial_QC_median_filter_CurLim_float()
-				: this.bean.getRadialTest().getMedianFilter();
-
-		// For each point check the distance and angle variation to calculate
-		// the mean value.
-		for (int i = 0; i < lat.size(); i++) {
-			// Data from the current point
-			float veloBase = velo.get(i);
-			float bearBase = bear.get(i);
-			float latBase = lat.get(i);
-			float lonBase = lon.get(i);
-
-			float tempMedian = 0;
-			int counter = 0;
-
-			for (int j = 0; j < lat.size(); j++) {
-				// Checking the rest,
-				float veloTemp = velo.get(j);
-				float bearTemp = bear.get(j);
-				float latTemp = lat.get(j);
-				float lonTemp = lon.get(j);
-
-				// Check if the iteration is over the current element, checks if
-				// the bearing
-				// of the temporal element is not at an angular distance greater
-				// than angLim and
-				// checks that the distance between the points is not greater
-				// than rcLim
-				if (j == i || ((Math.abs(bearTemp - bearBase) <= angLim)
-						&& (Lldistkm.calculate(latBase, lonBase, latTemp, lonTemp)[0] <= rcLim))) {
-					counter = counter + 1;
-					tempMedian = tempMedian + veloTemp;
-				}
-			}
-			// now, calculate de median
-			float medianDiff = Math.abs(tempMedian / counter - veloBase);
-
-			// Evaluate the median with the median threshold
-			medianMatrix.add(i, medianDiff);
-		}
-
-		mfResults = runThresholdTest(medianMatrix, mfThreshold);
-
-		return mfResults;
+		return CodarUtils.toFloatList(getQualityTests(profile).runMedianFilterTest());
 	}
 
 	/**
@@ -885,91 +755,22 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 * @return array with all the flags related to the velocity array.
 	 */
 	public List<Float> runTempDerivativeTest(CodarRadialBean profile) {
+		return CodarUtils.toFloatList(getQualityTests(profile).runTempDerivativeTest());
+	}
 
-		List<Float> velo = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-				CodarUtils.getRadialIndexArray(bean, bean.getTable(), profile));
-		float limit = Float.isNaN(bean.getRadialTest().getTempThreshold())
-				? bean.getStationBean().getRadial_QC_temporal_derivative_thresholdFloat()
-				: bean.getRadialTest().getTempThreshold();
-		String filename = bean.getPathToFile();
-		SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyy_MM_dd_HHmm");
-
-		List<Float> tdThreshold = new ArrayList<Float>(velo.size());
-
-		filenameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-		Calendar previous;
-		Calendar next;
-		try {
-			previous = (Calendar) bean.getTimeStampAsCalendar().clone();
-			next = (Calendar) bean.getTimeStampAsCalendar().clone();
-			previous.add(Calendar.MINUTE, Math.negateExact(bean.getNetworkBean().getTemporal_resolution_Int()));
-			next.add(Calendar.MINUTE, bean.getNetworkBean().getTemporal_resolution_Int());
-			String prevFileName = filename.replace(filenameFormat.format(bean.getTimeStampAsCalendar().getTime()),
-					filenameFormat.format(previous.getTime()));
-			String nextFileName = filename.replace(filenameFormat.format(bean.getTimeStampAsCalendar().getTime()),
-					filenameFormat.format(next.getTime()));
-
-			// Check if files exists
-			File prevFile = new File(prevFileName);
-			File nextFile = new File(nextFileName);
-
-			if (prevFile.exists() && nextFile.exists()) {
-				// perform tests
-				Properties props = new Properties();
-				props.load(new FileInputStream("codar.properties"));
-
-				CodarRadialBean prevBean = CodarUtils.loadCodarRadialData(prevFile, props);
-				CodarRadialBean nextBean = CodarUtils.loadCodarRadialData(nextFile, props);
-
-				List<Float> prevVelo = prevBean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-						CodarUtils.getRadialIndexArray(bean, prevBean.getTable(), profile));
-				List<Float> nextVelo = nextBean.getTable().getColumnElementsInOrder(TableColumnNames.VELO,
-						CodarUtils.getRadialIndexArray(bean, nextBean.getTable(), profile));
-
-				if (prevVelo.size() == velo.size() && nextVelo.size() == velo.size()) {
-					List<Float> diffPrev = new ArrayList<Float>(velo.size());
-					List<Float> diffNext = new ArrayList<Float>(velo.size());
-
-					for (int i = 0; i < velo.size(); i++) {
-						if ((Float.isNaN(prevVelo.get(i)) || Float.isNaN(nextVelo.get(i)))
-								&& !Float.isNaN(velo.get(i))) {
-							// If the previous or next values are not present,
-							// we write a -1 that means flag = 0: it cannot be
-							// evaluated
-							// Modified, very bad values. We left as 0, to have
-							// a flag = 1, good value
-							// TODO check this with the community.
-							diffPrev.add(i, 0f);
-							diffNext.add(i, 0f);
-						} else if (Float.isNaN(velo.get(i))) {
-							// if some value are bad in the previous or next
-							// file, the current is taken as good one.
-							diffPrev.add(i, Float.NaN);
-							diffNext.add(i, Float.NaN);
-						} else {
-							diffPrev.add(i, (Math.abs(prevVelo.get(i) - velo.get(i))) / 100);
-							diffNext.add(i, (Math.abs(nextVelo.get(i) - velo.get(i))) / 100);
-						}
-					}
-					tdThreshold = runDoubleThresholdTest(diffPrev, diffNext, limit);
-				} else {
-					// tests can not be performed due to a missing files.
-					tdThreshold = runThresholdTest(velo, Float.NaN);
-				}
-
-			} else {
-				// tests can not be performed due to a missing files.
-				tdThreshold = runThresholdTest(velo, Float.NaN);
-			}
-		} catch (ParseException e) {
-			log.error("Error trying to perform time derivative tests", e);
-		} catch (FileNotFoundException e) {
-			log.error("property file not found", e);
-		} catch (IOException e) {
-			log.error("error al leer el fichero de propiedades", e);
-		}
-
-		return tdThreshold;
+	/**
+	 * The tests are created once per window, so the metrics of each cell
+	 * (velocity, median filter differences) are only calculated again when
+	 * the values they depend on change, not when a threshold is modified.
+	 * 
+	 * @param profile
+	 *            a profile just in case some grid values are missing.
+	 * @return the tests of the file
+	 */
+	private RadialQualityTests getQualityTests(CodarRadialBean profile) {
+		if (qcTests == null)
+			qcTests = new RadialQualityTests(bean, profile);
+		return qcTests;
 	}
 
 	/**
@@ -988,24 +789,8 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 * @return numero con el valor del flag, con el resultado del test
 	 */
 	public List<Float> runAverageBearinTest(List<Float> data, float minimum, float maximum) {
-		// the result array
 		List<Float> resultado = new ArrayList<Float>(1);
-		// counter for not null values, only not nulls must be taken in to
-		// account.
-		int i = 0;
-		// The addition of the values
-		float suma = 0;
-		for (Float valor : data) {
-			if (!valor.isNaN()) {
-				i++;
-				suma = suma + valor.floatValue();
-			}
-		}
-		if (suma / i >= minimum && suma / i <= maximum)
-			resultado.add(0, Float.valueOf((float) 1));
-		else
-			resultado.add(0, Float.valueOf((float) 4));
-
+		resultado.add(RadialQualityTests.averageBearing(CodarUtils.toFloatArray(data), minimum, maximum));
 		return resultado;
 	}
 
@@ -1023,36 +808,8 @@ public class VentanaRunRadialQualityTests extends JFrame {
 	 * @return list of short values representinig qc test flags.
 	 */
 	public List<Float> runDoubleThresholdTest(List<Float> data1, List<Float> data2, float limit) {
-		List<Float> thresholdTest = new ArrayList<Float>(data1.size());
-		if (data1.size() == data2.size()) {
-			for (int i = 0; i < data1.size(); i++) {
-				float value1 = data1.get(i);
-				float value2 = data2.get(i);
-				if (Float.isNaN(value1) || Float.isNaN(value2)) {
-					// missing value
-					thresholdTest.add(i, Float.NaN);
-				} else if (value1 < 0 || value2 < 0) {
-					// Test not performed, a +1h -1h is not present.
-					thresholdTest.add(i, Float.valueOf((float) 0));
-				} else if (value1 <= limit && value2 <= limit) {
-					// good data
-					thresholdTest.add(i, Float.valueOf((float) 1));
-				} else if (Float.isNaN(limit)) {
-					// If the limit is NaN, we cannot perform the test.
-					thresholdTest.add(i, Float.valueOf((float) 0));
-				} else {
-					// the rest of values, are suspicious of being bad data
-					thresholdTest.add(i, Float.valueOf((float) 4));
-				}
-			}
-		} else {
-			// test not performed
-
-			for (int i = 0; i < data1.size(); i++) {
-				thresholdTest.add(i, Float.valueOf((float) 0));
-			}
-		}
-		return thresholdTest;
+		return CodarUtils.toFloatList(QualityTests.doubleThreshold(CodarUtils.toFloatArray(data1),
+				CodarUtils.toFloatArray(data2), limit));
 	}
 
 }
@@ -9,16 +9,8 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Properties;
-import java.util.TimeZone;
 
 import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
@@ -32,8 +24,9 @@ import javax.swing.JScrollPane;
 import org.apache.log4j.Logger;
 
 import es.azti.codar.beans.CodarTotalBean;
+import es.azti.codar.qc.QualityTests;
+import es.azti.codar.qc.TotalQualityTests;
 import es.azti.codar.utils.CodarUtils;
-import es.azti.utils.TableColumnNames;
 
 /**
  * Cass defining the window that helps running the QAQC tests for total files.
@@ -82,6 +75,8 @@ public class VentanaRunTotalQualityTests extends JFrame {
 	// logger
 	private static Logger log;
 	private CodarTotalBean bean;
+	// tests of the file, they keep the metrics between runs
+	private TotalQualityTests qcTests;
 
 	public VentanaRunTotalQualityTests(CodarTotalBean datos) {
 		// Start logger
@@ -231,15 +226,8 @@ public class VentanaRunTotalQualityTests extends JFrame {
 				if (veloThreshold != null && !veloThreshold.equals("NaN")) {
 					try {
 						bean.getTotalTest().setVeloThreshold(Float.parseFloat(veloThreshold));
-						List<Float> veloURead = bean.getTable().getColumnElements(TableColumnNames.VELU);
-						List<Float> veloVRead = bean.getTable().getColumnElements(TableColumnNames.VELV);
-						List<Float> velo = new ArrayList<Float>(veloURead.size());
-						for (int i = 0; i < veloVRead.size(); i++) {
-							velo.add(Float.valueOf((float) Math
-									.sqrt(Math.pow(veloURead.get(i) / 100, 2) + Math.pow(veloVRead.get(i) / 100, 2))));
-						}
-
-						List<Float> pasaVeloTest = runThresholdTest(velo, bean.getTotalTest().getVeloThreshold());
+						List<Float> pasaVeloTest = CodarUtils
+								.toFloatList(getQualityTests(profile).runVelocityThresholdTest());
 						labelTest2.setText("Test successful");
 						labelTest2.setForeground(Color.blue);
 
@@ -477,9 +465,8 @@ public class VentanaRunTotalQualityTests extends JFrame {
 				if (gdopThreshold != null && !gdopThreshold.equals("NaN")) {
 					try {
 						bean.getTotalTest().setGDOPThreshold(Float.parseFloat(gdopThreshold));
-						List<Float> pasaGDOPTest = runThresholdTest(
-								bean.getTable().getColumnElements(TableColumnNames.CQAL),
-								bean.getTotalTest().getGDOPThreshold());
+						List<Float> pasaGDOPTest = CodarUtils
+								.toFloatList(getQualityTests(profile).runGDOPThresholdTest());
 						labelTest5.setText("Test successful");
 						labelTest5.setForeground(Color.blue);
 
@@ -536,160 +523,30 @@ public class VentanaRunTotalQualityTests extends JFrame {
 	 */
 
 	public List<Float> runTempDerivativeTest(CodarTotalBean profile) {
-
-		List<Integer> codarToNetcdfIndex = CodarUtils.getTotalIndexArray(bean, bean.getTable(), profile);
-		List<Float> veloURead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELU, codarToNetcdfIndex);
-		List<Float> veloVRead = bean.getTable().getColumnElementsInOrder(TableColumnNames.VELV, codarToNetcdfIndex);
-		List<Float> velo = new ArrayList<Float>(veloURead.size());
-		for (int i = 0; i < veloVRead.size(); i++) {
-			velo.add(Float.valueOf((float) Math.sqrt(Math.pow(veloURead.get(i), 2) + Math.pow(veloVRead.get(i), 2))));
-		}
-
-		float limit = Float.isNaN(bean.getTotalTest().getTempThreshold())
-				? bean.getNetworkBean().getTotal_QC_temporal_derivative_threshold_float()
-				: bean.getTotalTest().getTempThreshold();
-		String filename = bean.getPathToFile();
-		SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyy_MM_dd_HHmm");
-
-		List<Float> tdThreshold = new ArrayList<Float>(velo.size());
-
-		filenameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-		Calendar previous;
-		Calendar next;
-		try {
-			previous = (Calendar) bean.getTimeStampAsCalendar().clone();
-			next = (Calendar) bean.getTimeStampAsCalendar().clone();
-			previous.add(Calendar.MINUTE, Math.negateExact(bean.getNetworkBean().getTemporal_resolution_Int()));
-			next.add(Calendar.MINUTE, bean.getNetworkBean().getTemporal_resolution_Int());
-			String prevFileName = filename.replace(filenameFormat.format(bean.getTimeStampAsCalendar().getTime()),
-					filenameFormat.format(previous.getTime()));
-			String nextFileName = filename.replace(filenameFormat.format(bean.getTimeStampAsCalendar().getTime()),
-					filenameFormat.format(next.getTime()));
-
-			// Check if files exists
-			File prevFile = new File(prevFileName);
-			File nextFile = new File(nextFileName);
-
-			if (prevFile.exists() && nextFile.exists()) {
-				// perform tests
-				Properties props = new Properties();
-				props.load(new FileInputStream("codar.properties"));
-
-				CodarTotalBean prevBean = CodarUtils.loadCodarTotalData(prevFile, props);
-				CodarTotalBean nextBean = CodarUtils.loadCodarTotalData(nextFile, props);
-
-				// temp
-				List<Integer> codarToNetcdfIndex1 = CodarUtils.getTotalIndexArray(bean, prevBean.getTable(), profile);
-				List<Integer> codarToNetcdfIndex2 = CodarUtils.getTotalIndexArray(bean, nextBean.getTable(), profile);
-
-				List<Float> prevVelu = prevBean.getTable().getColumnElementsInOrder(TableColumnNames.VELU, codarToNetcdfIndex1);
-				List<Float> prevVelv = prevBean.getTable().getColumnElementsInOrder(TableColumnNames.VELV, codarToNetcdfIndex1);
-				List<Float> nextVelu = nextBean.getTable().getColumnElementsInOrder(TableColumnNames.VELU, codarToNetcdfIndex2);
-				List<Float> nextVelv = nextBean.getTable().getColumnElementsInOrder(TableColumnNames.VELV, codarToNetcdfIndex2);
-
-				List<Float> prevVelo = new ArrayList<Float>(prevVelu.size());
-				List<Float> nextVelo = new ArrayList<Float>(nextVelu.size());
-
-				for (int i = 0; i < prevVelu.size(); i++) {
-					prevVelo.add(Float.valueOf((float) Math.sqrt(Math.pow(prevVelu.get(i), 2) + Math.pow(prevVelv.get(i), 2))));
-					nextVelo.add(Float.valueOf((float) Math.sqrt(Math.pow(nextVelu.get(i), 2) + Math.pow(nextVelv.get(i), 2))));
-				}
-
-				
-				if (prevVelo.size() == velo.size() && nextVelo.size() == velo.size()) {
-					List<Float> diffPrev = new ArrayList<Float>(velo.size());
-					List<Float> diffNext = new ArrayList<Float>(velo.size());
-
-					for (int i = 0; i < velo.size(); i++) {
-						if ((Float.isNaN(prevVelo.get(i)) || Float.isNaN(nextVelo.get(i)))
-								&& !Float.isNaN(velo.get(i))) {
-							// If the previous or next values are not present,
-							// we write a -1 that means flag = 0: it cannot be
-							// evaluated
-							// Modified, very bad values. We left as 0, to have
-							// a flag = 1, good value
-							// TODO check this with the community.
-							diffPrev.add(i, 0f);
-							diffNext.add(i, 0f);
-						} else if (Float.isNaN(velo.get(i))) {
-							// if some value are bad in the previous or next
-							// file, the current is taken as good one.
-							diffPrev.add(i, Float.NaN);
-							diffNext.add(i, Float.NaN);
-						} else {
-							diffPrev.add(i, (Math.abs(prevVelo.get(i) - velo.get(i))) / 100);
-							diffNext.add(i, (Math.abs(nextVelo.get(i) - velo.get(i))) / 100);
-						}
-					}
-					tdThreshold = runDoubleThresholdTest(diffPrev, diffNext, limit);
-				} else {
-					// tests can not be performed due to a missing files.
-					tdThreshold = runThresholdTest(velo, Float.NaN);
-				}
-
-			} else {
-				// tests can not be performed due to a missing files.
-				tdThreshold = runThresholdTest(velo, Float.NaN);
-			}
-		} catch (ParseException e) {
-			// TODO Auto-generated catch block
-			log.error("Error trying to perform time derivative tests", e);
-		} catch (FileNotFoundException e) {
-			log.error("property file not found", e);
-		} catch (IOException e) {
-			log.error("error al leer el fichero de propiedades", e);
-		}
-
-		return tdThreshold;
+		return CodarUtils.toFloatList(getQualityTests(profile).runTempDerivativeTest());
 	}
 
 	public List<Float> runDataDensityTest(float limit, CodarTotalBean profile) {
-
-		List<Integer> codarToNetcdfIndex = CodarUtils.getTotalIndexArray(bean, bean.getTable(), profile);
-		List<Float> site1 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S1CN, codarToNetcdfIndex);
-		List<Float> site2 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S2CN, codarToNetcdfIndex);
-		List<Float> site3 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S3CN, codarToNetcdfIndex);
-		List<Float> site4 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S4CN, codarToNetcdfIndex);
-		List<Float> site5 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S5CN, codarToNetcdfIndex);
-		List<Float> site6 = bean.getTable().getColumnElementsInOrder(TableColumnNames.S6CN, codarToNetcdfIndex);
-		List<Float> ddThreshold = new ArrayList<Float>(site1.size());
-		for (int i = 0; i < site1.size(); i++) {
-			float total = 0;
-			if (!site1.isEmpty())
-				total = total + site1.get(i);
-			if (!site2.isEmpty())
-				total = total + site2.get(i);
-			if (!site3.isEmpty())
-				total = total + site3.get(i);
-			if (!site4.isEmpty())
-				total = total + site4.get(i);
-			if (!site5.isEmpty())
-				total = total + site5.get(i);
-			if (!site6.isEmpty())
-				total = total + site6.get(i);
-
-			ddThreshold.add(i, total);
-		}
-		List<Float> vuelta = runInverseThresholdTest(ddThreshold, limit);
-		return vuelta;
+		return CodarUtils.toFloatList(getQualityTests(profile).runDataDensityTest(limit));
 	}
 
 	public List<Float> runVarianceThresholdTest(float limit, CodarTotalBean profile) {
-		// TODO calculate properly, Variance Threshold Quality
-		List<Integer> codarToNetcdfIndex = CodarUtils.getTotalIndexArray(bean, bean.getTable(), profile);
-		List<Float> ustdevThreshold_QCflag = bean.getTable().getColumnElementsInOrder(TableColumnNames.UQAL,
-				codarToNetcdfIndex);
-		List<Float> vstdevThreshold_QCflag = bean.getTable().getColumnElementsInOrder(TableColumnNames.VQAL,
-				codarToNetcdfIndex);
-		List<Float> varianceThreshold_QCflag = new ArrayList<Float>(ustdevThreshold_QCflag.size());
-		for (int i = 0; i < ustdevThreshold_QCflag.size(); i++) {
-			float value = (float) Math
-					.sqrt((Math.pow(vstdevThreshold_QCflag.get(i), 2) + Math.pow(ustdevThreshold_QCflag.get(i), 2)));
-			varianceThreshold_QCflag.add(i, value);
-		}
-		List<Float> vuelta = runThresholdTest(varianceThreshold_QCflag, limit);
-		return vuelta;
+		return CodarUtils.toFloatList(getQualityTests(profile).runVarianceThresholdTest(limit));
+	}
 
+	/**
+	 * The tests are created once per window, so the metrics of each cell
+	 * (speed, data density, variance, GDOP) are calculated only once and the
+	 * thresholds applied again when they are modified.
+	 * 
+	 * @param profile
+	 *            a profile just in case some grid values are missing.
+	 * @return the tests of the file
+	 */
+	private TotalQualityTests getQualityTests(CodarTotalBean profile) {
+		if (qcTests == null)
+			qcTests = new TotalQualityTests(bean, profile);
+		return qcTests;
 	}
 
 	/**
@@ -703,24 +560,7 @@ public class VentanaRunTotalQualityTests extends JFrame {
 	 * @return list of short values representinig qc test flags.
 	 */
 	public List<Float> runThresholdTest(List<Float> data, float limit) {
-		List<Float> thresholdTest = new ArrayList<Float>(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			float value = data.get(i);
-			if (Math.abs(value) <= limit) {
-				// good data
-				thresholdTest.add(i, Float.valueOf((float) 1));
-			} else if (Float.isNaN(value)) {
-				// missing value
-				thresholdTest.add(i, Float.NaN);
-			} else if (Float.isNaN(limit)) {
-				// If the limit is NaN, we cannot perform the test.
-				thresholdTest.add(i, Float.valueOf((float) 0));
-			} else {
-				// the rest of values, are suspicious of being bad data
-				thresholdTest.add(i, Float.valueOf((float) 4));
-			}
-		}
-		return thresholdTest;
+		return CodarUtils.toFloatList(QualityTests.threshold(CodarUtils.toFloatArray(data), limit));
 	}
 
 	/**
@@ -735,24 +575,7 @@ public class VentanaRunTotalQualityTests extends JFrame {
 	 * @return list of short values representinig qc test flags.
 	 */
 	public List<Float> runInverseThresholdTest(List<Float> data, float limit) {
-		List<Float> thresholdTest = new ArrayList<Float>(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			float value = data.get(i);
-			if (Math.abs(value) >= limit) {
-				// good data
-				thresholdTest.add(i, Float.valueOf((float) 1));
-			} else if (Float.isNaN(value)) {
-				// missing value
-				thresholdTest.add(i, Float.NaN);
-			} else if (Float.isNaN(limit)) {
-				// If the limit is NaN, we cannot perform the test.
-				thresholdTest.add(i, Float.valueOf((float) 0));
-			} else {
-				// the rest of values, are suspicious of being bad data
-				thresholdTest.add(i, Float.valueOf((float) 4));
-			}
-		}
-		return thresholdTest;
+		return CodarUtils.toFloatList(QualityTests.inverseThreshold(CodarUtils.toFloatArray(data), limit));
 	}
 
 	/**
@@ -769,36 +592,8 @@ public class VentanaRunTotalQualityTests extends JFrame {
 	 * @return list of short values representinig qc test flags.
 	 */
 	public List<Float> runDoubleThresholdTest(List<Float> data1, List<Float> data2, float limit) {
-		List<Float> thresholdTest = new ArrayList<Float>(data1.size());
-		if (data1.size() == data2.size()) {
-			for (int i = 0; i < data1.size(); i++) {
-				float value1 = data1.get(i);
-				float value2 = data2.get(i);
-				if (Float.isNaN(value1) || Float.isNaN(value2)) {
-					// missing value
-					thresholdTest.add(i, Float.NaN);
-				} else if (value1 < 0 || value2 < 0) {
-					// Test not performed, a +1h -1h is not present.
-					thresholdTest.add(i, Float.valueOf((float) 0));
-				} else if (value1 <= limit && value2 <= limit) {
-					// good data
-					thresholdTest.add(i, Float.valueOf((float) 1));
-				} else if (Float.isNaN(limit)) {
-					// If the limit is NaN, we cannot perform the test.
-					thresholdTest.add(i, Float.valueOf((float) 0));
-				} else {
-					// the rest of values, are suspicious of being bad data
-					thresholdTest.add(i, Float.valueOf((float) 4));
-				}
-			}
-		} else {
-			// test not performed
-
-			for (int i = 0; i < data1.size(); i++) {
-				thresholdTest.add(i, Float.valueOf((float) 0));
-			}
-		}
-		return thresholdTest;
+		return CodarUtils.toFloatList(QualityTests.doubleThreshold(CodarUtils.toFloatArray(data1),
+				CodarUtils.toFloatArray(data2), limit));
 	}
 
 }
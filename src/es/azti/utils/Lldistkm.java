@@ -112,4 +112,42 @@ public class Lldistkm {
 
 	}
 
+	/**
+	 * d1km of calculate, Haversine distance in km, without allocating the
+	 * result array. The operations are the same ones, so the value is
+	 * identical.
+	 * 
+	 * @param lat1
+	 *            latitude for the origin point
+	 * @param lon1
+	 *            longitude for the origin point
+	 * @param lat2
+	 *            latitude for the second point
+	 * @param lon2
+	 *            longitude for the second poing
+	 * @return distance in km
+	 */
+	public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+		lat1 = (lat1 * Math.PI) / 180;
+		lat2 = (lat2 * Math.PI) / 180;
+		lon1 = (lon1 * Math.PI) / 180;
+		lon2 = (lon2 * Math.PI) / 180;
+		return haversineRadians(lat1, lon1, Math.cos(lat1), lat2, lon2, Math.cos(lat2));
+	}
+
+	/**
+	 * Haversine distance in km from coordinates already in radians, with the
+	 * cosine of the latitudes precomputed.
+	 */
+	public static double haversineRadians(double lat1, double lon1, double cosLat1, double lat2, double lon2,
+			double cosLat2) {
+		int radius = 6371;
+		double deltaLat = lat2 - lat1;
+		double deltaLon = lon2 - lon1;
+		double a = Math.pow(Math.sin(deltaLat / 2), 2) + cosLat1 * cosLat2 * Math.pow(Math.sin(deltaLon / 2), 2);
+
+		double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+		return radius * c;
+	}
+
 }
@@ -0,0 +1,307 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.utils;
+
+import java.util.Arrays;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Neighbourhood index of the cells of a radial grid, used by the median
+ *         filter test. A cell j is a neighbour of i when its bearing is not
+ *         farther than angLim degrees and its Haversine distance is not greater
+ *         than rcLim km. The cells are sorted by bearing, so only the cells of
+ *         the bearing window are visited, and the ones whose latitude alone is
+ *         farther than rcLim are discarded before computing the distance. The
+ *         conditions checked are exactly the ones of the all pairs comparison
+ *         and the neighbours are accumulated in grid order, so the results are
+ *         identical.
+ *
+ *         The difference of each cell can be taken with the mean of its
+ *         neighbourhood, as the first versions of the median filter did, or
+ *         with its true median, found by selection over the neighbours
+ *         gathered (expected O(k) for k neighbours, no sort).
+ */
+public class RadialNeighbourhood {
+
+	private static final int RADIUS = 6371;
+	// margin for the bearing window and the latitude bound, the exact
+	// conditions are checked after them
+	private static final float BEARING_MARGIN = 1e-3f;
+	private static final double DISTANCE_MARGIN = 1e-9;
+
+	private final int cells;
+	private final float[] bear;
+	// valid cells (bearing, latitude and longitude present) sorted by bearing
+	private final int[] byBearing;
+	private final float[] sortedBearing;
+	// coordinates in radians and cosine of the latitude
+	private final double[] latRad;
+	private final double[] lonRad;
+	private final double[] cosLat;
+
+	/**
+	 * @param bear
+	 *            bearing of each grid cell, NaN if the cell is empty
+	 * @param lat
+	 *            latitude of each grid cell
+	 * @param lon
+	 *            longitude of each grid cell
+	 */
+	public RadialNeighbourhood(float[] bear, float[] lat, float[] lon) {
+		this.cells = bear.length;
+		this.bear = bear;
+		latRad = new double[cells];
+		lonRad = new double[cells];
+		cosLat = new double[cells];
+		long[] keys = new long[cells];
+		int valid = 0;
+		for (int i = 0; i < cells; i++) {
+			// same conversion as Lldistkm
+			latRad[i] = ((double) lat[i] * Math.PI) / 180;
+			lonRad[i] = ((double) lon[i] * Math.PI) / 180;
+			cosLat[i] = Math.cos(latRad[i]);
+			if (!Float.isNaN(bear[i]) && !Float.isNaN(lat[i]) && !Float.isNaN(lon[i]))
+				keys[valid++] = ((long) sortableBits(bear[i]) << 32) | i;
+		}
+		Arrays.sort(keys, 0, valid);
+		byBearing = new int[valid];
+		sortedBearing = new float[valid];
+		for (int k = 0; k < valid; k++) {
+			byBearing[k] = (int) keys[k];
+			sortedBearing[k] = bear[byBearing[k]];
+		}
+	}
+
+	/**
+	 * For each cell, absolute difference between the mean velocity of its
+	 * neighbourhood (itself included) and its velocity.
+	 *
+	 * @param velo
+	 *            velocity of each grid cell
+	 * @param angLim
+	 *            bearing limit, degrees
+	 * @param rcLim
+	 *            distance limit, km
+	 * @return the differences, NaN if the neighbourhood has missing velocities
+	 */
+	public float[] meanDifference(float[] velo, float angLim, float rcLim) {
+		float[] diff = new float[cells];
+		meanDifference(velo, angLim, rcLim, diff, 0, cells);
+		return diff;
+	}
+
+	/**
+	 * meanDifference of a range of cells, so the grid can be split between
+	 * several threads.
+	 *
+	 * @param velo
+	 *            velocity of each grid cell
+	 * @param angLim
+	 *            bearing limit, degrees
+	 * @param rcLim
+	 *            distance limit, km
+	 * @param diff
+	 *            where the differences are stored
+	 * @param from
+	 *            first cell, inclusive
+	 * @param to
+	 *            last cell, exclusive
+	 */
+	public void meanDifference(float[] velo, float angLim, float rcLim, float[] diff, int from, int to) {
+		int[] neighbours = new int[Math.max(1, byBearing.length)];
+		double latLimit = rcLim / (double) RADIUS * (1 + DISTANCE_MARGIN) + DISTANCE_MARGIN;
+		for (int i = from; i < to; i++) {
+			int found = neighbours(i, angLim, rcLim, latLimit, neighbours);
+			float tempMedian = 0;
+			if (found == 0) {
+				// empty cell, only itself
+				tempMedian = tempMedian + velo[i];
+				found = 1;
+			} else {
+				for (int n = 0; n < found; n++)
+					tempMedian = tempMedian + velo[neighbours[n]];
+			}
+			diff[i] = Math.abs(tempMedian / found - velo[i]);
+		}
+	}
+
+	/**
+	 * For each cell, absolute difference between the median velocity of its
+	 * neighbourhood (itself included) and its velocity. The missing velocities
+	 * of the neighbourhood are not taken into account.
+	 *
+	 * @param velo
+	 *            velocity of each grid cell
+	 * @param angLim
+	 *            bearing limit, degrees
+	 * @param rcLim
+	 *            distance limit, km
+	 * @return the differences, NaN if the velocity of the cell is missing
+	 */
+	public float[] medianDifference(float[] velo, float angLim, float rcLim) {
+		float[] diff = new float[cells];
+		medianDifference(velo, angLim, rcLim, diff, 0, cells);
+		return diff;
+	}
+
+	/**
+	 * medianDifference of a range of cells, so the grid can be split between
+	 * several threads.
+	 *
+	 * @param velo
+	 *            velocity of each grid cell
+	 * @param angLim
+	 *            bearing limit, degrees
+	 * @param rcLim
+	 *            distance limit, km
+	 * @param diff
+	 *            where the differences are stored
+	 * @param from
+	 *            first cell, inclusive
+	 * @param to
+	 *            last cell, exclusive
+	 */
+	public void medianDifference(float[] velo, float angLim, float rcLim, float[] diff, int from, int to) {
+		int[] neighbours = new int[Math.max(1, byBearing.length)];
+		float[] values = new float[neighbours.length];
+		double latLimit = rcLim / (double) RADIUS * (1 + DISTANCE_MARGIN) + DISTANCE_MARGIN;
+		for (int i = from; i < to; i++) {
+			int found = neighbours(i, angLim, rcLim, latLimit, neighbours);
+			if (found == 0 || Float.isNaN(velo[i])) {
+				// empty cell, only itself
+				diff[i] = Math.abs(velo[i] - velo[i]);
+				continue;
+			}
+			int count = 0;
+			for (int n = 0; n < found; n++) {
+				float value = velo[neighbours[n]];
+				if (!Float.isNaN(value))
+					values[count++] = value;
+			}
+			diff[i] = Math.abs(median(values, count) - velo[i]);
+		}
+	}
+
+	/**
+	 * Median of the first values of the array, which are reordered. The middle
+	 * element is selected with quickselect and, when the number of values is
+	 * even, the other middle one is the maximum of the lower part.
+	 *
+	 * @param values
+	 *            values, not NaN
+	 * @param count
+	 *            number of values, at least one
+	 * @return the median
+	 */
+	static float median(float[] values, int count) {
+		int k = count / 2;
+		float upper = select(values, count, k);
+		if (count % 2 == 1)
+			return upper;
+		// after the selection the lower half is before k
+		float lower = values[0];
+		for (int n = 1; n < k; n++)
+			if (values[n] > lower)
+				lower = values[n];
+		return (lower + upper) / 2;
+	}
+
+	/**
+	 * k-th smallest of the first count values (Hoare's selection), the
+	 * smaller ones are left before k and the bigger ones after it.
+	 */
+	private static float select(float[] values, int count, int k) {
+		int left = 0;
+		int right = count - 1;
+		while (left < right) {
+			// median of three as pivot
+			int mid = (left + right) >>> 1;
+			if (values[mid] < values[left])
+				swap(values, left, mid);
+			if (values[right] < values[left])
+				swap(values, left, right);
+			if (values[right] < values[mid])
+				swap(values, mid, right);
+			float pivot = values[mid];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot)
+					i++;
+				while (values[j] > pivot)
+					j--;
+				if (i <= j) {
+					swap(values, i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				break;
+		}
+		return values[k];
+	}
+
+	private static void swap(float[] values, int i, int j) {
+		float temp = values[i];
+		values[i] = values[j];
+		values[j] = temp;
+	}
+
+	/**
+	 * Neighbours of a cell in grid order.
+	 *
+	 * @return number of neighbours stored, 0 if the cell is not valid.
+	 */
+	private int neighbours(int i, float angLim, float rcLim, double latLimit, int[] neighbours) {
+		float bearBase = bear[i];
+		if (Float.isNaN(bearBase) || Double.isNaN(latRad[i]) || Double.isNaN(lonRad[i]))
+			return 0;
+		int found = 0;
+		float margin = angLim + BEARING_MARGIN;
+		int k = lowerBound(bearBase - margin);
+		for (; k < sortedBearing.length && sortedBearing[k] <= bearBase + margin; k++) {
+			int j = byBearing[k];
+			if (j == i) {
+				neighbours[found++] = j;
+			} else if (Math.abs(bear[j] - bearBase) <= angLim && Math.abs(latRad[j] - latRad[i]) <= latLimit
+					&& Lldistkm.haversineRadians(latRad[i], lonRad[i], cosLat[i], latRad[j], lonRad[j],
+							cosLat[j]) <= rcLim) {
+				neighbours[found++] = j;
+			}
+		}
+		Arrays.sort(neighbours, 0, found);
+		return found;
+	}
+
+	/**
+	 * @return first position of sortedBearing not lower than value
+	 */
+	private int lowerBound(float value) {
+		int low = 0;
+		int high = sortedBearing.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedBearing[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @return int with the same order as the float, for the sort keys
+	 */
+	private static int sortableBits(float value) {
+		int bits = Float.floatToIntBits(value);
+		return bits >= 0 ? bits : bits ^ 0x7FFFFFFF;
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         The tokenizer must give the same values than Float.parseFloat, bit
+ *         by bit, and NaN for the malformed cells.
+ */
+public class CodarFloatTokenizerTest {
+
+	private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+	private static float parse(CodarFloatTokenizer tokenizer, String token) {
+		// surrounded by other bytes, as in a table row
+		ByteBuffer buffer = ByteBuffer.wrap((" " + token + "\n").getBytes(ASCII));
+		return tokenizer.parseFloat(buffer, 1, 1 + token.length());
+	}
+
+	private static float parseLegacy(String token) {
+		try {
+			return Float.parseFloat(token);
+		} catch (NumberFormatException e) {
+			return Float.NaN;
+		}
+	}
+
+	private static void assertSameAsParseFloat(CodarFloatTokenizer tokenizer, String token) {
+		assertEquals(token, Float.floatToIntBits(parseLegacy(token)),
+				Float.floatToIntBits(parse(tokenizer, token)));
+	}
+
+	@Test
+	public void cellsOfTheTables() {
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		String[] tokens = { "0", "-0", "0.0", "-142.", "+27.", "0.7330", "-1.9766667", "43.3645833", "1.5e-3",
+				"2E+5", "999", "1234567.891", "0.000001", "-0.0000001234", "3.4028235e38", "1.4e-45", "NaN",
+				"Infinity", "-Infinity", "123456789012345678901234567890", "0.1234567890123456789" };
+		for (String token : tokens)
+			assertSameAsParseFloat(tokenizer, token);
+		assertEquals(0, tokenizer.getMalformed());
+	}
+
+	@Test
+	public void malformedCellsAreNaN() {
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		String[] tokens = { "", "-", ".", "1.2.3", "e5", "1e", "12a", "--1" };
+		for (String token : tokens)
+			assertTrue(token, Float.isNaN(parse(tokenizer, token)));
+		assertEquals(tokens.length, tokenizer.getMalformed());
+		tokenizer.reset();
+		assertEquals(0, tokenizer.getMalformed());
+	}
+
+	@Test
+	public void hexadecimalCells() {
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		String[] tokens = { "0", "ff", "-1A", "7fffffff", "12345678" };
+		for (String token : tokens) {
+			ByteBuffer buffer = ByteBuffer.wrap(token.getBytes(ASCII));
+			assertEquals(token, (float) Integer.parseInt(token, 16), tokenizer.parseHex(buffer, 0, token.length()),
+					0);
+		}
+		assertTrue(Float.isNaN(tokenizer.parseHex(ByteBuffer.wrap("xyz".getBytes(ASCII)), 0, 3)));
+		assertEquals(1, tokenizer.getMalformed());
+	}
+
+	@Test
+	public void randomDecimals() {
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		Random random = new Random(20181001L);
+		for (int i = 0; i < 200000; i++) {
+			int digits = 1 + random.nextInt(15);
+			long mantissa = (long) (random.nextDouble() * Math.pow(10, digits));
+			int decimals = random.nextInt(digits + 4);
+			StringBuilder token = new StringBuilder(Long.toString(mantissa));
+			while (token.length() <= decimals)
+				token.insert(0, '0');
+			token.insert(token.length() - decimals, '.');
+			if (random.nextBoolean())
+				token.insert(0, '-');
+			if (random.nextInt(10) == 0)
+				token.append('e').append(random.nextInt(60) - 30);
+			assertSameAsParseFloat(tokenizer, token.toString());
+		}
+		assertEquals(0, tokenizer.getMalformed());
+	}
+
+	/**
+	 * Every data cell of the example files.
+	 */
+	@Test
+	public void exampleFiles() throws IOException {
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		int cells = 0;
+		for (File folder : new File("release/examples").listFiles()) {
+			if (!folder.isDirectory())
+				continue;
+			for (File file : folder.listFiles()) {
+				if (!CodarInput.isCodarFile(file.getName()))
+					continue;
+				for (String line : Files.readAllLines(file.toPath(), ASCII)) {
+					// the diagnostic rows start with a single %
+					if (line.startsWith("%%") || line.indexOf(':') >= 0)
+						continue;
+					if (line.startsWith("%"))
+						line = line.substring(1);
+					if (line.trim().isEmpty())
+						continue;
+					for (String token : line.trim().split("\\s+")) {
+						assertSameAsParseFloat(tokenizer, token);
+						cells++;
+					}
+				}
+			}
+		}
+		assertTrue(cells > 0);
+	}
+}
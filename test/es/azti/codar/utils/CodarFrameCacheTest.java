@@ -0,0 +1,96 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import es.azti.codar.beans.CodarRadialBean;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Windows of the frame cache, with the radial examples of two sites.
+ */
+public class CodarFrameCacheTest {
+
+	private static final int FILES_PER_SITE = 6;
+
+	private Properties props;
+
+	@Before
+	public void loadProperties() throws IOException {
+		props = new Properties();
+		FileInputStream input = new FileInputStream("codar.properties");
+		try {
+			props.load(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static List<CodarInput> firstFiles(String folder) throws IOException {
+		List<CodarInput> lista = CodarInput.list(new File("release/examples", folder));
+		return lista.subList(0, FILES_PER_SITE);
+	}
+
+	/**
+	 * Two sites interleaved, each file asks for its previous and next time
+	 * steps as the temporal derivative test does: every file is parsed once.
+	 */
+	@Test
+	public void interleavedSitesAreParsedOnce() throws Exception {
+		List<List<CodarInput>> sites = new ArrayList<List<CodarInput>>();
+		sites.add(firstFiles("HIGE_2018_09"));
+		sites.add(firstFiles("MATX_2018_09"));
+		CodarFrameCache frames = new CodarFrameCache(props);
+		for (int i = 0; i < FILES_PER_SITE; i++) {
+			for (List<CodarInput> site : sites) {
+				CodarRadialBean bean = frames.getRadial(site.get(i));
+				if (i > 0)
+					frames.getRadial(site.get(i - 1).getPath());
+				if (i < FILES_PER_SITE - 1)
+					frames.getRadial(site.get(i + 1).getPath());
+				assertSame(bean, frames.getRadial(site.get(i)));
+			}
+		}
+		assertEquals(2 * FILES_PER_SITE, frames.getLoads());
+	}
+
+	/**
+	 * The files of a site do not evict the ones of the other.
+	 */
+	@Test
+	public void windowIsKeptBySite() throws Exception {
+		List<CodarInput> hige = firstFiles("HIGE_2018_09");
+		List<CodarInput> matx = firstFiles("MATX_2018_09");
+		CodarFrameCache frames = new CodarFrameCache(props, 3);
+		CodarRadialBean first = frames.getRadial(matx.get(0));
+		for (CodarInput input : hige)
+			frames.getRadial(input);
+		assertSame(first, frames.getRadial(matx.get(0)));
+		// the oldest time steps of HIGE went out
+		frames.getRadial(hige.get(0));
+		assertEquals(FILES_PER_SITE + 2, frames.getLoads());
+	}
+
+	@Test
+	public void siteFromHeaderOrFileName() {
+		CodarInput input = new CodarInput(new File("RDLi_HIGE_2018_09_01_0000.ruv.gz"));
+		assertEquals("MATX", CodarFrameCache.siteOf("MATX \"\"", input));
+		assertEquals("HIGE", CodarFrameCache.siteOf(null, input));
+		assertEquals("HIGE", CodarFrameCache.siteOf(" ", input));
+	}
+}
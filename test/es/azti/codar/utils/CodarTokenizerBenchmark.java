@@ -0,0 +1,144 @@
+/**
+ *  @author Jose Luis Asensio (jlasensio@azti.es)
+ *  18 de oct. de 2026
+ */
+package es.azti.codar.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Jose Luis Asensio (jlasensio@azti.es) 18 de oct. de 2026
+ *
+ *         Microbenchmark of the LLUV table row parsing. The data rows of the
+ *         given codar files (or directories) are parsed with the old
+ *         trim().split("\\s+") + Float.parseFloat loop and with
+ *         CodarFloatTokenizer, checking that both give the same values and
+ *         printing the cost per row. It is kept with the unit tests, the
+ *         values are checked by CodarFloatTokenizerTest.
+ *
+ *         usage: CodarTokenizerBenchmark file|directory..., e.g. the
+ *         release/examples folder
+ */
+public class CodarTokenizerBenchmark {
+
+	private static final Charset ASCII = Charset.forName("ISO-8859-1");
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws IOException {
+		List<byte[]> rows = new ArrayList<byte[]>();
+		for (String arg : args)
+			collectRows(new File(arg), rows);
+		if (rows.isEmpty()) {
+			System.out.println("usage: CodarTokenizerBenchmark file|directory...");
+			return;
+		}
+		// all the rows in a single buffer, as the mapped file
+		int size = 0;
+		for (byte[] row : rows)
+			size += row.length + 1;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+		int[] rowStart = new int[rows.size() + 1];
+		for (int i = 0; i < rows.size(); i++) {
+			rowStart[i] = buffer.position();
+			buffer.put(rows.get(i));
+			buffer.put((byte) '\n');
+		}
+		rowStart[rows.size()] = buffer.position();
+
+		// check the values first
+		CodarFloatTokenizer tokenizer = new CodarFloatTokenizer();
+		int cells = 0;
+		int mismatches = 0;
+		for (int i = 0; i < rows.size(); i++) {
+			String[] tokens = new String(rows.get(i), ASCII).trim().split("\\s+");
+			int p = rowStart[i];
+			int end = rowStart[i + 1] - 1;
+			for (String token : tokens) {
+				while (p < end && buffer.get(p) <= ' ')
+					p++;
+				int tokenStart = p;
+				while (p < end && buffer.get(p) > ' ')
+					p++;
+				float expected = parseLegacy(token);
+				float parsed = tokenizer.parseFloat(buffer, tokenStart, p);
+				if (Float.floatToIntBits(expected) != Float.floatToIntBits(parsed)) {
+					mismatches++;
+					System.out.println("mismatch: " + token + " " + expected + " " + parsed);
+				}
+				cells++;
+			}
+		}
+		System.out.println(rows.size() + " rows, " + cells + " cells, " + mismatches + " mismatches, "
+				+ tokenizer.getMalformed() + " malformed");
+
+		double sink = 0;
+		long legacy = Long.MAX_VALUE;
+		long fast = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (byte[] row : rows) {
+				for (String token : new String(row, ASCII).trim().split("\\s+"))
+					sink += parseLegacy(token);
+			}
+			legacy = Math.min(legacy, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < rows.size(); i++) {
+				int p = rowStart[i];
+				int end = rowStart[i + 1] - 1;
+				while (p < end) {
+					while (p < end && buffer.get(p) <= ' ')
+						p++;
+					int tokenStart = p;
+					while (p < end && buffer.get(p) > ' ')
+						p++;
+					if (tokenStart < p)
+						sink += tokenizer.parseFloat(buffer, tokenStart, p);
+				}
+			}
+			fast = Math.min(fast, System.nanoTime() - start);
+		}
+		System.out.println(String.format("split + Float.parseFloat: %.1f ns/row", (double) legacy / rows.size()));
+		System.out.println(String.format("CodarFloatTokenizer:      %.1f ns/row", (double) fast / rows.size()));
+		System.out.println("(" + sink + ")");
+	}
+
+	private static float parseLegacy(String token) {
+		try {
+			return Float.parseFloat(token);
+		} catch (NumberFormatException e) {
+			return Float.NaN;
+		}
+	}
+
+	/**
+	 * Data rows of the LLUV tables, the diagnostic rows start with a single %.
+	 */
+	private static void collectRows(File file, List<byte[]> rows) throws IOException {
+		if (file.isDirectory()) {
+			File[] lista = file.listFiles();
+			if (lista != null) {
+				for (File individual : lista)
+					collectRows(individual, rows);
+			}
+			return;
+		}
+		if (!file.getName().endsWith(".ruv") && !file.getName().endsWith(".tuv"))
+			return;
+		for (String line : Files.readAllLines(file.toPath(), ASCII)) {
+			if (line.startsWith("%%") || line.indexOf(':') >= 0 || line.trim().isEmpty())
+				continue;
+			if (line.startsWith("%"))
+				line = line.substring(1);
+			if (line.trim().isEmpty())
+				continue;
+			rows.add(line.getBytes(ASCII));
+		}
+	}
+}